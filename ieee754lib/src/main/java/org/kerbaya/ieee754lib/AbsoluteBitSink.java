@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes bits using absolute buffer indexes only, leaving the buffer's 
+ * position, limit and mark untouched.  Bits outside of those written keep 
+ * their existing values.
+ */
+final class AbsoluteBitSink implements BitSink
+{
+	private final ByteBuffer dest;
+	
+	private long bitIndex;
+	
+	public AbsoluteBitSink(ByteBuffer dest, long bitOffset)
+	{
+		if (bitOffset < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.dest = dest;
+		bitIndex = bitOffset;
+	}
+
+	@Override
+	public void write(boolean bit)
+	{
+		if (bitIndex >>> 3 > Integer.MAX_VALUE)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		int index = (int) (bitIndex >>> 3);
+		int mask = 0x80 >>> (bitIndex & 0x7);
+		int b = dest.get(index) & 0xFF;
+		dest.put(index, (byte) (bit ? b | mask : b & ~mask));
+		bitIndex++;
+	}
+	
+	public long getBitIndex()
+	{
+		return bitIndex;
+	}
+}
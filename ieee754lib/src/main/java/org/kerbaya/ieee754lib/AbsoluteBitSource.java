@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads bits using absolute buffer indexes only, leaving the buffer's 
+ * position, limit and mark untouched
+ */
+final class AbsoluteBitSource implements SeekableBitSource
+{
+	private final ByteBuffer source;
+	
+	private long bitIndex;
+	
+	public AbsoluteBitSource(ByteBuffer source, long bitOffset)
+	{
+		if (bitOffset < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.source = source;
+		bitIndex = bitOffset;
+	}
+
+	@Override
+	public boolean next()
+	{
+		long index = bitIndex >>> 3;
+		if (index > Integer.MAX_VALUE)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		boolean r = (source.get((int) index) 
+				& (0x80 >>> (bitIndex & 0x7))) != 0;
+		bitIndex++;
+		return r;
+	}
+	
+	public long getBitIndex()
+	{
+		return bitIndex;
+	}
+	
+	@Override
+	public void skipBits(long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		bitIndex += count;
+	}
+	
+	@Override
+	public long position()
+	{
+		return bitIndex;
+	}
+	
+	@Override
+	public void position(long bitOffset)
+	{
+		if (bitOffset < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		bitIndex = bitOffset;
+	}
+}
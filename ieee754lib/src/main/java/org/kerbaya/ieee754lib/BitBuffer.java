@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable, in-memory string of bits that can be both written and read.  
+ * Bits are appended to the end, and read from a cursor that starts at the 
+ * beginning.
+ * <p>
+ * Bits are stored most-significant first in an array of {@code long}s, with
+ * the last, partial word kept in an accumulator.  Appending is amortized 
+ * O(1), and {@link #writeBits(long, int)} / {@link #readBits(int)} move up to
+ * 64 bits at a time.
+ */
+public final class BitBuffer implements BitSink, SeekableBitSource
+{
+	private long[] words;
+	private int wordCount;
+	private long accumulator;
+	private int accumulatorLength;
+	private long position;
+	
+	public BitBuffer()
+	{
+		this(256);
+	}
+	
+	public BitBuffer(long initialCapacity)
+	{
+		if (initialCapacity < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		words = new long[(int) Math.max(1, (initialCapacity + 63) >>> 6)];
+	}
+	
+	private void appendWord(long word)
+	{
+		if (wordCount == words.length)
+		{
+			words = Arrays.copyOf(words, wordCount << 1);
+		}
+		words[wordCount++] = word;
+	}
+	
+	/**
+	 * @return the word at the index, left-aligned if it's the partial word in
+	 * the accumulator
+	 */
+	private long word(int index)
+	{
+		if (index < wordCount)
+		{
+			return words[index];
+		}
+		return accumulatorLength == 0 ? 
+				0 : accumulator << (64 - accumulatorLength);
+	}
+	
+	@Override
+	public void write(boolean bit)
+	{
+		accumulator = accumulator << 1 | (bit ? 1L : 0L);
+		if (++accumulatorLength == 64)
+		{
+			appendWord(accumulator);
+			accumulator = 0;
+			accumulatorLength = 0;
+		}
+	}
+	
+	/**
+	 * Appends the low-order {@code count} bits of {@code bits}, most 
+	 * significant first
+	 */
+	public void writeBits(long bits, int count)
+	{
+		if (count < 0 || count > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (count == 0)
+		{
+			return;
+		}
+		if (count < 64)
+		{
+			bits &= (1L << count) - 1;
+		}
+		int free = 64 - accumulatorLength;
+		if (count < free)
+		{
+			accumulator = accumulator << count | bits;
+			accumulatorLength += count;
+		}
+		else
+		{
+			int rest = count - free;
+			appendWord(free == 64 ? 
+					bits : accumulator << free | bits >>> rest);
+			accumulator = rest == 0 ? 0 : bits & ((1L << rest) - 1);
+			accumulatorLength = rest;
+		}
+	}
+	
+	@Override
+	public boolean next()
+	{
+		if (position >= length())
+		{
+			throw new IllegalStateException();
+		}
+		boolean r = word((int) (position >>> 6)) << (position & 0x3F) < 0;
+		position++;
+		return r;
+	}
+	
+	/**
+	 * Reads {@code count} bits from the cursor, most significant first, into
+	 * the low-order bits of the result
+	 */
+	public long readBits(int count)
+	{
+		if (count < 0 || count > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (count > remaining())
+		{
+			throw new IllegalStateException();
+		}
+		if (count == 0)
+		{
+			return 0;
+		}
+		int index = (int) (position >>> 6);
+		int offset = (int) (position & 0x3F);
+		long r = word(index) << offset;
+		if (offset + count > 64)
+		{
+			r |= word(index + 1) >>> (64 - offset);
+		}
+		position += count;
+		return r >>> (64 - count);
+	}
+	
+	/**
+	 * @return the number of bits written
+	 */
+	public long length()
+	{
+		return ((long) wordCount << 6) + accumulatorLength;
+	}
+	
+	/**
+	 * Moves the cursor forward without reading
+	 */
+	@Override
+	public void skipBits(long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (count > remaining())
+		{
+			throw new IllegalStateException();
+		}
+		position += count;
+	}
+	
+	/**
+	 * @return the index of the next bit to be read
+	 */
+	@Override
+	public long position()
+	{
+		return position;
+	}
+	
+	@Override
+	public void position(long position)
+	{
+		if (position < 0 || position > length())
+		{
+			throw new IllegalArgumentException();
+		}
+		this.position = position;
+	}
+	
+	public long remaining()
+	{
+		return length() - position;
+	}
+	
+	public void rewind()
+	{
+		position = 0;
+	}
+	
+	/**
+	 * Discards all bits, keeping the allocated capacity for re-use
+	 */
+	public void clear()
+	{
+		wordCount = 0;
+		accumulator = 0;
+		accumulatorLength = 0;
+		position = 0;
+	}
+	
+	/**
+	 * @return the bits, with the final byte padded with zeros
+	 */
+	public byte[] toByteArray()
+	{
+		byte[] r = new byte[(int) ((length() + 7) >>> 3)];
+		for (int i = 0; i < r.length; i++)
+		{
+			r[i] = (byte) (word(i >>> 3) >>> (56 - ((i & 0x7) << 3)));
+		}
+		return r;
+	}
+	
+	/**
+	 * Puts the bits into the buffer, with the final byte padded with zeros, 
+	 * and advances its position
+	 */
+	public void writeTo(ByteBuffer dest)
+	{
+		int byteCount = (int) ((length() + 7) >>> 3);
+		int i = 0;
+		if (dest.order() == ByteOrder.BIG_ENDIAN)
+		{
+			for (; i + 8 <= byteCount; i += 8)
+			{
+				dest.putLong(word(i >>> 3));
+			}
+		}
+		for (; i < byteCount; i++)
+		{
+			dest.put((byte) (word(i >>> 3) >>> (56 - ((i & 0x7) << 3))));
+		}
+	}
+}
@@ -23,7 +23,7 @@
  */
 package org.kerbaya.ieee754lib;
 
-abstract class BitSourceImpl implements BitSource
+abstract class BitSourceImpl implements SkippableBitSource
 {
 	private static final int FIRST_BIT = 0x80;
 	private static final int LAST_BIT = 0x1;
@@ -57,4 +57,55 @@ abstract class BitSourceImpl implements BitSource
 
 	protected abstract byte nextByte();
 	
+	/**
+	 * Skips whole bytes.  Subclasses should override this if they can skip 
+	 * without reading.
+	 */
+	protected void skipBytes(long count)
+	{
+		for (long i = 0; i < count; i++)
+		{
+			nextByte();
+		}
+	}
+	
+	@Override
+	public final void skipBits(long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		while (count > 0 && mask != FIRST_BIT)
+		{
+			next();
+			count--;
+		}
+		skipBytes(count >>> 3);
+		for (int i = (int) (count & 0x7); i > 0; i--)
+		{
+			next();
+		}
+	}
+	
+	/**
+	 * @return the number of bits left unread in the last byte read
+	 */
+	final int getPendingBits()
+	{
+		return mask == FIRST_BIT ? 0 : 32 - Integer.numberOfLeadingZeros(mask);
+	}
+	
+	/**
+	 * Moves to the given bit of the next byte to be read, discarding any 
+	 * unread bits of the last
+	 */
+	final void seekBit(int bit)
+	{
+		mask = FIRST_BIT;
+		for (int i = 0; i < bit; i++)
+		{
+			next();
+		}
+	}
 }
@@ -23,10 +23,13 @@
  */
 package org.kerbaya.ieee754lib;
 
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
@@ -34,13 +37,37 @@ public final class BitUtils
 {
 	private BitUtils() {}
 	
+	/**
+	 * The source is {@linkplain SkippableBitSource skippable}, and also 
+	 * {@linkplain SeekableBitSource seekable} if the channel is a 
+	 * {@link FileChannel}
+	 */
 	public static BitSource wrapSource(ReadableByteChannel source)
 	{
-		return new ChannelBitSource(source);
+		return source instanceof FileChannel ? 
+				new FileChannelBitSource((FileChannel) source) 
+				: new ChannelBitSource(source);
 	}
 	
+	/**
+	 * Reads bits from the file's current position, which skipping and seeking
+	 * move without reading
+	 */
+	public static SeekableBitSource wrapSource(FileChannel source)
+	{
+		return new FileChannelBitSource(source);
+	}
+	
+	/**
+	 * A {@link FileInputStream} is read through its channel, so that skipping 
+	 * doesn't read
+	 */
 	public static BitSource wrapSource(InputStream source)
 	{
+		if (source instanceof FileInputStream)
+		{
+			return wrapSource(((FileInputStream) source).getChannel());
+		}
 		return wrapSource(Channels.newChannel(source));
 	}
 	
@@ -49,6 +76,17 @@ public final class BitUtils
 		return new BufferBitSource(source);
 	}
 	
+	/**
+	 * Reads bits from the buffer using absolute indexing, starting at the 
+	 * given bit offset from index zero.  The buffer's position is neither 
+	 * used nor modified, so any number of sources may safely read the same
+	 * buffer concurrently.
+	 */
+	public static BitSource wrapSource(ByteBuffer source, long bitOffset)
+	{
+		return new AbsoluteBitSource(source, bitOffset);
+	}
+	
 	public static BitSource wrapSource(byte[] source)
 	{
 		return wrapSource(ByteBuffer.wrap(source));
@@ -59,6 +97,189 @@ public final class BitUtils
 		return wrapSource(ByteBuffer.wrap(source, offset, length));
 	}
 	
+	/**
+	 * Writes the low-order {@code count} bits of {@code bits}, most 
+	 * significant first
+	 */
+	public static void writeBits(BitSink out, long bits, int count)
+	{
+		if (count < 0 || count > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		for (int i = count - 1; i >= 0; i--)
+		{
+			out.write((bits & (1L << i)) != 0);
+		}
+	}
+	
+	/**
+	 * Writes the low-order {@code count} bits of {@code bits}, most 
+	 * significant first
+	 */
+	public static void writeBits(BitSink out, BigInteger bits, int count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		for (int i = count - 1; i >= 0; i--)
+		{
+			out.write(bits.testBit(i));
+		}
+	}
+	
+	/**
+	 * Reads {@code count} bits, most significant first, into the low-order 
+	 * bits of the result
+	 */
+	public static long readBits(BitSource in, int count)
+	{
+		if (count < 0 || count > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		long r = 0;
+		for (int i = 0; i < count; i++)
+		{
+			r = r << 1 | (in.next() ? 1L : 0L);
+		}
+		return r;
+	}
+	
+	/**
+	 * Passes over the next {@code count} bits: without reading whole bytes if 
+	 * the source is a {@link SkippableBitSource}, otherwise by reading them
+	 */
+	public static void skipBits(BitSource in, long count)
+	{
+		if (in instanceof SkippableBitSource)
+		{
+			((SkippableBitSource) in).skipBits(count);
+			return;
+		}
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		for (long i = 0; i < count; i++)
+		{
+			in.next();
+		}
+	}
+	
+	/**
+	 * Reads {@code count} bits, most significant first, into a non-negative 
+	 * integer
+	 */
+	public static BigInteger readBigBits(BitSource in, int count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		byte[] buf = new byte[(count + 7) >>> 3];
+		BitSink sink = new AbsoluteBitSink(
+				ByteBuffer.wrap(buf), (buf.length << 3) - count);
+		for (int i = 0; i < count; i++)
+		{
+			sink.write(in.next());
+		}
+		return new BigInteger(1, buf);
+	}
+	
+	/**
+	 * Reads {@code count} bits, most significant first, starting at the given
+	 * bit offset from index zero of the buffer.  Only absolute indexing is 
+	 * used: the buffer's position is neither used nor modified.
+	 */
+	public static long readBits(ByteBuffer source, long bitOffset, int count)
+	{
+		if (count < 0 || count > 64 || bitOffset < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (count == 0)
+		{
+			return 0;
+		}
+		if (bitOffset >>> 3 > Integer.MAX_VALUE)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		int index = (int) (bitOffset >>> 3);
+		int available = 8 - (int) (bitOffset & 0x7);
+		long r = source.get(index++) & (0xFF >>> (8 - available));
+		if (count <= available)
+		{
+			return r >>> (available - count);
+		}
+		int remaining = count - available;
+		while (remaining >= 8)
+		{
+			r = r << 8 | (source.get(index++) & 0xFF);
+			remaining -= 8;
+		}
+		if (remaining > 0)
+		{
+			r = r << remaining 
+					| (source.get(index) & 0xFF) >>> (8 - remaining);
+		}
+		return r;
+	}
+	
+	/**
+	 * Writes the low-order {@code count} bits of {@code bits}, most 
+	 * significant first, starting at the given bit offset from index zero of 
+	 * the buffer.  Only absolute indexing is used: the buffer's position is 
+	 * neither used nor modified, and bits outside of those written are 
+	 * preserved.
+	 */
+	public static void writeBits(
+			ByteBuffer dest, 
+			long bitOffset, 
+			long bits, 
+			int count)
+	{
+		if (count < 0 || count > 64 || bitOffset < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (count == 0)
+		{
+			return;
+		}
+		if (bitOffset >>> 3 > Integer.MAX_VALUE)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		int index = (int) (bitOffset >>> 3);
+		int available = 8 - (int) (bitOffset & 0x7);
+		if (count <= available)
+		{
+			int mask = ((1 << count) - 1) << (available - count);
+			int b = (int) bits << (available - count);
+			dest.put(index, (byte) (dest.get(index) & ~mask | b & mask));
+			return;
+		}
+		int remaining = count - available;
+		int mask = (1 << available) - 1;
+		dest.put(index, (byte) (dest.get(index) & ~mask 
+				| (int) (bits >>> remaining) & mask));
+		index++;
+		while (remaining >= 8)
+		{
+			remaining -= 8;
+			dest.put(index++, (byte) (bits >>> remaining));
+		}
+		if (remaining > 0)
+		{
+			mask = 0xFF00 >>> remaining;
+			dest.put(index, (byte) (dest.get(index) & ~mask 
+					| (int) bits << (8 - remaining) & mask));
+		}
+	}
+	
 	public static FlushableBitSink wrapSink(WritableByteChannel dest)
 	{
 		return new ChannelBitSink(dest);
@@ -74,6 +295,17 @@ public final class BitUtils
 		return new BufferBitSink(dest);
 	}
 	
+	/**
+	 * Writes bits to the buffer using absolute indexing, starting at the given
+	 * bit offset from index zero.  The buffer's position is neither used nor
+	 * modified, and bits outside of those written are preserved.  Concurrent
+	 * sinks must not write to bits that share a byte.
+	 */
+	public static BitSink wrapSink(ByteBuffer dest, long bitOffset)
+	{
+		return new AbsoluteBitSink(dest, bitOffset);
+	}
+	
 	public static BitSink wrapSink(byte[] dest)
 	{
 		return wrapSink(ByteBuffer.wrap(dest));
@@ -23,9 +23,10 @@
  */
 package org.kerbaya.ieee754lib;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 
-final class BufferBitSource extends BitSourceImpl
+final class BufferBitSource extends BitSourceImpl implements SeekableBitSource
 {
 	private final ByteBuffer source;
 	
@@ -40,4 +41,30 @@ final class BufferBitSource extends BitSourceImpl
 		return source.get();
 	}
 	
+	@Override
+	protected void skipBytes(long count)
+	{
+		if (count > source.remaining())
+		{
+			throw new BufferUnderflowException();
+		}
+		source.position(source.position() + (int) count);
+	}
+	
+	@Override
+	public long position()
+	{
+		return ((long) source.position() << 3) - getPendingBits();
+	}
+	
+	@Override
+	public void position(long bitOffset)
+	{
+		if (bitOffset < 0 || bitOffset > (long) source.limit() << 3)
+		{
+			throw new IllegalArgumentException();
+		}
+		source.position((int) (bitOffset >>> 3));
+		seekBit((int) (bitOffset & 0x7));
+	}
 }
@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Rearranges a block of encoded values into planes, as in Parquet's 
+ * BYTE_STREAM_SPLIT encoding.  Generic compressors do much better on the 
+ * planes than on the interleaved values, since each plane holds bytes of 
+ * similar significance.
+ * <p>
+ * When a format's length is a multiple of 8, the block is split into byte 
+ * planes: the first plane holds the first byte (the sign and leading exponent
+ * bits) of every value, the second plane holds every second byte, and so on.
+ * For other lengths the block is split into bit planes, each padded to a 
+ * whole byte.
+ * <p>
+ * Packed blocks hold values back-to-back, as written by the sinks from 
+ * {@link BitUtils}, padded to a whole byte.
+ */
+public final class ByteStreamSplit
+{
+	private ByteStreamSplit() {}
+	
+	/**
+	 * @return the number of bytes occupied by the packed values
+	 */
+	public static int getPackedLength(IEEE754Format format, int count)
+	{
+		return (int) (((long) count * format.getLength() + 7) >>> 3);
+	}
+	
+	/**
+	 * @return the number of bytes occupied by the planes of the values
+	 */
+	public static int getSplitLength(IEEE754Format format, int count)
+	{
+		int length = format.getLength();
+		if ((length & 0x7) == 0)
+		{
+			return getPackedLength(format, count);
+		}
+		return length * ((count + 7) >>> 3);
+	}
+	
+	/**
+	 * Reads {@code count} packed values from {@code src}, and writes their 
+	 * planes to {@code dest}.  Both buffers' positions are advanced past the 
+	 * bytes read and written.
+	 */
+	public static void split(
+			IEEE754Format format, 
+			int count, 
+			ByteBuffer src, 
+			ByteBuffer dest)
+	{
+		final int length = format.getLength();
+		final int srcBase = src.position();
+		final int destBase = dest.position();
+		if ((length & 0x7) == 0)
+		{
+			final int width = length >>> 3;
+			for (int i = 0; i < count; i++)
+			{
+				for (int plane = 0; plane < width; plane++)
+				{
+					dest.put(destBase + plane * count + i, 
+							src.get(srcBase + i * width + plane));
+				}
+			}
+		}
+		else
+		{
+			final int planeLength = (count + 7) >>> 3;
+			final long srcBitBase = (long) srcBase << 3;
+			for (int plane = 0; plane < length; plane++)
+			{
+				int destIndex = destBase + plane * planeLength;
+				int current = 0;
+				for (int i = 0; i < count; i++)
+				{
+					long srcBit = srcBitBase + (long) i * length + plane;
+					if ((src.get((int) (srcBit >>> 3)) 
+							& (0x80 >>> (srcBit & 0x7))) != 0)
+					{
+						current |= 0x80 >>> (i & 0x7);
+					}
+					if ((i & 0x7) == 0x7)
+					{
+						dest.put(destIndex++, (byte) current);
+						current = 0;
+					}
+				}
+				if ((count & 0x7) != 0)
+				{
+					dest.put(destIndex, (byte) current);
+				}
+			}
+		}
+		src.position(srcBase + getPackedLength(format, count));
+		dest.position(destBase + getSplitLength(format, count));
+	}
+	
+	/**
+	 * Reads the planes of {@code count} values from {@code src}, and writes 
+	 * the packed values to {@code dest}.  Both buffers' positions are advanced
+	 * past the bytes read and written.
+	 */
+	public static void join(
+			IEEE754Format format, 
+			int count, 
+			ByteBuffer src, 
+			ByteBuffer dest)
+	{
+		final int length = format.getLength();
+		final int srcBase = src.position();
+		final int destBase = dest.position();
+		if ((length & 0x7) == 0)
+		{
+			final int width = length >>> 3;
+			for (int i = 0; i < count; i++)
+			{
+				for (int plane = 0; plane < width; plane++)
+				{
+					dest.put(destBase + i * width + plane, 
+							src.get(srcBase + plane * count + i));
+				}
+			}
+		}
+		else
+		{
+			final int planeLength = (count + 7) >>> 3;
+			final int packedLength = getPackedLength(format, count);
+			for (int i = 0; i < packedLength; i++)
+			{
+				dest.put(destBase + i, (byte) 0);
+			}
+			final long destBitBase = (long) destBase << 3;
+			for (int plane = 0; plane < length; plane++)
+			{
+				int srcIndex = srcBase + plane * planeLength;
+				for (int i = 0; i < count; i++)
+				{
+					if ((src.get(srcIndex + (i >>> 3)) 
+							& (0x80 >>> (i & 0x7))) != 0)
+					{
+						long destBit = destBitBase + (long) i * length + plane;
+						int index = (int) (destBit >>> 3);
+						dest.put(index, (byte) (dest.get(index) 
+								| 0x80 >>> (destBit & 0x7)));
+					}
+				}
+			}
+		}
+		src.position(srcBase + getSplitLength(format, count));
+		dest.position(destBase + getPackedLength(format, count));
+	}
+	
+	/**
+	 * Encodes the values, and writes their planes to {@code dest}, advancing
+	 * its position
+	 */
+	public static void encode(
+			IEEE754[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			ByteBuffer dest)
+	{
+		ByteBuffer packed = ByteBuffer.allocate(
+				getPackedLength(format, length));
+		IEEE754.encode(values, offset, length, format, 
+				BitUtils.wrapSink(packed, 0), null);
+		split(format, length, packed, dest);
+	}
+	
+	/**
+	 * Reads the planes of {@code length} values from {@code src}, advancing 
+	 * its position, and decodes them into {@code values}
+	 */
+	public static void decode(
+			IEEE754Format format, 
+			ByteBuffer src, 
+			IEEE754[] values, 
+			int offset, 
+			int length)
+	{
+		ByteBuffer packed = ByteBuffer.allocate(
+				getPackedLength(format, length));
+		join(format, length, src, packed);
+		BitSource in = BitUtils.wrapSource(packed, 0);
+		for (int i = offset; i < offset + length; i++)
+		{
+			values[i] = IEEE754.decode(format, in);
+		}
+	}
+}
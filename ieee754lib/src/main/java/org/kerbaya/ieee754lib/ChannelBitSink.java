@@ -51,5 +51,9 @@ final class ChannelBitSink extends FlushableBitSinkImpl
 			throw new IllegalStateException(e);
 		}
 		buffer.rewind();
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.channelWritten(1);
+		}
 	}
 }
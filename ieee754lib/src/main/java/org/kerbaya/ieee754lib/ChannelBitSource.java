@@ -27,8 +27,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 
-final class ChannelBitSource extends BitSourceImpl
+class ChannelBitSource extends BitSourceImpl
 {
+	private static final int SKIP_BUFFER_SIZE = 8192;
+	
 	private final ReadableByteChannel source;
 	private final ByteBuffer buffer;
 
@@ -59,6 +61,50 @@ final class ChannelBitSource extends BitSourceImpl
 		}
 		byte r = buffer.get(0);
 		buffer.rewind();
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.channelRead(1);
+		}
 		return r;
 	}
+	
+	/**
+	 * Reads and discards whole bytes, a buffer at a time
+	 */
+	@Override
+	protected void skipBytes(long count)
+	{
+		if (count == 0)
+		{
+			return;
+		}
+		ByteBuffer skipped = ByteBuffer.allocate(
+				(int) Math.min(count, SKIP_BUFFER_SIZE));
+		while (count > 0)
+		{
+			skipped.clear();
+			if (count < skipped.capacity())
+			{
+				skipped.limit((int) count);
+			}
+			int n;
+			try
+			{
+				n = source.read(skipped);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			if (n < 1)
+			{
+				throw new IllegalStateException();
+			}
+			count -= n;
+			if (IEEE754Metrics.enabled)
+			{
+				IEEE754Metrics.channelRead(n);
+			}
+		}
+	}
 }
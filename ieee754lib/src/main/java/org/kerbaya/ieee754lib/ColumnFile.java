@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+
+/**
+ * Layout shared by {@link ColumnFileWriter} and {@link ColumnFileReader}.
+ * All multi-byte fields are big-endian.
+ * <pre>
+ * header:
+ *   int     MAGIC
+ *   byte    VERSION
+ *   byte    flags (FLAG_CHECKSUMS)
+ *   int     block size (values per block)
+ *   int     column count
+ *   per column:
+ *     int   exponent length
+ *     int   mantissa length
+ *     byte  column flags (COLUMN_EXPLICIT_INTEGER_BIT), from version 2
+ *     int   exponent bias byte count
+ *     byte* exponent bias (two's-complement)
+ * blocks:
+ *   bit-packed values, padded to a whole byte
+ * footer:
+ *   int     block count
+ *   per block:
+ *     int   column
+ *     long  byte offset
+ *     int   value count
+ *     int   CRC-32 of the block's bytes, or 0 without FLAG_CHECKSUMS
+ *     byte  1 if the block has a minimum and maximum (it isn't all NaN)
+ *     byte* minimum, bit-packed in the column's format and padded
+ *     byte* maximum, likewise
+ * trailer:
+ *   long    footer byte offset
+ *   int     MAGIC
+ * </pre>
+ * Every block of a column holds the block size's worth of values, except its
+ * last, and a column's blocks appear in the footer in order.
+ */
+final class ColumnFile
+{
+	static final int MAGIC = 0x49373534;
+	static final byte VERSION = 2;
+	static final byte FLAG_CHECKSUMS = 0x1;
+	static final byte COLUMN_EXPLICIT_INTEGER_BIT = 0x1;
+	static final int TRAILER_LENGTH = 12;
+	
+	static final class Block
+	{
+		final int column;
+		final long offset;
+		final int count;
+		final int checksum;
+		final BigInteger min;
+		final BigInteger max;
+		
+		Block(
+				int column, 
+				long offset, 
+				int count, 
+				int checksum, 
+				BigInteger min, 
+				BigInteger max)
+		{
+			this.column = column;
+			this.offset = offset;
+			this.count = count;
+			this.checksum = checksum;
+			this.min = min;
+			this.max = max;
+		}
+	}
+	
+	private ColumnFile() {}
+	
+	static int getByteLength(IEEE754Format format)
+	{
+		return (format.getLength() + 7) >>> 3;
+	}
+	
+	/**
+	 * @return {@code true} if the bits are any NaN of the format
+	 */
+	static boolean isNaN(IEEE754Format format, BigInteger bits)
+	{
+		return bits.clearBit(format.getLength() - 1).compareTo(
+				BigInteger.ONE.shiftLeft(format.getLength() - 1).subtract(
+						BigInteger.ONE.shiftLeft(
+								format.getMantissaLength()))) > 0;
+	}
+	
+	/**
+	 * Orders encoded values numerically, with negative zero before positive 
+	 * zero.  Neither may be NaN.
+	 */
+	static int compare(IEEE754Format format, BigInteger a, BigInteger b)
+	{
+		int signBit = format.getLength() - 1;
+		boolean negativeA = a.testBit(signBit);
+		if (negativeA != b.testBit(signBit))
+		{
+			return negativeA ? -1 : 1;
+		}
+		int r = a.clearBit(signBit).compareTo(b.clearBit(signBit));
+		return negativeA ? -r : r;
+	}
+	
+	/**
+	 * @return a key that orders encoded values of formats no more than 64 bits
+	 * long, as {@link #compare(IEEE754Format, BigInteger, BigInteger)} does
+	 */
+	static long key(IEEE754Format format, long bits)
+	{
+		int signBit = format.getLength() - 1;
+		long magnitude = bits & ((1L << signBit) - 1);
+		return (bits >>> signBit & 1) == 0 ? magnitude : -1 - magnitude;
+	}
+	
+	static BigInteger fromKey(IEEE754Format format, long key)
+	{
+		return key >= 0 ? 
+				BigInteger.valueOf(key) 
+				: BigInteger.valueOf(-1 - key).setBit(format.getLength() - 1);
+	}
+}
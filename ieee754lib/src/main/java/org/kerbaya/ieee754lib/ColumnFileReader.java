@@ -0,0 +1,496 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a container written by {@link ColumnFileWriter}.
+ * <p>
+ * Only the header and block index are read up front.  Blocks are decoded 
+ * straight from a memory-mapping of the file, so any value or block can be 
+ * read without reading what comes before it, and blocks can be decoded 
+ * concurrently.
+ */
+public final class ColumnFileReader implements Closeable
+{
+	private final FileChannel channel;
+	private final boolean checksums;
+	private final int blockSize;
+	private final IEEE754Format[] formats;
+	private final ColumnFile.Block[][] blocks;
+	
+	/**
+	 * The whole file, or {@code null} if it's too big to map at once
+	 */
+	private final ByteBuffer map;
+	
+	public ColumnFileReader(FileChannel channel) throws IOException
+	{
+		this.channel = channel;
+		long size = channel.size();
+		if (size < ColumnFile.TRAILER_LENGTH)
+		{
+			throw new StreamCorruptedException();
+		}
+		ByteBuffer trailer = read(
+				size - ColumnFile.TRAILER_LENGTH, ColumnFile.TRAILER_LENGTH);
+		long footerOffset = trailer.getLong();
+		if (trailer.getInt() != ColumnFile.MAGIC 
+				|| footerOffset < 0
+				|| size - ColumnFile.TRAILER_LENGTH - footerOffset 
+						> Integer.MAX_VALUE)
+		{
+			throw new StreamCorruptedException();
+		}
+		
+		ByteBuffer header = read(0, 14);
+		if (header.getInt() != ColumnFile.MAGIC)
+		{
+			throw new StreamCorruptedException();
+		}
+		byte version = header.get();
+		if (version < 1 || version > ColumnFile.VERSION)
+		{
+			throw new StreamCorruptedException();
+		}
+		final int columnHeaderLength = version == 1 ? 12 : 13;
+		checksums = (header.get() & ColumnFile.FLAG_CHECKSUMS) != 0;
+		blockSize = header.getInt();
+		int columnCount = header.getInt();
+		if (blockSize < 1 || columnCount < 1)
+		{
+			throw new StreamCorruptedException();
+		}
+		formats = new IEEE754Format[columnCount];
+		long position = 14;
+		for (int i = 0; i < columnCount; i++)
+		{
+			ByteBuffer column = read(position, columnHeaderLength);
+			int exponentLength = column.getInt();
+			int mantissaLength = column.getInt();
+			boolean explicitIntegerBit = version != 1 && (column.get() 
+					& ColumnFile.COLUMN_EXPLICIT_INTEGER_BIT) != 0;
+			int biasLength = column.getInt();
+			if (biasLength < 1 || biasLength > footerOffset)
+			{
+				throw new StreamCorruptedException();
+			}
+			byte[] bias = new byte[biasLength];
+			read(position + columnHeaderLength, biasLength).get(bias);
+			position += columnHeaderLength + biasLength;
+			try
+			{
+				formats[i] = new IEEE754Format(exponentLength, mantissaLength, 
+						new BigInteger(bias), explicitIntegerBit);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new StreamCorruptedException();
+			}
+		}
+		
+		blocks = readFooter(read(footerOffset, 
+				(int) (size - ColumnFile.TRAILER_LENGTH - footerOffset)), 
+						footerOffset);
+		map = size <= Integer.MAX_VALUE ? 
+				channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+	}
+	
+	private ByteBuffer read(long position, int length) throws IOException
+	{
+		ByteBuffer r = ByteBuffer.allocate(length);
+		while (r.hasRemaining())
+		{
+			if (channel.read(r, position + r.position()) < 0)
+			{
+				throw new StreamCorruptedException();
+			}
+		}
+		r.flip();
+		return r;
+	}
+	
+	private ColumnFile.Block[][] readFooter(ByteBuffer footer, long dataEnd) 
+			throws IOException
+	{
+		List<List<ColumnFile.Block>> columns = 
+				new ArrayList<List<ColumnFile.Block>>(formats.length);
+		for (int i = 0; i < formats.length; i++)
+		{
+			columns.add(new ArrayList<ColumnFile.Block>());
+		}
+		try
+		{
+			int blockCount = footer.getInt();
+			for (int i = 0; i < blockCount; i++)
+			{
+				int column = footer.getInt();
+				if (column < 0 || column >= formats.length)
+				{
+					throw new StreamCorruptedException();
+				}
+				IEEE754Format format = formats[column];
+				long offset = footer.getLong();
+				int count = footer.getInt();
+				int checksum = footer.getInt();
+				boolean hasRange = footer.get() != 0;
+				BigInteger min = getBits(footer, format);
+				BigInteger max = getBits(footer, format);
+				if (count < 1 
+						|| count > blockSize
+						|| offset < 0
+						|| offset + getByteLength(format, count) > dataEnd)
+				{
+					throw new StreamCorruptedException();
+				}
+				columns.get(column).add(new ColumnFile.Block(column, offset, 
+						count, checksum, 
+						hasRange ? min : null, hasRange ? max : null));
+			}
+		}
+		catch (RuntimeException e)
+		{
+			throw new StreamCorruptedException();
+		}
+		
+		/*
+		 * Random access relies on every block but the last being full
+		 */
+		ColumnFile.Block[][] r = new ColumnFile.Block[formats.length][];
+		for (int i = 0; i < formats.length; i++)
+		{
+			r[i] = columns.get(i).toArray(
+					new ColumnFile.Block[columns.get(i).size()]);
+			for (int j = 0; j < r[i].length - 1; j++)
+			{
+				if (r[i][j].count != blockSize)
+				{
+					throw new StreamCorruptedException();
+				}
+			}
+		}
+		return r;
+	}
+	
+	private static BigInteger getBits(ByteBuffer src, IEEE754Format format)
+	{
+		BigInteger r = BitUtils.readBigBits(
+				BitUtils.wrapSource(src, (long) src.position() << 3), 
+				format.getLength());
+		src.position(src.position() + ColumnFile.getByteLength(format));
+		return r;
+	}
+	
+	private static long getByteLength(IEEE754Format format, int count)
+	{
+		return ((long) format.getLength() * count + 7) >>> 3;
+	}
+	
+	public int getColumnCount()
+	{
+		return formats.length;
+	}
+	
+	public IEEE754Format getFormat(int column)
+	{
+		return formats[column];
+	}
+	
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	public boolean hasChecksums()
+	{
+		return checksums;
+	}
+	
+	public int getBlockCount(int column)
+	{
+		return blocks[column].length;
+	}
+	
+	public long getValueCount(int column)
+	{
+		ColumnFile.Block[] b = blocks[column];
+		return b.length == 0 ? 
+				0 : (long) blockSize * (b.length - 1) + b[b.length - 1].count;
+	}
+	
+	public int getBlockValueCount(int column, int block)
+	{
+		return blocks[column][block].count;
+	}
+	
+	/**
+	 * @return the smallest value in the block, ignoring NaN, or {@code null} 
+	 * if every value is NaN
+	 */
+	public IEEE754 getBlockMin(int column, int block)
+	{
+		BigInteger bits = blocks[column][block].min;
+		return bits == null ? null : IEEE754.decode(formats[column], bits);
+	}
+	
+	/**
+	 * @return the largest value in the block, ignoring NaN, or {@code null} 
+	 * if every value is NaN
+	 */
+	public IEEE754 getBlockMax(int column, int block)
+	{
+		BigInteger bits = blocks[column][block].max;
+		return bits == null ? null : IEEE754.decode(formats[column], bits);
+	}
+	
+	/**
+	 * @return a buffer whose bits, from the start, are the block's
+	 */
+	private ByteBuffer getData(IEEE754Format format, ColumnFile.Block block) 
+			throws IOException
+	{
+		long byteLength = getByteLength(format, block.count);
+		if (map == null)
+		{
+			return channel.map(
+					FileChannel.MapMode.READ_ONLY, block.offset, byteLength);
+		}
+		ByteBuffer r = map.duplicate();
+		r.position((int) block.offset);
+		r.limit((int) (block.offset + byteLength));
+		return r.slice();
+	}
+	
+	private void verify(ColumnFile.Block block, ByteBuffer data) 
+			throws IOException
+	{
+		if (!checksums)
+		{
+			return;
+		}
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[Math.min(8192, data.remaining())];
+		ByteBuffer src = data.duplicate();
+		while (src.hasRemaining())
+		{
+			int length = Math.min(chunk.length, src.remaining());
+			src.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		if ((int) crc.getValue() != block.checksum)
+		{
+			throw new StreamCorruptedException();
+		}
+	}
+	
+	/**
+	 * Reads a single value, without reading the rest of its block.  The 
+	 * block's checksum isn't verified.
+	 * 
+	 * @return an {@link IEEE754.IEEE754Bits}, decoded when first inspected
+	 */
+	public IEEE754 get(int column, long index) throws IOException
+	{
+		if (index < 0 || index >= getValueCount(column))
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		IEEE754Format format = formats[column];
+		ColumnFile.Block block = blocks[column][(int) (index / blockSize)];
+		return IEEE754.IEEE754Bits.read(format, BitUtils.wrapSource(
+				getData(format, block), index % blockSize * format.getLength()));
+	}
+	
+	/**
+	 * Reads values as {@link IEEE754.IEEE754Bits}, decoded when first 
+	 * inspected
+	 * 
+	 * @return the number of values read into {@code dest}
+	 * 
+	 * @throws StreamCorruptedException
+	 * if the block's checksum doesn't match
+	 */
+	public int readBlock(int column, int block, IEEE754[] dest, int offset) 
+			throws IOException
+	{
+		IEEE754Format format = formats[column];
+		ColumnFile.Block b = blocks[column][block];
+		ByteBuffer data = getData(format, b);
+		verify(b, data);
+		BitSource in = BitUtils.wrapSource(data, 0);
+		for (int i = 0; i < b.count; i++)
+		{
+			dest[offset + i] = IEEE754.IEEE754Bits.read(format, in);
+		}
+		return b.count;
+	}
+	
+	/**
+	 * Reads values rounded to the nearest {@code double}
+	 * 
+	 * @return the number of values read into {@code dest}
+	 * 
+	 * @throws StreamCorruptedException
+	 * if the block's checksum doesn't match
+	 */
+	public int readBlock(int column, int block, double[] dest, int offset) 
+			throws IOException
+	{
+		IEEE754Format format = formats[column];
+		ColumnFile.Block b = blocks[column][block];
+		ByteBuffer data = getData(format, b);
+		verify(b, data);
+		int length = format.getLength();
+		if (Transcoder.getMode(format, IEEE754Format.DOUBLE) 
+				== Transcoder.MODE_LONG)
+		{
+			for (int i = 0; i < b.count; i++)
+			{
+				long bits = BitUtils.readBits(data, (long) i * length, length);
+				dest[offset + i] = Double.longBitsToDouble(Transcoder.decode(
+						format, IEEE754Format.DOUBLE, bits, null));
+			}
+		}
+		else
+		{
+			BitSource in = BitUtils.wrapSource(data, 0);
+			for (int i = 0; i < b.count; i++)
+			{
+				dest[offset + i] = IEEE754.decode(format, in).doubleValue();
+			}
+		}
+		return b.count;
+	}
+	
+	/**
+	 * Reads a whole column, decoding its blocks concurrently
+	 * 
+	 * @param dest
+	 * an {@code IEEE754[]} or {@code double[]} big enough for the column
+	 */
+	private void readColumn(
+			final int column, 
+			final Object dest, 
+			ExecutorService executor, 
+			int taskCount) throws IOException
+	{
+		if (taskCount < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		final int blockCount = blocks[column].length;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(taskCount);
+		for (int task = 0; task < taskCount; task++)
+		{
+			final int from = (int) ((long) blockCount * task / taskCount);
+			final int to = (int) ((long) blockCount * (task + 1) / taskCount);
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException
+				{
+					for (int block = from; block < to; block++)
+					{
+						int offset = block * blockSize;
+						if (dest instanceof double[])
+						{
+							readBlock(column, block, (double[]) dest, offset);
+						}
+						else
+						{
+							readBlock(column, block, (IEEE754[]) dest, offset);
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		try
+		{
+			for (Future<Void> future: futures)
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	private int getColumnLength(int column)
+	{
+		long r = getValueCount(column);
+		if (r > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException();
+		}
+		return (int) r;
+	}
+	
+	public IEEE754[] readColumn(
+			int column, ExecutorService executor, int taskCount) 
+					throws IOException
+	{
+		IEEE754[] r = new IEEE754[getColumnLength(column)];
+		readColumn(column, r, executor, taskCount);
+		return r;
+	}
+	
+	public double[] readDoubleColumn(
+			int column, ExecutorService executor, int taskCount) 
+					throws IOException
+	{
+		double[] r = new double[getColumnLength(column)];
+		readColumn(column, r, executor, taskCount);
+		return r;
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes columns of values, each in its own format, to a self-describing 
+ * container that {@link ColumnFileReader} can read back with random access.
+ * <p>
+ * Values are bit-packed into fixed-size blocks per column, which are written
+ * out as they fill.  {@link #close()} writes the remaining partial blocks, 
+ * and the block index: the position, count and minimum / maximum of every 
+ * block, and optionally a CRC-32 of its bytes.
+ */
+public final class ColumnFileWriter implements Closeable
+{
+	private final class Column
+	{
+		private final int index;
+		private final IEEE754Format format;
+		private final boolean narrow;
+		private final int doubleMode;
+		private final BitBuffer buffer = new BitBuffer();
+		private int count;
+		private boolean hasRange;
+		private long minKey;
+		private long maxKey;
+		private BigInteger min;
+		private BigInteger max;
+		
+		public Column(int index, IEEE754Format format)
+		{
+			this.index = index;
+			this.format = format;
+			narrow = format.getLength() <= 64;
+			doubleMode = Transcoder.getMode(IEEE754Format.DOUBLE, format);
+		}
+		
+		public void add(long bits) throws IOException
+		{
+			buffer.writeBits(bits, format.getLength());
+			long key = ColumnFile.key(format, bits);
+			if (!Transcoder.isNaN(format, bits))
+			{
+				if (!hasRange)
+				{
+					minKey = key;
+					maxKey = key;
+					hasRange = true;
+				}
+				else if (key < minKey)
+				{
+					minKey = key;
+				}
+				else if (key > maxKey)
+				{
+					maxKey = key;
+				}
+			}
+			added();
+		}
+		
+		public void add(BigInteger bits) throws IOException
+		{
+			BitUtils.writeBits(buffer, bits, format.getLength());
+			if (!ColumnFile.isNaN(format, bits))
+			{
+				if (!hasRange)
+				{
+					min = bits;
+					max = bits;
+					hasRange = true;
+				}
+				else if (ColumnFile.compare(format, bits, min) < 0)
+				{
+					min = bits;
+				}
+				else if (ColumnFile.compare(format, bits, max) > 0)
+				{
+					max = bits;
+				}
+			}
+			added();
+		}
+		
+		private void added() throws IOException
+		{
+			if (++count == blockSize)
+			{
+				flush();
+			}
+		}
+		
+		public void flush() throws IOException
+		{
+			byte[] bytes = buffer.toByteArray();
+			int checksum = 0;
+			if (checksums)
+			{
+				CRC32 crc = new CRC32();
+				crc.update(bytes);
+				checksum = (int) crc.getValue();
+			}
+			BigInteger blockMin = null;
+			BigInteger blockMax = null;
+			if (hasRange)
+			{
+				blockMin = narrow ? ColumnFile.fromKey(format, minKey) : min;
+				blockMax = narrow ? ColumnFile.fromKey(format, maxKey) : max;
+			}
+			blocks.add(new ColumnFile.Block(index, offset, count, 
+					checksum, blockMin, blockMax));
+			write(ByteBuffer.wrap(bytes));
+			
+			buffer.clear();
+			count = 0;
+			hasRange = false;
+			min = null;
+			max = null;
+		}
+	}
+	
+	private final WritableByteChannel out;
+	private final int blockSize;
+	private final boolean checksums;
+	private final Column[] columns;
+	private final List<ColumnFile.Block> blocks = 
+			new ArrayList<ColumnFile.Block>();
+	private long offset;
+	private boolean closed;
+	
+	/**
+	 * Writes the header to {@code out} straight away
+	 * 
+	 * @param blockSize
+	 * the number of values in each block
+	 * 
+	 * @param checksums
+	 * whether to record a CRC-32 of each block
+	 */
+	public ColumnFileWriter(
+			WritableByteChannel out, 
+			int blockSize, 
+			boolean checksums, 
+			IEEE754Format... formats) throws IOException
+	{
+		if (out == null)
+		{
+			throw new NullPointerException();
+		}
+		if (blockSize < 1 || formats.length == 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.out = out;
+		this.blockSize = blockSize;
+		this.checksums = checksums;
+		columns = new Column[formats.length];
+		
+		int headerLength = 14;
+		byte[][] biases = new byte[formats.length][];
+		for (int i = 0; i < formats.length; i++)
+		{
+			columns[i] = new Column(i, formats[i]);
+			biases[i] = formats[i].getExponentBias().toByteArray();
+			headerLength += 13 + biases[i].length;
+		}
+		ByteBuffer header = ByteBuffer.allocate(headerLength);
+		header.putInt(ColumnFile.MAGIC);
+		header.put(ColumnFile.VERSION);
+		header.put(checksums ? ColumnFile.FLAG_CHECKSUMS : 0);
+		header.putInt(blockSize);
+		header.putInt(formats.length);
+		for (int i = 0; i < formats.length; i++)
+		{
+			header.putInt(formats[i].getExponentLength());
+			header.putInt(formats[i].getMantissaLength());
+			header.put(formats[i].hasExplicitIntegerBit() ? 
+					ColumnFile.COLUMN_EXPLICIT_INTEGER_BIT : 0);
+			header.putInt(biases[i].length);
+			header.put(biases[i]);
+		}
+		header.flip();
+		write(header);
+	}
+	
+	private void write(ByteBuffer buf) throws IOException
+	{
+		offset += buf.remaining();
+		while (buf.hasRemaining())
+		{
+			out.write(buf);
+		}
+	}
+	
+	private Column getColumn(int column)
+	{
+		if (closed)
+		{
+			throw new IllegalStateException();
+		}
+		return columns[column];
+	}
+	
+	public void write(int column, IEEE754 value) throws IOException
+	{
+		Column c = getColumn(column);
+		if (c.narrow)
+		{
+			c.add(value.toLongBits(c.format));
+		}
+		else
+		{
+			c.add(value.toBigIntegerBits(c.format));
+		}
+	}
+	
+	public void write(int column, double value) throws IOException
+	{
+		Column c = getColumn(column);
+		if (c.doubleMode == Transcoder.MODE_LONG)
+		{
+			c.add(Transcoder.encode(IEEE754Format.DOUBLE, c.format, 
+					Double.doubleToRawLongBits(value), null));
+		}
+		else
+		{
+			write(column, IEEE754.valueOf(value));
+		}
+	}
+	
+	public void write(int column, double[] values, int offset, int length)
+			throws IOException
+	{
+		for (int i = offset; i < offset + length; i++)
+		{
+			write(column, values[i]);
+		}
+	}
+	
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	/**
+	 * Writes any partial blocks and the block index, and closes the channel
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+		for (Column column: columns)
+		{
+			if (column.count != 0)
+			{
+				column.flush();
+			}
+		}
+		closed = true;
+		
+		long footerOffset = offset;
+		int footerLength = 4;
+		for (ColumnFile.Block block: blocks)
+		{
+			footerLength += 21 
+					+ 2 * ColumnFile.getByteLength(columns[block.column].format);
+		}
+		ByteBuffer footer = ByteBuffer.allocate(
+				footerLength + ColumnFile.TRAILER_LENGTH);
+		footer.putInt(blocks.size());
+		for (ColumnFile.Block block: blocks)
+		{
+			IEEE754Format format = columns[block.column].format;
+			footer.putInt(block.column);
+			footer.putLong(block.offset);
+			footer.putInt(block.count);
+			footer.putInt(block.checksum);
+			footer.put((byte) (block.min == null ? 0 : 1));
+			putBits(footer, format, block.min);
+			putBits(footer, format, block.max);
+		}
+		footer.putLong(footerOffset);
+		footer.putInt(ColumnFile.MAGIC);
+		footer.flip();
+		try
+		{
+			write(footer);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	private static void putBits(
+			ByteBuffer dest, IEEE754Format format, BigInteger bits)
+	{
+		int byteLength = ColumnFile.getByteLength(format);
+		if (bits == null)
+		{
+			dest.position(dest.position() + byteLength);
+			return;
+		}
+		BitUtils.writeBits(BitUtils.wrapSink(dest, (long) dest.position() << 3), 
+				bits, format.getLength());
+		dest.position(dest.position() + byteLength);
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+
+/**
+ * Decodes values written by a {@link DictionaryEncoder} of the same format, 
+ * block size and maximum dictionary size.  To start at a block other than 
+ * the first, position the source at its offset from 
+ * {@link DictionaryEncoder#getBlockIndex()}.
+ * <p>
+ * The bulk methods allocate nothing per value: a block's dictionary is 
+ * decoded into the target type once, then indexed.
+ */
+public final class DictionaryDecoder
+{
+	private final IEEE754Format format;
+	private final BitSource in;
+	private final int length;
+	private final int words;
+	private final int countLength;
+	private final int sizeLength;
+	private final boolean longDouble;
+	
+	private final long[] dictionary;
+	
+	/**
+	 * The dictionary's values as {@code double}s, once needed
+	 */
+	private final double[] doubles;
+	private boolean doublesDecoded;
+	
+	/**
+	 * The last value read from a block that isn't dictionary-encoded
+	 */
+	private final long[] current;
+	
+	private int remaining;
+	private boolean encoded;
+	private int indexLength;
+	private int dictionarySize;
+	
+	public DictionaryDecoder(
+			IEEE754Format format, 
+			int blockSize, 
+			int maxDictionarySize, 
+			BitSource in)
+	{
+		if (format == null || in == null)
+		{
+			throw new NullPointerException();
+		}
+		if (blockSize < 1 || maxDictionarySize < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.format = format;
+		this.in = in;
+		length = format.getLength();
+		words = DictionaryEncoder.getWords(length);
+		countLength = DictionaryEncoder.fieldLength(blockSize);
+		sizeLength = DictionaryEncoder.fieldLength(maxDictionarySize);
+		longDouble = length <= 64 && Transcoder.getMode(
+				format, IEEE754Format.DOUBLE) == Transcoder.MODE_LONG;
+		dictionary = new long[maxDictionarySize * words];
+		doubles = new double[maxDictionarySize];
+		current = new long[words];
+	}
+	
+	/**
+	 * Reads the next value's dictionary index, or the value itself into
+	 * {@link #current}
+	 * 
+	 * @return the index, or -1 if the value was read into {@link #current}
+	 */
+	private int nextIndex()
+	{
+		if (remaining == 0)
+		{
+			remaining = (int) BitUtils.readBits(in, countLength) + 1;
+			encoded = in.next();
+			if (encoded)
+			{
+				dictionarySize = (int) BitUtils.readBits(in, sizeLength) + 1;
+				indexLength = DictionaryEncoder.fieldLength(dictionarySize);
+				for (int i = 0; i < dictionarySize; i++)
+				{
+					DictionaryEncoder.readValue(
+							in, length, dictionary, i * words, words);
+				}
+				doublesDecoded = false;
+			}
+		}
+		remaining--;
+		if (encoded)
+		{
+			return (int) BitUtils.readBits(in, indexLength);
+		}
+		DictionaryEncoder.readValue(in, length, current, 0, words);
+		return -1;
+	}
+	
+	private double toDouble(long[] src, int offset)
+	{
+		if (longDouble)
+		{
+			return Double.longBitsToDouble(Transcoder.decode(
+					format, IEEE754Format.DOUBLE, src[offset], null));
+		}
+		return IEEE754.decode(format, DictionaryEncoder.toBigInteger(
+				src, offset, words)).doubleValue();
+	}
+	
+	/**
+	 * @return the next value, in the low-order bits of the result.  The format
+	 * must be no more than 64 bits long.
+	 */
+	public long nextBits()
+	{
+		if (length > 64)
+		{
+			throw new IllegalStateException();
+		}
+		int index = nextIndex();
+		return index < 0 ? current[0] : dictionary[index];
+	}
+	
+	public BigInteger nextBigBits()
+	{
+		int index = nextIndex();
+		return index < 0 ? 
+				DictionaryEncoder.toBigInteger(current, 0, words) 
+				: DictionaryEncoder.toBigInteger(
+						dictionary, index * words, words);
+	}
+	
+	public IEEE754 next()
+	{
+		if (length <= 64)
+		{
+			return IEEE754.decode(format, nextBits());
+		}
+		return IEEE754.decode(format, nextBigBits());
+	}
+	
+	/**
+	 * Reads {@code length} values into the low-order bits of {@code dest}'s 
+	 * elements.  The format must be no more than 64 bits long.
+	 */
+	public void read(long[] dest, int offset, int length)
+	{
+		for (int i = offset; i < offset + length; i++)
+		{
+			dest[i] = nextBits();
+		}
+	}
+	
+	/**
+	 * Reads {@code length} values, rounded to the nearest {@code double}
+	 */
+	public void read(double[] dest, int offset, int length)
+	{
+		for (int i = offset; i < offset + length; i++)
+		{
+			int index = nextIndex();
+			if (index < 0)
+			{
+				dest[i] = toDouble(current, 0);
+			}
+			else
+			{
+				if (!doublesDecoded)
+				{
+					for (int j = 0; j < dictionarySize; j++)
+					{
+						doubles[j] = toDouble(dictionary, j * words);
+					}
+					doublesDecoded = true;
+				}
+				dest[i] = doubles[index];
+			}
+		}
+	}
+	
+	/**
+	 * Writes the next {@code count} values to {@code out} packed 
+	 * back-to-back, as {@link IEEE754Format#getLength()} bits each.  A 
+	 * {@link BitBuffer} is written a word at a time.
+	 */
+	public void read(BitSink out, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			int index = nextIndex();
+			if (index < 0)
+			{
+				DictionaryEncoder.writeValue(out, length, current, 0, words);
+			}
+			else
+			{
+				DictionaryEncoder.writeValue(
+						out, length, dictionary, index * words, words);
+			}
+		}
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Compresses a series of values that take few distinct bit patterns, such as
+ * set-points or quantized readings, by writing each block of values as a 
+ * dictionary of its distinct patterns followed by an index into it per 
+ * value.
+ * <p>
+ * A block's dictionary is built as its values arrive, in a primitive 
+ * open-addressing hash table keyed by the encoded bits.  When a block 
+ * completes, or on {@link #flush()}, it's written as:
+ * <ul>
+ * <li>its value count, less one</li>
+ * <li>one bit: set if it's dictionary-encoded</li>
+ * <li>if dictionary-encoded: the dictionary size less one; each distinct 
+ * value in full, in order of first appearance; then for each value, its 
+ * index in the fewest bits that hold the largest index (none, if there's a
+ * single distinct value)</li>
+ * <li>otherwise: each value in full</li>
+ * </ul>
+ * A block is written in full if it has more distinct values than the 
+ * maximum dictionary size, or if its dictionary wouldn't save any bits.  
+ * The count and size fields are as long as needed to hold the block size and
+ * the maximum dictionary size, so the decoder must be given both.
+ * <p>
+ * Any format may be used.  Values are held as words of 64 bits, the 
+ * high-order word first, so no format is boxed.
+ */
+public final class DictionaryEncoder
+{
+	private final IEEE754Format format;
+	private final int blockSize;
+	private final int maxDictionarySize;
+	private final BitSink out;
+	private final int length;
+	private final int words;
+	private final int countLength;
+	private final int sizeLength;
+	
+	/**
+	 * The current block's values, {@link #words} each
+	 */
+	private final long[] values;
+	private final int[] indices;
+	private final long[] dictionary;
+	
+	/**
+	 * One more than the dictionary index held in each slot, or zero if the 
+	 * slot is empty
+	 */
+	private final int[] slots;
+	
+	/**
+	 * The slot of each dictionary entry, so they can be cleared
+	 */
+	private final int[] entrySlots;
+	
+	private int count;
+	private int dictionarySize;
+	private boolean overflow;
+	
+	private long bitCount;
+	private long valueCount;
+	private long[] blockIndex;
+	private int blockCount;
+	
+	public DictionaryEncoder(
+			IEEE754Format format, 
+			int blockSize, 
+			int maxDictionarySize, 
+			BitSink out)
+	{
+		if (format == null || out == null)
+		{
+			throw new NullPointerException();
+		}
+		if (blockSize < 1 || maxDictionarySize < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.format = format;
+		this.blockSize = blockSize;
+		this.maxDictionarySize = maxDictionarySize;
+		this.out = out;
+		length = format.getLength();
+		words = getWords(length);
+		countLength = fieldLength(blockSize);
+		sizeLength = fieldLength(maxDictionarySize);
+		values = new long[blockSize * words];
+		indices = new int[blockSize];
+		dictionary = new long[maxDictionarySize * words];
+		slots = new int[Integer.highestOneBit(maxDictionarySize) << 2];
+		entrySlots = new int[maxDictionarySize];
+		blockIndex = new long[16];
+	}
+	
+	static int getWords(int length)
+	{
+		return (length + 63) >>> 6;
+	}
+	
+	/**
+	 * @return the number of bits that hold every value from one to 
+	 * {@code max}, stored less one
+	 */
+	static int fieldLength(int max)
+	{
+		return 32 - Integer.numberOfLeadingZeros(max - 1);
+	}
+	
+	/**
+	 * Reads a value into {@code words} words of {@code dest}
+	 */
+	static void readValue(
+			BitSource in, int length, long[] dest, int offset, int words)
+	{
+		dest[offset] = BitUtils.readBits(in, length - ((words - 1) << 6));
+		for (int i = 1; i < words; i++)
+		{
+			dest[offset + i] = BitUtils.readBits(in, 64);
+		}
+	}
+	
+	/**
+	 * Writes a value from {@code words} words of {@code src}
+	 */
+	static void writeValue(
+			BitSink out, int length, long[] src, int offset, int words)
+	{
+		int first = length - ((words - 1) << 6);
+		if (out instanceof BitBuffer)
+		{
+			BitBuffer buffer = (BitBuffer) out;
+			buffer.writeBits(src[offset], first);
+			for (int i = 1; i < words; i++)
+			{
+				buffer.writeBits(src[offset + i], 64);
+			}
+			return;
+		}
+		BitUtils.writeBits(out, src[offset], first);
+		for (int i = 1; i < words; i++)
+		{
+			BitUtils.writeBits(out, src[offset + i], 64);
+		}
+	}
+	
+	static BigInteger toBigInteger(long[] src, int offset, int words)
+	{
+		BigInteger r = BigInteger.ZERO;
+		for (int i = 0; i < words; i++)
+		{
+			long word = src[offset + i];
+			r = r.shiftLeft(64).or(BigInteger.valueOf(word & Long.MAX_VALUE));
+			if (word < 0)
+			{
+				r = r.setBit(63);
+			}
+		}
+		return r;
+	}
+	
+	private int hash(long[] src, int offset)
+	{
+		long h = 0;
+		for (int i = 0; i < words; i++)
+		{
+			h = (h ^ src[offset + i]) * 0x9E3779B97F4A7C15L;
+		}
+		return (int) (h ^ h >>> 29);
+	}
+	
+	private void writeBits(long bits, int count)
+	{
+		BitUtils.writeBits(out, bits, count);
+		bitCount += count;
+	}
+	
+	private void writeValue(long[] src, int offset)
+	{
+		writeValue(out, length, src, offset, words);
+		bitCount += length;
+	}
+	
+	/**
+	 * Adds the value held at the current position of {@link #values} to the 
+	 * block
+	 */
+	private void add()
+	{
+		if (!overflow)
+		{
+			final int offset = count * words;
+			final int slotMask = slots.length - 1;
+			int slot = hash(values, offset) & slotMask;
+			while (true)
+			{
+				int entry = slots[slot];
+				if (entry == 0)
+				{
+					if (dictionarySize == maxDictionarySize)
+					{
+						overflow = true;
+						break;
+					}
+					System.arraycopy(values, offset, 
+							dictionary, dictionarySize * words, words);
+					entrySlots[dictionarySize] = slot;
+					indices[count] = dictionarySize;
+					slots[slot] = ++dictionarySize;
+					break;
+				}
+				int entryOffset = (entry - 1) * words;
+				int i = 0;
+				while (i < words 
+						&& dictionary[entryOffset + i] == values[offset + i])
+				{
+					i++;
+				}
+				if (i == words)
+				{
+					indices[count] = entry - 1;
+					break;
+				}
+				slot = (slot + 1) & slotMask;
+			}
+		}
+		count++;
+		valueCount++;
+		if (count == blockSize)
+		{
+			flush();
+		}
+	}
+	
+	/**
+	 * Writes the low-order {@link IEEE754Format#getLength()} bits of 
+	 * {@code bits}, which must be no more than 64
+	 */
+	public void writeBits(long bits)
+	{
+		if (length > 64)
+		{
+			throw new IllegalStateException();
+		}
+		values[count] = length == 64 ? bits : bits & ((1L << length) - 1);
+		add();
+	}
+	
+	/**
+	 * Writes the low-order {@link IEEE754Format#getLength()} bits of 
+	 * {@code bits}
+	 */
+	public void writeBits(BigInteger bits)
+	{
+		final int offset = count * words;
+		for (int i = 0; i < words; i++)
+		{
+			values[offset + i] = bits.shiftRight(
+					(words - 1 - i) << 6).longValue();
+		}
+		values[offset] &= -1L >>> (64 - (length - ((words - 1) << 6)));
+		add();
+	}
+	
+	public void write(IEEE754 value)
+	{
+		if (length <= 64)
+		{
+			writeBits(value.toLongBits(format));
+		}
+		else
+		{
+			writeBits(value.toBigIntegerBits(format));
+		}
+	}
+	
+	/**
+	 * Writes the values of {@code src}, rounded to this encoder's format
+	 */
+	public void write(double[] src, int offset, int length)
+	{
+		if (this.length <= 64 && Transcoder.getMode(
+				IEEE754Format.DOUBLE, format) == Transcoder.MODE_LONG)
+		{
+			for (int i = offset; i < offset + length; i++)
+			{
+				writeBits(Transcoder.encode(IEEE754Format.DOUBLE, format, 
+						Double.doubleToRawLongBits(src[i]), null));
+			}
+		}
+		else
+		{
+			for (int i = offset; i < offset + length; i++)
+			{
+				write(IEEE754.valueOf(src[i]));
+			}
+		}
+	}
+	
+	/**
+	 * Writes the current block, if it has any values.  The next value starts
+	 * a new block.
+	 */
+	public void flush()
+	{
+		if (count == 0)
+		{
+			return;
+		}
+		if (blockCount == blockIndex.length)
+		{
+			blockIndex = Arrays.copyOf(blockIndex, blockCount << 1);
+		}
+		blockIndex[blockCount++] = bitCount;
+		writeBits(count - 1, countLength);
+		int indexLength = fieldLength(dictionarySize);
+		boolean encoded = !overflow 
+				&& sizeLength + (long) dictionarySize * length 
+						+ (long) count * indexLength 
+								< (long) count * length;
+		writeBits(encoded ? 1 : 0, 1);
+		if (encoded)
+		{
+			writeBits(dictionarySize - 1, sizeLength);
+			for (int i = 0; i < dictionarySize; i++)
+			{
+				writeValue(dictionary, i * words);
+			}
+			for (int i = 0; i < count; i++)
+			{
+				writeBits(indices[i], indexLength);
+			}
+		}
+		else
+		{
+			for (int i = 0; i < count; i++)
+			{
+				writeValue(values, i * words);
+			}
+		}
+		for (int i = 0; i < dictionarySize; i++)
+		{
+			slots[entrySlots[i]] = 0;
+		}
+		count = 0;
+		dictionarySize = 0;
+		overflow = false;
+	}
+	
+	/**
+	 * @return the number of bits written so far
+	 */
+	public long getBitCount()
+	{
+		return bitCount;
+	}
+	
+	public long getValueCount()
+	{
+		return valueCount;
+	}
+	
+	/**
+	 * @return the bit offset at which each block written so far starts, 
+	 * relative to the first bit written by this encoder
+	 */
+	public long[] getBlockIndex()
+	{
+		return Arrays.copyOf(blockIndex, blockCount);
+	}
+}
@@ -0,0 +1,420 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Vector kernels over arrays of values encoded in a format of no more than 16
+ * bits, such as {@link IEEE754Format#HALF}, {@link IEEE754Format#BFLOAT16} or
+ * the FP8 formats of {@link MXFormat}, that decode as they go instead of 
+ * dequantizing into a {@code float[]} first.
+ * <p>
+ * Every value of the format must be exactly a {@code float}: values are 
+ * decoded through a table with an entry per encoding.  Products of decoded 
+ * values and {@code float}s are exact in {@code double}, so sums and dot 
+ * products accumulate in {@code double} with a single rounding per term.
+ * <p>
+ * Encoded arrays are either packed in a {@link ByteBuffer}, as written by the
+ * sinks from {@link BitUtils}, starting at the buffer's position; or held in
+ * the low-order bits of a {@code short[]}'s elements.  Buffers are read with
+ * absolute indexing only: their positions aren't modified, so the parallel 
+ * variants can split them between tasks.
+ */
+public final class EncodedKernels
+{
+	private final IEEE754Format format;
+	private final int length;
+	private final int mask;
+	private final float[] table;
+	
+	public EncodedKernels(IEEE754Format format)
+	{
+		if (format.getLength() > 16
+				|| Transcoder.getMode(format, IEEE754Format.SINGLE) 
+						!= Transcoder.MODE_LONG)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.format = format;
+		length = format.getLength();
+		mask = (1 << length) - 1;
+		table = new float[1 << length];
+		IEEE754Status status = new IEEE754Status();
+		for (int i = 0; i < table.length; i++)
+		{
+			table[i] = Float.intBitsToFloat((int) Transcoder.transcode(
+					format, IEEE754Format.SINGLE, i, status));
+		}
+		if (status.test(IEEE754Status.INEXACT))
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	public IEEE754Format getFormat()
+	{
+		return format;
+	}
+	
+	/**
+	 * @return the value of the encoding, held in the low-order bits
+	 */
+	public float get(int bits)
+	{
+		return table[bits & mask];
+	}
+	
+	/**
+	 * @return the value at the given index of the packed array
+	 */
+	public float get(ByteBuffer src, int index)
+	{
+		return table[code(src, (long) src.position() << 3, index)];
+	}
+	
+	private int code(ByteBuffer src, long bitBase, int index)
+	{
+		switch (length)
+		{
+		case 8:
+			return src.get((int) (bitBase >>> 3) + index) & 0xFF;
+		case 16:
+			// Big-endian, whatever the buffer's order
+			int offset = (int) (bitBase >>> 3) + (index << 1);
+			return (src.get(offset) & 0xFF) << 8 | src.get(offset + 1) & 0xFF;
+		default:
+			return (int) BitUtils.readBits(
+					src, bitBase + (long) index * length, length);
+		}
+	}
+	
+	/**
+	 * Decodes {@code count} packed values into {@code dest}
+	 */
+	public void decode(ByteBuffer src, float[] dest, int offset, int count)
+	{
+		final long bitBase = (long) src.position() << 3;
+		for (int i = 0; i < count; i++)
+		{
+			dest[offset + i] = table[code(src, bitBase, i)];
+		}
+	}
+	
+	/**
+	 * @return the sum of {@code count} packed values
+	 */
+	public double sum(ByteBuffer x, int count)
+	{
+		return sum(x, (long) x.position() << 3, 0, count);
+	}
+	
+	private double sum(ByteBuffer x, long bitBase, int from, int to)
+	{
+		double r = 0;
+		for (int i = from; i < to; i++)
+		{
+			r += table[code(x, bitBase, i)];
+		}
+		return r;
+	}
+	
+	public double sum(short[] x, int offset, int count)
+	{
+		double r = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			r += table[x[i] & mask];
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the dot product of {@code count} packed values and 
+	 * {@code float}s
+	 */
+	public double dot(ByteBuffer x, float[] y, int offset, int count)
+	{
+		return dot(x, (long) x.position() << 3, y, offset, 0, count);
+	}
+	
+	private double dot(
+			ByteBuffer x, 
+			long bitBase, 
+			float[] y, 
+			int offset, 
+			int from, 
+			int to)
+	{
+		double r = 0;
+		for (int i = from; i < to; i++)
+		{
+			r += (double) table[code(x, bitBase, i)] * y[offset + i];
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the dot product of two packed arrays of {@code count} values
+	 */
+	public double dot(ByteBuffer x, ByteBuffer y, int count)
+	{
+		return dot(x, (long) x.position() << 3, 
+				y, (long) y.position() << 3, 0, count);
+	}
+	
+	private double dot(
+			ByteBuffer x, 
+			long xBitBase, 
+			ByteBuffer y, 
+			long yBitBase, 
+			int from, 
+			int to)
+	{
+		double r = 0;
+		for (int i = from; i < to; i++)
+		{
+			r += (double) table[code(x, xBitBase, i)] 
+					* table[code(y, yBitBase, i)];
+		}
+		return r;
+	}
+	
+	public double dot(
+			short[] x, 
+			int xOffset, 
+			float[] y, 
+			int yOffset, 
+			int count)
+	{
+		double r = 0;
+		for (int i = 0; i < count; i++)
+		{
+			r += (double) table[x[xOffset + i] & mask] * y[yOffset + i];
+		}
+		return r;
+	}
+	
+	public double dot(
+			short[] x, 
+			int xOffset, 
+			short[] y, 
+			int yOffset, 
+			int count)
+	{
+		double r = 0;
+		for (int i = 0; i < count; i++)
+		{
+			r += (double) table[x[xOffset + i] & mask] 
+					* table[y[yOffset + i] & mask];
+		}
+		return r;
+	}
+	
+	/**
+	 * Adds {@code alpha} times each of {@code count} packed values to the 
+	 * elements of {@code y}.  The product and sum are computed in 
+	 * {@code double}, and rounded once to {@code float}.
+	 */
+	public void axpy(float alpha, ByteBuffer x, float[] y, int offset, int count)
+	{
+		axpy(alpha, x, (long) x.position() << 3, y, offset, 0, count);
+	}
+	
+	private void axpy(
+			float alpha, 
+			ByteBuffer x, 
+			long bitBase, 
+			float[] y, 
+			int offset, 
+			int from, 
+			int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			y[offset + i] = (float) ((double) alpha 
+					* table[code(x, bitBase, i)] + y[offset + i]);
+		}
+	}
+	
+	public void axpy(
+			float alpha, 
+			short[] x, 
+			int xOffset, 
+			float[] y, 
+			int yOffset, 
+			int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			y[yOffset + i] = (float) ((double) alpha 
+					* table[x[xOffset + i] & mask] + y[yOffset + i]);
+		}
+	}
+	
+	/**
+	 * Computes {@link #dot(ByteBuffer, float[], int, int)} by splitting the 
+	 * vectors into {@code taskCount} parts, each submitted to 
+	 * {@code executor}.  Partial sums are added in task order, so the result
+	 * doesn't depend on scheduling.
+	 */
+	public double dot(
+			final ByteBuffer x, 
+			final float[] y, 
+			final int offset, 
+			int count, 
+			ExecutorService executor, 
+			int taskCount)
+	{
+		final long bitBase = (long) x.position() << 3;
+		return sum(submit(count, executor, taskCount, new Task() {
+			@Override
+			public double run(int from, int to)
+			{
+				return dot(x, bitBase, y, offset, from, to);
+			}
+		}));
+	}
+	
+	public double dot(
+			final ByteBuffer x, 
+			final ByteBuffer y, 
+			int count, 
+			ExecutorService executor, 
+			int taskCount)
+	{
+		final long xBitBase = (long) x.position() << 3;
+		final long yBitBase = (long) y.position() << 3;
+		return sum(submit(count, executor, taskCount, new Task() {
+			@Override
+			public double run(int from, int to)
+			{
+				return dot(x, xBitBase, y, yBitBase, from, to);
+			}
+		}));
+	}
+	
+	public double dot(
+			final short[] x, 
+			final int xOffset, 
+			final float[] y, 
+			final int yOffset, 
+			int count, 
+			ExecutorService executor, 
+			int taskCount)
+	{
+		return sum(submit(count, executor, taskCount, new Task() {
+			@Override
+			public double run(int from, int to)
+			{
+				return dot(x, xOffset + from, y, yOffset + from, to - from);
+			}
+		}));
+	}
+	
+	/**
+	 * Computes {@link #axpy(float, ByteBuffer, float[], int, int)} by 
+	 * splitting the vectors into {@code taskCount} parts, each submitted to
+	 * {@code executor}
+	 */
+	public void axpy(
+			final float alpha, 
+			final ByteBuffer x, 
+			final float[] y, 
+			final int offset, 
+			int count, 
+			ExecutorService executor, 
+			int taskCount)
+	{
+		final long bitBase = (long) x.position() << 3;
+		sum(submit(count, executor, taskCount, new Task() {
+			@Override
+			public double run(int from, int to)
+			{
+				axpy(alpha, x, bitBase, y, offset, from, to);
+				return 0;
+			}
+		}));
+	}
+	
+	private interface Task
+	{
+		double run(int from, int to);
+	}
+	
+	private List<Future<Double>> submit(
+			int count, 
+			ExecutorService executor, 
+			int taskCount, 
+			final Task task)
+	{
+		if (taskCount < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		List<Future<Double>> futures = 
+				new ArrayList<Future<Double>>(taskCount);
+		for (int i = 0; i < taskCount; i++)
+		{
+			final int from = (int) ((long) count * i / taskCount);
+			final int to = (int) ((long) count * (i + 1) / taskCount);
+			futures.add(executor.submit(new Callable<Double>() {
+				@Override
+				public Double call()
+				{
+					return task.run(from, to);
+				}
+			}));
+		}
+		return futures;
+	}
+	
+	private static double sum(List<Future<Double>> futures)
+	{
+		double r = 0;
+		try
+		{
+			for (Future<Double> future: futures)
+			{
+				r += future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+		return r;
+	}
+}
@@ -0,0 +1,581 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Scan kernels that filter and aggregate arrays of encoded values without 
+ * decoding them.
+ * <p>
+ * Each value is mapped to an order-preserving key: its magnitude bits, 
+ * added to or subtracted from 2<sup>length - 1</sup> by its sign.  Keys 
+ * compare as unsigned integers in the order of the values they encode; both
+ * zeros have the same key, and NaNs have keys below negative infinity's or
+ * above positive infinity's.  A {@link Predicate} is then one range of keys,
+ * or its complement.
+ * <p>
+ * Any format may be used.  Encoded arrays are either packed in a 
+ * {@link ByteBuffer}, as written by the sinks from {@link BitUtils}, starting
+ * at the buffer's position; or, for formats no more than 64 bits long, held 
+ * in the low-order bits of a {@code long[]}'s elements.  Buffers are read 
+ * with absolute indexing only: their positions aren't modified.  Formats of
+ * 8, 16, 32 or 64 bits are read an element at a time.
+ */
+public final class EncodedScan
+{
+	/**
+	 * Selects values by their keys.  Predicates are created by, and may only
+	 * be used with, the same {@link EncodedScan}.
+	 */
+	public static final class Predicate
+	{
+		/*
+		 * The inclusive bounds of the keys selected, high-order word first
+		 */
+		final long[] lo;
+		final long[] hi;
+		
+		/**
+		 * For keys of a single word, {@code hi - lo}: a key is selected if 
+		 * it's no more than this above {@code lo}, as an unsigned number
+		 */
+		final long span;
+		
+		/**
+		 * If set, the keys outside of the bounds are selected instead
+		 */
+		final boolean negate;
+		
+		final EncodedScan scan;
+		
+		Predicate(EncodedScan scan, long[] lo, long[] hi, boolean negate)
+		{
+			this.scan = scan;
+			this.lo = lo;
+			this.hi = hi;
+			this.negate = negate;
+			span = hi[0] - lo[0];
+		}
+	}
+	
+	private final IEEE754Format format;
+	private final int length;
+	private final int words;
+	
+	/**
+	 * The bits of the first word of a value
+	 */
+	private final int firstLength;
+	private final long signBit;
+	private final long magnitudeMask;
+	
+	private final BigInteger zeroKey;
+	private final BigInteger infinityMagnitude;
+	
+	public EncodedScan(IEEE754Format format)
+	{
+		if (format == null)
+		{
+			throw new NullPointerException();
+		}
+		this.format = format;
+		length = format.getLength();
+		words = DictionaryEncoder.getWords(length);
+		firstLength = length - ((words - 1) << 6);
+		signBit = 1L << (firstLength - 1);
+		magnitudeMask = signBit - 1;
+		zeroKey = BigInteger.ONE.shiftLeft(length - 1);
+		infinityMagnitude = IEEE754.POSITIVE_INFINITY.toBigIntegerBits(format);
+	}
+	
+	public IEEE754Format getFormat()
+	{
+		return format;
+	}
+	
+	private BigInteger key(BigInteger bits)
+	{
+		BigInteger magnitude = bits.clearBit(length - 1);
+		if (magnitude.compareTo(infinityMagnitude) > 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		return bits.testBit(length - 1) ? 
+				zeroKey.subtract(magnitude) : zeroKey.add(magnitude);
+	}
+	
+	private long[] toWords(BigInteger key)
+	{
+		long[] r = new long[words];
+		for (int i = 0; i < words; i++)
+		{
+			r[i] = key.shiftRight((words - 1 - i) << 6).longValue();
+		}
+		return r;
+	}
+	
+	private Predicate predicate(BigInteger lo, BigInteger hi, boolean negate)
+	{
+		if (lo.compareTo(hi) > 0)
+		{
+			/*
+			 * Nothing: the complement of every key
+			 */
+			lo = BigInteger.ZERO;
+			hi = BigInteger.ONE.shiftLeft(length).subtract(BigInteger.ONE);
+			negate = !negate;
+		}
+		return new Predicate(this, toWords(lo), toWords(hi), negate);
+	}
+	
+	/**
+	 * Selects values no less than {@code lo} and less than {@code hi}, given
+	 * as the non-negative encodings of values of the format other than NaN
+	 */
+	public Predicate range(BigInteger lo, BigInteger hi)
+	{
+		return predicate(key(lo), key(hi).subtract(BigInteger.ONE), false);
+	}
+	
+	/**
+	 * Selects values no less than {@code lo} and less than {@code hi}, given
+	 * in their low-order bits
+	 */
+	public Predicate range(long lo, long hi)
+	{
+		if (length > 64)
+		{
+			throw new IllegalStateException();
+		}
+		long mask = length == 64 ? -1L : (1L << length) - 1;
+		return range(DictionaryEncoder.toBigInteger(
+						new long[] {lo & mask}, 0, 1), 
+				DictionaryEncoder.toBigInteger(
+						new long[] {hi & mask}, 0, 1));
+	}
+	
+	/**
+	 * Selects every value that isn't NaN
+	 */
+	public Predicate isOrdered()
+	{
+		return predicate(zeroKey.subtract(infinityMagnitude), 
+				zeroKey.add(infinityMagnitude), false);
+	}
+	
+	public Predicate isNaN()
+	{
+		return predicate(zeroKey.subtract(infinityMagnitude), 
+				zeroKey.add(infinityMagnitude), true);
+	}
+	
+	/**
+	 * Selects every value but infinities and NaNs
+	 */
+	public Predicate isFinite()
+	{
+		return predicate(
+				zeroKey.subtract(infinityMagnitude).add(BigInteger.ONE), 
+				zeroKey.add(infinityMagnitude).subtract(BigInteger.ONE), 
+				false);
+	}
+	
+	/**
+	 * Selects values less than zero, including negative infinity
+	 */
+	public Predicate isNegative()
+	{
+		return predicate(zeroKey.subtract(infinityMagnitude), 
+				zeroKey.subtract(BigInteger.ONE), false);
+	}
+	
+	/**
+	 * Selects values greater than zero, including positive infinity
+	 */
+	public Predicate isPositive()
+	{
+		return predicate(zeroKey.add(BigInteger.ONE), 
+				zeroKey.add(infinityMagnitude), false);
+	}
+	
+	/**
+	 * Encoded values, read as keys
+	 */
+	private abstract class Column
+	{
+		/**
+		 * @return the key of a value of a format no more than 64 bits long
+		 */
+		abstract long key(int index);
+		
+		/**
+		 * Reads the key of a value into {@link #words} words of 
+		 * {@code dest}, the high-order word first
+		 */
+		abstract void key(int index, long[] dest);
+		
+		final long key(long bits)
+		{
+			long magnitude = bits & magnitudeMask;
+			return (bits & signBit) == 0 ? 
+					signBit + magnitude : signBit - magnitude;
+		}
+	}
+	
+	private final class BufferColumn extends Column
+	{
+		private final ByteBuffer src;
+		private final long bitBase;
+		private final int byteBase;
+		
+		BufferColumn(ByteBuffer src)
+		{
+			// Packed values are big-endian, whatever the buffer's order
+			this.src = src.duplicate().order(ByteOrder.BIG_ENDIAN);
+			byteBase = src.position();
+			bitBase = (long) byteBase << 3;
+		}
+		
+		@Override
+		long key(int index)
+		{
+			switch (length)
+			{
+			case 8:
+				return key(src.get(byteBase + index) & 0xFFL);
+			case 16:
+				return key(src.getShort(byteBase + (index << 1)) & 0xFFFFL);
+			case 32:
+				return key(src.getInt(byteBase + (index << 2)) & 0xFFFFFFFFL);
+			case 64:
+				return key(src.getLong(byteBase + (index << 3)));
+			default:
+				return key(BitUtils.readBits(
+						src, bitBase + (long) index * length, length));
+			}
+		}
+		
+		@Override
+		void key(int index, long[] dest)
+		{
+			long offset = bitBase + (long) index * length;
+			long first = BitUtils.readBits(src, offset, firstLength);
+			offset += firstLength;
+			boolean zero = (first & magnitudeMask) == 0;
+			for (int i = 1; i < words; i++)
+			{
+				dest[i] = BitUtils.readBits(src, offset, 64);
+				offset += 64;
+				zero &= dest[i] == 0;
+			}
+			if ((first & signBit) == 0 || zero)
+			{
+				dest[0] = first | signBit;
+				return;
+			}
+			
+			/*
+			 * 2^(length - 1) less the magnitude: its two's complement, 
+			 * without the sign bit
+			 */
+			boolean carry = true;
+			for (int i = words - 1; i > 0; i--)
+			{
+				dest[i] = ~dest[i] + (carry ? 1 : 0);
+				carry &= dest[i] == 0;
+			}
+			dest[0] = (~first + (carry ? 1 : 0)) & magnitudeMask;
+		}
+	}
+	
+	private final class ArrayColumn extends Column
+	{
+		private final long[] src;
+		private final int offset;
+		
+		ArrayColumn(long[] src, int offset)
+		{
+			if (words != 1)
+			{
+				throw new IllegalStateException();
+			}
+			this.src = src;
+			this.offset = offset;
+		}
+		
+		@Override
+		long key(int index)
+		{
+			return key(src[offset + index]);
+		}
+		
+		@Override
+		void key(int index, long[] dest)
+		{
+			dest[0] = key(index);
+		}
+	}
+	
+	/**
+	 * @return a negative number, zero, or a positive number as {@code a} is 
+	 * less than, equal to, or greater than {@code b}, as unsigned integers
+	 */
+	private static int compare(long[] a, long[] b)
+	{
+		for (int i = 0; i < a.length; i++)
+		{
+			if (a[i] != b[i])
+			{
+				return a[i] + Long.MIN_VALUE < b[i] + Long.MIN_VALUE ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+	
+	private void check(Predicate predicate)
+	{
+		if (predicate.scan != this)
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * @return a mask of the values selected from the {@code n} (no more than
+	 * 64) at {@code from}, the first in the lowest-order bit
+	 */
+	private long select(
+			Column column, 
+			int from, 
+			int n, 
+			Predicate predicate, 
+			long[] key)
+	{
+		long r = 0;
+		if (words == 1)
+		{
+			final long lo = predicate.lo[0];
+			final long span = predicate.span + Long.MIN_VALUE;
+			for (int i = 0; i < n; i++)
+			{
+				if (column.key(from + i) - lo + Long.MIN_VALUE <= span)
+				{
+					r |= 1L << i;
+				}
+			}
+		}
+		else
+		{
+			for (int i = 0; i < n; i++)
+			{
+				column.key(from + i, key);
+				if (compare(key, predicate.lo) >= 0 
+						&& compare(key, predicate.hi) <= 0)
+				{
+					r |= 1L << i;
+				}
+			}
+		}
+		return predicate.negate ? ~r & (-1L >>> (64 - n)) : r;
+	}
+	
+	private long count(Column column, int count, Predicate predicate)
+	{
+		check(predicate);
+		long[] key = new long[words];
+		long r = 0;
+		for (int i = 0; i < count; i += 64)
+		{
+			r += Long.bitCount(select(column, i, 
+					Math.min(64, count - i), predicate, key));
+		}
+		return r;
+	}
+	
+	private int select(
+			Column column, int count, Predicate predicate, long[] bitmap)
+	{
+		check(predicate);
+		long[] key = new long[words];
+		int r = 0;
+		for (int i = 0; i < count; i += 64)
+		{
+			long mask = select(
+					column, i, Math.min(64, count - i), predicate, key);
+			bitmap[i >>> 6] = mask;
+			r += Long.bitCount(mask);
+		}
+		return r;
+	}
+	
+	private int select(
+			Column column, 
+			int count, 
+			Predicate predicate, 
+			int[] indices, 
+			int offset)
+	{
+		check(predicate);
+		long[] key = new long[words];
+		int r = 0;
+		for (int i = 0; i < count; i += 64)
+		{
+			long mask = select(
+					column, i, Math.min(64, count - i), predicate, key);
+			while (mask != 0)
+			{
+				indices[offset + r++] = i + Long.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+			}
+		}
+		return r;
+	}
+	
+	private int extreme(
+			Column column, int count, Predicate predicate, boolean max)
+	{
+		check(predicate);
+		long[] key = new long[words];
+		long[] best = new long[words];
+		int r = -1;
+		for (int i = 0; i < count; i += 64)
+		{
+			long mask = select(
+					column, i, Math.min(64, count - i), predicate, key);
+			while (mask != 0)
+			{
+				int index = i + Long.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+				column.key(index, key);
+				int c = compare(key, best);
+				if (r == -1 || (max ? c > 0 : c < 0))
+				{
+					r = index;
+					System.arraycopy(key, 0, best, 0, words);
+				}
+			}
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the number of {@code count} packed values selected
+	 */
+	public long count(ByteBuffer src, int count, Predicate predicate)
+	{
+		return count(new BufferColumn(src), count, predicate);
+	}
+	
+	public long count(
+			long[] src, int offset, int count, Predicate predicate)
+	{
+		return count(new ArrayColumn(src, offset), count, predicate);
+	}
+	
+	/**
+	 * Sets bit <i>i</i> % 64 of {@code bitmap[}<i>i</i> / 64{@code ]} if 
+	 * packed value <i>i</i> is selected, and clears it otherwise.  Bits past
+	 * {@code count} in the last word written are cleared.
+	 * 
+	 * @return the number of values selected
+	 */
+	public int select(
+			ByteBuffer src, int count, Predicate predicate, long[] bitmap)
+	{
+		return select(new BufferColumn(src), count, predicate, bitmap);
+	}
+	
+	public int select(
+			long[] src, 
+			int offset, 
+			int count, 
+			Predicate predicate, 
+			long[] bitmap)
+	{
+		return select(
+				new ArrayColumn(src, offset), count, predicate, bitmap);
+	}
+	
+	/**
+	 * Writes the index of each packed value selected to {@code indices}, in 
+	 * ascending order, starting at {@code offset}
+	 * 
+	 * @return the number of values selected
+	 */
+	public int select(
+			ByteBuffer src, 
+			int count, 
+			Predicate predicate, 
+			int[] indices, 
+			int offset)
+	{
+		return select(
+				new BufferColumn(src), count, predicate, indices, offset);
+	}
+	
+	public int select(
+			long[] src, 
+			int srcOffset, 
+			int count, 
+			Predicate predicate, 
+			int[] indices, 
+			int offset)
+	{
+		return select(new ArrayColumn(src, srcOffset), count, predicate, 
+				indices, offset);
+	}
+	
+	/**
+	 * @return the index of the least packed value selected (the first, if 
+	 * several are equal), or -1 if none are
+	 */
+	public int min(ByteBuffer src, int count, Predicate predicate)
+	{
+		return extreme(new BufferColumn(src), count, predicate, false);
+	}
+	
+	public int min(long[] src, int offset, int count, Predicate predicate)
+	{
+		return extreme(
+				new ArrayColumn(src, offset), count, predicate, false);
+	}
+	
+	/**
+	 * @return the index of the greatest packed value selected (the first, if
+	 * several are equal), or -1 if none are
+	 */
+	public int max(ByteBuffer src, int count, Predicate predicate)
+	{
+		return extreme(new BufferColumn(src), count, predicate, true);
+	}
+	
+	public int max(long[] src, int offset, int count, Predicate predicate)
+	{
+		return extreme(
+				new ArrayColumn(src, offset), count, predicate, true);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Skips and seeks by moving the file's position
+ */
+final class FileChannelBitSource extends ChannelBitSource 
+		implements SeekableBitSource
+{
+	private final FileChannel file;
+	
+	public FileChannelBitSource(FileChannel file)
+	{
+		super(file);
+		this.file = file;
+	}
+	
+	@Override
+	protected void skipBytes(long count)
+	{
+		try
+		{
+			file.position(file.position() + count);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	@Override
+	public long position()
+	{
+		try
+		{
+			return (file.position() << 3) - getPendingBits();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	@Override
+	public void position(long bitOffset)
+	{
+		if (bitOffset < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		try
+		{
+			file.position(bitOffset >>> 3);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		seekBit((int) (bitOffset & 0x7));
+	}
+}
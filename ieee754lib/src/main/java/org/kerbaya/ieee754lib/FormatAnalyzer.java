@@ -0,0 +1,478 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the narrowest format able to hold a data set, in a single pass over
+ * its values.
+ * <p>
+ * For every finite non-zero value, the analyzer tracks the exponent of its 
+ * leading and lowest set bits, and its precision (the number of bits between
+ * them).  From these, {@link #getExactFormat()} derives the narrowest format,
+ * using the conventional exponent bias, that represents every value exactly.
+ * <p>
+ * The analyzer can also be given candidate formats, in which case each value 
+ * is rounded to every candidate to measure its quantization error.  Errors 
+ * are measured over the finite non-zero values: relative to the value itself,
+ * and in units of the value's binary64 ULP.  Overflow to infinity counts as 
+ * an infinite error.
+ * <p>
+ * Instances are not thread-safe.  To analyze in parallel, analyze separate 
+ * parts of the data set and {@link #add(FormatAnalyzer) combine} the results,
+ * as {@link #analyze(double[], ExecutorService, int, IEEE754Format...)} does.
+ */
+public final class FormatAnalyzer
+{
+	private static final int DOUBLE_MANTISSA_LENGTH = 52;
+	private static final int DOUBLE_EXPONENT_LENGTH = 11;
+	private static final int DOUBLE_BIAS = 1023;
+	private static final long DOUBLE_MANTISSA_MASK = 0xFFFFFFFFFFFFFL;
+	
+	/**
+	 * Exponents of candidate formats are clamped to this range, which is 
+	 * beyond that of any binary64 value 
+	 */
+	private static final int MIN_EXPONENT = -1100;
+	private static final int MAX_EXPONENT = 1100;
+	
+	private final IEEE754Format[] candidates;
+	private final int[] candidateMantissa;
+	private final int[] candidateMinExponent;
+	private final int[] candidateMaxExponent;
+	private final double[] candidateMaxValue;
+	
+	private long count;
+	private long nanCount;
+	private long infiniteCount;
+	private long zeroCount;
+	private long subnormalCount;
+	
+	private int minExponent = Integer.MAX_VALUE;
+	private int maxExponent = Integer.MIN_VALUE;
+	private int minLowestBit = Integer.MAX_VALUE;
+	private int maxPrecision;
+	
+	private final double[] maxRelativeError;
+	private final double[] sumRelativeError;
+	private final double[] maxUlpError;
+	private final long[] overflowCount;
+	private final long[] underflowCount;
+	
+	public FormatAnalyzer(IEEE754Format... candidates)
+	{
+		this.candidates = candidates.clone();
+		int n = candidates.length;
+		candidateMantissa = new int[n];
+		candidateMinExponent = new int[n];
+		candidateMaxExponent = new int[n];
+		candidateMaxValue = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			IEEE754Format format = candidates[i];
+			BigInteger bias = format.getExponentBias();
+			BigInteger minExp = BigInteger.ONE.subtract(bias);
+			BigInteger maxExp = BigInteger.ONE
+					.shiftLeft(format.getExponentLength())
+					.subtract(BigInteger.valueOf(2))
+					.subtract(bias);
+			/*
+			 * Clamp everything to the range of binary64: a wider candidate 
+			 * simply holds those values exactly
+			 */
+			candidateMantissa[i] = Math.min(
+					format.getMantissaLength(), DOUBLE_MANTISSA_LENGTH);
+			candidateMinExponent[i] = clamp(minExp);
+			candidateMaxExponent[i] = clamp(maxExp);
+			if (candidateMaxExponent[i] > Double.MAX_EXPONENT)
+			{
+				candidateMaxValue[i] = Double.POSITIVE_INFINITY;
+			}
+			else
+			{
+				candidateMaxValue[i] = Math.scalb(
+						2D - Math.scalb(1D, -candidateMantissa[i]), 
+						candidateMaxExponent[i]);
+			}
+		}
+		maxRelativeError = new double[n];
+		sumRelativeError = new double[n];
+		maxUlpError = new double[n];
+		overflowCount = new long[n];
+		underflowCount = new long[n];
+	}
+	
+	private static int clamp(BigInteger exponent)
+	{
+		return exponent
+				.max(BigInteger.valueOf(MIN_EXPONENT))
+				.min(BigInteger.valueOf(MAX_EXPONENT))
+				.intValue();
+	}
+	
+	private double round(int candidate, double value, int exponent)
+	{
+		int quantum = Math.max(exponent, candidateMinExponent[candidate]) 
+				- candidateMantissa[candidate];
+		double rounded;
+		if (quantum <= Double.MIN_EXPONENT - DOUBLE_MANTISSA_LENGTH)
+		{
+			rounded = value;
+		}
+		else
+		{
+			rounded = Math.scalb(
+					Math.rint(Math.scalb(value, -quantum)), quantum);
+		}
+		if (Math.abs(rounded) > candidateMaxValue[candidate])
+		{
+			return value < 0 ? 
+					Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+		return rounded;
+	}
+	
+	public void add(double value)
+	{
+		count++;
+		if (Double.isNaN(value))
+		{
+			nanCount++;
+			return;
+		}
+		if (Double.isInfinite(value))
+		{
+			infiniteCount++;
+			return;
+		}
+		if (value == 0D)
+		{
+			zeroCount++;
+			return;
+		}
+		
+		/*
+		 * Find the exponents of the leading and lowest set bits
+		 */
+		long bits = Double.doubleToRawLongBits(value);
+		int exponentBits = (int) (bits >>> DOUBLE_MANTISSA_LENGTH) 
+				& ((1 << DOUBLE_EXPONENT_LENGTH) - 1);
+		long significand = bits & DOUBLE_MANTISSA_MASK;
+		int exponent;
+		if (exponentBits == 0)
+		{
+			subnormalCount++;
+			exponentBits = 1;
+			exponent = 63 - Long.numberOfLeadingZeros(significand) 
+					+ exponentBits - DOUBLE_BIAS - DOUBLE_MANTISSA_LENGTH;
+		}
+		else
+		{
+			significand |= 1L << DOUBLE_MANTISSA_LENGTH;
+			exponent = exponentBits - DOUBLE_BIAS;
+		}
+		int lowestBit = Long.numberOfTrailingZeros(significand) 
+				+ exponentBits - DOUBLE_BIAS - DOUBLE_MANTISSA_LENGTH;
+		minExponent = Math.min(minExponent, exponent);
+		maxExponent = Math.max(maxExponent, exponent);
+		minLowestBit = Math.min(minLowestBit, lowestBit);
+		maxPrecision = Math.max(maxPrecision, exponent - lowestBit + 1);
+		
+		for (int i = 0; i < candidates.length; i++)
+		{
+			double rounded = round(i, value, exponent);
+			if (Double.isInfinite(rounded))
+			{
+				overflowCount[i]++;
+			}
+			else if (exponent < candidateMinExponent[i])
+			{
+				underflowCount[i]++;
+			}
+			double error = Math.abs(rounded - value);
+			double relativeError = error / Math.abs(value);
+			maxRelativeError[i] = Math.max(
+					maxRelativeError[i], relativeError);
+			sumRelativeError[i] += relativeError;
+			maxUlpError[i] = Math.max(
+					maxUlpError[i], error / Math.ulp(value));
+		}
+	}
+	
+	public void add(double[] values, int offset, int length)
+	{
+		for (int i = offset; i < offset + length; i++)
+		{
+			add(values[i]);
+		}
+	}
+	
+	/**
+	 * Adds every remaining binary64 value in the buffer, using the buffer's 
+	 * byte order, and advances its position
+	 */
+	public void add(ByteBuffer values)
+	{
+		while (values.remaining() >= 8)
+		{
+			add(values.getDouble());
+		}
+	}
+	
+	/**
+	 * Combines the results of an analyzer given the same candidate formats
+	 */
+	public void add(FormatAnalyzer other)
+	{
+		if (other.candidates.length != candidates.length)
+		{
+			throw new IllegalArgumentException();
+		}
+		count += other.count;
+		nanCount += other.nanCount;
+		infiniteCount += other.infiniteCount;
+		zeroCount += other.zeroCount;
+		subnormalCount += other.subnormalCount;
+		minExponent = Math.min(minExponent, other.minExponent);
+		maxExponent = Math.max(maxExponent, other.maxExponent);
+		minLowestBit = Math.min(minLowestBit, other.minLowestBit);
+		maxPrecision = Math.max(maxPrecision, other.maxPrecision);
+		for (int i = 0; i < candidates.length; i++)
+		{
+			maxRelativeError[i] = Math.max(
+					maxRelativeError[i], other.maxRelativeError[i]);
+			sumRelativeError[i] += other.sumRelativeError[i];
+			maxUlpError[i] = Math.max(maxUlpError[i], other.maxUlpError[i]);
+			overflowCount[i] += other.overflowCount[i];
+			underflowCount[i] += other.underflowCount[i];
+		}
+	}
+	
+	/**
+	 * Analyzes the values by splitting them into {@code taskCount} parts, each
+	 * analyzed by a task submitted to {@code executor}
+	 */
+	public static FormatAnalyzer analyze(
+			final double[] values, 
+			ExecutorService executor, 
+			int taskCount, 
+			final IEEE754Format... candidates)
+	{
+		if (taskCount < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		List<Future<FormatAnalyzer>> futures = 
+				new ArrayList<Future<FormatAnalyzer>>(taskCount);
+		for (int task = 0; task < taskCount; task++)
+		{
+			final int from = (int) ((long) values.length * task / taskCount);
+			final int to = 
+					(int) ((long) values.length * (task + 1) / taskCount);
+			futures.add(executor.submit(new Callable<FormatAnalyzer>() {
+				@Override
+				public FormatAnalyzer call()
+				{
+					FormatAnalyzer analyzer = new FormatAnalyzer(candidates);
+					analyzer.add(values, from, to - from);
+					return analyzer;
+				}
+			}));
+		}
+		FormatAnalyzer r = new FormatAnalyzer(candidates);
+		try
+		{
+			for (Future<FormatAnalyzer> future: futures)
+			{
+				r.add(future.get());
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+		return r;
+	}
+	
+	public long getCount()
+	{
+		return count;
+	}
+	
+	public long getNaNCount()
+	{
+		return nanCount;
+	}
+	
+	public long getInfiniteCount()
+	{
+		return infiniteCount;
+	}
+	
+	public long getZeroCount()
+	{
+		return zeroCount;
+	}
+	
+	/**
+	 * @return the number of values that are sub-normal binary64 numbers
+	 */
+	public long getSubnormalCount()
+	{
+		return subnormalCount;
+	}
+	
+	/**
+	 * @return the smallest exponent of a finite non-zero value's leading bit, 
+	 * or {@link Integer#MAX_VALUE} if there were no such values
+	 */
+	public int getMinExponent()
+	{
+		return minExponent;
+	}
+	
+	/**
+	 * @return the largest exponent of a finite non-zero value's leading bit, 
+	 * or {@link Integer#MIN_VALUE} if there were no such values
+	 */
+	public int getMaxExponent()
+	{
+		return maxExponent;
+	}
+	
+	/**
+	 * @return the most significant bits needed by any value, including its 
+	 * leading bit.  The remaining (trailing) bits of its binary64 mantissa are
+	 * all zero.
+	 */
+	public int getMaxPrecision()
+	{
+		return maxPrecision;
+	}
+	
+	/**
+	 * @return the narrowest format that exactly represents every value, using
+	 * the conventional exponent bias of 2^(exponentLength-1)-1
+	 */
+	public IEEE754Format getExactFormat()
+	{
+		for (int length = 4; ; length++)
+		{
+			/*
+			 * One more exponent bit than binary64 has is enough to hold its 
+			 * sub-normals as normal numbers
+			 */
+			for (int e = 2; e <= DOUBLE_EXPONENT_LENGTH + 1; e++)
+			{
+				int m = length - 1 - e;
+				if (m < 1)
+				{
+					break;
+				}
+				int bias = (1 << (e - 1)) - 1;
+				if (maxPrecision <= m + 1
+						&& (maxExponent == Integer.MIN_VALUE 
+								|| (maxExponent <= bias 
+										&& minLowestBit >= 1 - bias - m)))
+				{
+					return new IEEE754Format(e, m, BigInteger.valueOf(bias));
+				}
+			}
+		}
+	}
+	
+	public IEEE754Format[] getCandidates()
+	{
+		return candidates.clone();
+	}
+	
+	public double getMaxRelativeError(int candidate)
+	{
+		return maxRelativeError[candidate];
+	}
+	
+	public double getMeanRelativeError(int candidate)
+	{
+		long n = count - nanCount - infiniteCount - zeroCount;
+		return n == 0 ? 0D : sumRelativeError[candidate] / n;
+	}
+	
+	/**
+	 * @return the largest error, in units of the binary64 ULP of the value 
+	 * being rounded
+	 */
+	public double getMaxUlpError(int candidate)
+	{
+		return maxUlpError[candidate];
+	}
+	
+	public long getOverflowCount(int candidate)
+	{
+		return overflowCount[candidate];
+	}
+	
+	/**
+	 * @return the number of values too small to be normal numbers in the 
+	 * candidate format
+	 */
+	public long getUnderflowCount(int candidate)
+	{
+		return underflowCount[candidate];
+	}
+	
+	/**
+	 * @return the shortest candidate format whose errors are within both 
+	 * budgets, or {@code null} if none are
+	 */
+	public IEEE754Format getRecommendedFormat(
+			double maxRelativeError, 
+			double maxUlpError)
+	{
+		IEEE754Format r = null;
+		for (int i = 0; i < candidates.length; i++)
+		{
+			if (this.maxRelativeError[i] <= maxRelativeError
+					&& this.maxUlpError[i] <= maxUlpError
+					&& (r == null 
+							|| candidates[i].getLength() < r.getLength()))
+			{
+				r = candidates[i];
+			}
+		}
+		return r;
+	}
+}
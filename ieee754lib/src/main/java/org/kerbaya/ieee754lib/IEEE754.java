@@ -23,7 +23,18 @@
  */
 package org.kerbaya.ieee754lib;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 
@@ -43,17 +54,45 @@ public abstract class IEEE754 extends Number
 		}
 		
 		@Override
-		public void toBits(IEEE754Format format, BitSink out)
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				IEEE754Status status)
 		{
 			out.write(negative);
 			for (int i = 0; i < format.getExponentLength(); i++)
 			{
 				out.write(true);
 			}
+			if (format.hasExplicitIntegerBit())
+			{
+				out.write(true);
+			}
 			for (int i = 0; i < format.getMantissaLength(); i++)
 			{
 				out.write(false);
 			}
+			if (status != null)
+			{
+				status.raise(0);
+			}
+			
+			if (IEEE754Metrics.enabled)
+			{
+				IEEE754Metrics.encoded(format, IEEE754Metrics.INFINITE);
+			}
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof IEEE754 && ((IEEE754) obj).resolve() == this;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(this);
 		}
 		
 		@Override
@@ -82,17 +121,45 @@ public abstract class IEEE754 extends Number
 		}
 		
 		@Override
-		public void toBits(IEEE754Format format, BitSink out)
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				IEEE754Status status)
 		{
 			out.write(negative);
 			for (int i = 0; i < format.getExponentLength(); i++)
 			{
 				out.write(false);
 			}
+			if (format.hasExplicitIntegerBit())
+			{
+				out.write(false);
+			}
 			for (int i = 0; i < format.getMantissaLength(); i++)
 			{
 				out.write(false);
 			}
+			if (status != null)
+			{
+				status.raise(0);
+			}
+			
+			if (IEEE754Metrics.enabled)
+			{
+				IEEE754Metrics.encoded(format, IEEE754Metrics.ZERO);
+			}
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof IEEE754 && ((IEEE754) obj).resolve() == this;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(this);
 		}
 		
 		@Override
@@ -122,18 +189,46 @@ public abstract class IEEE754 extends Number
 		private static final long serialVersionUID = 4967162119419949857L;
 
 		@Override
-		public void toBits(IEEE754Format format, BitSink out)
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				IEEE754Status status)
 		{
 			out.write(false);
 			for (int i = 0; i < format.getExponentLength(); i++)
 			{
 				out.write(true);
 			}
+			if (format.hasExplicitIntegerBit())
+			{
+				out.write(true);
+			}
 			out.write(true);
 			for (int i = 1; i < format.getMantissaLength(); i++)
 			{
 				out.write(false);
 			}
+			if (status != null)
+			{
+				status.raise(IEEE754Status.NAN);
+			}
+			
+			if (IEEE754Metrics.enabled)
+			{
+				IEEE754Metrics.encoded(format, IEEE754Metrics.NAN);
+			}
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof IEEE754 && ((IEEE754) obj).resolve() == this;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(this);
 		}
 		
 		@Override
@@ -184,27 +279,43 @@ public abstract class IEEE754 extends Number
 			return significand;
 		}
 		
+		/**
+		 * @return {@code true} if this value is non-zero, and less in 
+		 * magnitude than the format's smallest normal number
+		 */
+		private boolean isSubnormal(IEEE754Format format)
+		{
+			return significand.signum() != 0 && exponent
+					.add(BigInteger.valueOf(significand.abs().bitLength() - 1))
+					.compareTo(BigInteger.ONE.subtract(
+							format.getExponentBias())) < 0;
+		}
+		
+		/**
+		 * Shifts right, rounding to nearest, ties to even
+		 */
 		private static BigInteger roundingShiftRight(BigInteger bi, int n)
 		{
-			int bitIndex = n - 1;
-			if (bi.testBit(bitIndex))
+			BigInteger r = bi.shiftRight(n);
+			if (bi.testBit(n - 1)
+					&& (r.testBit(0) || bi.getLowestSetBit() < n - 1))
 			{
-				bitIndex++;
-				while (bi.testBit(bitIndex))
-				{
-					bi = bi.clearBit(bitIndex);
-					bitIndex++;
-				}
-				bi = bi.setBit(bitIndex);
+				r = r.add(BigInteger.ONE);
 			}
-			return bi.shiftRight(n);
+			return r;
+		}
+		
+		private static boolean isInexactShift(BigInteger bi, int n)
+		{
+			return bi.signum() != 0 && bi.getLowestSetBit() < n;
 		}
 		
 		private boolean writeSubNormalOrZero(
 				boolean negative, 
 				BigInteger mantissaBits,
 				IEEE754Format format,
-				BitSink out)
+				BitSink out,
+				IEEE754Status status)
 		{
 			BigInteger exponentBits = exponent
 					.add(format.getExponentBias())
@@ -224,19 +335,32 @@ public abstract class IEEE754 extends Number
 				 * mantissa, due to rounding.  Any more than that though: it's 
 				 * impossible to have a non-zero mantissa.
 				 */
-				(negative ? NEGATIVE_ZERO : POSITIVE_ZERO).toBits(format, out);
+				(negative ? NEGATIVE_ZERO : POSITIVE_ZERO).toBits(
+						format, out, null);
+				if (status != null)
+				{
+					status.raise(mantissaBits.signum() == 0 ? 0 : 
+							IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT);
+				}
 				return true;
 			}
 			int zeroPadCount = rightShift.intValue();
 			int sigBitCount = format.getMantissaLength() - zeroPadCount;
+			boolean inexact = false;
 			if (mantissaBits.bitLength() > sigBitCount)
 			{
-				mantissaBits = roundingShiftRight(mantissaBits, 
-						mantissaBits.bitLength() - sigBitCount);
+				int shift = mantissaBits.bitLength() - sigBitCount;
+				inexact = isInexactShift(mantissaBits, shift);
+				mantissaBits = roundingShiftRight(mantissaBits, shift);
 				if (mantissaBits.signum() == 0)
 				{
 					(negative ? NEGATIVE_ZERO : POSITIVE_ZERO).toBits(
-							format, out);
+							format, out, null);
+					if (status != null)
+					{
+						status.raise(
+								IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT);
+					}
 					return true;
 				}
 				if (mantissaBits.bitLength() != sigBitCount)
@@ -253,9 +377,33 @@ public abstract class IEEE754 extends Number
 						/*
 						 * We were already against the decimal point.  After
 						 * rounding, this number is too large to be expressed as
-						 * a sub-normal
+						 * a sub-normal: it's the smallest normal number
 						 */
-						return false;
+						out.write(negative);
+						for (int i = 1; i < format.getExponentLength(); i++)
+						{
+							out.write(false);
+						}
+						out.write(true);
+						if (format.hasExplicitIntegerBit())
+						{
+							out.write(true);
+						}
+						for (int i = 0; i < format.getMantissaLength(); i++)
+						{
+							out.write(false);
+						}
+						if (status != null)
+						{
+							status.raise(IEEE754Status.UNDERFLOW 
+									| IEEE754Status.INEXACT);
+						}
+						if (IEEE754Metrics.enabled)
+						{
+							IEEE754Metrics.encoded(
+									format, IEEE754Metrics.NORMAL);
+						}
+						return true;
 					}
 					zeroPadCount--;
 				}
@@ -266,6 +414,10 @@ public abstract class IEEE754 extends Number
 			{
 				out.write(false);
 			}
+			if (format.hasExplicitIntegerBit())
+			{
+				out.write(false);
+			}
 			int i;
 			for (i = 0; i < zeroPadCount; i++)
 			{
@@ -281,6 +433,18 @@ public abstract class IEEE754 extends Number
 			{
 				out.write(false);
 			}
+			if (status != null)
+			{
+				status.raise(inexact ? 
+						IEEE754Status.SUBNORMAL 
+								| IEEE754Status.UNDERFLOW 
+								| IEEE754Status.INEXACT : 
+						IEEE754Status.SUBNORMAL);
+			}
+			if (IEEE754Metrics.enabled)
+			{
+				IEEE754Metrics.encoded(format, IEEE754Metrics.SUBNORMAL);
+			}
 			return true;
 		}
 		
@@ -288,7 +452,8 @@ public abstract class IEEE754 extends Number
 				boolean negative, 
 				BigInteger mantissaBits,
 				IEEE754Format format,
-				BitSink out)
+				BitSink out,
+				IEEE754Status status)
 		{
 			final int sigBitCount = format.getMantissaLength() + 1;
 			BigInteger roundedMantissaBits;
@@ -338,7 +503,12 @@ public abstract class IEEE754 extends Number
 				 * In either case, we write infinity
 				 */
 				(negative ? NEGATIVE_INFINITY : POSITIVE_INFINITY)
-						.toBits(format, out);
+						.toBits(format, out, null);
+				if (status != null)
+				{
+					status.raise(
+							IEEE754Status.OVERFLOW | IEEE754Status.INEXACT);
+				}
 			}
 			else
 			{
@@ -354,8 +524,13 @@ public abstract class IEEE754 extends Number
 				}
 				
 				/*
-				 * The first set mantissa bit is implied: it isn't written
+				 * The first set mantissa bit is implied: it isn't written, 
+				 * unless the format stores it explicitly
 				 */
+				if (format.hasExplicitIntegerBit())
+				{
+					out.write(true);
+				}
 				int mantissaBitIndex = roundedMantissaBits.bitLength() - 2;
 				int i;
 				for (i = 0; i < format.getMantissaLength() 
@@ -373,12 +548,24 @@ public abstract class IEEE754 extends Number
 				{
 					out.write(false);
 				}
+				if (status != null)
+				{
+					status.raise(isInexactShift(mantissaBits, shift) ? 
+							IEEE754Status.INEXACT : 0);
+				}
+				if (IEEE754Metrics.enabled)
+				{
+					IEEE754Metrics.encoded(format, IEEE754Metrics.NORMAL);
+				}
 			}
 			return true;
 		}
 		
 		@Override
-		public void toBits(IEEE754Format format, BitSink out)
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				IEEE754Status status)
 		{
 			final boolean negative;
 			BigInteger mantissaBits;
@@ -393,12 +580,36 @@ public abstract class IEEE754 extends Number
 				mantissaBits = significand;
 			}
 			
-			if (!writeNormalOrInfinity(negative, mantissaBits, format, out))
+			if (!writeNormalOrInfinity(
+					negative, mantissaBits, format, out, status))
 			{
-				writeSubNormalOrZero(negative, mantissaBits, format, out);
+				writeSubNormalOrZero(
+						negative, mantissaBits, format, out, status);
 			}
 		}
 		
+		@Override
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				int subnormals,
+				IEEE754Status status)
+		{
+			if ((subnormals & IEEE754Format.FLUSH_TO_ZERO) != 0 
+					&& isSubnormal(format))
+			{
+				(significand.signum() == -1 ? NEGATIVE_ZERO : POSITIVE_ZERO)
+						.toBits(format, out, null);
+				if (status != null)
+				{
+					status.raise(
+							IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT);
+				}
+				return;
+			}
+			toBits(format, out, status);
+		}
+		
 		@Override
 		public int hashCode()
 		{
@@ -415,11 +626,16 @@ public abstract class IEEE754 extends Number
 			{
 				return true;
 			}
-			if (!(obj instanceof IEEE754Number))
+			if (!(obj instanceof IEEE754))
 			{
 				return false;
 			}
-			IEEE754Number other = (IEEE754Number) obj;
+			IEEE754 resolved = ((IEEE754) obj).resolve();
+			if (!(resolved instanceof IEEE754Number))
+			{
+				return false;
+			}
+			IEEE754Number other = (IEEE754Number) resolved;
 			return exponent.equals(other.exponent)
 					&& significand.equals(other.significand);
 		}
@@ -440,9 +656,638 @@ public abstract class IEEE754 extends Number
 		}
 	}
 	
+	/**
+	 * A value held as its raw bit pattern in some format.  Nothing is decoded
+	 * until the value is inspected: encoding it goes straight from bits to 
+	 * bits (a copy if the format is the same), and {@link #doubleValue()} 
+	 * does the same for formats no more than 64 bits long.
+	 * <p>
+	 * Instances are equal to, and have the same hash code as, the 
+	 * {@link #resolve() decoded value}.
+	 */
+	public static final class IEEE754Bits extends IEEE754
+	{
+		private static final long serialVersionUID = 2938526114820737315L;
+		
+		private final IEEE754Format format;
+		
+		/**
+		 * The bits, if the format is no more than 64 bits long
+		 */
+		private final long bits;
+		
+		/**
+		 * The bits, if the format is longer than 64 bits; otherwise 
+		 * {@code null}
+		 */
+		private final BigInteger bigBits;
+		
+		/**
+		 * Decoded on demand.  Races only decode more than once: decoded 
+		 * values are immutable.
+		 */
+		private transient IEEE754 resolved;
+		
+		/**
+		 * @param bits
+		 * the value, in the low-order {@link IEEE754Format#getLength()} bits,
+		 * which must be no more than 64
+		 */
+		public IEEE754Bits(IEEE754Format format, long bits)
+		{
+			if (format.getLength() > 64)
+			{
+				throw new IllegalArgumentException();
+			}
+			this.format = format;
+			this.bits = format.getLength() == 64 ? 
+					bits : bits & ((1L << format.getLength()) - 1);
+			bigBits = null;
+		}
+		
+		/**
+		 * @param bits
+		 * the value, in the low-order {@link IEEE754Format#getLength()} bits
+		 */
+		public IEEE754Bits(IEEE754Format format, BigInteger bits)
+		{
+			int length = format.getLength();
+			if (length <= 64)
+			{
+				this.bits = bits.longValue() 
+						& (length == 64 ? -1L : (1L << length) - 1);
+				bigBits = null;
+			}
+			else
+			{
+				this.bits = 0;
+				bigBits = bits.and(
+						BigInteger.ONE.shiftLeft(length).subtract(
+								BigInteger.ONE));
+			}
+			this.format = format;
+		}
+		
+		/**
+		 * Reads the bits of one value, without decoding them
+		 */
+		public static IEEE754Bits read(IEEE754Format format, BitSource in)
+		{
+			return format.getLength() <= 64 ?
+					new IEEE754Bits(format, BitUtils.readBits(
+							in, format.getLength())) 
+					: new IEEE754Bits(format, BitUtils.readBigBits(
+							in, format.getLength()));
+		}
+		
+		public IEEE754Format getFormat()
+		{
+			return format;
+		}
+		
+		/**
+		 * @return the bits, as a non-negative integer
+		 */
+		public BigInteger getBits()
+		{
+			if (bigBits != null)
+			{
+				return bigBits;
+			}
+			BigInteger r = BigInteger.valueOf(bits);
+			return bits < 0 ? r.add(BigInteger.ONE.shiftLeft(64)) : r;
+		}
+		
+		/**
+		 * @return the decoded value: an {@link IEEE754Number}, or one of the
+		 * zero, infinity or NaN constants
+		 */
+		@Override
+		public IEEE754 resolve()
+		{
+			IEEE754 r = resolved;
+			if (r == null)
+			{
+				r = bigBits == null ? 
+						decode(format, bits) : decode(format, bigBits);
+				resolved = r;
+			}
+			return r;
+		}
+		
+		@Override
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				IEEE754Status status)
+		{
+			if (bigBits == null 
+					&& status == null 
+					&& format.equals(this.format)
+					&& !format.hasExplicitIntegerBit()
+					&& !Transcoder.isNaN(format, bits))
+			{
+				/*
+				 * NaN is the exception: it's always written as the canonical
+				 * NaN.  Formats with an explicit integer bit are re-encoded 
+				 * too, so that unnormals and pseudo-denormals aren't copied.
+				 */
+				BitUtils.writeBits(out, bits, format.getLength());
+				if (IEEE754Metrics.enabled)
+				{
+					IEEE754Metrics.encoded(format, bits);
+				}
+				return;
+			}
+			int mode = Transcoder.getMode(this.format, format);
+			if (bigBits == null)
+			{
+				Transcoder.transcode(this.format, format, mode, 
+						bits, out, status);
+			}
+			else
+			{
+				Transcoder.transcode(this.format, format, mode, 
+						bitSource(bigBits, this.format.getLength()), 
+						out, status);
+			}
+		}
+		
+		@Override
+		public void toBits(
+				IEEE754Format format, 
+				BitSink out, 
+				int subnormals,
+				IEEE754Status status)
+		{
+			if (subnormals == 0)
+			{
+				toBits(format, out, status);
+				return;
+			}
+			int mode = Transcoder.getMode(this.format, format);
+			if (bigBits == null)
+			{
+				Transcoder.transcode(this.format, format, mode, subnormals, 
+						bits, out, status);
+			}
+			else
+			{
+				Transcoder.transcode(this.format, format, mode, subnormals, 
+						bitSource(bigBits, this.format.getLength()), 
+						out, status);
+			}
+		}
+		
+		@Override
+		public double doubleValue()
+		{
+			if (bigBits == null 
+					&& Transcoder.getMode(format, IEEE754Format.DOUBLE) 
+							== Transcoder.MODE_LONG)
+			{
+				return Double.longBitsToDouble(Transcoder.decode(
+						format, IEEE754Format.DOUBLE, bits, null));
+			}
+			return resolve().doubleValue();
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return resolve().hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return resolve().equals(obj);
+		}
+		
+		@Override
+		public String toString()
+		{
+			return resolve().toString();
+		}
+	}
+	
+	/**
+	 * Stands in for every value in a serialized stream, writing the compact 
+	 * form of {@link IEEE754#writeTo(DataOutput)} instead of class 
+	 * descriptors and {@link BigInteger} objects
+	 */
+	private static final class SerialForm implements Externalizable
+	{
+		private static final long serialVersionUID = -3851734920624414837L;
+		
+		private IEEE754 value;
+		
+		public SerialForm() {}
+		
+		public SerialForm(IEEE754 value)
+		{
+			this.value = value;
+		}
+		
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException
+		{
+			value.writeTo(out);
+		}
+		
+		@Override
+		public void readExternal(ObjectInput in) throws IOException
+		{
+			value = readFrom(in);
+		}
+		
+		private Object readResolve() throws ObjectStreamException
+		{
+			if (value == null)
+			{
+				throw new InvalidObjectException("no value");
+			}
+			return value;
+		}
+	}
+	
+	private static final int TAG_POSITIVE_ZERO = 0;
+	private static final int TAG_NEGATIVE_ZERO = 1;
+	private static final int TAG_POSITIVE_INFINITY = 2;
+	private static final int TAG_NEGATIVE_INFINITY = 3;
+	private static final int TAG_NAN = 4;
+	private static final int TAG_POSITIVE_NUMBER = 5;
+	private static final int TAG_NEGATIVE_NUMBER = 6;
+	
+	private static final BigInteger FIVE = BigInteger.valueOf(5);
+	
+	/**
+	 * 5<sup>i</sup>, for every power that fits in a {@code long}
+	 */
+	private static final long[] LONG_POWERS_OF_FIVE = new long[28];
+	
+	static
+	{
+		LONG_POWERS_OF_FIVE[0] = 1;
+		for (int i = 1; i < LONG_POWERS_OF_FIVE.length; i++)
+		{
+			LONG_POWERS_OF_FIVE[i] = LONG_POWERS_OF_FIVE[i - 1] * 5;
+		}
+	}
+	
+	private static final double LOG2_10 = 3.321928094887362;
+	
 	private IEEE754() {}
 	
-	public abstract void toBits(IEEE754Format format, BitSink out);
+	/**
+	 * @return the decoded form of this value
+	 */
+	IEEE754 resolve()
+	{
+		return this;
+	}
+	
+	final Object writeReplace() throws ObjectStreamException
+	{
+		return new SerialForm(this);
+	}
+	
+	private static void writeUnsigned(DataOutput out, long value) 
+			throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.writeByte((int) value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+	
+	/**
+	 * Writes a non-negative integer, 7 bits per byte, least significant group
+	 * first.  The high bit of each byte is set if more bytes follow.
+	 */
+	private static void writeUnsigned(DataOutput out, BigInteger value) 
+			throws IOException
+	{
+		if (value.bitLength() < 64)
+		{
+			writeUnsigned(out, value.longValue());
+			return;
+		}
+		while (value.bitLength() > 7)
+		{
+			out.writeByte(value.intValue() & 0x7F | 0x80);
+			value = value.shiftRight(7);
+		}
+		out.writeByte(value.intValue());
+	}
+	
+	private static BigInteger readUnsigned(DataInput in) throws IOException
+	{
+		long r = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = in.readUnsignedByte();
+			r |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0 && shift < 63);
+		if ((b & 0x80) == 0)
+		{
+			return BigInteger.valueOf(r);
+		}
+		
+		/*
+		 * Too large for a long
+		 */
+		BigInteger big = BigInteger.valueOf(r);
+		do
+		{
+			b = in.readUnsignedByte();
+			big = big.or(BigInteger.valueOf(b & 0x7F).shiftLeft(shift));
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return big;
+	}
+	
+	/**
+	 * Writes a compact form of this value: a tag byte, followed (for non-zero 
+	 * finite numbers) by the zig-zag encoded exponent and the magnitude of the
+	 * significand, each as a variable-length integer of 7 bits per byte.
+	 * 
+	 * @see #readFrom(DataInput)
+	 */
+	public final void writeTo(DataOutput out) throws IOException
+	{
+		IEEE754 value = resolve();
+		if (value instanceof IEEE754Number)
+		{
+			IEEE754Number number = (IEEE754Number) value;
+			BigInteger significand = number.significand;
+			out.writeByte(significand.signum() == -1 ? 
+					TAG_NEGATIVE_NUMBER : TAG_POSITIVE_NUMBER);
+			BigInteger exponent = number.exponent;
+			writeUnsigned(out, exponent.signum() == -1 ? 
+					exponent.not().shiftLeft(1).setBit(0) : 
+					exponent.shiftLeft(1));
+			writeUnsigned(out, significand.abs());
+		}
+		else if (value instanceof Zero)
+		{
+			out.writeByte(((Zero) value).negative ? 
+					TAG_NEGATIVE_ZERO : TAG_POSITIVE_ZERO);
+		}
+		else if (value instanceof Infinity)
+		{
+			out.writeByte(((Infinity) value).negative ? 
+					TAG_NEGATIVE_INFINITY : TAG_POSITIVE_INFINITY);
+		}
+		else
+		{
+			out.writeByte(TAG_NAN);
+		}
+	}
+	
+	/**
+	 * Reads a value written by {@link #writeTo(DataOutput)}
+	 */
+	public static IEEE754 readFrom(DataInput in) throws IOException
+	{
+		int tag = in.readUnsignedByte();
+		switch (tag)
+		{
+		case TAG_POSITIVE_ZERO:
+			return POSITIVE_ZERO;
+		case TAG_NEGATIVE_ZERO:
+			return NEGATIVE_ZERO;
+		case TAG_POSITIVE_INFINITY:
+			return POSITIVE_INFINITY;
+		case TAG_NEGATIVE_INFINITY:
+			return NEGATIVE_INFINITY;
+		case TAG_NAN:
+			return NaN;
+		case TAG_POSITIVE_NUMBER:
+		case TAG_NEGATIVE_NUMBER:
+			BigInteger zigZag = readUnsigned(in);
+			BigInteger exponent = zigZag.testBit(0) ? 
+					zigZag.shiftRight(1).not() : zigZag.shiftRight(1);
+			BigInteger magnitude = readUnsigned(in);
+			return new IEEE754Number(exponent, 
+					tag == TAG_NEGATIVE_NUMBER ? magnitude.negate() : magnitude);
+		default:
+			throw new StreamCorruptedException("unknown tag " + tag);
+		}
+	}
+	
+	/**
+	 * Writes the number of values followed by the compact form of each, 
+	 * without any per-value header
+	 * 
+	 * @see #readArray(DataInput)
+	 */
+	public static void writeArray(
+			IEEE754[] values, 
+			int offset, 
+			int length, 
+			DataOutput out) throws IOException
+	{
+		writeUnsigned(out, length);
+		for (int i = offset; i < offset + length; i++)
+		{
+			values[i].writeTo(out);
+		}
+	}
+	
+	/**
+	 * Reads values written by 
+	 * {@link #writeArray(IEEE754[], int, int, DataOutput)}
+	 */
+	public static IEEE754[] readArray(DataInput in) throws IOException
+	{
+		BigInteger length = readUnsigned(in);
+		if (length.bitLength() > 31)
+		{
+			throw new StreamCorruptedException("array too long");
+		}
+		IEEE754[] r = new IEEE754[length.intValue()];
+		for (int i = 0; i < r.length; i++)
+		{
+			r[i] = readFrom(in);
+		}
+		return r;
+	}
+	
+	/**
+	 * Writes this value as a bit string in the given format, rounding if 
+	 * necessary
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while encoding
+	 */
+	public abstract void toBits(
+			IEEE754Format format, 
+			BitSink out, 
+			IEEE754Status status);
+	
+	public final void toBits(IEEE754Format format, BitSink out)
+	{
+		toBits(format, out, null);
+	}
+	
+	/**
+	 * Encodes this value, handling sub-normal numbers as selected
+	 * 
+	 * @param subnormals
+	 * the bitwise-or of {@link IEEE754Format#FLUSH_TO_ZERO} and 
+	 * {@link IEEE754Format#DENORMALS_ARE_ZERO}, or zero for neither.  
+	 * Denormals-are-zero applies to values that are still encoded in a 
+	 * source format ({@link IEEE754Bits}).
+	 */
+	public void toBits(
+			IEEE754Format format, 
+			BitSink out, 
+			int subnormals, 
+			IEEE754Status status)
+	{
+		toBits(format, out, status);
+	}
+	
+	public static void encode(
+			IEEE754[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		encode(values, offset, length, format, out, 0, status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link IEEE754Format#FLUSH_TO_ZERO} and 
+	 * {@link IEEE754Format#DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public static void encode(
+			IEEE754[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			BitSink out, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		IEEE754Status bulkStatus = IEEE754Metrics.startBulk();
+		long start = bulkStatus == null ? 0 : System.nanoTime();
+		IEEE754Status valueStatus = bulkStatus == null ? status : bulkStatus;
+		for (int i = offset; i < offset + length; i++)
+		{
+			values[i].toBits(format, out, subnormals, valueStatus);
+		}
+		if (bulkStatus != null)
+		{
+			IEEE754Metrics.endBulk(null, format, length, 
+					getByteCount(format, length), bulkStatus, start, status);
+		}
+	}
+	
+	/**
+	 * @return the number of bytes {@code count} packed values of the format
+	 * occupy
+	 */
+	private static long getByteCount(IEEE754Format format, int count)
+	{
+		return ((long) format.getLength() * count + 7) >>> 3;
+	}
+	
+	public static void encode(
+			double[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		encode(values, offset, length, format, out, 0, status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link IEEE754Format#FLUSH_TO_ZERO} and 
+	 * {@link IEEE754Format#DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public static void encode(
+			double[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			BitSink out, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		IEEE754Status bulkStatus = IEEE754Metrics.startBulk();
+		long start = bulkStatus == null ? 0 : System.nanoTime();
+		IEEE754Status valueStatus = bulkStatus == null ? status : bulkStatus;
+		int mode = Transcoder.getMode(IEEE754Format.DOUBLE, format);
+		for (int i = offset; i < offset + length; i++)
+		{
+			Transcoder.transcode(IEEE754Format.DOUBLE, format, mode, 
+					subnormals, Double.doubleToRawLongBits(values[i]), out, 
+					valueStatus);
+		}
+		if (bulkStatus != null)
+		{
+			IEEE754Metrics.endBulk(IEEE754Format.DOUBLE, format, length, 
+					getByteCount(format, length), bulkStatus, start, status);
+		}
+	}
+	
+	public static void encode(
+			float[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		encode(values, offset, length, format, out, 0, status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link IEEE754Format#FLUSH_TO_ZERO} and 
+	 * {@link IEEE754Format#DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public static void encode(
+			float[] values, 
+			int offset, 
+			int length, 
+			IEEE754Format format, 
+			BitSink out, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		IEEE754Status bulkStatus = IEEE754Metrics.startBulk();
+		long start = bulkStatus == null ? 0 : System.nanoTime();
+		IEEE754Status valueStatus = bulkStatus == null ? status : bulkStatus;
+		int mode = Transcoder.getMode(IEEE754Format.SINGLE, format);
+		for (int i = offset; i < offset + length; i++)
+		{
+			Transcoder.transcode(IEEE754Format.SINGLE, format, mode, 
+					subnormals, 
+					Float.floatToRawIntBits(values[i]) & 0xFFFFFFFFL, 
+					out, valueStatus);
+		}
+		if (bulkStatus != null)
+		{
+			IEEE754Metrics.endBulk(IEEE754Format.SINGLE, format, length, 
+					getByteCount(format, length), bulkStatus, start, status);
+		}
+	}
 	
 	public static IEEE754 valueOf(double value)
 	{
@@ -458,7 +1303,368 @@ public abstract class IEEE754 extends Number
 		return decode(IEEE754Format.SINGLE, BitUtils.wrapSource(buf));
 	}
 	
+	/**
+	 * @return the exact value of the integer
+	 */
+	public static IEEE754 valueOf(long value)
+	{
+		if (value == 0)
+		{
+			return POSITIVE_ZERO;
+		}
+		int shift = Long.numberOfTrailingZeros(value);
+		return new IEEE754Number(
+				BigInteger.valueOf(shift), BigInteger.valueOf(value >> shift));
+	}
+	
+	/**
+	 * @return the exact value of the integer
+	 */
+	public static IEEE754 valueOf(BigInteger value)
+	{
+		return valueOf(value, 0);
+	}
+	
+	/**
+	 * @return significand &times; 2<sup>exponent</sup>, with the 
+	 * significand's trailing zeros moved into the exponent
+	 */
+	private static IEEE754 valueOf(BigInteger significand, long exponent)
+	{
+		if (significand.signum() == 0)
+		{
+			return POSITIVE_ZERO;
+		}
+		int shift = significand.getLowestSetBit();
+		return new IEEE754Number(BigInteger.valueOf(exponent + shift), 
+				significand.shiftRight(shift));
+	}
+	
+	/**
+	 * @return the exponent, clamped to &plusmn;2<sup>62</sup>: far beyond the
+	 * exponent of any {@link BigDecimal}'s value
+	 */
+	private static long clamp(BigInteger exponent)
+	{
+		return exponent.bitLength() > 62 ? 
+				exponent.signum() * (1L << 62) : exponent.longValue();
+	}
+	
+	/**
+	 * @return the smallest exponent of a normal number's leading bit, clamped
+	 */
+	private static long getMinExponent(IEEE754Format format)
+	{
+		return clamp(BigInteger.ONE.subtract(format.getExponentBias()));
+	}
+	
+	/**
+	 * @return the largest exponent of a finite number's leading bit, clamped
+	 */
+	private static long getMaxExponent(IEEE754Format format)
+	{
+		return clamp(BigInteger.ONE
+				.shiftLeft(format.getExponentLength())
+				.subtract(BigInteger.valueOf(2))
+				.subtract(format.getExponentBias()));
+	}
+	
+	/**
+	 * Rounds the value to the nearest value of the format, in the given 
+	 * direction.  Values too large for the format round to infinity or to the
+	 * format's largest finite value, as IEEE 754 directs for the equivalent 
+	 * rounding-direction attribute.
+	 * 
+	 * @param rounding
+	 * how to round inexact values.  {@link RoundingMode#HALF_EVEN} is IEEE 
+	 * 754's default.
+	 * 
+	 * @throws ArithmeticException
+	 * if {@code rounding} is {@link RoundingMode#UNNECESSARY} and the value 
+	 * isn't exact in the format
+	 */
+	public static IEEE754 valueOf(
+			BigDecimal value, 
+			IEEE754Format format, 
+			RoundingMode rounding)
+	{
+		if (rounding == null)
+		{
+			throw new NullPointerException();
+		}
+		if (value.signum() == 0)
+		{
+			return POSITIVE_ZERO;
+		}
+		final boolean negative = value.signum() == -1;
+		final BigInteger unscaled = value.unscaledValue().abs();
+		final int scale = value.scale();
+		final long minExponent = getMinExponent(format);
+		final long maxExponent = getMaxExponent(format);
+		
+		/*
+		 * Anything far outside the format's range only needs to be on the
+		 * correct side of it
+		 */
+		double magnitude = unscaled.bitLength() - (double) scale * LOG2_10;
+		if (magnitude > maxExponent + 2)
+		{
+			return round(negative, BigInteger.ONE, maxExponent + 2, false, 
+					format, rounding);
+		}
+		if (magnitude < minExponent - format.getMantissaLength() - 2)
+		{
+			return round(negative, BigInteger.ONE, 
+					minExponent - format.getMantissaLength() - 3, false, 
+					format, rounding);
+		}
+		
+		if (scale <= 0)
+		{
+			return round(negative, unscaled.multiply(BigInteger.TEN.pow(
+					-scale)), 0, false, format, rounding);
+		}
+		
+		/*
+		 * unscaled / 10^scale = (unscaled / 5^scale) * 2^-scale.  Amounts 
+		 * with few decimal places are usually exact multiples of the power of
+		 * five.
+		 */
+		if (scale < LONG_POWERS_OF_FIVE.length && unscaled.bitLength() < 64)
+		{
+			long u = unscaled.longValue();
+			long power = LONG_POWERS_OF_FIVE[scale];
+			if (u % power == 0)
+			{
+				return round(negative, BigInteger.valueOf(u / power), -scale, 
+						false, format, rounding);
+			}
+		}
+		BigInteger power = FIVE.pow(scale);
+		
+		/*
+		 * Keep two more quotient bits than the format's precision, so the 
+		 * remainder only contributes a sticky bit
+		 */
+		int shift = Math.max(0, format.getMantissaLength() + 3 
+				+ power.bitLength() - unscaled.bitLength());
+		BigInteger[] qr = unscaled.shiftLeft(shift).divideAndRemainder(power);
+		return round(negative, qr[0], -(long) scale - shift, 
+				qr[1].signum() != 0, format, rounding);
+	}
+	
+	/**
+	 * Rounds magnitude &times; 2<sup>exponent</sup> (plus a little more, if
+	 * {@code sticky}) into the format
+	 */
+	private static IEEE754 round(
+			boolean negative, 
+			BigInteger magnitude, 
+			long exponent, 
+			boolean sticky, 
+			IEEE754Format format, 
+			RoundingMode rounding)
+	{
+		final int precision = format.getMantissaLength() + 1;
+		final long minExponent = getMinExponent(format);
+		final long maxExponent = getMaxExponent(format);
+		final int length = magnitude.bitLength();
+		final long leading = exponent + length - 1;
+		
+		/*
+		 * Sub-normals keep fewer bits
+		 */
+		long keep = leading >= minExponent ? 
+				precision : precision - (minExponent - leading);
+		BigInteger quotient;
+		boolean half;
+		boolean rest;
+		if (keep < 0)
+		{
+			quotient = BigInteger.ZERO;
+			half = false;
+			rest = true;
+			exponent = minExponent - precision + 1;
+		}
+		else if (keep >= length)
+		{
+			quotient = magnitude;
+			half = false;
+			rest = sticky;
+		}
+		else
+		{
+			int drop = (int) (length - keep);
+			quotient = magnitude.shiftRight(drop);
+			half = magnitude.testBit(drop - 1);
+			rest = sticky || magnitude.getLowestSetBit() < drop - 1;
+			exponent += drop;
+		}
+		
+		boolean inexact = half || rest;
+		boolean increment;
+		switch (rounding)
+		{
+		case UP:
+			increment = inexact;
+			break;
+		case DOWN:
+			increment = false;
+			break;
+		case CEILING:
+			increment = inexact && !negative;
+			break;
+		case FLOOR:
+			increment = inexact && negative;
+			break;
+		case HALF_UP:
+			increment = half;
+			break;
+		case HALF_DOWN:
+			increment = half && rest;
+			break;
+		case HALF_EVEN:
+			increment = half && (rest || quotient.testBit(0));
+			break;
+		default:
+			if (inexact)
+			{
+				throw new ArithmeticException();
+			}
+			increment = false;
+			break;
+		}
+		if (increment)
+		{
+			quotient = quotient.add(BigInteger.ONE);
+		}
+		
+		if (quotient.signum() != 0 
+				&& exponent + quotient.bitLength() - 1 > maxExponent)
+		{
+			switch (rounding)
+			{
+			case DOWN:
+				break;
+			case CEILING:
+				if (!negative)
+				{
+					return POSITIVE_INFINITY;
+				}
+				break;
+			case FLOOR:
+				if (negative)
+				{
+					return NEGATIVE_INFINITY;
+				}
+				break;
+			case UNNECESSARY:
+				throw new ArithmeticException();
+			default:
+				return negative ? NEGATIVE_INFINITY : POSITIVE_INFINITY;
+			}
+			
+			/*
+			 * The largest finite value
+			 */
+			quotient = BigInteger.ONE.shiftLeft(precision).subtract(
+					BigInteger.ONE);
+			exponent = maxExponent - precision + 1;
+		}
+		if (quotient.signum() == 0)
+		{
+			return negative ? NEGATIVE_ZERO : POSITIVE_ZERO;
+		}
+		return valueOf(negative ? quotient.negate() : quotient, exponent);
+	}
+	
+	/**
+	 * @return the exact value, which is zero for either zero
+	 * 
+	 * @throws ArithmeticException
+	 * if this is infinity or NaN, or its exponent is beyond the reach of a
+	 * {@link BigDecimal}
+	 */
+	public BigDecimal toBigDecimal()
+	{
+		IEEE754 resolved = resolve();
+		if (resolved == POSITIVE_ZERO || resolved == NEGATIVE_ZERO)
+		{
+			return BigDecimal.ZERO;
+		}
+		if (!(resolved instanceof IEEE754Number))
+		{
+			throw new ArithmeticException();
+		}
+		IEEE754Number number = (IEEE754Number) resolved;
+		BigInteger exponent = number.getExponent();
+		if (exponent.bitLength() > 31)
+		{
+			throw new ArithmeticException();
+		}
+		int e = exponent.intValue();
+		if (e >= 0)
+		{
+			return new BigDecimal(number.getSignificand().shiftLeft(e));
+		}
+		
+		/*
+		 * s * 2^-n = s * 5^n * 10^-n
+		 */
+		return new BigDecimal(
+				number.getSignificand().multiply(FIVE.pow(-e)), -e);
+	}
+	
 	public static IEEE754 decode(IEEE754Format format, BitSource in)
+	{
+		return decode(format, in, 0);
+	}
+	
+	/**
+	 * @param subnormals
+	 * if it includes {@link IEEE754Format#DENORMALS_ARE_ZERO}, sub-normal 
+	 * values are decoded as zero of the same sign
+	 */
+	public static IEEE754 decode(
+			IEEE754Format format, 
+			BitSource in, 
+			int subnormals)
+	{
+		IEEE754 r = decodeValue(format, in, 
+				(subnormals & IEEE754Format.DENORMALS_ARE_ZERO) != 0);
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.decoded(format, classify(format, r));
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the {@link IEEE754Metrics} classification of a value decoded
+	 * from the format
+	 */
+	private static int classify(IEEE754Format format, IEEE754 value)
+	{
+		if (value == NaN)
+		{
+			return IEEE754Metrics.NAN;
+		}
+		if (value instanceof Infinity)
+		{
+			return IEEE754Metrics.INFINITE;
+		}
+		if (value instanceof Zero)
+		{
+			return IEEE754Metrics.ZERO;
+		}
+		return ((IEEE754Number) value).isSubnormal(format) ? 
+				IEEE754Metrics.SUBNORMAL : IEEE754Metrics.NORMAL;
+	}
+	
+	private static IEEE754 decodeValue(
+			IEEE754Format format, 
+			BitSource in, 
+			boolean denormalsAreZero)
 	{
 		final boolean negative = in.next();
 		BigInteger exponentBits = BigInteger.ZERO;
@@ -470,6 +1676,8 @@ public abstract class IEEE754 extends Number
 			}
 		}
 		
+		final boolean integerBit = format.hasExplicitIntegerBit() && in.next();
+		
 		/*
 		 * Check for NaN or infinity
 		 */
@@ -485,10 +1693,29 @@ public abstract class IEEE754 extends Number
 				 */
 				nan |= in.next();
 			}
+			if (format.hasExplicitIntegerBit() && !integerBit)
+			{
+				/*
+				 * Pseudo-infinity, or pseudo-NaN
+				 */
+				return NaN;
+			}
 			return nan ? NaN : negative ? 
 					NEGATIVE_INFINITY : POSITIVE_INFINITY;
 		}
 		
+		if (denormalsAreZero && exponentBits.signum() == 0)
+		{
+			for (int i = 0; i < format.getMantissaLength(); i++)
+			{
+				/*
+				 * No break here: we should consume all mantissa bits
+				 */
+				in.next();
+			}
+			return negative ? NEGATIVE_ZERO : POSITIVE_ZERO;
+		}
+		
 		/*
 		 * Store the mantissa
 		 */
@@ -501,6 +1728,12 @@ public abstract class IEEE754 extends Number
 			}
 		}
 		
+		if (format.hasExplicitIntegerBit())
+		{
+			return decodeExplicit(
+					format, negative, exponentBits, integerBit, mantissaBits);
+		}
+		
 		/*
 		 * Check for zero or subnormal
 		 */
@@ -544,6 +1777,149 @@ public abstract class IEEE754 extends Number
 				negative ? mantissaBits.negate() : mantissaBits);
 	}
 	
+	/**
+	 * Decodes a finite value of a format with an explicit integer bit.  
+	 * Every encoding is valued as its significand times two to the power of 
+	 * its exponent: pseudo-denormals (integer bit set, exponent zero) like 
+	 * denormals, and unnormals (integer bit clear, exponent non-zero) by the 
+	 * bits they hold, as the 8087 did.
+	 */
+	private static IEEE754 decodeExplicit(
+			IEEE754Format format, 
+			boolean negative, 
+			BigInteger exponentBits, 
+			boolean integerBit, 
+			BigInteger mantissaBits)
+	{
+		if (integerBit)
+		{
+			mantissaBits = mantissaBits.setBit(format.getMantissaLength());
+		}
+		if (mantissaBits.signum() == 0)
+		{
+			return negative ? NEGATIVE_ZERO : POSITIVE_ZERO;
+		}
+		int shift = mantissaBits.getLowestSetBit();
+		mantissaBits = mantissaBits.shiftRight(shift);
+		return new IEEE754Number(
+				exponentBits.max(BigInteger.ONE)
+						.subtract(format.getExponentBias())
+						.subtract(BigInteger.valueOf(
+								format.getMantissaLength() - shift)),
+				negative ? mantissaBits.negate() : mantissaBits);
+	}
+	
+	/**
+	 * Decodes a value from the low-order {@link IEEE754Format#getLength()} 
+	 * bits of {@code bits}, which must be no more than 64
+	 */
+	public static IEEE754 decode(IEEE754Format format, long bits)
+	{
+		return decode(format, new LongBitSource(bits, format.getLength()));
+	}
+	
+	/**
+	 * Decodes a value from the low-order {@link IEEE754Format#getLength()} 
+	 * bits of {@code bits}
+	 */
+	public static IEEE754 decode(IEEE754Format format, BigInteger bits)
+	{
+		return decode(format, bitSource(bits, format.getLength()));
+	}
+	
+	/**
+	 * @return a source of the low-order {@code length} bits of {@code bits},
+	 * most significant first
+	 */
+	private static BitSource bitSource(final BigInteger bits, final int length)
+	{
+		return new BitSource() {
+			private int index = length;
+			
+			@Override
+			public boolean next()
+			{
+				index--;
+				return bits.testBit(index);
+			}
+		};
+	}
+	
+	/**
+	 * @return the bits of this value in the given format, which must be no
+	 * more than 64 bits long, in the low-order bits of the result
+	 */
+	public final long toLongBits(IEEE754Format format)
+	{
+		if (format.getLength() > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		LongBitSink sink = new LongBitSink();
+		toBits(format, sink, null);
+		return sink.getBits();
+	}
+	
+	/**
+	 * @return the bits of this value in the given format, as a non-negative
+	 * integer
+	 */
+	public final BigInteger toBigIntegerBits(IEEE754Format format)
+	{
+		return toBigIntegerBits(format, null);
+	}
+	
+	final BigInteger toBigIntegerBits(
+			IEEE754Format format, 
+			IEEE754Status status)
+	{
+		int length = format.getLength();
+		byte[] buf = new byte[(length + 7) >>> 3];
+		toBits(format, new AbsoluteBitSink(
+				ByteBuffer.wrap(buf), (buf.length << 3) - length), status);
+		return new BigInteger(1, buf);
+	}
+	
+	/**
+	 * Decodes the value starting at the given bit offset from index zero of
+	 * the buffer.  Only absolute indexing is used: the buffer's position is 
+	 * neither used nor modified, so any number of threads may decode from 
+	 * the same buffer concurrently.
+	 */
+	public static IEEE754 decode(
+			IEEE754Format format, 
+			ByteBuffer buf, 
+			long bitOffset)
+	{
+		return decode(format, new AbsoluteBitSource(buf, bitOffset));
+	}
+	
+	/**
+	 * Encodes the value starting at the given bit offset from index zero of 
+	 * the buffer.  Only absolute indexing is used: the buffer's position is 
+	 * neither used nor modified.  Bits outside of the encoded value are 
+	 * preserved, and threads may concurrently encode into the same buffer as 
+	 * long as their values don't share a byte.
+	 */
+	public static void encode(
+			IEEE754 value, 
+			IEEE754Format format, 
+			ByteBuffer buf, 
+			long bitOffset)
+	{
+		encode(value, format, buf, bitOffset, null);
+	}
+	
+	public static void encode(
+			IEEE754 value, 
+			IEEE754Format format, 
+			ByteBuffer buf, 
+			long bitOffset,
+			IEEE754Status status)
+	{
+		value.toBits(format, new AbsoluteBitSink(buf, bitOffset), status);
+	}
+	
 	@Override
 	public final float floatValue()
 	{
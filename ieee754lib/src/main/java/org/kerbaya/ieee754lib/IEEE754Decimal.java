@@ -0,0 +1,464 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A decimal floating-point value: a sign, and either infinity, NaN, or a 
+ * coefficient and an exponent, with the value 
+ * coefficient &times; 10<sup>exponent</sup>.
+ * <p>
+ * Every value is a value of {@link IEEE754DecimalFormat#DECIMAL128}: the 
+ * coefficient has at most 34 digits, and is held in two {@code long}s.  Like
+ * {@link BigDecimal}, values with the same numerical value but different 
+ * exponents (members of the same cohort) aren't equal.
+ */
+public final class IEEE754Decimal extends Number
+{
+	private static final long serialVersionUID = -6297137513802611412L;
+	
+	private static final int FINITE = 0;
+	private static final int INFINITE = 1;
+	private static final int QUIET_NAN = 2;
+	private static final int SIGNALING_NAN = 3;
+	
+	/**
+	 * 10<sup>34</sup> - 1
+	 */
+	static final long MAX_COEFFICIENT_HIGH = 0x1ED09BEAD87C0L;
+	static final long MAX_COEFFICIENT_LOW = 0x378D8E63FFFFFFFFL;
+	
+	static final int MIN_EXPONENT = -6176;
+	static final int MAX_EXPONENT = 6111;
+	
+	public static final IEEE754Decimal POSITIVE_INFINITY = 
+			new IEEE754Decimal(INFINITE, false, 0, 0, 0);
+	
+	public static final IEEE754Decimal NEGATIVE_INFINITY = 
+			new IEEE754Decimal(INFINITE, true, 0, 0, 0);
+	
+	public static final IEEE754Decimal NaN = 
+			new IEEE754Decimal(QUIET_NAN, false, 0, 0, 0);
+	
+	private final int kind;
+	private final boolean negative;
+	private final long coefficientHigh;
+	private final long coefficientLow;
+	private final int exponent;
+	
+	private IEEE754Decimal(
+			int kind, 
+			boolean negative, 
+			long coefficientHigh, 
+			long coefficientLow, 
+			int exponent)
+	{
+		this.kind = kind;
+		this.negative = negative;
+		this.coefficientHigh = coefficientHigh;
+		this.coefficientLow = coefficientLow;
+		this.exponent = exponent;
+	}
+	
+	/**
+	 * @param coefficient
+	 * a non-negative coefficient of at most 18 digits
+	 * 
+	 * @param exponent
+	 * from -6176 to 6111
+	 */
+	public IEEE754Decimal(boolean negative, long coefficient, int exponent)
+	{
+		this(negative, 0, coefficient, exponent);
+		if (coefficient < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * @param coefficientHigh
+	 * the high-order 64 bits of a coefficient of at most 34 digits
+	 * 
+	 * @param coefficientLow
+	 * the low-order 64 bits of the coefficient
+	 * 
+	 * @param exponent
+	 * from -6176 to 6111
+	 */
+	public IEEE754Decimal(
+			boolean negative, 
+			long coefficientHigh, 
+			long coefficientLow, 
+			int exponent)
+	{
+		this(FINITE, negative, coefficientHigh, coefficientLow, exponent);
+		if (!isCanonical(coefficientHigh, coefficientLow)
+				|| exponent < MIN_EXPONENT
+				|| exponent > MAX_EXPONENT)
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * @return a NaN, with a payload of the given coefficient
+	 */
+	static IEEE754Decimal nan(
+			boolean negative, 
+			boolean signaling, 
+			long coefficientHigh, 
+			long coefficientLow)
+	{
+		if (!negative && !signaling 
+				&& coefficientHigh == 0 && coefficientLow == 0)
+		{
+			return NaN;
+		}
+		return new IEEE754Decimal(signaling ? SIGNALING_NAN : QUIET_NAN, 
+				negative, coefficientHigh, coefficientLow, 0);
+	}
+	
+	static IEEE754Decimal infinity(boolean negative)
+	{
+		return negative ? NEGATIVE_INFINITY : POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * @return {@code true} if the unsigned 128-bit coefficient is no more than
+	 * 10<sup>34</sup> - 1
+	 */
+	static boolean isCanonical(long coefficientHigh, long coefficientLow)
+	{
+		return coefficientHigh >= 0 
+				&& (coefficientHigh < MAX_COEFFICIENT_HIGH 
+						|| (coefficientHigh == MAX_COEFFICIENT_HIGH
+								&& coefficientLow + Long.MIN_VALUE 
+										<= MAX_COEFFICIENT_LOW + Long.MIN_VALUE));
+	}
+	
+	/**
+	 * Rounds the value to the precision and exponent range of the format, to
+	 * nearest, ties to even
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while rounding
+	 */
+	public static IEEE754Decimal valueOf(
+			BigDecimal value, 
+			IEEE754DecimalFormat format, 
+			IEEE754Status status)
+	{
+		return format.round(value.signum() == -1, 
+				value.unscaledValue().abs(), -(long) value.scale(), status);
+	}
+	
+	/**
+	 * Converts a binary value to the nearest value of the format, ties to even
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while rounding
+	 */
+	public static IEEE754Decimal valueOf(
+			IEEE754 value, 
+			IEEE754DecimalFormat format, 
+			IEEE754Status status)
+	{
+		return format.fromBinary(value.resolve(), status);
+	}
+	
+	public static IEEE754Decimal valueOf(
+			double value, 
+			IEEE754DecimalFormat format, 
+			IEEE754Status status)
+	{
+		long coefficient = (long) value;
+		if (coefficient == value 
+				&& coefficient != Long.MIN_VALUE
+				&& Math.abs(coefficient) <= format.getMaxCoefficient()
+				&& (coefficient != 0 || 1 / value > 0))
+		{
+			/*
+			 * Integers that fit the coefficient are exact
+			 */
+			if (status != null)
+			{
+				status.raise(0);
+			}
+			return new IEEE754Decimal(
+					coefficient < 0, Math.abs(coefficient), 0);
+		}
+		return valueOf(IEEE754.valueOf(value), format, status);
+	}
+	
+	public boolean isNaN()
+	{
+		return kind == QUIET_NAN || kind == SIGNALING_NAN;
+	}
+	
+	public boolean isSignaling()
+	{
+		return kind == SIGNALING_NAN;
+	}
+	
+	public boolean isInfinite()
+	{
+		return kind == INFINITE;
+	}
+	
+	public boolean isNegative()
+	{
+		return negative;
+	}
+	
+	/**
+	 * @return the exponent, or zero for infinity and NaN
+	 */
+	public int getExponent()
+	{
+		return exponent;
+	}
+	
+	/**
+	 * @return the high-order 64 bits of the coefficient (or NaN's payload)
+	 */
+	public long getCoefficientHigh()
+	{
+		return coefficientHigh;
+	}
+	
+	/**
+	 * @return the low-order 64 bits of the coefficient (or NaN's payload)
+	 */
+	public long getCoefficientLow()
+	{
+		return coefficientLow;
+	}
+	
+	public BigInteger getCoefficient()
+	{
+		return toUnsigned(coefficientHigh, coefficientLow);
+	}
+	
+	static BigInteger toUnsigned(long high, long low)
+	{
+		BigInteger r = BigInteger.valueOf(high).shiftLeft(64).add(
+				BigInteger.valueOf(low & Long.MAX_VALUE));
+		return low < 0 ? r.setBit(63) : r;
+	}
+	
+	/**
+	 * @throws ArithmeticException
+	 * if this is infinity or NaN
+	 */
+	public BigDecimal toBigDecimal()
+	{
+		if (kind != FINITE)
+		{
+			throw new ArithmeticException();
+		}
+		BigInteger coefficient = getCoefficient();
+		return new BigDecimal(
+				negative ? coefficient.negate() : coefficient, -exponent);
+	}
+	
+	/**
+	 * Writes the binary value nearest to this value, ties to even
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while encoding
+	 */
+	public void toBits(
+			IEEE754Format format, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		toBinary(format).toBits(format, out, status);
+	}
+	
+	/**
+	 * @return a binary value that rounds to the same value of the format as
+	 * this value does.  It has at least two more significant bits than the 
+	 * format, and a sticky bit below those, but isn't this exact value.
+	 */
+	private IEEE754 toBinary(IEEE754Format format)
+	{
+		switch (kind)
+		{
+		case INFINITE:
+			return negative ? 
+					IEEE754.NEGATIVE_INFINITY : IEEE754.POSITIVE_INFINITY;
+		case FINITE:
+			break;
+		default:
+			return IEEE754.NaN;
+		}
+		BigInteger coefficient = getCoefficient();
+		if (coefficient.signum() == 0)
+		{
+			return negative ? IEEE754.NEGATIVE_ZERO : IEEE754.POSITIVE_ZERO;
+		}
+		BigInteger significand;
+		long binaryExponent;
+		if (exponent >= 0)
+		{
+			significand = coefficient.multiply(BigInteger.TEN.pow(exponent));
+			binaryExponent = 0;
+		}
+		else
+		{
+			BigInteger divisor = BigInteger.TEN.pow(-exponent);
+			int shift = Math.max(0, format.getMantissaLength() + 3 
+					+ divisor.bitLength() - coefficient.bitLength());
+			BigInteger[] qr = coefficient.shiftLeft(shift).divideAndRemainder(
+					divisor);
+			significand = qr[0].shiftLeft(1);
+			if (qr[1].signum() != 0)
+			{
+				significand = significand.setBit(0);
+			}
+			binaryExponent = -1L - shift;
+		}
+		int trailingZeros = significand.getLowestSetBit();
+		return new IEEE754.IEEE754Number(
+				BigInteger.valueOf(binaryExponent + trailingZeros), 
+				negative ? 
+						significand.shiftRight(trailingZeros).negate() 
+						: significand.shiftRight(trailingZeros));
+	}
+	
+	/**
+	 * Powers of ten that are exact {@code double} values
+	 */
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	
+	@Override
+	public double doubleValue()
+	{
+		if (kind == FINITE 
+				&& coefficientHigh == 0 
+				&& coefficientLow >>> 53 == 0
+				&& exponent > -POWERS_OF_TEN.length
+				&& exponent < POWERS_OF_TEN.length)
+		{
+			/*
+			 * Both operands are exact, so the one operation rounds correctly
+			 */
+			double coefficient = negative ? 
+					-(double) coefficientLow : (double) coefficientLow;
+			return exponent < 0 ? 
+					coefficient / POWERS_OF_TEN[-exponent] 
+					: coefficient * POWERS_OF_TEN[exponent];
+		}
+		if (kind == INFINITE)
+		{
+			return negative ? 
+					Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+		if (kind != FINITE)
+		{
+			return Double.NaN;
+		}
+		return Double.longBitsToDouble(
+				toBinary(IEEE754Format.DOUBLE).toLongBits(IEEE754Format.DOUBLE));
+	}
+	
+	@Override
+	public float floatValue()
+	{
+		if (kind != FINITE)
+		{
+			return (float) doubleValue();
+		}
+		
+		/*
+		 * Not (float) doubleValue(), which would round twice
+		 */
+		return Float.intBitsToFloat((int) toBinary(IEEE754Format.SINGLE)
+				.toLongBits(IEEE754Format.SINGLE));
+	}
+	
+	@Override
+	public int intValue()
+	{
+		return (int) doubleValue();
+	}
+	
+	@Override
+	public long longValue()
+	{
+		return (long) doubleValue();
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		int hc = 31;
+		hc = hc * 31 + kind;
+		hc = hc * 31 + (negative ? 1 : 0);
+		hc = hc * 31 + (int) (coefficientHigh ^ coefficientHigh >>> 32);
+		hc = hc * 31 + (int) (coefficientLow ^ coefficientLow >>> 32);
+		hc = hc * 31 + exponent;
+		return hc;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		if (!(obj instanceof IEEE754Decimal))
+		{
+			return false;
+		}
+		IEEE754Decimal other = (IEEE754Decimal) obj;
+		return kind == other.kind
+				&& negative == other.negative
+				&& coefficientHigh == other.coefficientHigh
+				&& coefficientLow == other.coefficientLow
+				&& exponent == other.exponent;
+	}
+	
+	@Override
+	public String toString()
+	{
+		switch (kind)
+		{
+		case INFINITE:
+			return negative ? "-Infinity" : "Infinity";
+		case FINITE:
+			return (negative ? "-" : "") 
+					+ new BigDecimal(getCoefficient(), -exponent);
+		default:
+			return (negative ? "-" : "") 
+					+ (kind == SIGNALING_NAN ? "sNaN" : "NaN");
+		}
+	}
+}
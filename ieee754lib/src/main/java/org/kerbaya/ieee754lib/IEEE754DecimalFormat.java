@@ -0,0 +1,1034 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * The IEEE 754 decimal interchange formats, in either of their encodings: 
+ * binary integer decimal (BID), where the coefficient is a binary integer, or
+ * densely packed decimal (DPD), where each group of three digits is packed 
+ * into ten bits.
+ * <p>
+ * Formats no more than 64 bits long encode to and decode from a 
+ * {@code long}; {@link #DECIMAL128} and {@link #DECIMAL128_DPD} use two, the
+ * high-order 64 bits first.  Values are encoded by {@link BitSink}s and 
+ * buffers most-significant bit first, as binary formats are.  Decoding 
+ * accepts non-canonical encodings: a BID coefficient that's too large is 
+ * zero.
+ */
+public final class IEEE754DecimalFormat
+{
+	private static final short[] DPD_TO_BINARY = new short[1024];
+	private static final short[] BINARY_TO_DPD = new short[1000];
+	
+	static
+	{
+		for (int i = 0; i < BINARY_TO_DPD.length; i++)
+		{
+			BINARY_TO_DPD[i] = (short) toDeclet(i);
+		}
+		for (int i = 0; i < DPD_TO_BINARY.length; i++)
+		{
+			DPD_TO_BINARY[i] = (short) fromDeclet(i);
+		}
+	}
+	
+	public static final IEEE754DecimalFormat DECIMAL32 = 
+			new IEEE754DecimalFormat(32, false);
+	
+	public static final IEEE754DecimalFormat DECIMAL64 = 
+			new IEEE754DecimalFormat(64, false);
+	
+	public static final IEEE754DecimalFormat DECIMAL128 = 
+			new IEEE754DecimalFormat(128, false);
+	
+	public static final IEEE754DecimalFormat DECIMAL32_DPD = 
+			new IEEE754DecimalFormat(32, true);
+	
+	public static final IEEE754DecimalFormat DECIMAL64_DPD = 
+			new IEEE754DecimalFormat(64, true);
+	
+	public static final IEEE754DecimalFormat DECIMAL128_DPD = 
+			new IEEE754DecimalFormat(128, true);
+	
+	private static final long BILLION = 1000000000L;
+	private static final long QUINTILLION = BILLION * BILLION;
+	private static final long LOW_32 = 0xFFFFFFFFL;
+	private static final double LOG10_2 = 0.30102999566398120;
+	private static final BigInteger FIVE = BigInteger.valueOf(5);
+	
+	private final int length;
+	private final boolean densePacked;
+	
+	/**
+	 * The length of the combination field's exponent continuation
+	 */
+	private final int continuationLength;
+	private final int trailingLength;
+	private final int precision;
+	private final int maxExponent;
+	private final int bias;
+	
+	/**
+	 * 10<sup>precision</sup> - 1, if that's a {@code long}
+	 */
+	private final long maxCoefficient;
+	private final BigInteger coefficientLimit;
+	
+	private IEEE754DecimalFormat(int length, boolean densePacked)
+	{
+		this.length = length;
+		this.densePacked = densePacked;
+		continuationLength = length / 16 + 4;
+		trailingLength = 15 * length / 16 - 10;
+		precision = 9 * length / 32 - 2;
+		maxExponent = 3 << (continuationLength - 1);
+		bias = maxExponent + precision - 2;
+		coefficientLimit = BigInteger.TEN.pow(precision);
+		maxCoefficient = precision <= 18 ? 
+				coefficientLimit.longValue() - 1 : Long.MAX_VALUE;
+	}
+	
+	/**
+	 * @return the declet encoding three BCD digits, as in IEEE 754 table 3.4
+	 */
+	static int toDeclet(int value)
+	{
+		int d1 = value / 100;
+		int d2 = value / 10 % 10;
+		int d3 = value % 10;
+		int a = d1 >>> 3;
+		int e = d2 >>> 3;
+		int i = d3 >>> 3;
+		int bcd = d1 & 7;
+		int fgh = d2 & 7;
+		int jkm = d3 & 7;
+		int d = d1 & 1;
+		int h = d2 & 1;
+		int m = d3 & 1;
+		int fg = fgh >>> 1;
+		int jk = jkm >>> 1;
+		switch (a << 2 | e << 1 | i)
+		{
+		case 0:
+			return bcd << 7 | fgh << 4 | jkm;
+		case 1:
+			return bcd << 7 | fgh << 4 | 0x8 | m;
+		case 2:
+			return bcd << 7 | jk << 5 | h << 4 | 0xA | m;
+		case 4:
+			return jk << 8 | d << 7 | fgh << 4 | 0xC | m;
+		case 6:
+			return jk << 8 | d << 7 | h << 4 | 0xE | m;
+		case 5:
+			return fg << 8 | d << 7 | 0x2 << 4 | h << 4 | 0xE | m;
+		case 3:
+			return bcd << 7 | 0x4 << 4 | h << 4 | 0xE | m;
+		default:
+			return d << 7 | 0x6 << 4 | h << 4 | 0xE | m;
+		}
+	}
+	
+	/**
+	 * @return the value of a declet, canonical or not, as in IEEE 754 table 
+	 * 3.3
+	 */
+	static int fromDeclet(int declet)
+	{
+		int pqr = declet >>> 7;
+		int stu = declet >>> 4 & 7;
+		int wxy = declet & 7;
+		int pq = pqr >>> 1;
+		int st = stu >>> 1;
+		int r = pqr & 1;
+		int u = stu & 1;
+		int y = wxy & 1;
+		int d1;
+		int d2;
+		int d3;
+		if ((declet & 0x8) == 0)
+		{
+			d1 = pqr;
+			d2 = stu;
+			d3 = wxy;
+		}
+		else
+		{
+			switch (wxy >>> 1 & 3)
+			{
+			case 0:
+				d1 = pqr;
+				d2 = stu;
+				d3 = 8 | y;
+				break;
+			case 1:
+				d1 = pqr;
+				d2 = 8 | u;
+				d3 = st << 1 | y;
+				break;
+			case 2:
+				d1 = 8 | r;
+				d2 = stu;
+				d3 = pq << 1 | y;
+				break;
+			default:
+				switch (st)
+				{
+				case 0:
+					d1 = 8 | r;
+					d2 = 8 | u;
+					d3 = pq << 1 | y;
+					break;
+				case 1:
+					d1 = 8 | r;
+					d2 = pq << 1 | u;
+					d3 = 8 | y;
+					break;
+				case 2:
+					d1 = pqr;
+					d2 = 8 | u;
+					d3 = 8 | y;
+					break;
+				default:
+					d1 = 8 | r;
+					d2 = 8 | u;
+					d3 = 8 | y;
+				}
+			}
+		}
+		return d1 * 100 + d2 * 10 + d3;
+	}
+	
+	/**
+	 * @return the total number of bits in an encoded value
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	public boolean isDensePacked()
+	{
+		return densePacked;
+	}
+	
+	/**
+	 * @return the number of digits in the coefficient
+	 */
+	public int getPrecision()
+	{
+		return precision;
+	}
+	
+	/**
+	 * @return the largest exponent of a value's leading digit
+	 */
+	public int getMaxExponent()
+	{
+		return maxExponent;
+	}
+	
+	/**
+	 * @return the bias of the encoded exponent: the negation of the smallest
+	 * exponent of a coefficient
+	 */
+	public int getExponentBias()
+	{
+		return bias;
+	}
+	
+	long getMaxCoefficient()
+	{
+		return maxCoefficient;
+	}
+	
+	private int getMaxQuantum()
+	{
+		return maxExponent - precision + 1;
+	}
+	
+	/**
+	 * @return {@code count} bits of the 128-bit value, starting at bit 
+	 * {@code position} from the least significant
+	 */
+	private static long field(long high, long low, int position, int count)
+	{
+		long r;
+		if (position >= 64)
+		{
+			r = high >>> (position - 64);
+		}
+		else if (position + count <= 64)
+		{
+			r = low >>> position;
+		}
+		else
+		{
+			r = low >>> position | high << (64 - position);
+		}
+		return r & ((1L << count) - 1);
+	}
+	
+	/**
+	 * @return the high-order 64 bits of the unsigned 128-bit product of two 
+	 * non-negative values
+	 */
+	private static long multiplyHigh(long a, long b)
+	{
+		long aHigh = a >>> 32;
+		long aLow = a & LOW_32;
+		long bHigh = b >>> 32;
+		long bLow = b & LOW_32;
+		long lowLow = aLow * bLow;
+		long lowHigh = aLow * bHigh;
+		long highLow = aHigh * bLow;
+		long middle = (lowLow >>> 32) + (lowHigh & LOW_32) + (highLow & LOW_32);
+		return aHigh * bHigh + (lowHigh >>> 32) + (highLow >>> 32) 
+				+ (middle >>> 32);
+	}
+	
+	/**
+	 * @return the value of {@code count} declets, most significant first, 
+	 * after the leading digit
+	 */
+	private static long fromDeclets(long lead, long declets, int count)
+	{
+		long r = lead;
+		for (int i = count - 1; i >= 0; i--)
+		{
+			r = r * 1000 + DPD_TO_BINARY[(int) (declets >>> (10 * i)) & 0x3FF];
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the low-order {@code count} groups of three digits, as declets
+	 */
+	private static long toDeclets(long value, int count)
+	{
+		long r = 0;
+		for (int i = 0; i < count; i++)
+		{
+			r |= (long) BINARY_TO_DPD[(int) (value % 1000)] << (10 * i);
+			value /= 1000;
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the leading digit (of a DPD combination field), or the leading 
+	 * bits of the coefficient (of a BID one), followed by the biased exponent,
+	 * both shifted down to the low-order bits
+	 */
+	private int getLead(int combination)
+	{
+		final int w = continuationLength;
+		if (combination >>> (w + 3) == 3)
+		{
+			return densePacked ? 
+					8 | combination >>> w & 1 : 8 | combination & 1;
+		}
+		return densePacked ? combination >>> w & 7 : combination & 7;
+	}
+	
+	private int getBiasedExponent(int combination)
+	{
+		final int w = continuationLength;
+		boolean large = combination >>> (w + 3) == 3;
+		if (densePacked)
+		{
+			return (large ? 
+					combination >>> (w + 1) & 3 : combination >>> (w + 3)) << w
+					| combination & ((1 << w) - 1);
+		}
+		return large ? 
+				combination >>> 1 & ((1 << (w + 2)) - 1) : combination >>> 3;
+	}
+	
+	private int getCombination(int lead, int biasedExponent)
+	{
+		final int w = continuationLength;
+		if (densePacked)
+		{
+			int r = biasedExponent & ((1 << w) - 1) | (lead & 7) << w;
+			return lead < 8 ? 
+					r | biasedExponent >>> w << (w + 3) 
+					: r & ~(6 << w) | 3 << (w + 3) 
+							| biasedExponent >>> w << (w + 1);
+		}
+		return lead < 8 ? 
+				biasedExponent << 3 | lead 
+				: 3 << (w + 3) | biasedExponent << 1 | lead & 1;
+	}
+	
+	private IEEE754Decimal decodeSpecial(
+			boolean negative, 
+			int combination, 
+			long payloadHigh, 
+			long payloadLow)
+	{
+		final int w = continuationLength;
+		if ((combination >>> w & 1) == 0)
+		{
+			return IEEE754Decimal.infinity(negative);
+		}
+		if (!densePacked && BigInteger.TEN.pow(precision - 1).compareTo(
+				IEEE754Decimal.toUnsigned(payloadHigh, payloadLow)) <= 0)
+		{
+			payloadHigh = 0;
+			payloadLow = 0;
+		}
+		return IEEE754Decimal.nan(negative, 
+				(combination >>> (w - 1) & 1) != 0, payloadHigh, payloadLow);
+	}
+	
+	/**
+	 * Decodes a value from the low-order {@link #getLength()} bits of 
+	 * {@code bits}, which must be no more than 64
+	 */
+	public IEEE754Decimal decode(long bits)
+	{
+		if (length > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		final int w = continuationLength;
+		final int t = trailingLength;
+		boolean negative = (bits >>> (length - 1) & 1) != 0;
+		int combination = (int) (bits >>> t) & ((1 << (w + 5)) - 1);
+		long trailing = bits & ((1L << t) - 1);
+		if (combination >>> (w + 1) == 0xF)
+		{
+			return decodeSpecial(negative, combination, 0, densePacked ? 
+					fromDeclets(0, trailing, t / 10) : trailing);
+		}
+		int lead = getLead(combination);
+		long coefficient;
+		if (densePacked)
+		{
+			coefficient = fromDeclets(lead, trailing, t / 10);
+		}
+		else
+		{
+			coefficient = (long) lead << t | trailing;
+			if (coefficient > maxCoefficient)
+			{
+				coefficient = 0;
+			}
+		}
+		return new IEEE754Decimal(negative, coefficient, 
+				getBiasedExponent(combination) - bias);
+	}
+	
+	/**
+	 * Decodes a value from the low-order {@link #getLength()} bits of 
+	 * the 128-bit {@code high}:{@code low}
+	 */
+	public IEEE754Decimal decode(long high, long low)
+	{
+		if (length <= 64)
+		{
+			return decode(low);
+		}
+		final int w = continuationLength;
+		final int t = trailingLength;
+		boolean negative = high < 0;
+		int combination = (int) field(high, low, t, w + 5);
+		long trailingHigh = field(high, low, 64, t - 64);
+		if (combination >>> (w + 1) == 0xF)
+		{
+			if (!densePacked)
+			{
+				return decodeSpecial(negative, combination, trailingHigh, low);
+			}
+			long payloadHigh = fromDeclets(0, field(high, low, 60, 50), 5);
+			long productLow = payloadHigh * QUINTILLION;
+			long sum = productLow + fromDeclets(0, low, 6);
+			return decodeSpecial(negative, combination, 
+					multiplyHigh(payloadHigh, QUINTILLION) 
+							+ carry(productLow, sum), 
+					sum);
+		}
+		int lead = getLead(combination);
+		int exponent = getBiasedExponent(combination) - bias;
+		if (densePacked)
+		{
+			/*
+			 * The leading digit and five declets make a 16-digit high part, 
+			 * and the other six an 18-digit low part
+			 */
+			long coefficientLow = fromDeclets(0, low, 6);
+			long coefficientHigh = fromDeclets(
+					lead, field(high, low, 60, 50), 5);
+			long productLow = coefficientHigh * QUINTILLION;
+			long sum = productLow + coefficientLow;
+			return new IEEE754Decimal(negative, 
+					multiplyHigh(coefficientHigh, QUINTILLION) 
+							+ carry(productLow, sum), 
+					sum, 
+					exponent);
+		}
+		long coefficientHigh = (long) lead << (t - 64) | trailingHigh;
+		if (!IEEE754Decimal.isCanonical(coefficientHigh, low))
+		{
+			return new IEEE754Decimal(negative, 0, exponent);
+		}
+		return new IEEE754Decimal(negative, coefficientHigh, low, exponent);
+	}
+	
+	/**
+	 * @return 1 if {@code sum} is an unsigned sum that overflowed 
+	 * {@code addend}
+	 */
+	private static long carry(long addend, long sum)
+	{
+		return sum + Long.MIN_VALUE < addend + Long.MIN_VALUE ? 1 : 0;
+	}
+	
+	public IEEE754Decimal decode(BitSource in)
+	{
+		if (length <= 64)
+		{
+			return decode(BitUtils.readBits(in, length));
+		}
+		long high = BitUtils.readBits(in, length - 64);
+		return decode(high, BitUtils.readBits(in, 64));
+	}
+	
+	/**
+	 * @return the value, if it's a value of this format; otherwise the 
+	 * nearest value, ties to even
+	 */
+	public IEEE754Decimal round(IEEE754Decimal value, IEEE754Status status)
+	{
+		if (value.isNaN() || value.isInfinite())
+		{
+			if (status != null)
+			{
+				status.raise(0);
+			}
+			return value;
+		}
+		int exponent = value.getExponent();
+		long high = value.getCoefficientHigh();
+		long low = value.getCoefficientLow();
+		if (exponent < -bias 
+				|| exponent > getMaxQuantum() 
+				|| high != 0 
+				|| low < 0 
+				|| low > maxCoefficient)
+		{
+			return round(value.isNegative(), value.getCoefficient(), 
+					exponent, status);
+		}
+		if (status != null)
+		{
+			status.raise(isSubnormal(low, exponent) ? 
+					IEEE754Status.SUBNORMAL : 0);
+		}
+		return value;
+	}
+	
+	/**
+	 * @return {@code true} if the non-zero coefficient is below 
+	 * 10<sup>1 - emax</sup> with the given exponent
+	 */
+	private boolean isSubnormal(long coefficient, long exponent)
+	{
+		long digits = 1 - maxExponent - exponent;
+		if (coefficient == 0 || digits <= 0)
+		{
+			return false;
+		}
+		return digits > 18 || coefficient < pow10((int) digits);
+	}
+	
+	private static long pow10(int n)
+	{
+		long r = 1;
+		for (int i = 0; i < n; i++)
+		{
+			r *= 10;
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the number of digits in a non-negative integer
+	 */
+	private static int getDigitCount(BigInteger value)
+	{
+		int r = (int) (value.bitLength() * LOG10_2) + 1;
+		return BigInteger.TEN.pow(r - 1).compareTo(value) > 0 ? r - 1 : r;
+	}
+	
+	/**
+	 * Rounds coefficient &times; 10<sup>exponent</sup> to nearest, ties to 
+	 * even
+	 */
+	IEEE754Decimal round(
+			boolean negative, 
+			BigInteger coefficient, 
+			long exponent, 
+			IEEE754Status status)
+	{
+		final long minQuantum = -bias;
+		final long maxQuantum = getMaxQuantum();
+		if (coefficient.signum() == 0)
+		{
+			if (status != null)
+			{
+				status.raise(0);
+			}
+			return new IEEE754Decimal(negative, 0, 
+					(int) Math.max(minQuantum, Math.min(maxQuantum, exponent)));
+		}
+		
+		int digits = getDigitCount(coefficient);
+		if (exponent + digits - 1 > maxExponent)
+		{
+			return overflow(negative, status);
+		}
+		boolean inexact = false;
+		long drop = Math.max(digits - precision, minQuantum - exponent);
+		if (drop > digits)
+		{
+			/*
+			 * Less than a tenth of the smallest sub-normal
+			 */
+			coefficient = BigInteger.ZERO;
+			exponent = minQuantum;
+			inexact = true;
+		}
+		else if (drop > 0)
+		{
+			BigInteger divisor = BigInteger.TEN.pow((int) drop);
+			BigInteger[] qr = coefficient.divideAndRemainder(divisor);
+			coefficient = qr[0];
+			int half = qr[1].shiftLeft(1).compareTo(divisor);
+			if (half > 0 || (half == 0 && coefficient.testBit(0)))
+			{
+				coefficient = coefficient.add(BigInteger.ONE);
+				if (coefficient.equals(coefficientLimit))
+				{
+					coefficient = coefficientLimit.divide(BigInteger.TEN);
+					exponent++;
+				}
+			}
+			inexact = qr[1].signum() != 0;
+			exponent += drop;
+		}
+		
+		if (exponent > maxQuantum)
+		{
+			/*
+			 * Pad the coefficient with zeros, if there's room
+			 */
+			coefficient = coefficient.multiply(
+					BigInteger.TEN.pow((int) (exponent - maxQuantum)));
+			if (coefficient.compareTo(coefficientLimit) >= 0)
+			{
+				return overflow(negative, status);
+			}
+			exponent = maxQuantum;
+		}
+		
+		if (status != null)
+		{
+			int flags = inexact ? IEEE754Status.INEXACT : 0;
+			if (coefficient.signum() == 0 || exponent + getDigitCount(
+					coefficient) - 1 < 1 - maxExponent)
+			{
+				if (coefficient.signum() != 0)
+				{
+					flags |= IEEE754Status.SUBNORMAL;
+				}
+				if (inexact)
+				{
+					flags |= IEEE754Status.UNDERFLOW;
+				}
+			}
+			status.raise(flags);
+		}
+		return new IEEE754Decimal(negative, 
+				coefficient.shiftRight(64).longValue(), 
+				coefficient.longValue(), 
+				(int) exponent);
+	}
+	
+	private static IEEE754Decimal overflow(
+			boolean negative, IEEE754Status status)
+	{
+		if (status != null)
+		{
+			status.raise(IEEE754Status.OVERFLOW | IEEE754Status.INEXACT);
+		}
+		return IEEE754Decimal.infinity(negative);
+	}
+	
+	IEEE754Decimal fromBinary(IEEE754 value, IEEE754Status status)
+	{
+		if (!(value instanceof IEEE754.IEEE754Number))
+		{
+			double d = value.doubleValue();
+			if (Double.isNaN(d))
+			{
+				if (status != null)
+				{
+					status.raise(IEEE754Status.NAN);
+				}
+				return IEEE754Decimal.NaN;
+			}
+			if (status != null)
+			{
+				status.raise(0);
+			}
+			if (Double.isInfinite(d))
+			{
+				return IEEE754Decimal.infinity(d < 0);
+			}
+			return new IEEE754Decimal(1 / d < 0, 0, 0);
+		}
+		IEEE754.IEEE754Number number = (IEEE754.IEEE754Number) value;
+		BigInteger significand = number.getSignificand();
+		boolean negative = significand.signum() == -1;
+		significand = significand.abs();
+		BigInteger binaryExponent = number.getExponent();
+		
+		/*
+		 * Rule out anything far outside of the format's range before building
+		 * an exact decimal
+		 */
+		double magnitude = (binaryExponent.doubleValue() 
+				+ significand.bitLength()) * LOG10_2;
+		if (magnitude > maxExponent + 2)
+		{
+			return overflow(negative, status);
+		}
+		if (magnitude < -bias - 2)
+		{
+			if (status != null)
+			{
+				status.raise(IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT);
+			}
+			return new IEEE754Decimal(negative, 0, -bias);
+		}
+		int exponent = binaryExponent.intValue();
+		if (exponent >= 0)
+		{
+			return round(negative, significand.shiftLeft(exponent), 0, status);
+		}
+		
+		/*
+		 * s * 2^-n = s * 5^n * 10^-n
+		 */
+		return round(negative, significand.multiply(FIVE.pow(-exponent)), 
+				exponent, status);
+	}
+	
+	/**
+	 * Encodes a value of this format, which must be no more than 64 bits long
+	 */
+	private long encodeLong(IEEE754Decimal value)
+	{
+		final int w = continuationLength;
+		final int t = trailingLength;
+		long sign = value.isNegative() ? 1L << (length - 1) : 0;
+		if (value.isInfinite())
+		{
+			return sign | 0x1EL << (t + w);
+		}
+		long coefficient = value.getCoefficientLow();
+		if (value.isNaN())
+		{
+			if (value.getCoefficientHigh() != 0 
+					|| coefficient < 0
+					|| coefficient > maxCoefficient / 10)
+			{
+				coefficient = 0;
+			}
+			return sign 
+					| (value.isSignaling() ? 0x3FL << (t + w - 1) 
+							: 0x1FL << (t + w)) 
+					| (densePacked ? 
+							toDeclets(coefficient, t / 10) : coefficient);
+		}
+		int biasedExponent = value.getExponent() + bias;
+		if (densePacked)
+		{
+			long declets = toDeclets(coefficient, t / 10);
+			int lead = (int) (coefficient / pow10(precision - 1));
+			return sign 
+					| (long) getCombination(lead, biasedExponent) << t 
+					| declets;
+		}
+		return sign 
+				| (long) getCombination((int) (coefficient >>> t), 
+						biasedExponent) << t 
+				| coefficient & ((1L << t) - 1);
+	}
+	
+	/**
+	 * Encodes a value of this format, which must be longer than 64 bits
+	 */
+	private void encodeWide(IEEE754Decimal value, long[] dest, int offset)
+	{
+		final int w = continuationLength;
+		final int t = trailingLength;
+		long high = value.isNegative() ? Long.MIN_VALUE : 0;
+		long coefficientHigh = value.getCoefficientHigh();
+		long coefficientLow = value.getCoefficientLow();
+		int combination;
+		if (value.isInfinite())
+		{
+			combination = 0x1E << w;
+			coefficientHigh = 0;
+			coefficientLow = 0;
+		}
+		else if (value.isNaN())
+		{
+			combination = value.isSignaling() ? 0x3F << (w - 1) : 0x1F << w;
+			if (BigInteger.TEN.pow(precision - 1).compareTo(
+					value.getCoefficient()) <= 0)
+			{
+				coefficientHigh = 0;
+				coefficientLow = 0;
+			}
+		}
+		else
+		{
+			combination = -1;
+		}
+		
+		int biasedExponent = value.getExponent() + bias;
+		long low;
+		if (densePacked)
+		{
+			/*
+			 * Split the coefficient into 10^18 * a + b, dividing twice by 
+			 * 10^9 in 32-bit limbs
+			 */
+			long limb3 = coefficientHigh >>> 32;
+			long limb2 = coefficientHigh & LOW_32;
+			long limb1 = coefficientLow >>> 32;
+			long limb0 = coefficientLow & LOW_32;
+			long b = 0;
+			long scale = 1;
+			for (int i = 0; i < 2; i++)
+			{
+				long r = limb3 % BILLION;
+				limb3 /= BILLION;
+				long x = r << 32 | limb2;
+				limb2 = x / BILLION;
+				x = x % BILLION << 32 | limb1;
+				limb1 = x / BILLION;
+				x = x % BILLION << 32 | limb0;
+				limb0 = x / BILLION;
+				b += x % BILLION * scale;
+				scale = BILLION;
+			}
+			long a = limb1 << 32 | limb0;
+			int lead = (int) (a / pow10(15));
+			long highDeclets = toDeclets(a, 5);
+			low = toDeclets(b, 6) | highDeclets << 60;
+			high |= highDeclets >>> 4;
+			if (combination == -1)
+			{
+				combination = getCombination(lead, biasedExponent);
+			}
+		}
+		else
+		{
+			low = coefficientLow;
+			high |= coefficientHigh & ((1L << (t - 64)) - 1);
+			if (combination == -1)
+			{
+				combination = getCombination(
+						(int) (coefficientHigh >>> (t - 64)), biasedExponent);
+			}
+		}
+		dest[offset] = high | (long) combination << (t - 64);
+		dest[offset + 1] = low;
+	}
+	
+	/**
+	 * Encodes the value into the low-order {@link #getLength()} bits of the
+	 * result, rounding it first if it isn't a value of this format.  The 
+	 * format must be no more than 64 bits long.
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while rounding
+	 */
+	public long encode(IEEE754Decimal value, IEEE754Status status)
+	{
+		if (length > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		return encodeLong(round(value, status));
+	}
+	
+	/**
+	 * Encodes the value into the low-order {@link #getLength()} bits of the
+	 * 128-bit {@code dest[offset]}:{@code dest[offset + 1]}, rounding it 
+	 * first if it isn't a value of this format
+	 */
+	public void encode(
+			IEEE754Decimal value, 
+			long[] dest, 
+			int offset, 
+			IEEE754Status status)
+	{
+		value = round(value, status);
+		if (length > 64)
+		{
+			encodeWide(value, dest, offset);
+		}
+		else
+		{
+			dest[offset] = 0;
+			dest[offset + 1] = encodeLong(value);
+		}
+	}
+	
+	public void encode(
+			IEEE754Decimal value, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		value = round(value, status);
+		if (length > 64)
+		{
+			long[] bits = new long[2];
+			encodeWide(value, bits, 0);
+			BitUtils.writeBits(out, bits[0], length - 64);
+			BitUtils.writeBits(out, bits[1], 64);
+		}
+		else
+		{
+			BitUtils.writeBits(out, encodeLong(value), length);
+		}
+	}
+	
+	private IEEE754Decimal decode(ByteBuffer src, long bitOffset)
+	{
+		if (length <= 64)
+		{
+			return decode(BitUtils.readBits(src, bitOffset, length));
+		}
+		return decode(BitUtils.readBits(src, bitOffset, 64), 
+				BitUtils.readBits(src, bitOffset + 64, 64));
+	}
+	
+	/**
+	 * Decodes {@code length} values from {@code src}, starting at its 
+	 * position, which is advanced past the bytes read
+	 */
+	public void decode(
+			ByteBuffer src, 
+			IEEE754Decimal[] dest, 
+			int offset, 
+			int length)
+	{
+		long base = (long) src.position() << 3;
+		for (int i = 0; i < length; i++)
+		{
+			dest[offset + i] = decode(src, base + (long) i * this.length);
+		}
+		src.position(src.position() + length * (this.length >>> 3));
+	}
+	
+	/**
+	 * Decodes values, rounded to the nearest {@code double}
+	 */
+	public void decode(ByteBuffer src, double[] dest, int offset, int length)
+	{
+		long base = (long) src.position() << 3;
+		for (int i = 0; i < length; i++)
+		{
+			dest[offset + i] = decode(
+					src, base + (long) i * this.length).doubleValue();
+		}
+		src.position(src.position() + length * (this.length >>> 3));
+	}
+	
+	private void encode(
+			IEEE754Decimal value, 
+			ByteBuffer dest, 
+			long bitOffset, 
+			long[] scratch)
+	{
+		if (length <= 64)
+		{
+			BitUtils.writeBits(dest, bitOffset, encodeLong(value), length);
+			return;
+		}
+		encodeWide(value, scratch, 0);
+		BitUtils.writeBits(dest, bitOffset, scratch[0], 64);
+		BitUtils.writeBits(dest, bitOffset + 64, scratch[1], 64);
+	}
+	
+	/**
+	 * Encodes {@code length} values into {@code dest}, starting at its 
+	 * position, which is advanced past the bytes written
+	 */
+	public void encode(
+			IEEE754Decimal[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		long base = (long) dest.position() << 3;
+		long[] scratch = new long[2];
+		for (int i = 0; i < length; i++)
+		{
+			encode(round(src[offset + i], status), dest, 
+					base + (long) i * this.length, scratch);
+		}
+		dest.position(dest.position() + length * (this.length >>> 3));
+	}
+	
+	/**
+	 * Encodes the nearest values of this format to binary {@code double}s
+	 */
+	public void encode(
+			double[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		long base = (long) dest.position() << 3;
+		long[] scratch = new long[2];
+		for (int i = 0; i < length; i++)
+		{
+			encode(IEEE754Decimal.valueOf(src[offset + i], this, status), 
+					dest, base + (long) i * this.length, scratch);
+		}
+		dest.position(dest.position() + length * (this.length >>> 3));
+	}
+}
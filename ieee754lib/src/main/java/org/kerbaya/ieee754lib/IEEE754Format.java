@@ -24,6 +24,7 @@
 package org.kerbaya.ieee754lib;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public class IEEE754Format
 {
@@ -47,6 +48,16 @@ public class IEEE754Format
 	 */
 	public static final IEEE754Format SINGLE = new IEEE754Format(8, 23, 127);
 	
+	/**
+	 * <dl>
+	 * <dt>Name</dt><dd>bfloat16</dd>
+	 * <dt>Sign bit</dt><dd>1 bit</dd>
+	 * <dt>Exponent width</dt><dd>8 bits</dd>
+	 * <dt>Significand precision</dt><dd>8 bits (7 explicitly stored)</dd>
+	 * </dl>
+	 */
+	public static final IEEE754Format BFLOAT16 = new IEEE754Format(8, 7, 127);
+	
 	/**
 	 * <dl>
 	 * <dt>IEEE 754 name</dt><dd>binary64</dd>
@@ -76,15 +87,77 @@ public class IEEE754Format
 	 * </dl>
 	 */
 	public static final IEEE754Format OCTUPLE = new IEEE754Format(19, 236, 262143);
+	
+	/**
+	 * <dl>
+	 * <dt>Name</dt><dd>x87 extended precision</dd>
+	 * <dt>Sign bit</dt><dd>1 bit</dd>
+	 * <dt>Exponent width</dt><dd>15 bits</dd>
+	 * <dt>Significand precision</dt><dd>64 bits (all explicitly stored, 
+	 * including the integer bit)</dd>
+	 * </dl>
+	 * 
+	 * @see X87Extended
+	 */
+	public static final IEEE754Format EXTENDED = 
+			new IEEE754Format(15, 63, 16383, true);
+
+	/**
+	 * Flush-to-zero: a non-zero result less in magnitude than the target 
+	 * format's smallest normal number is encoded as zero of the same sign, 
+	 * raising {@link IEEE754Status#UNDERFLOW} and 
+	 * {@link IEEE754Status#INEXACT}, instead of being rounded to a sub-normal
+	 */
+	public static final int FLUSH_TO_ZERO = 0x1;
+	
+	/**
+	 * Denormals-are-zero: a sub-normal source value is read as zero of the 
+	 * same sign
+	 */
+	public static final int DENORMALS_ARE_ZERO = 0x2;
+	
+	/**
+	 * The largest exponent length and bias magnitude for which the exponent 
+	 * range can be handled with {@code int} arithmetic
+	 */
+	private static final int PRIMITIVE_EXPONENT_LENGTH = 30;
 
 	private final int exponentLength;
 	private final int mantissaLength;
 	private final BigInteger exponentBias;
+	private final boolean explicitIntegerBit;
+	
+	/*
+	 * Pre-computed for primitive code paths, which are only available when
+	 * primitive is set
+	 */
+	final boolean primitive;
+	final int bias;
+	final int minExponent;
+	final int maxExponent;
+	final int maxExponentBits;
 	
 	public IEEE754Format(
 			int exponentLength, 
 			int mantissaLength,
 			BigInteger exponentBias)
+	{
+		this(exponentLength, mantissaLength, exponentBias, false);
+	}
+	
+	/**
+	 * @param mantissaLength
+	 * the number of fraction bits, which doesn't include the integer bit
+	 * 
+	 * @param explicitIntegerBit
+	 * if {@code true}, the significand's integer bit is stored between the 
+	 * exponent and the fraction, rather than implied by the exponent
+	 */
+	public IEEE754Format(
+			int exponentLength, 
+			int mantissaLength,
+			BigInteger exponentBias,
+			boolean explicitIntegerBit)
 	{
 		if (exponentLength < 2
 				|| mantissaLength < 1
@@ -95,6 +168,28 @@ public class IEEE754Format
 		this.exponentLength = exponentLength;
 		this.mantissaLength = mantissaLength;
 		this.exponentBias = exponentBias;
+		this.explicitIntegerBit = explicitIntegerBit;
+		
+		/*
+		 * The primitive code paths assume an implied integer bit
+		 */
+		primitive = !explicitIntegerBit
+				&& exponentLength <= PRIMITIVE_EXPONENT_LENGTH
+				&& exponentBias.bitLength() <= PRIMITIVE_EXPONENT_LENGTH;
+		if (primitive)
+		{
+			bias = exponentBias.intValue();
+			maxExponentBits = (1 << exponentLength) - 1;
+			minExponent = 1 - bias;
+			maxExponent = maxExponentBits - 1 - bias;
+		}
+		else
+		{
+			bias = 0;
+			maxExponentBits = 0;
+			minExponent = 0;
+			maxExponent = 0;
+		}
 	}
 	
 	private IEEE754Format(
@@ -102,9 +197,17 @@ public class IEEE754Format
 			int mantissaLength,
 			int exponentBias)
 	{
-		this.exponentLength = exponentLength;
-		this.mantissaLength = mantissaLength;
-		this.exponentBias = BigInteger.valueOf(exponentBias);
+		this(exponentLength, mantissaLength, BigInteger.valueOf(exponentBias));
+	}
+	
+	private IEEE754Format(
+			int exponentLength, 
+			int mantissaLength,
+			int exponentBias,
+			boolean explicitIntegerBit)
+	{
+		this(exponentLength, mantissaLength, BigInteger.valueOf(exponentBias), 
+				explicitIntegerBit);
 	}
 	
 	public int getExponentLength()
@@ -112,6 +215,10 @@ public class IEEE754Format
 		return exponentLength;
 	}
 	
+	/**
+	 * @return the number of fraction bits, which doesn't include an 
+	 * {@link #hasExplicitIntegerBit() explicit integer bit}
+	 */
 	public int getMantissaLength()
 	{
 		return mantissaLength;
@@ -121,4 +228,234 @@ public class IEEE754Format
 	{
 		return exponentBias;
 	}
+	
+	/**
+	 * @return {@code true} if the significand's integer bit is stored, rather
+	 * than implied by the exponent
+	 */
+	public boolean hasExplicitIntegerBit()
+	{
+		return explicitIntegerBit;
+	}
+	
+	/**
+	 * @return the total number of bits in an encoded value
+	 */
+	public int getLength()
+	{
+		return 1 + exponentLength + mantissaLength 
+				+ (explicitIntegerBit ? 1 : 0);
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		int hc = 31;
+		hc = hc * 31 + exponentLength;
+		hc = hc * 31 + mantissaLength;
+		hc = hc * 31 + exponentBias.hashCode();
+		hc = hc * 31 + (explicitIntegerBit ? 1 : 0);
+		return hc;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		if (!(obj instanceof IEEE754Format))
+		{
+			return false;
+		}
+		IEEE754Format other = (IEEE754Format) obj;
+		return exponentLength == other.exponentLength
+				&& mantissaLength == other.mantissaLength
+				&& exponentBias.equals(other.exponentBias)
+				&& explicitIntegerBit == other.explicitIntegerBit;
+	}
+	
+	/**
+	 * Converts a value encoded in this format to the target format, without 
+	 * building an {@link IEEE754} value.  Widening conversions only shift and
+	 * re-bias; narrowing conversions round once, to nearest, ties to even.
+	 * Both formats must be no more than 64 bits long.
+	 * 
+	 * @param bits
+	 * the value in this format, in the low-order bits
+	 * 
+	 * @return the value in the target format, in the low-order bits
+	 */
+	public long transcode(IEEE754Format target, long bits)
+	{
+		return transcode(target, bits, null);
+	}
+	
+	public long transcode(
+			IEEE754Format target, 
+			long bits, 
+			IEEE754Status status)
+	{
+		return transcode(target, bits, 0, status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link #FLUSH_TO_ZERO} and 
+	 * {@link #DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public long transcode(
+			IEEE754Format target, 
+			long bits, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		if (Transcoder.getMode(this, target) != Transcoder.MODE_LONG)
+		{
+			throw new IllegalArgumentException();
+		}
+		return Transcoder.encode(this, target, bits, subnormals, status);
+	}
+	
+	/**
+	 * Converts one value from {@code in}, encoded in this format, to the 
+	 * target format, writing it to {@code out}
+	 */
+	public void transcode(
+			IEEE754Format target, 
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		transcode(target, in, out, 0, status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link #FLUSH_TO_ZERO} and 
+	 * {@link #DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public void transcode(
+			IEEE754Format target, 
+			BitSource in, 
+			BitSink out, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		Transcoder.transcode(this, target, 
+				Transcoder.getMode(this, target), subnormals, in, out, status);
+	}
+	
+	/**
+	 * Converts {@code count} values packed back-to-back in {@code src} (as 
+	 * written by the sinks from {@link BitUtils}), to values packed in 
+	 * {@code dest}.  Both buffers' positions are advanced past the bytes read 
+	 * and written, including the padding of the final byte.
+	 */
+	public void transcode(
+			IEEE754Format target, 
+			ByteBuffer src, 
+			ByteBuffer dest, 
+			int count, 
+			IEEE754Status status)
+	{
+		transcode(target, src, dest, count, 0, status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link #FLUSH_TO_ZERO} and 
+	 * {@link #DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public void transcode(
+			IEEE754Format target, 
+			ByteBuffer src, 
+			ByteBuffer dest, 
+			int count, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		IEEE754Status bulkStatus = IEEE754Metrics.startBulk();
+		long start = bulkStatus == null ? 0 : System.nanoTime();
+		IEEE754Status valueStatus = bulkStatus == null ? status : bulkStatus;
+		final int srcLength = getLength();
+		final int destLength = target.getLength();
+		final long srcBase = (long) src.position() << 3;
+		final long destBase = (long) dest.position() << 3;
+		int mode = Transcoder.getMode(this, target);
+		if (mode == Transcoder.MODE_LONG)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				BitUtils.writeBits(dest, destBase + (long) i * destLength, 
+						Transcoder.encode(this, target, BitUtils.readBits(
+								src, srcBase + (long) i * srcLength, srcLength), 
+								subnormals, valueStatus), 
+						destLength);
+			}
+		}
+		else
+		{
+			BitSource in = new AbsoluteBitSource(src, srcBase);
+			BitSink out = new AbsoluteBitSink(dest, destBase);
+			for (int i = 0; i < count; i++)
+			{
+				Transcoder.transcode(
+						this, target, mode, subnormals, in, out, valueStatus);
+			}
+		}
+		src.position((int) ((srcBase + (long) count * srcLength + 7) >>> 3));
+		dest.position(
+				(int) ((destBase + (long) count * destLength + 7) >>> 3));
+		if (bulkStatus != null)
+		{
+			IEEE754Metrics.endBulk(this, target, count, 
+					dest.position() - (destBase >>> 3), bulkStatus, start, 
+					status);
+		}
+	}
+	
+	/**
+	 * Converts values held in the low-order bits of {@code src}'s elements.
+	 * Both formats must be no more than 64 bits long.
+	 */
+	public void transcode(
+			IEEE754Format target, 
+			long[] src, 
+			int srcOffset, 
+			long[] dest, 
+			int destOffset, 
+			int length, 
+			IEEE754Status status)
+	{
+		transcode(target, src, srcOffset, dest, destOffset, length, 0, 
+				status);
+	}
+	
+	/**
+	 * @param subnormals
+	 * the bitwise-or of {@link #FLUSH_TO_ZERO} and 
+	 * {@link #DENORMALS_ARE_ZERO}, or zero for neither
+	 */
+	public void transcode(
+			IEEE754Format target, 
+			long[] src, 
+			int srcOffset, 
+			long[] dest, 
+			int destOffset, 
+			int length, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		if (Transcoder.getMode(this, target) != Transcoder.MODE_LONG)
+		{
+			throw new IllegalArgumentException();
+		}
+		for (int i = 0; i < length; i++)
+		{
+			dest[destOffset + i] = Transcoder.encode(
+					this, target, src[srcOffset + i], subnormals, status);
+		}
+	}
 }
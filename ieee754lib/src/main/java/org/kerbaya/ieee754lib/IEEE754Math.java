@@ -0,0 +1,861 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.kerbaya.ieee754lib.IEEE754.IEEE754Number;
+
+/**
+ * Correctly rounded elementary functions of encoded values, for formats too
+ * wide for {@code StrictMath}, such as {@link IEEE754Format#QUADRUPLE} and
+ * {@link IEEE754Format#OCTUPLE}.
+ * <p>
+ * Each function is evaluated in {@link BigInteger} fixed point, with a few
+ * dozen bits more than the format's precision, and a bound on the error.  If 
+ * the bounds of the result round to different values, the evaluation is 
+ * repeated with twice as many extra bits, until they agree.  The result is 
+ * then rounded to nearest, ties to even.  Constants (&pi; and ln 2) are 
+ * computed once, and kept at the greatest precision needed so far.
+ * <p>
+ * {@link #pow(IEEE754Format, BigInteger, BigInteger, IEEE754Status) pow} is 
+ * exact where the result is a power of an integer, and otherwise evaluated 
+ * as exp(y &times; log x).  Where y has a small power-of-two denominator, 
+ * the approximation is checked for an exact root, such as 4<sup>0.5</sup>, 
+ * so that it doesn't raise {@link IEEE754Status#INEXACT}.  Should the extra 
+ * precision reach several times the format's without the bounds agreeing, 
+ * which can only happen for results of pow that lie exactly halfway between 
+ * two values of the format, the result is within one unit in the last place.
+ * <p>
+ * Special values follow IEEE 754-2008 section 9.2.  Any format may be used
+ * whose exponent length and bias fit in 30 bits.
+ */
+public final class IEEE754Math
+{
+	public static final int EXP = 0;
+	public static final int LOG = 1;
+	public static final int SIN = 2;
+	public static final int COS = 3;
+	
+	private static final int POW = -1;
+	
+	/**
+	 * The extra bits of precision of the first evaluation
+	 */
+	private static final int GUARD_BITS = 32;
+	
+	/**
+	 * A power of an integer is computed exactly if it's no longer than this
+	 */
+	private static final int EXACT_POWER_BITS = 1 << 16;
+	
+	private static final BigInteger TWO = BigInteger.valueOf(2);
+	
+	/**
+	 * A constant, truncated to {@code precision} fractional bits
+	 */
+	private static final class Constant
+	{
+		final BigInteger value;
+		final int precision;
+		
+		Constant(BigInteger value, int precision)
+		{
+			this.value = value;
+			this.precision = precision;
+		}
+	}
+	
+	private static volatile Constant pi;
+	private static volatile Constant ln2;
+	
+	/**
+	 * An approximate result, {@code value} &times; 2<sup>scale</sup>
+	 */
+	private static final class Approx
+	{
+		final BigInteger value;
+		final long scale;
+		
+		Approx(BigInteger value, long scale)
+		{
+			this.value = value;
+			this.scale = scale;
+		}
+	}
+	
+	private IEEE754Math()
+	{
+	}
+	
+	/**
+	 * @return the sum of arctan (or, if {@code hyperbolic}, artanh) of 
+	 * 1/{@code n}, to {@code precision} fractional bits, with an error of at
+	 * most one per term
+	 */
+	private static BigInteger arctanInverse(
+			int n, int precision, boolean hyperbolic)
+	{
+		BigInteger n2 = BigInteger.valueOf((long) n * n);
+		BigInteger term = BigInteger.ONE.shiftLeft(precision)
+				.divide(BigInteger.valueOf(n));
+		BigInteger sum = term;
+		for (int k = 1; ; k++)
+		{
+			term = term.divide(n2);
+			if (term.signum() == 0)
+			{
+				return sum;
+			}
+			BigInteger t = term.divide(BigInteger.valueOf(2 * k + 1));
+			sum = hyperbolic || (k & 1) == 0 ? sum.add(t) : sum.subtract(t);
+		}
+	}
+	
+	private static BigInteger pi(int precision)
+	{
+		Constant c = pi;
+		if (c == null || c.precision < precision)
+		{
+			/*
+			 * Machin's formula: pi = 16 arctan(1/5) - 4 arctan(1/239)
+			 */
+			int p = Math.max(precision, c == null ? 0 : c.precision << 1);
+			int guard = p + GUARD_BITS;
+			c = new Constant(arctanInverse(5, guard, false).shiftLeft(4)
+					.subtract(arctanInverse(239, guard, false).shiftLeft(2))
+					.shiftRight(GUARD_BITS), p);
+			pi = c;
+		}
+		return c.value.shiftRight(c.precision - precision);
+	}
+	
+	private static BigInteger ln2(int precision)
+	{
+		Constant c = ln2;
+		if (c == null || c.precision < precision)
+		{
+			/*
+			 * ln 2 = 2 artanh(1/3)
+			 */
+			int p = Math.max(precision, c == null ? 0 : c.precision << 1);
+			c = new Constant(arctanInverse(3, p + GUARD_BITS, true)
+					.shiftRight(GUARD_BITS - 1), p);
+			ln2 = c;
+		}
+		return c.value.shiftRight(c.precision - precision);
+	}
+	
+	/**
+	 * @return the floor of {@code m} &times; 2<sup>e + precision</sup>
+	 */
+	private static BigInteger fixed(BigInteger m, long e, int precision)
+	{
+		long shift = e + precision;
+		return shift >= 0 ? 
+				m.shiftLeft((int) shift) 
+				: m.shiftRight((int) Math.min(-shift, Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * @return the quotient rounded toward negative infinity, for positive 
+	 * {@code b}
+	 */
+	private static BigInteger floorDiv(BigInteger a, BigInteger b)
+	{
+		BigInteger[] qr = a.divideAndRemainder(b);
+		return qr[1].signum() < 0 ? qr[0].subtract(BigInteger.ONE) : qr[0];
+	}
+	
+	/**
+	 * @return the number of bits needed to hold the magnitude of 
+	 * ln(<i>x</i>) for any finite, non-zero <i>x</i> of the format, plus one
+	 */
+	private static int getLogLength(IEEE754Format format)
+	{
+		return 65 - Long.numberOfLeadingZeros(
+				format.getExponentBias().longValue() 
+						+ format.getMantissaLength() + 2);
+	}
+	
+	/**
+	 * @return an approximation of a result too large or too small for the 
+	 * format, that rounds to infinity or zero
+	 */
+	private static Approx saturate(
+			IEEE754Format format, boolean overflow, int errorBits)
+	{
+		long scale = 2 * format.getExponentBias().longValue() 
+				+ format.getMantissaLength() + 4;
+		return new Approx(BigInteger.ONE.shiftLeft(errorBits + 1), 
+				overflow ? scale : -scale);
+	}
+	
+	/**
+	 * @return e<sup>m &times; 2<sup>e</sup></sup> within 
+	 * 8&times;{@code precision} units of 2<sup>-precision</sup>, relative
+	 */
+	private static Approx exp(
+			IEEE754Format format, BigInteger m, long e, int precision)
+	{
+		if (m.signum() == 0)
+		{
+			return new Approx(BigInteger.ONE.shiftLeft(precision), -precision);
+		}
+		long t = m.bitLength() + e;
+		if (t > getLogLength(format))
+		{
+			return saturate(format, m.signum() > 0, 
+					errorBits(precision) + 1);
+		}
+		
+		/*
+		 * x = k ln 2 + r, with |r| <= ln 2 / 2
+		 */
+		int p = precision + (int) Math.max(t, 0) + 8;
+		BigInteger x = fixed(m, e, p);
+		BigInteger l = ln2(p);
+		BigInteger k = floorDiv(x.shiftLeft(1).add(l), l.shiftLeft(1));
+		BigInteger r = x.subtract(k.multiply(l)).shiftRight(p - precision);
+		
+		BigInteger one = BigInteger.ONE.shiftLeft(precision);
+		BigInteger sum = one;
+		BigInteger term = one;
+		for (int n = 1; ; n++)
+		{
+			term = term.multiply(r).shiftRight(precision)
+					.divide(BigInteger.valueOf(n));
+			if (term.signum() == 0)
+			{
+				break;
+			}
+			sum = sum.add(term);
+		}
+		return new Approx(sum, k.longValue() - precision);
+	}
+	
+	/**
+	 * @return ln(m &times; 2<sup>e</sup>) within 8&times;{@code precision} 
+	 * units of 2<sup>-precision</sup>, relative, for positive {@code m}
+	 */
+	private static Approx log(BigInteger m, long e, int precision)
+	{
+		/*
+		 * x = f 2^k, with f in [sqrt(1/2), sqrt(2)]
+		 */
+		int length = m.bitLength();
+		long k = length - 1 + e;
+		int d = length - 1;
+		if (m.multiply(m).bitLength() == length << 1)
+		{
+			k++;
+			d++;
+		}
+		
+		/*
+		 * ln f = 2 artanh(z), z = (f - 1) / (f + 1), scaled to keep its 
+		 * precision when f is close to one
+		 */
+		BigInteger f = BigInteger.ONE.shiftLeft(d);
+		BigInteger num = m.subtract(f);
+		BigInteger den = m.add(f);
+		BigInteger lnf;
+		int scale;
+		if (num.signum() == 0)
+		{
+			lnf = BigInteger.ZERO;
+			scale = precision;
+		}
+		else
+		{
+			scale = precision + den.bitLength() - num.bitLength() + 2;
+			BigInteger z = num.shiftLeft(scale).divide(den);
+			BigInteger z2 = z.multiply(z).shiftRight((scale << 1) - precision);
+			BigInteger sum = BigInteger.ONE.shiftLeft(precision);
+			BigInteger power = sum;
+			for (int n = 1; ; n++)
+			{
+				power = power.multiply(z2).shiftRight(precision);
+				if (power.signum() == 0)
+				{
+					break;
+				}
+				sum = sum.add(power.divide(BigInteger.valueOf(2 * n + 1)));
+			}
+			lnf = z.multiply(sum).shiftRight(precision - 1);
+		}
+		if (k == 0)
+		{
+			return new Approx(lnf, -scale);
+		}
+		
+		/*
+		 * |ln x| >= ln 2 / 2, so fixed point holds its precision
+		 */
+		int kLength = 64 - Long.numberOfLeadingZeros(Math.abs(k));
+		int p = precision + kLength;
+		return new Approx(BigInteger.valueOf(k).multiply(ln2(p))
+				.add(fixed(lnf, -scale, p))
+				.shiftRight(kLength), -precision);
+	}
+	
+	/**
+	 * @return sin or cos of m &times; 2<sup>e</sup>, within 
+	 * 8&times;{@code precision} units of 2<sup>-precision</sup>, relative to 
+	 * the larger of the result and 2<sup>-8</sup>
+	 */
+	private static Approx sinCos(
+			BigInteger m, long e, int precision, boolean cos)
+	{
+		long t = m.bitLength() + e;
+		
+		/*
+		 * x = q pi / 2 + r, with |r| <= pi / 4.  Below 1/2, r is x exactly.
+		 */
+		BigInteger q = BigInteger.ZERO;
+		BigInteger r = m;
+		long rScale = e;
+		boolean exact = true;
+		if (t >= 0)
+		{
+			int p = precision + (int) t + 8;
+			BigInteger x = fixed(m, e, p);
+			BigInteger halfPi = pi(p - 1);
+			q = floorDiv(x.shiftLeft(1).add(halfPi), halfPi.shiftLeft(1));
+			if (q.signum() != 0)
+			{
+				r = x.subtract(q.multiply(halfPi));
+				rScale = -p;
+				exact = false;
+			}
+		}
+		int quadrant = q.intValue() & 3;
+		boolean sin = cos ? (quadrant & 1) != 0 : (quadrant & 1) == 0;
+		boolean negative = cos ? 
+				quadrant == 1 || quadrant == 2 : quadrant >= 2;
+		
+		BigInteger r2 = fixed(r.multiply(r), rScale << 1, precision);
+		BigInteger one = BigInteger.ONE.shiftLeft(precision);
+		BigInteger sum = one;
+		BigInteger term = one;
+		boolean subtract = true;
+		for (int n = sin ? 2 : 1; ; n += 2)
+		{
+			term = term.multiply(r2).shiftRight(precision)
+					.divide(BigInteger.valueOf((long) n * (n + 1)));
+			if (term.signum() == 0)
+			{
+				break;
+			}
+			sum = subtract ? sum.subtract(term) : sum.add(term);
+			subtract = !subtract;
+		}
+		
+		Approx a;
+		if (sin)
+		{
+			/*
+			 * sin r = r (1 - r^2 / 3! + ...)
+			 */
+			int shift = exact ? r.bitLength() : (int) -rScale;
+			a = new Approx(r.multiply(sum).shiftRight(shift), 
+					rScale + shift - precision);
+		}
+		else
+		{
+			a = new Approx(sum, -precision);
+		}
+		return negative ? new Approx(a.value.negate(), a.scale) : a;
+	}
+	
+	private static boolean isOne(BigInteger m, long e)
+	{
+		return m.signum() > 0 
+				&& m.bitCount() == 1 
+				&& m.getLowestSetBit() + e == 0;
+	}
+	
+	/**
+	 * @return {@code true} if m &times; 2<sup>e</sup> is an integer
+	 */
+	private static boolean isInteger(BigInteger m, long e)
+	{
+		return e >= 0 || m.getLowestSetBit() >= -e;
+	}
+	
+	private static boolean isOddInteger(IEEE754 value)
+	{
+		if (!(value instanceof IEEE754Number))
+		{
+			return false;
+		}
+		IEEE754Number number = (IEEE754Number) value;
+		BigInteger m = number.getSignificand();
+		return m.getLowestSetBit() + number.getExponent().longValue() == 0;
+	}
+	
+	private static boolean isNegative(IEEE754 value)
+	{
+		return value.equals(IEEE754.NEGATIVE_ZERO) 
+				|| value.equals(IEEE754.NEGATIVE_INFINITY) 
+				|| value instanceof IEEE754Number 
+						&& ((IEEE754Number) value).getSignificand().signum() < 0;
+	}
+	
+	private static int errorBits(int precision)
+	{
+		return 36 - Integer.numberOfLeadingZeros(precision);
+	}
+	
+	private static Approx approximate(
+			int function, 
+			IEEE754Format format, 
+			IEEE754Number x, 
+			IEEE754Number y, 
+			int precision)
+	{
+		BigInteger m = x.getSignificand();
+		long e = x.getExponent().longValue();
+		switch (function)
+		{
+		case EXP:
+			return exp(format, m, e, precision);
+		case LOG:
+			return log(m, e, precision);
+		case SIN:
+		case COS:
+			return sinCos(m, e, precision, function == COS);
+		default:
+			/*
+			 * x^y = e^(y ln |x|), with ln |x| precise enough for any y 
+			 * that won't overflow
+			 */
+			int logLength = getLogLength(format);
+			Approx l = log(m.abs(), e, precision + logLength + 16);
+			Approx a = exp(format, 
+					l.value.multiply(y.getSignificand()), 
+					l.scale + y.getExponent().longValue(), 
+					precision);
+			return m.signum() < 0 ? 
+					new Approx(a.value.negate(), a.scale) : a;
+		}
+	}
+	
+	/**
+	 * @return x<sup>y</sup>, if y's denominator is a small power of two and
+	 * the approximation, rounded to one more bit than the format's 
+	 * precision, is exactly the result; otherwise {@code null}
+	 */
+	private static IEEE754 exactPow(
+			IEEE754Number x, IEEE754Number y, Approx a, int precision)
+	{
+		BigInteger ym = y.getSignificand();
+		int shift = ym.getLowestSetBit();
+		long ye = y.getExponent().longValue() + shift;
+		ym = ym.shiftRight(shift);
+		if (ye >= 0 || ye < -16 || ym.bitLength() > 31 
+				|| a.value.signum() <= 0)
+		{
+			return null;
+		}
+		
+		/*
+		 * y = n / q, and x (positive here, as y isn't an integer) and the 
+		 * candidate v are odd integers times powers of two
+		 */
+		int q = 1 << -ye;
+		long n = ym.longValue();
+		BigInteger xm = x.getSignificand();
+		shift = xm.getLowestSetBit();
+		long xe = x.getExponent().longValue() + shift;
+		xm = xm.shiftRight(shift);
+		int d = Math.max(a.value.bitLength() - precision - 1, 0);
+		BigInteger vm = d == 0 ? a.value : a.value.add(
+				BigInteger.ONE.shiftLeft(d - 1)).shiftRight(d);
+		shift = vm.getLowestSetBit();
+		long ve = a.scale + d + shift;
+		vm = vm.shiftRight(shift);
+		if ((long) vm.bitLength() * q > EXACT_POWER_BITS 
+				|| xm.bitLength() * Math.abs(n) > EXACT_POWER_BITS)
+		{
+			return null;
+		}
+		
+		// v^q = x^n
+		if (ve * q != xe * n || !(n > 0 ? 
+				vm.pow(q).equals(xm.pow((int) n)) 
+				: vm.equals(BigInteger.ONE) && xm.equals(BigInteger.ONE)))
+		{
+			return null;
+		}
+		return new IEEE754Number(BigInteger.valueOf(ve), vm);
+	}
+	
+	/**
+	 * @return the approximation, if its error bounds round to the same value 
+	 * in the format
+	 */
+	private static IEEE754 round(
+			IEEE754Format format, Approx a, int errorBits, boolean force)
+	{
+		BigInteger error = BigInteger.ONE.shiftLeft(errorBits);
+		BigInteger lo = a.value.subtract(error);
+		BigInteger hi = a.value.add(error);
+		BigInteger scale = BigInteger.valueOf(a.scale);
+		if (!force && (lo.signum() != hi.signum() 
+				|| !new IEEE754Number(scale, lo).toBigIntegerBits(format)
+						.equals(new IEEE754Number(scale, hi)
+								.toBigIntegerBits(format))))
+		{
+			return null;
+		}
+		
+		/*
+		 * A set bit below the approximation's last makes it inexact, as the
+		 * result is: exact results have been found beforehand
+		 */
+		return new IEEE754Number(scale.subtract(BigInteger.ONE), 
+				a.value.shiftLeft(1).add(BigInteger.ONE));
+	}
+	
+	/**
+	 * @return the exact result, or {@code null} if it must be approximated
+	 */
+	private static IEEE754 special(int function, IEEE754 x, IEEE754 y)
+	{
+		IEEE754 one = IEEE754.valueOf(1);
+		if (x.equals(IEEE754.NaN))
+		{
+			return function == POW && (y.equals(IEEE754.POSITIVE_ZERO) 
+					|| y.equals(IEEE754.NEGATIVE_ZERO)) ? one : x;
+		}
+		boolean zero = x.equals(IEEE754.POSITIVE_ZERO) 
+				|| x.equals(IEEE754.NEGATIVE_ZERO);
+		boolean infinite = x.equals(IEEE754.POSITIVE_INFINITY) 
+				|| x.equals(IEEE754.NEGATIVE_INFINITY);
+		boolean negative = isNegative(x);
+		switch (function)
+		{
+		case EXP:
+			return zero ? one : infinite ? 
+					negative ? IEEE754.POSITIVE_ZERO : x : null;
+		case LOG:
+			if (zero)
+			{
+				return IEEE754.NEGATIVE_INFINITY;
+			}
+			if (negative)
+			{
+				return IEEE754.NaN;
+			}
+			return infinite ? x : isOne(((IEEE754Number) x).getSignificand(), 
+					((IEEE754Number) x).getExponent().longValue()) ? 
+							IEEE754.POSITIVE_ZERO : null;
+		case SIN:
+			return infinite ? IEEE754.NaN : zero ? x : null;
+		case COS:
+			return infinite ? IEEE754.NaN : zero ? one : null;
+		default:
+			return specialPow(x, y, zero, infinite, negative);
+		}
+	}
+	
+	private static IEEE754 specialPow(
+			IEEE754 x, 
+			IEEE754 y, 
+			boolean zero, 
+			boolean infinite, 
+			boolean negative)
+	{
+		IEEE754 one = IEEE754.valueOf(1);
+		if (y.equals(IEEE754.POSITIVE_ZERO) || y.equals(IEEE754.NEGATIVE_ZERO) 
+				|| x instanceof IEEE754Number && isOne(
+						((IEEE754Number) x).getSignificand(), 
+						((IEEE754Number) x).getExponent().longValue()))
+		{
+			return one;
+		}
+		if (y.equals(IEEE754.NaN))
+		{
+			return y;
+		}
+		boolean yNegative = isNegative(y);
+		boolean yOdd = isOddInteger(y);
+		if (zero || infinite)
+		{
+			/*
+			 * 0^y and inf^y are reciprocals; the sign survives odd y
+			 */
+			boolean large = zero == yNegative;
+			boolean n = negative && yOdd;
+			return large ? 
+					n ? IEEE754.NEGATIVE_INFINITY : IEEE754.POSITIVE_INFINITY 
+					: n ? IEEE754.NEGATIVE_ZERO : IEEE754.POSITIVE_ZERO;
+		}
+		IEEE754Number number = (IEEE754Number) x;
+		BigInteger m = number.getSignificand();
+		long e = number.getExponent().longValue();
+		if (y.equals(IEEE754.POSITIVE_INFINITY) 
+				|| y.equals(IEEE754.NEGATIVE_INFINITY))
+		{
+			if (isOne(m.abs(), e))
+			{
+				return one;
+			}
+			boolean large = m.abs().bitLength() + e > 1;
+			return large != yNegative ? 
+					IEEE754.POSITIVE_INFINITY : IEEE754.POSITIVE_ZERO;
+		}
+		IEEE754Number yNumber = (IEEE754Number) y;
+		BigInteger ym = yNumber.getSignificand();
+		long ye = yNumber.getExponent().longValue();
+		boolean integer = isInteger(ym, ye);
+		if (negative && !integer)
+		{
+			return IEEE754.NaN;
+		}
+		if (isOne(m.abs(), e))
+		{
+			return negative && yOdd ? IEEE754.valueOf(-1) : one;
+		}
+		if (integer && ye < 32 && ym.bitLength() + ye < 32)
+		{
+			/*
+			 * An integer power: exact unless it's too long, or a negative 
+			 * power of anything but two
+			 */
+			long n = fixed(ym, ye, 0).longValue();
+			long absN = Math.abs(n);
+			BigInteger abs = m.abs();
+			int shift = abs.getLowestSetBit();
+			BigInteger odd = abs.shiftRight(shift);
+			BigInteger sign = BigInteger.valueOf(negative && yOdd ? -1 : 1);
+			if (odd.bitLength() * absN <= EXACT_POWER_BITS 
+					&& (n > 0 || odd.bitCount() == 1))
+			{
+				return new IEEE754Number(
+						BigInteger.valueOf((e + shift) * n), 
+						n > 0 ? odd.pow((int) n).multiply(sign) : sign);
+			}
+		}
+		return null;
+	}
+	
+	private static IEEE754 evaluate(
+			int function, 
+			IEEE754Format format, 
+			IEEE754 x, 
+			IEEE754 y)
+	{
+		IEEE754 r = special(function, x, y);
+		if (r != null)
+		{
+			return r;
+		}
+		if (function == POW && isNegative(x) && !isOddInteger(y))
+		{
+			IEEE754Number number = (IEEE754Number) x;
+			x = new IEEE754Number(
+					number.getExponent(), number.getSignificand().negate());
+		}
+		int p = format.getMantissaLength() + 1;
+		int maxGuard = (p << 3) + 1024;
+		for (int guard = GUARD_BITS; ; guard <<= 1)
+		{
+			int precision = p + guard;
+			Approx a = approximate(function, format, 
+					(IEEE754Number) x, (IEEE754Number) y, precision);
+			if (function == POW)
+			{
+				r = exactPow((IEEE754Number) x, (IEEE754Number) y, a, p);
+				if (r != null)
+				{
+					return r;
+				}
+			}
+			r = round(format, a, errorBits(precision), guard >= maxGuard);
+			if (r != null)
+			{
+				return r;
+			}
+		}
+	}
+	
+	private static void checkFormat(IEEE754Format format)
+	{
+		if (format.getExponentLength() > 30 
+				|| format.getExponentBias().bitLength() > 30)
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	private static void checkFunction(int function)
+	{
+		if (function < EXP || function > COS)
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * Evaluates {@code function} ({@link #EXP}, {@link #LOG}, {@link #SIN} or
+	 * {@link #COS}) of the value in the low-order 
+	 * {@link IEEE754Format#getLength()} bits of {@code bits}
+	 */
+	public static BigInteger evaluate(
+			int function, 
+			IEEE754Format format, 
+			BigInteger bits, 
+			IEEE754Status status)
+	{
+		checkFunction(function);
+		checkFormat(format);
+		return evaluate(function, format, IEEE754.decode(format, bits), null)
+				.toBigIntegerBits(format, status);
+	}
+	
+	/**
+	 * Evaluates {@code function} of one value from {@code in}, writing the 
+	 * result to {@code out}
+	 */
+	public static void evaluate(
+			int function, 
+			IEEE754Format format, 
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		checkFunction(function);
+		checkFormat(format);
+		evaluate(function, format, IEEE754.decode(format, in), null)
+				.toBits(format, out, status);
+	}
+	
+	/**
+	 * Evaluates {@code function} of {@code count} values packed back-to-back 
+	 * in {@code src}, writing the results packed in {@code dest}.  Both 
+	 * buffers' positions are advanced past the bytes read and written, 
+	 * including the padding of the final byte.
+	 */
+	public static void evaluate(
+			int function, 
+			IEEE754Format format, 
+			ByteBuffer src, 
+			ByteBuffer dest, 
+			int count, 
+			IEEE754Status status)
+	{
+		checkFunction(function);
+		checkFormat(format);
+		final int length = format.getLength();
+		final long srcBase = (long) src.position() << 3;
+		final long destBase = (long) dest.position() << 3;
+		BitSource in = new AbsoluteBitSource(src, srcBase);
+		BitSink out = new AbsoluteBitSink(dest, destBase);
+		for (int i = 0; i < count; i++)
+		{
+			evaluate(function, format, IEEE754.decode(format, in), null)
+					.toBits(format, out, status);
+		}
+		src.position((int) ((srcBase + (long) count * length + 7) >>> 3));
+		dest.position((int) ((destBase + (long) count * length + 7) >>> 3));
+	}
+	
+	public static BigInteger exp(
+			IEEE754Format format, BigInteger bits, IEEE754Status status)
+	{
+		return evaluate(EXP, format, bits, status);
+	}
+	
+	/**
+	 * @return the natural logarithm
+	 */
+	public static BigInteger log(
+			IEEE754Format format, BigInteger bits, IEEE754Status status)
+	{
+		return evaluate(LOG, format, bits, status);
+	}
+	
+	public static BigInteger sin(
+			IEEE754Format format, BigInteger bits, IEEE754Status status)
+	{
+		return evaluate(SIN, format, bits, status);
+	}
+	
+	public static BigInteger cos(
+			IEEE754Format format, BigInteger bits, IEEE754Status status)
+	{
+		return evaluate(COS, format, bits, status);
+	}
+	
+	/**
+	 * @return {@code x} raised to the power {@code y}
+	 */
+	public static BigInteger pow(
+			IEEE754Format format, 
+			BigInteger x, 
+			BigInteger y, 
+			IEEE754Status status)
+	{
+		checkFormat(format);
+		return evaluate(POW, format, IEEE754.decode(format, x), 
+				IEEE754.decode(format, y)).toBigIntegerBits(format, status);
+	}
+	
+	/**
+	 * Raises each of {@code count} values packed back-to-back in {@code x} to
+	 * the power of the corresponding value in {@code y}, writing the results
+	 * packed in {@code dest}.  The buffers' positions are advanced as by 
+	 * {@link #evaluate(int, IEEE754Format, ByteBuffer, ByteBuffer, int, 
+	 * IEEE754Status)}.
+	 */
+	public static void pow(
+			IEEE754Format format, 
+			ByteBuffer x, 
+			ByteBuffer y, 
+			ByteBuffer dest, 
+			int count, 
+			IEEE754Status status)
+	{
+		checkFormat(format);
+		final int length = format.getLength();
+		final long xBase = (long) x.position() << 3;
+		final long yBase = (long) y.position() << 3;
+		final long destBase = (long) dest.position() << 3;
+		BitSource xIn = new AbsoluteBitSource(x, xBase);
+		BitSource yIn = new AbsoluteBitSource(y, yBase);
+		BitSink out = new AbsoluteBitSink(dest, destBase);
+		for (int i = 0; i < count; i++)
+		{
+			evaluate(POW, format, IEEE754.decode(format, xIn), 
+					IEEE754.decode(format, yIn)).toBits(format, out, status);
+		}
+		long bytes = (long) count * length + 7;
+		x.position((int) ((xBase + bytes) >>> 3));
+		y.position((int) ((yBase + bytes) >>> 3));
+		dest.position((int) ((destBase + bytes) >>> 3));
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional, process-wide instrumentation of the codecs.
+ * <p>
+ * While {@link #setEnabled(boolean) enabled}, this counts:
+ * <ul>
+ * <li>values decoded from, and encoded into, each format, by 
+ * classification: {@link #NORMAL}, {@link #SUBNORMAL}, {@link #ZERO}, 
+ * {@link #INFINITE} or {@link #NAN}</li>
+ * <li>bytes moved through the channel wrappers from {@link BitUtils}</li>
+ * </ul>
+ * and reports each bulk conversion (the array and buffer variants of 
+ * {@link IEEE754#encode(double[], int, int, IEEE754Format, BitSink, 
+ * IEEE754Status) IEEE754.encode} and {@link IEEE754Format#transcode(
+ * IEEE754Format, java.nio.ByteBuffer, java.nio.ByteBuffer, int, 
+ * IEEE754Status) IEEE754Format.transcode}) to the registered 
+ * {@link Listener}s.  A listener may forward them to a profiler, such as 
+ * Java Flight Recorder.
+ * <p>
+ * Disabled is the default, and it can be switched at any time.  While 
+ * disabled, each instrumented call costs one read of a volatile field.
+ * <p>
+ * Counters are striped by thread, so concurrent codecs don't contend on 
+ * them; reading one sums its stripes.
+ */
+public final class IEEE754Metrics
+{
+	public static final int NORMAL = 0;
+	public static final int SUBNORMAL = 1;
+	public static final int ZERO = 2;
+	public static final int INFINITE = 3;
+	public static final int NAN = 4;
+	
+	private static final int CLASSIFICATION_COUNT = 5;
+	
+	/**
+	 * Receives a report of each bulk conversion, on the converting thread
+	 */
+	public interface Listener
+	{
+		/**
+		 * @param source
+		 * the format of the values read, or {@code null} if they were 
+		 * {@link IEEE754} values
+		 * 
+		 * @param bytes
+		 * the number of bytes written
+		 * 
+		 * @param status
+		 * the flags raised while converting
+		 * 
+		 * @param nanos
+		 * the elapsed time, as measured by {@link System#nanoTime()}
+		 */
+		void converted(
+				IEEE754Format source, 
+				IEEE754Format target, 
+				int count, 
+				long bytes, 
+				IEEE754Status status, 
+				long nanos);
+	}
+	
+	private static final int STRIPE_COUNT = 16;
+	
+	/**
+	 * Keeps each stripe on its own cache lines
+	 */
+	private static final int STRIPE_LENGTH = 16;
+	
+	private static final int DECODED = 0;
+	private static final int ENCODED = CLASSIFICATION_COUNT;
+	
+	private static final int CHANNEL_READ = 0;
+	private static final int CHANNEL_WRITTEN = 1;
+	
+	static volatile boolean enabled;
+	
+	private static final ConcurrentMap<IEEE754Format, AtomicLongArray> 
+			formatCounters = 
+					new ConcurrentHashMap<IEEE754Format, AtomicLongArray>();
+	
+	private static final AtomicLongArray channelCounters = newCounters();
+	
+	private static final List<Listener> listeners = 
+			new CopyOnWriteArrayList<Listener>();
+	
+	private IEEE754Metrics() {}
+	
+	private static AtomicLongArray newCounters()
+	{
+		return new AtomicLongArray(STRIPE_COUNT * STRIPE_LENGTH);
+	}
+	
+	private static int stripe()
+	{
+		return ((int) Thread.currentThread().getId() & (STRIPE_COUNT - 1)) 
+				* STRIPE_LENGTH;
+	}
+	
+	private static long sum(AtomicLongArray counters, int index)
+	{
+		long r = 0;
+		for (int i = 0; i < STRIPE_COUNT; i++)
+		{
+			r += counters.get(i * STRIPE_LENGTH + index);
+		}
+		return r;
+	}
+	
+	private static AtomicLongArray getCounters(IEEE754Format format)
+	{
+		AtomicLongArray r = formatCounters.get(format);
+		if (r == null)
+		{
+			AtomicLongArray counters = newCounters();
+			r = formatCounters.putIfAbsent(format, counters);
+			if (r == null)
+			{
+				r = counters;
+			}
+		}
+		return r;
+	}
+	
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+	
+	public static void setEnabled(boolean enabled)
+	{
+		IEEE754Metrics.enabled = enabled;
+	}
+	
+	public static void addListener(Listener listener)
+	{
+		if (listener == null)
+		{
+			throw new NullPointerException();
+		}
+		listeners.add(listener);
+	}
+	
+	public static void removeListener(Listener listener)
+	{
+		listeners.remove(listener);
+	}
+	
+	private static void checkClassification(int classification)
+	{
+		if (classification < 0 || classification >= CLASSIFICATION_COUNT)
+		{
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	/**
+	 * @return the number of values of the classification decoded from the 
+	 * format
+	 */
+	public static long getDecodedCount(
+			IEEE754Format format, 
+			int classification)
+	{
+		checkClassification(classification);
+		AtomicLongArray counters = formatCounters.get(format);
+		return counters == null ? 0 : sum(counters, DECODED + classification);
+	}
+	
+	/**
+	 * @return the number of values of the classification encoded into the 
+	 * format
+	 */
+	public static long getEncodedCount(
+			IEEE754Format format, 
+			int classification)
+	{
+		checkClassification(classification);
+		AtomicLongArray counters = formatCounters.get(format);
+		return counters == null ? 0 : sum(counters, ENCODED + classification);
+	}
+	
+	public static long getChannelBytesRead()
+	{
+		return sum(channelCounters, CHANNEL_READ);
+	}
+	
+	public static long getChannelBytesWritten()
+	{
+		return sum(channelCounters, CHANNEL_WRITTEN);
+	}
+	
+	/**
+	 * Clears every counter
+	 */
+	public static void reset()
+	{
+		formatCounters.clear();
+		for (int i = 0; i < channelCounters.length(); i++)
+		{
+			channelCounters.set(i, 0);
+		}
+	}
+	
+	static void decoded(IEEE754Format format, int classification)
+	{
+		getCounters(format).incrementAndGet(
+				stripe() + DECODED + classification);
+	}
+	
+	static void encoded(IEEE754Format format, int classification)
+	{
+		getCounters(format).incrementAndGet(
+				stripe() + ENCODED + classification);
+	}
+	
+	/**
+	 * Counts the decoding of a value of a format no more than 64 bits long,
+	 * without an explicit integer bit
+	 */
+	static void decoded(IEEE754Format format, long bits)
+	{
+		decoded(format, classify(format, bits));
+	}
+	
+	/**
+	 * Counts the encoding of a value of a format no more than 64 bits long,
+	 * without an explicit integer bit
+	 */
+	static void encoded(IEEE754Format format, long bits)
+	{
+		encoded(format, classify(format, bits));
+	}
+	
+	private static int classify(IEEE754Format format, long bits)
+	{
+		final int mantissaLength = format.getMantissaLength();
+		final long maxExponentBits = 
+				(1L << format.getExponentLength()) - 1;
+		long exponentBits = bits >>> mantissaLength & maxExponentBits;
+		long mantissa = bits & ((1L << mantissaLength) - 1);
+		int classification;
+		if (exponentBits == maxExponentBits)
+		{
+			classification = mantissa == 0 ? INFINITE : NAN;
+		}
+		else if (exponentBits == 0)
+		{
+			classification = mantissa == 0 ? ZERO : SUBNORMAL;
+		}
+		else
+		{
+			classification = NORMAL;
+		}
+		return classification;
+	}
+	
+	static void channelRead(int bytes)
+	{
+		channelCounters.addAndGet(stripe() + CHANNEL_READ, bytes);
+	}
+	
+	static void channelWritten(int bytes)
+	{
+		channelCounters.addAndGet(stripe() + CHANNEL_WRITTEN, bytes);
+	}
+	
+	/**
+	 * @return a status to collect the flags of a bulk conversion for the 
+	 * listeners, or {@code null} if there are none
+	 */
+	static IEEE754Status startBulk()
+	{
+		return enabled && !listeners.isEmpty() ? new IEEE754Status() : null;
+	}
+	
+	/**
+	 * Reports a bulk conversion started with {@link #startBulk()}, and adds
+	 * its flags to the caller's status
+	 */
+	static void endBulk(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int count, 
+			long bytes, 
+			IEEE754Status bulkStatus,
+			long startNanos,
+			IEEE754Status status)
+	{
+		long nanos = System.nanoTime() - startNanos;
+		if (status != null)
+		{
+			status.add(bulkStatus);
+		}
+		for (Listener listener: listeners)
+		{
+			listener.converted(
+					source, target, count, bytes, bulkStatus, nanos);
+		}
+	}
+}
@@ -0,0 +1,433 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates random values of any format, as encoded bits.
+ * <p>
+ * Values follow one of three distributions:
+ * <ul>
+ * <li>{@link #ALL_BITS}: every bit pattern is equally likely, including 
+ * infinities and NaNs</li>
+ * <li>{@link #FINITE}: every finite bit pattern is equally likely</li>
+ * <li>{@link #UNIT_INTERVAL}: uniform in [0, 1), with every value of the 
+ * format in that range reachable, each with probability proportional to the
+ * gap to the next</li>
+ * </ul>
+ * The bits come from a SplitMix64 generator, the algorithm of Java 8's 
+ * {@code SplittableRandom}: {@link #split()} returns a generator for another
+ * thread whose values are statistically independent of this one's.  
+ * Instances are not thread-safe.
+ * <p>
+ * Values are built a 64-bit word at a time, so no {@link IEEE754} is created
+ * except by {@link #next()}.
+ */
+public final class IEEE754Random
+{
+	/**
+	 * Every bit pattern of the format is equally likely
+	 */
+	public static final int ALL_BITS = 0;
+	
+	/**
+	 * Every bit pattern of a finite value (including zeros and sub-normals) 
+	 * is equally likely.  For formats with an explicit integer bit, only 
+	 * canonical patterns are produced.
+	 */
+	public static final int FINITE = 1;
+	
+	/**
+	 * Values are uniform in [0, 1), to the full precision of the format
+	 */
+	public static final int UNIT_INTERVAL = 2;
+	
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	
+	private static final AtomicLong defaultSeed = new AtomicLong(
+			mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+	
+	private final IEEE754Format format;
+	private final int distribution;
+	private final int length;
+	private final int words;
+	private final int exponentShift;
+	private final int exponentLength;
+	private final int mantissaLength;
+	private final boolean explicitIntegerBit;
+	
+	/**
+	 * The biased exponent of [1/2, 1), for {@link #UNIT_INTERVAL}
+	 */
+	private final long unitExponent;
+	
+	/**
+	 * For a format no more than 64 bits long, masks its bits
+	 */
+	private final long mask;
+	
+	/**
+	 * Holds a value for the bulk methods of formats longer than 64 bits
+	 */
+	private final long[] scratch;
+	
+	private long seed;
+	private final long gamma;
+	
+	/**
+	 * Creates a generator seeded differently from every other
+	 */
+	public IEEE754Random(IEEE754Format format, int distribution)
+	{
+		this(format, distribution, defaultSeed.getAndAdd(GOLDEN_GAMMA << 1));
+		seed = mix64(seed);
+	}
+	
+	/**
+	 * Creates a generator whose values are determined by {@code seed}
+	 */
+	public IEEE754Random(IEEE754Format format, int distribution, long seed)
+	{
+		this(format, distribution, seed, GOLDEN_GAMMA);
+	}
+	
+	private IEEE754Random(
+			IEEE754Format format, int distribution, long seed, long gamma)
+	{
+		if (format == null)
+		{
+			throw new NullPointerException();
+		}
+		if (distribution < ALL_BITS || distribution > UNIT_INTERVAL)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.format = format;
+		this.distribution = distribution;
+		this.seed = seed;
+		this.gamma = gamma;
+		length = format.getLength();
+		words = DictionaryEncoder.getWords(length);
+		mantissaLength = format.getMantissaLength();
+		explicitIntegerBit = format.hasExplicitIntegerBit();
+		exponentShift = mantissaLength + (explicitIntegerBit ? 1 : 0);
+		exponentLength = format.getExponentLength();
+		mask = length >= 64 ? -1L : (1L << length) - 1;
+		scratch = new long[words];
+		if (distribution == UNIT_INTERVAL)
+		{
+			/*
+			 * [1/2, 1) must be finite, and its exponent must fit a long
+			 */
+			BigInteger bias = format.getExponentBias();
+			if (bias.signum() <= 0 
+					|| bias.bitLength() > 62 
+					|| exponentLength < 63 
+							&& bias.longValue() >= (1L << exponentLength))
+			{
+				throw new IllegalArgumentException();
+			}
+			unitExponent = bias.longValue() - 1;
+		}
+		else
+		{
+			unitExponent = 0;
+		}
+	}
+	
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	private static long mixGamma(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		/*
+		 * A gamma with too few bit transitions makes a poor sequence
+		 */
+		return Long.bitCount(z ^ (z >>> 1)) < 24 ? 
+				z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+	
+	private long nextWord()
+	{
+		return mix64(seed += gamma);
+	}
+	
+	/**
+	 * @return a generator of the same format and distribution, whose values 
+	 * are independent of this one's
+	 */
+	public IEEE754Random split()
+	{
+		long s = nextWord();
+		return new IEEE754Random(
+				format, distribution, s, mixGamma(seed += gamma));
+	}
+	
+	/**
+	 * @return the biased exponent of a {@link #UNIT_INTERVAL} value: one less
+	 * per leading zero of a random bit string, stopping at zero
+	 */
+	private long nextUnitExponent()
+	{
+		long e = unitExponent;
+		while (e > 0)
+		{
+			int zeros = Long.numberOfLeadingZeros(nextWord());
+			e -= zeros;
+			if (zeros < 64)
+			{
+				break;
+			}
+		}
+		return e < 0 ? 0 : e;
+	}
+	
+	/**
+	 * @return the next value, in the low-order bits of the result.  The format
+	 * must be no more than 64 bits long.
+	 */
+	public long nextBits()
+	{
+		if (length > 64)
+		{
+			throw new IllegalStateException();
+		}
+		long bits;
+		long exponent;
+		switch (distribution)
+		{
+		case ALL_BITS:
+			return nextWord() & mask;
+		case FINITE:
+			long maxExponent = (1L << exponentLength) - 1;
+			do
+			{
+				bits = nextWord() & mask;
+				exponent = bits >>> exponentShift & maxExponent;
+			}
+			while (exponent == maxExponent);
+			break;
+		default:
+			exponent = nextUnitExponent();
+			bits = exponent << exponentShift 
+					| nextWord() & ((1L << mantissaLength) - 1);
+			break;
+		}
+		if (explicitIntegerBit)
+		{
+			bits = exponent == 0 ? 
+					bits & ~(1L << mantissaLength) 
+					: bits | 1L << mantissaLength;
+		}
+		return bits;
+	}
+	
+	/**
+	 * Sets {@code count} bits of the value held in {@code dest}, starting at
+	 * bit {@code lowBit} from its least significant, to the low-order bits of
+	 * {@code bits} (zero beyond 64)
+	 */
+	private void setBits(
+			long[] dest, int offset, int lowBit, int count, long bits)
+	{
+		while (count > 0)
+		{
+			int shift = lowBit & 63;
+			int n = Math.min(count, 64 - shift);
+			int i = offset + words - 1 - (lowBit >>> 6);
+			long m = (n == 64 ? -1L : (1L << n) - 1) << shift;
+			dest[i] = dest[i] & ~m | bits << shift & m;
+			bits = n == 64 ? 0 : bits >>> n;
+			lowBit += n;
+			count -= n;
+		}
+	}
+	
+	/**
+	 * @return the number of set bits among {@code count} bits of the value 
+	 * held in {@code src}, starting at bit {@code lowBit} from its least 
+	 * significant
+	 */
+	private int countBits(long[] src, int offset, int lowBit, int count)
+	{
+		int r = 0;
+		while (count > 0)
+		{
+			int shift = lowBit & 63;
+			int n = Math.min(count, 64 - shift);
+			long m = (n == 64 ? -1L : (1L << n) - 1) << shift;
+			r += Long.bitCount(src[offset + words - 1 - (lowBit >>> 6)] & m);
+			lowBit += n;
+			count -= n;
+		}
+		return r;
+	}
+	
+	/**
+	 * Generates the next value into {@code words} words of {@code dest}, the
+	 * high-order word first
+	 */
+	private void next(long[] dest, int offset)
+	{
+		int first = length - ((words - 1) << 6);
+		while (true)
+		{
+			for (int i = 0; i < words; i++)
+			{
+				dest[offset + i] = nextWord();
+			}
+			if (first < 64)
+			{
+				dest[offset] &= (1L << first) - 1;
+			}
+			if (distribution != FINITE || countBits(dest, offset, 
+					exponentShift, exponentLength) != exponentLength)
+			{
+				break;
+			}
+		}
+		boolean zeroExponent;
+		switch (distribution)
+		{
+		case ALL_BITS:
+			return;
+		case FINITE:
+			zeroExponent = countBits(
+					dest, offset, exponentShift, exponentLength) == 0;
+			break;
+		default:
+			long exponent = nextUnitExponent();
+			setBits(dest, offset, length - 1, 1, 0);
+			setBits(dest, offset, exponentShift, exponentLength, exponent);
+			zeroExponent = exponent == 0;
+			break;
+		}
+		if (explicitIntegerBit)
+		{
+			setBits(dest, offset, mantissaLength, 1, zeroExponent ? 0 : 1);
+		}
+	}
+	
+	public BigInteger nextBigBits()
+	{
+		next(scratch, 0);
+		return DictionaryEncoder.toBigInteger(scratch, 0, words);
+	}
+	
+	public IEEE754 next()
+	{
+		if (length <= 64)
+		{
+			return IEEE754.decode(format, nextBits());
+		}
+		return IEEE754.decode(format, nextBigBits());
+	}
+	
+	/**
+	 * Generates {@code length} values into the low-order bits of 
+	 * {@code dest}'s elements.  The format must be no more than 64 bits long.
+	 */
+	public void next(long[] dest, int offset, int length)
+	{
+		for (int i = offset; i < offset + length; i++)
+		{
+			dest[i] = nextBits();
+		}
+	}
+	
+	/**
+	 * Writes {@code count} values to {@code out} packed back-to-back, as 
+	 * {@link IEEE754Format#getLength()} bits each
+	 */
+	public void next(BitSink out, int count)
+	{
+		if (length <= 64)
+		{
+			if (out instanceof BitBuffer)
+			{
+				BitBuffer buffer = (BitBuffer) out;
+				for (int i = 0; i < count; i++)
+				{
+					buffer.writeBits(nextBits(), length);
+				}
+			}
+			else
+			{
+				for (int i = 0; i < count; i++)
+				{
+					BitUtils.writeBits(out, nextBits(), length);
+				}
+			}
+			return;
+		}
+		for (int i = 0; i < count; i++)
+		{
+			next(scratch, 0);
+			DictionaryEncoder.writeValue(out, length, scratch, 0, words);
+		}
+	}
+	
+	/**
+	 * Writes {@code count} values packed back-to-back into {@code dest}, 
+	 * starting at its position, which is advanced past the bytes written, 
+	 * including the padding of the final byte
+	 */
+	public void next(ByteBuffer dest, int count)
+	{
+		final long base = (long) dest.position() << 3;
+		if (length <= 64)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				BitUtils.writeBits(
+						dest, base + (long) i * length, nextBits(), length);
+			}
+		}
+		else
+		{
+			next(new AbsoluteBitSink(dest, base), count);
+		}
+		dest.position((int) ((base + (long) count * length + 7) >>> 3));
+	}
+	
+	public IEEE754Format getFormat()
+	{
+		return format;
+	}
+	
+	public int getDistribution()
+	{
+		return distribution;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+/**
+ * Accumulates IEEE 754 status flags raised while encoding values.
+ * <p>
+ * Each flag is sticky: once raised, it stays raised until {@link #clear()}.
+ * Alongside the flags, a count is kept of how many encoded values raised each
+ * flag.  Instances are not thread-safe; use one per thread, and
+ * {@link #add(IEEE754Status)} them together afterwards.
+ * <p>
+ * Encoders accept a {@code null} status, in which case no flags are tracked.
+ */
+public final class IEEE754Status
+{
+	/**
+	 * The encoded value differs from the exact value (it was rounded)
+	 */
+	public static final int INEXACT = 0x1;
+
+	/**
+	 * The value was too large for the format, and was encoded as infinity
+	 */
+	public static final int OVERFLOW = 0x2;
+
+	/**
+	 * The value was too small to be encoded as a normal number, and rounding
+	 * lost precision (it became an inexact sub-normal, or zero)
+	 */
+	public static final int UNDERFLOW = 0x4;
+
+	/**
+	 * The encoded value is a non-zero sub-normal number
+	 */
+	public static final int SUBNORMAL = 0x8;
+
+	/**
+	 * A NaN was encoded.  This library always writes the canonical quiet NaN,
+	 * so any payload carried by the original value was lost
+	 */
+	public static final int NAN = 0x10;
+
+	private static final int FLAG_COUNT = 5;
+
+	private int flags;
+	private long valueCount;
+	private final long[] counts;
+
+	public IEEE754Status()
+	{
+		counts = new long[FLAG_COUNT];
+	}
+
+	void raise(int raised)
+	{
+		valueCount++;
+		if (raised != 0)
+		{
+			flags |= raised;
+			for (int i = 0; i < FLAG_COUNT; i++)
+			{
+				if ((raised & (1 << i)) != 0)
+				{
+					counts[i]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the bitwise-or of every flag raised since the last
+	 * {@link #clear()}
+	 */
+	public int getFlags()
+	{
+		return flags;
+	}
+
+	public boolean test(int flag)
+	{
+		return (flags & flag) != 0;
+	}
+
+	/**
+	 * @param flag
+	 * a single flag constant, such as {@link #INEXACT}
+	 *
+	 * @return the number of encoded values that raised the flag
+	 */
+	public long getCount(int flag)
+	{
+		if (Integer.bitCount(flag) != 1
+				|| Integer.numberOfTrailingZeros(flag) >= FLAG_COUNT)
+		{
+			throw new IllegalArgumentException();
+		}
+		return counts[Integer.numberOfTrailingZeros(flag)];
+	}
+
+	/**
+	 * @return the number of values encoded while tracking this status
+	 */
+	public long getValueCount()
+	{
+		return valueCount;
+	}
+
+	public void add(IEEE754Status other)
+	{
+		flags |= other.flags;
+		valueCount += other.valueCount;
+		for (int i = 0; i < FLAG_COUNT; i++)
+		{
+			counts[i] += other.counts[i];
+		}
+	}
+
+	public void clear()
+	{
+		flags = 0;
+		valueCount = 0;
+		for (int i = 0; i < FLAG_COUNT; i++)
+		{
+			counts[i] = 0;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "inexact=" + counts[0]
+				+ ", overflow=" + counts[1]
+				+ ", underflow=" + counts[2]
+				+ ", subnormal=" + counts[3]
+				+ ", nan=" + counts[4]
+				+ " of " + valueCount;
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes a stream of back-to-back values that arrives as a sequence of 
+ * buffers, such as reads from a non-blocking channel.  Values may straddle 
+ * buffer boundaries: the partial value is kept until the rest of its bits 
+ * arrive.
+ * <p>
+ * Decoded values are pushed to a {@link Listener}, but only as many as have 
+ * been {@link #request(long) requested}.  When demand runs out, 
+ * {@link #feed(ByteBuffer)} stops consuming its buffer, leaving the remaining
+ * bytes for a later call.  A caller should stop reading from its channel 
+ * until the buffer has been fully consumed, which propagates the back-pressure
+ * to the sender.
+ * <p>
+ * A {@link BatchListener} receives the values decoded by each call to 
+ * {@link #feed(ByteBuffer)} in arrays, rather than one at a time.  The end 
+ * of the stream is signalled by {@link #complete()}, which reports either 
+ * completion or a truncated final value; {@link #cancel()} stops all further
+ * signals.
+ * <p>
+ * Instances aren't thread-safe, but never block: one thread can drive any 
+ * number of decoders.
+ */
+public final class IncrementalDecoder
+{
+	public interface Listener
+	{
+		void onValue(IEEE754 value);
+		
+		/**
+		 * Called once every value of the stream has been delivered
+		 */
+		void onComplete();
+		
+		/**
+		 * Called if the stream ended part-way through a value, with an 
+		 * {@link EOFException}
+		 */
+		void onError(Exception e);
+	}
+	
+	/**
+	 * Receives values in batches instead of through 
+	 * {@link Listener#onValue(IEEE754)}
+	 */
+	public interface BatchListener extends Listener
+	{
+		/**
+		 * The array is reused for the next batch, so its elements must be 
+		 * copied if they're kept
+		 */
+		void onValues(IEEE754[] values, int offset, int length);
+	}
+	
+	/**
+	 * The largest batch passed to {@link BatchListener#onValues(IEEE754[], 
+	 * int, int)}
+	 */
+	private static final int BATCH_SIZE = 256;
+	
+	private final IEEE754Format format;
+	private final Listener listener;
+	private final byte[] window;
+	private final ByteBuffer windowBuffer;
+	private final IEEE754[] batch;
+	
+	private int bitOffset;
+	private int byteCount;
+	private long demand;
+	private int batchLength;
+	private boolean completed;
+	private boolean cancelled;
+	
+	public IncrementalDecoder(IEEE754Format format, Listener listener)
+	{
+		if (format == null || listener == null)
+		{
+			throw new NullPointerException();
+		}
+		this.format = format;
+		this.listener = listener;
+		window = new byte[((format.getLength() + 7) >>> 3) + 1];
+		windowBuffer = ByteBuffer.wrap(window);
+		batch = listener instanceof BatchListener ? 
+				new IEEE754[BATCH_SIZE] : null;
+	}
+	
+	/**
+	 * Allows up to {@code n} more values to be decoded.  May be called from
+	 * the listener.
+	 */
+	public void request(long n)
+	{
+		if (n < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		demand += n;
+		if (demand < 0)
+		{
+			demand = Long.MAX_VALUE;
+		}
+	}
+	
+	public long getDemand()
+	{
+		return demand;
+	}
+	
+	/**
+	 * Consumes bytes from the buffer, decoding values while there is demand 
+	 * for them.
+	 * <p>
+	 * After {@link #cancel()}, the buffer's bytes are discarded.
+	 * 
+	 * @return {@code true} if every remaining byte of the buffer was consumed, 
+	 * {@code false} if decoding stopped due to a lack of demand
+	 */
+	public boolean feed(ByteBuffer chunk)
+	{
+		if (completed)
+		{
+			throw new IllegalStateException();
+		}
+		if (cancelled)
+		{
+			chunk.position(chunk.limit());
+			return true;
+		}
+		
+		/*
+		 * The listener may add demand while handling a batch, so decoding 
+		 * resumes until the demand or the buffer runs out
+		 */
+		do
+		{
+			decode(chunk);
+		}
+		while (batchLength > 0 && flushBatch() && chunk.hasRemaining());
+		return !chunk.hasRemaining();
+	}
+	
+	private void decode(ByteBuffer chunk)
+	{
+		final int length = format.getLength();
+		while (demand > 0 && !cancelled)
+		{
+			int needBytes = (bitOffset + length + 7) >>> 3;
+			while (byteCount < needBytes && chunk.hasRemaining())
+			{
+				window[byteCount++] = chunk.get();
+			}
+			if (byteCount < needBytes)
+			{
+				break;
+			}
+			
+			IEEE754 value = IEEE754.decode(format, windowBuffer, bitOffset);
+			
+			/*
+			 * Discard the whole bytes that have been consumed.  The last byte
+			 * may still hold the leading bits of the next value.
+			 */
+			bitOffset += length;
+			int drop = bitOffset >>> 3;
+			System.arraycopy(window, drop, window, 0, byteCount - drop);
+			byteCount -= drop;
+			bitOffset &= 0x7;
+			
+			demand--;
+			if (batch == null)
+			{
+				listener.onValue(value);
+			}
+			else
+			{
+				batch[batchLength++] = value;
+				if (batchLength == BATCH_SIZE)
+				{
+					flushBatch();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return {@code true} if there is still demand for values
+	 */
+	private boolean flushBatch()
+	{
+		int n = batchLength;
+		batchLength = 0;
+		if (!cancelled)
+		{
+			((BatchListener) listener).onValues(batch, 0, n);
+		}
+		return demand > 0 && !cancelled;
+	}
+	
+	/**
+	 * Signals the end of the stream, once every buffer has been consumed.  
+	 * The listener's {@link Listener#onComplete()} is called, unless 8 or 
+	 * more bits of a value remain buffered, in which case 
+	 * {@link Listener#onError(Exception)} is called instead.
+	 */
+	public void complete()
+	{
+		if (completed)
+		{
+			throw new IllegalStateException();
+		}
+		completed = true;
+		if (cancelled)
+		{
+			return;
+		}
+		if (getBufferedBitCount() >= 8)
+		{
+			listener.onError(new EOFException());
+		}
+		else
+		{
+			listener.onComplete();
+		}
+	}
+	
+	/**
+	 * Stops decoding: the listener receives no further calls
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+	
+	/**
+	 * @return the number of received bits that are not yet part of a decoded
+	 * value.  At the end of a stream, this should be less than 8 (the padding
+	 * of the final byte).
+	 */
+	public int getBufferedBitCount()
+	{
+		return (byteCount << 3) - bitOffset;
+	}
+}
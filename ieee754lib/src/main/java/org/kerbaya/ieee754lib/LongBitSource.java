@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+/**
+ * Reads the low-order bits of a {@code long}, most significant first
+ */
+final class LongBitSource implements SkippableBitSource
+{
+	private final long bits;
+	
+	private int index;
+	
+	public LongBitSource(long bits, int count)
+	{
+		if (count < 0 || count > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.bits = bits;
+		index = count;
+	}
+
+	@Override
+	public boolean next()
+	{
+		if (index == 0)
+		{
+			throw new IllegalStateException();
+		}
+		index--;
+		return (bits & (1L << index)) != 0;
+	}
+	
+	@Override
+	public void skipBits(long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (count > index)
+		{
+			throw new IllegalStateException();
+		}
+		index -= count;
+	}
+}
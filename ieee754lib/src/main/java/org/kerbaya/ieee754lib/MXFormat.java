@@ -0,0 +1,327 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * A block floating-point format, as in the OCP Microscaling (MX) formats: 
+ * each block of values shares one power-of-two scale, and each value is 
+ * stored in a narrow element format.
+ * <p>
+ * Packed values are grouped into blocks of {@link #getBlockSize()} (the last 
+ * may be shorter).  Each block is an 8-bit scale, followed by its elements 
+ * back-to-back.  The scale is an unsigned exponent with a bias of 127 (as in
+ * E8M0), or {@code 0xFF} if the block holds a NaN, in which case every 
+ * element decodes as NaN.  Blocks follow each other with no padding, and 
+ * only the end of the whole sequence is padded to a byte.
+ * <p>
+ * Encoding picks the scale that brings the block's largest magnitude into the
+ * element format's top binade; elements then round to nearest, ties to even,
+ * and saturate at the element format's largest finite value instead of 
+ * overflowing.
+ * <p>
+ * Element formats keep their IEEE 754 meaning: the largest exponent is 
+ * reserved for infinity and NaN.  Only {@link #FP8_E5M2} matches its OCP 
+ * counterpart.  The others are named for their IEEE 754 layout, as the OCP 
+ * formats of the same widths are finite-only and can't be described by an 
+ * {@link IEEE754Format}: {@link #IEEE_E4M3} tops out at 240 rather than 448,
+ * {@link #IEEE_E3M2} at 14 rather than 28, {@link #IEEE_E2M3} at 3.75 rather
+ * than 7.5, and {@link #IEEE_E2M1} at 3 rather than 6.
+ */
+public final class MXFormat
+{
+	public static final IEEE754Format FP8_E5M2 = 
+			new IEEE754Format(5, 2, BigInteger.valueOf(15));
+	
+	public static final IEEE754Format IEEE_E4M3 = 
+			new IEEE754Format(4, 3, BigInteger.valueOf(7));
+	
+	public static final IEEE754Format IEEE_E3M2 = 
+			new IEEE754Format(3, 2, BigInteger.valueOf(3));
+	
+	public static final IEEE754Format IEEE_E2M3 = 
+			new IEEE754Format(2, 3, BigInteger.ONE);
+	
+	public static final IEEE754Format IEEE_E2M1 = 
+			new IEEE754Format(2, 1, BigInteger.ONE);
+	
+	private static final int SCALE_LENGTH = 8;
+	private static final int SCALE_BIAS = 127;
+	private static final int SCALE_NAN = 0xFF;
+	
+	private final IEEE754Format elementFormat;
+	private final int blockSize;
+	private final double maxElement;
+	private final long maxElementBits;
+	private final long nanElementBits;
+	
+	/**
+	 * @param elementFormat
+	 * any format whose values, scaled by up to 2<sup>&plusmn;127</sup>, are
+	 * still {@code double} values
+	 */
+	public MXFormat(IEEE754Format elementFormat, int blockSize)
+	{
+		if (blockSize < 1
+				|| Transcoder.getMode(IEEE754Format.DOUBLE, elementFormat) 
+						!= Transcoder.MODE_LONG
+				|| elementFormat.getMantissaLength() > 52
+				|| elementFormat.maxExponent + SCALE_BIAS > 1023
+				|| elementFormat.minExponent 
+						- elementFormat.getMantissaLength() - SCALE_BIAS < -1074)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.elementFormat = elementFormat;
+		this.blockSize = blockSize;
+		maxElement = Math.scalb(
+				2D - Math.scalb(1D, -elementFormat.getMantissaLength()), 
+				elementFormat.maxExponent);
+		maxElementBits = encode(maxElement);
+		nanElementBits = encode(Double.NaN);
+	}
+	
+	public IEEE754Format getElementFormat()
+	{
+		return elementFormat;
+	}
+	
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
+	private long getBlockBitLength()
+	{
+		return SCALE_LENGTH + (long) blockSize * elementFormat.getLength();
+	}
+	
+	/**
+	 * @return the number of bytes occupied by {@code count} packed values
+	 */
+	public int getPackedLength(int count)
+	{
+		long blockCount = (count + (long) blockSize - 1) / blockSize;
+		return (int) ((blockCount * SCALE_LENGTH 
+				+ (long) count * elementFormat.getLength() + 7) >>> 3);
+	}
+	
+	private long encode(double value)
+	{
+		return Transcoder.encode(IEEE754Format.DOUBLE, elementFormat, 
+				Double.doubleToRawLongBits(value), null);
+	}
+	
+	private static double get(Object array, int index)
+	{
+		return array instanceof double[] ? 
+				((double[]) array)[index] : ((float[]) array)[index];
+	}
+	
+	/**
+	 * @return the biased scale for the values from {@code from} (inclusive) 
+	 * to {@code to} (exclusive)
+	 */
+	private int selectScale(Object src, int from, int to)
+	{
+		double max = 0D;
+		for (int i = from; i < to; i++)
+		{
+			double value = get(src, i);
+			if (Double.isNaN(value))
+			{
+				return SCALE_NAN;
+			}
+			if (!Double.isInfinite(value))
+			{
+				max = Math.max(max, Math.abs(value));
+			}
+		}
+		if (max == 0D)
+		{
+			return SCALE_BIAS;
+		}
+		int exponent = Math.getExponent(max) - elementFormat.maxExponent;
+		return Math.max(-SCALE_BIAS, Math.min(SCALE_BIAS, exponent)) 
+				+ SCALE_BIAS;
+	}
+	
+	private long encodeElement(double value, int exponent, IEEE754Status status)
+	{
+		double scaled = Math.scalb(value, -exponent);
+		if (Math.abs(scaled) > maxElement && !Double.isInfinite(scaled))
+		{
+			if (status != null)
+			{
+				status.raise(IEEE754Status.INEXACT);
+			}
+			return scaled < 0 ? 
+					maxElementBits | 1L << (elementFormat.getLength() - 1) 
+					: maxElementBits;
+		}
+		return Transcoder.encode(IEEE754Format.DOUBLE, elementFormat, 
+				Double.doubleToRawLongBits(scaled), status);
+	}
+	
+	private void encode(
+			Object src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		final int elementLength = elementFormat.getLength();
+		long bit = (long) dest.position() << 3;
+		for (int from = offset; from < offset + length; from += blockSize)
+		{
+			int to = Math.min(offset + length, from + blockSize);
+			int scale = selectScale(src, from, to);
+			BitUtils.writeBits(dest, bit, scale, SCALE_LENGTH);
+			bit += SCALE_LENGTH;
+			for (int i = from; i < to; i++)
+			{
+				long bits;
+				if (scale == SCALE_NAN)
+				{
+					bits = nanElementBits;
+					if (status != null)
+					{
+						status.raise(IEEE754Status.NAN);
+					}
+				}
+				else
+				{
+					bits = encodeElement(
+							get(src, i), scale - SCALE_BIAS, status);
+				}
+				BitUtils.writeBits(dest, bit, bits, elementLength);
+				bit += elementLength;
+			}
+		}
+		dest.position((int) ((bit + 7) >>> 3));
+	}
+	
+	/**
+	 * Packs {@code length} values into {@code dest}, starting at its position,
+	 * which is advanced past the bytes written
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while encoding each
+	 * element
+	 */
+	public void encode(
+			double[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		encode((Object) src, offset, length, dest, status);
+	}
+	
+	public void encode(
+			float[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		encode((Object) src, offset, length, dest, status);
+	}
+	
+	private double decodeElement(int scale, long bits)
+	{
+		if (scale == SCALE_NAN)
+		{
+			return Double.NaN;
+		}
+		return Math.scalb(Double.longBitsToDouble(Transcoder.decode(
+				elementFormat, IEEE754Format.DOUBLE, bits, null)), 
+						scale - SCALE_BIAS);
+	}
+	
+	private void decode(ByteBuffer src, Object dest, int offset, int length)
+	{
+		final int elementLength = elementFormat.getLength();
+		long bit = (long) src.position() << 3;
+		for (int from = offset; from < offset + length; from += blockSize)
+		{
+			int to = Math.min(offset + length, from + blockSize);
+			int scale = (int) BitUtils.readBits(src, bit, SCALE_LENGTH);
+			bit += SCALE_LENGTH;
+			for (int i = from; i < to; i++)
+			{
+				double value = decodeElement(
+						scale, BitUtils.readBits(src, bit, elementLength));
+				bit += elementLength;
+				if (dest instanceof double[])
+				{
+					((double[]) dest)[i] = value;
+				}
+				else
+				{
+					((float[]) dest)[i] = (float) value;
+				}
+			}
+		}
+		src.position((int) ((bit + 7) >>> 3));
+	}
+	
+	/**
+	 * Unpacks {@code length} values from {@code src}, starting at its 
+	 * position, which is advanced past the bytes read
+	 */
+	public void decode(ByteBuffer src, double[] dest, int offset, int length)
+	{
+		decode(src, (Object) dest, offset, length);
+	}
+	
+	/**
+	 * Unpacks values as {@code double}s, then rounds them to the nearest 
+	 * {@code float}
+	 */
+	public void decode(ByteBuffer src, float[] dest, int offset, int length)
+	{
+		decode(src, (Object) dest, offset, length);
+	}
+	
+	/**
+	 * Unpacks a single value from values packed starting at {@code src}'s 
+	 * position, without reading the others.  The buffer's position isn't 
+	 * modified.
+	 */
+	public double get(ByteBuffer src, int index)
+	{
+		final int elementLength = elementFormat.getLength();
+		long blockBit = ((long) src.position() << 3) 
+				+ index / blockSize * getBlockBitLength();
+		int scale = (int) BitUtils.readBits(src, blockBit, SCALE_LENGTH);
+		long elementBit = blockBit + SCALE_LENGTH 
+				+ (long) (index % blockSize) * elementLength;
+		return decodeElement(
+				scale, BitUtils.readBits(src, elementBit, elementLength));
+	}
+}
@@ -0,0 +1,736 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A posit format (type III unum), of a given length and number of exponent 
+ * bits ({@code es}).
+ * <p>
+ * After the sign, a posit holds a run-length encoded regime {@code k}, up to
+ * {@code es} exponent bits {@code e}, and the remaining bits of the fraction.
+ * Its value is 1.<i>fraction</i> &times; 2<sup>k &times; 2<sup>es</sup> + 
+ * e</sup>, negated in two's complement.  There's a single zero, and a single
+ * exception value, NaR ("not a real"), which is decoded as 
+ * {@link IEEE754#NaN}.  NaN and both infinities are encoded as NaR.
+ * <p>
+ * Encoding rounds to nearest, ties to even, on the bit pattern, as the posit 
+ * standard specifies; but never to zero or NaR: values beyond the largest or 
+ * smallest posit are encoded as that posit.  Rounding raises 
+ * {@link IEEE754Status#INEXACT}, and encoding NaR raises 
+ * {@link IEEE754Status#NAN}.
+ * <p>
+ * Values are held in the low-order bits of a {@code long}, and packed by 
+ * {@link BitSink}s and buffers most-significant bit first, as 
+ * {@link IEEE754Format}s are.  For formats no more than 16 bits long, whose 
+ * values are all exactly {@code double}s, the bulk {@code double[]} methods 
+ * use a table with an entry per encoding.
+ */
+public final class PositFormat
+{
+	/**
+	 * 8 bits, {@code es} = 2, as in the 2022 posit standard
+	 */
+	public static final PositFormat POSIT8 = new PositFormat(8, 2);
+	
+	/**
+	 * 16 bits, {@code es} = 2, as in the 2022 posit standard
+	 */
+	public static final PositFormat POSIT16 = new PositFormat(16, 2);
+	
+	/**
+	 * 32 bits, {@code es} = 2, as in the 2022 posit standard
+	 */
+	public static final PositFormat POSIT32 = new PositFormat(32, 2);
+	
+	/**
+	 * 64 bits, {@code es} = 2, as in the 2022 posit standard
+	 */
+	public static final PositFormat POSIT64 = new PositFormat(64, 2);
+	
+	/**
+	 * Keeps the scale of every posit an {@code int}
+	 */
+	private static final int MAX_EXPONENT_LENGTH = 24;
+	
+	private static final int MAX_TABLE_LENGTH = 16;
+	
+	/**
+	 * Beyond the scale of any posit, but safe from overflow
+	 */
+	private static final long SCALE_LIMIT = 1L << 40;
+	
+	private static final long FRACTION_MASK = 
+			(1L << Transcoder.LEADING_BIT) - 1;
+	
+	private static final class Tables
+	{
+		/**
+		 * The value of every encoding
+		 */
+		final double[] values;
+		
+		/**
+		 * For each positive posit but the largest, the value halfway to the 
+		 * next: the value of the posit one bit longer, with the same bits and
+		 * a trailing one
+		 */
+		final double[] thresholds;
+		
+		Tables(double[] values, double[] thresholds)
+		{
+			this.values = values;
+			this.thresholds = thresholds;
+		}
+	}
+	
+	private static final Tables NO_TABLES = new Tables(null, null);
+	
+	private final int length;
+	private final int exponentLength;
+	private final long mask;
+	private final long nar;
+	private final long maxPos;
+	
+	/**
+	 * The scale of the largest posit: that of the smallest is its negation
+	 */
+	private final int maxScale;
+	
+	/**
+	 * Built on demand.  Races only build them more than once.
+	 */
+	private Tables tables;
+	
+	public PositFormat(int length, int exponentLength)
+	{
+		if (length < 2 || length > 64 
+				|| exponentLength < 0 
+				|| exponentLength > MAX_EXPONENT_LENGTH)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.length = length;
+		this.exponentLength = exponentLength;
+		mask = -1L >>> (64 - length);
+		nar = 1L << (length - 1);
+		maxPos = nar - 1;
+		maxScale = (length - 2) << exponentLength;
+	}
+	
+	/**
+	 * @return the total number of bits in an encoded value
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * @return the maximum number of exponent bits ({@code es})
+	 */
+	public int getExponentLength()
+	{
+		return exponentLength;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return length * 31 + exponentLength;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		if (!(obj instanceof PositFormat))
+		{
+			return false;
+		}
+		PositFormat other = (PositFormat) obj;
+		return length == other.length 
+				&& exponentLength == other.exponentLength;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "posit" + length + "(es=" + exponentLength + ")";
+	}
+	
+	private static void raise(IEEE754Status status, int flags)
+	{
+		if (status != null)
+		{
+			status.raise(flags);
+		}
+	}
+	
+	/**
+	 * @return the magnitude of a posit that's neither zero nor NaR, 
+	 * left-aligned, without its sign bit
+	 */
+	private long getMagnitude(long bits)
+	{
+		long p = bits & mask;
+		if ((p & nar) != 0)
+		{
+			p = -p & mask;
+		}
+		return p << (65 - length);
+	}
+	
+	/**
+	 * @return the exponent of the leading bit of a posit's magnitude
+	 */
+	private int getScale(long magnitude)
+	{
+		int k = magnitude < 0 ? 
+				Long.numberOfLeadingZeros(~magnitude) - 1 
+				: -Long.numberOfLeadingZeros(magnitude);
+		int regimeLength = k < 0 ? 1 - k : k + 2;
+		long rest = regimeLength >= 64 ? 0 : magnitude << regimeLength;
+		int e = exponentLength == 0 ? 
+				0 : (int) (rest >>> (64 - exponentLength));
+		return (k << exponentLength) + e;
+	}
+	
+	/**
+	 * @return the significand of a posit's magnitude, with its leading bit at 
+	 * {@link Transcoder#LEADING_BIT}
+	 */
+	private long getSignificand(long magnitude, int scale)
+	{
+		int k = scale >> exponentLength;
+		int shift = (k < 0 ? 1 - k : k + 2) + exponentLength;
+		long fraction = shift >= 64 ? 0 : magnitude << shift;
+		return 1L << Transcoder.LEADING_BIT | fraction >>> 2;
+	}
+	
+	/**
+	 * Rounds a finite non-zero value into this format
+	 * 
+	 * @param scale
+	 * the exponent of the significand's leading bit
+	 * 
+	 * @param significand
+	 * the significand, with its leading bit at {@link Transcoder#LEADING_BIT}
+	 * 
+	 * @param sticky
+	 * whether any set bits were dropped from the right of the significand
+	 */
+	private long pack(
+			boolean negative, 
+			long scale, 
+			long significand, 
+			boolean sticky, 
+			IEEE754Status status)
+	{
+		long r;
+		boolean inexact;
+		if (scale > maxScale)
+		{
+			r = maxPos;
+			inexact = true;
+		}
+		else if (scale < -maxScale)
+		{
+			r = 1;
+			inexact = true;
+		}
+		else
+		{
+			int k = (int) (scale >> exponentLength);
+			long e = scale - ((long) k << exponentLength);
+			int regimeLength;
+			long regime;
+			if (k < 0)
+			{
+				regimeLength = 1 - k;
+				regime = 1;
+			}
+			else
+			{
+				regimeLength = k + 2;
+				regime = ((1L << (k + 1)) - 1) << 1;
+			}
+			
+			/*
+			 * The exponent and fraction, left-aligned: the fraction's lowest
+			 * bits only count toward stickiness
+			 */
+			long fraction = significand & FRACTION_MASK;
+			long tail = (exponentLength == 0 ? 0 : e << (64 - exponentLength))
+					| fraction << 2 >>> exponentLength;
+			if (exponentLength > 2)
+			{
+				sticky |= (fraction & ((1L << (exponentLength - 2)) - 1)) != 0;
+			}
+			
+			/*
+			 * Everything but the sign, plus a rounding bit
+			 */
+			int available = length - regimeLength;
+			long rounded = regime << available;
+			if (available != 0)
+			{
+				rounded |= tail >>> (64 - available);
+				sticky |= tail << available != 0;
+			}
+			else
+			{
+				sticky |= tail != 0;
+			}
+			boolean half = (rounded & 1) != 0;
+			r = rounded >>> 1;
+			inexact = half || sticky;
+			if (half && (sticky || (r & 1) != 0))
+			{
+				r++;
+			}
+		}
+		raise(status, inexact ? IEEE754Status.INEXACT : 0);
+		return negative ? -r & mask : r;
+	}
+	
+	/**
+	 * @return a value of a format no more than 64 bits long, rounded into 
+	 * this format
+	 */
+	private long fromPrimitive(
+			IEEE754Format source, 
+			long bits, 
+			IEEE754Status status)
+	{
+		final int mantissaLength = source.getMantissaLength();
+		final boolean negative = (bits >>> (source.getLength() - 1) & 1) != 0;
+		final int exponentBits = (int) (bits >>> mantissaLength) 
+				& source.maxExponentBits;
+		long mantissa = bits & ((1L << mantissaLength) - 1);
+		if (exponentBits == source.maxExponentBits)
+		{
+			raise(status, IEEE754Status.NAN);
+			return nar;
+		}
+		int scale;
+		if (exponentBits == 0)
+		{
+			if (mantissa == 0)
+			{
+				raise(status, 0);
+				return 0;
+			}
+			int leadingBit = 63 - Long.numberOfLeadingZeros(mantissa);
+			scale = source.minExponent - mantissaLength + leadingBit;
+			mantissa <<= Transcoder.LEADING_BIT - leadingBit;
+		}
+		else
+		{
+			scale = exponentBits - source.bias;
+			mantissa = (mantissa | 1L << mantissaLength) 
+					<< (Transcoder.LEADING_BIT - mantissaLength);
+		}
+		return pack(negative, scale, mantissa, false, status);
+	}
+	
+	/**
+	 * @return the posit in the low-order bits of {@code bits} as a value of a
+	 * primitive format no more than 64 bits long
+	 */
+	private long toPrimitive(
+			IEEE754Format target, 
+			long bits, 
+			IEEE754Status status)
+	{
+		bits &= mask;
+		if (bits == 0)
+		{
+			raise(status, 0);
+			return 0;
+		}
+		if (bits == nar)
+		{
+			raise(status, IEEE754Status.NAN);
+			return Transcoder.nan(target);
+		}
+		long magnitude = getMagnitude(bits);
+		int scale = getScale(magnitude);
+		return Transcoder.pack(target, (bits & nar) != 0, scale, 
+				getSignificand(magnitude, scale), false, status);
+	}
+	
+	private static boolean isLongPrimitive(IEEE754Format format)
+	{
+		return format.primitive && format.getLength() <= 64;
+	}
+	
+	/**
+	 * @return the value of the posit in the low-order bits of {@code bits}
+	 */
+	public IEEE754 decode(long bits)
+	{
+		bits &= mask;
+		if (bits == 0)
+		{
+			return IEEE754.POSITIVE_ZERO;
+		}
+		if (bits == nar)
+		{
+			return IEEE754.NaN;
+		}
+		long magnitude = getMagnitude(bits);
+		int scale = getScale(magnitude);
+		long significand = getSignificand(magnitude, scale);
+		int shift = Long.numberOfTrailingZeros(significand);
+		significand >>>= shift;
+		return new IEEE754.IEEE754Number(
+				BigInteger.valueOf(
+						(long) scale - Transcoder.LEADING_BIT + shift), 
+				BigInteger.valueOf((bits & nar) != 0 ? 
+						-significand : significand));
+	}
+	
+	public IEEE754 decode(BitSource in)
+	{
+		return decode(BitUtils.readBits(in, length));
+	}
+	
+	/**
+	 * @return the value of the posit, rounded to the nearest {@code double}
+	 */
+	public double toDouble(long bits, IEEE754Status status)
+	{
+		return Double.longBitsToDouble(
+				toPrimitive(IEEE754Format.DOUBLE, bits, status));
+	}
+	
+	/**
+	 * @return the nearest posit to the value, in the low-order bits
+	 */
+	public long encode(IEEE754 value, IEEE754Status status)
+	{
+		value = value.resolve();
+		if (!(value instanceof IEEE754.IEEE754Number))
+		{
+			if (value.doubleValue() == 0)
+			{
+				raise(status, 0);
+				return 0;
+			}
+			raise(status, IEEE754Status.NAN);
+			return nar;
+		}
+		IEEE754.IEEE754Number number = (IEEE754.IEEE754Number) value;
+		BigInteger significand = number.getSignificand();
+		boolean negative = significand.signum() < 0;
+		significand = significand.abs();
+		int bitLength = significand.bitLength();
+		if (bitLength == 0)
+		{
+			raise(status, 0);
+			return 0;
+		}
+		BigInteger exponent = number.getExponent().add(
+				BigInteger.valueOf(bitLength - 1));
+		long scale = exponent.bitLength() > 40 ? 
+				(exponent.signum() < 0 ? -SCALE_LIMIT : SCALE_LIMIT) 
+				: exponent.longValue();
+		int shift = bitLength - 1 - Transcoder.LEADING_BIT;
+		long aligned;
+		boolean sticky;
+		if (shift <= 0)
+		{
+			aligned = significand.longValue() << -shift;
+			sticky = false;
+		}
+		else
+		{
+			aligned = significand.shiftRight(shift).longValue();
+			sticky = significand.getLowestSetBit() < shift;
+		}
+		return pack(negative, scale, aligned, sticky, status);
+	}
+	
+	public void encode(IEEE754 value, BitSink out, IEEE754Status status)
+	{
+		BitUtils.writeBits(out, encode(value, status), length);
+	}
+	
+	/**
+	 * @return the nearest posit to the value, in the low-order bits
+	 */
+	public long fromDouble(double value, IEEE754Status status)
+	{
+		return fromPrimitive(IEEE754Format.DOUBLE, 
+				Double.doubleToRawLongBits(value), status);
+	}
+	
+	/**
+	 * Rounds a value of the source format, which must be no more than 64 bits 
+	 * long, to the nearest posit
+	 * 
+	 * @param bits
+	 * the value in the source format, in the low-order bits
+	 * 
+	 * @return the posit, in the low-order bits
+	 */
+	public long fromFormat(
+			IEEE754Format source, 
+			long bits, 
+			IEEE754Status status)
+	{
+		if (source.getLength() > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (isLongPrimitive(source))
+		{
+			return fromPrimitive(source, bits, status);
+		}
+		return encode(IEEE754.decode(source, bits), status);
+	}
+	
+	/**
+	 * Converts one value from {@code in}, encoded in the source format, to a 
+	 * posit, writing it to {@code out}
+	 */
+	public void fromFormat(
+			IEEE754Format source, 
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		long r = isLongPrimitive(source) ? 
+				fromPrimitive(source, 
+						BitUtils.readBits(in, source.getLength()), status)
+				: encode(IEEE754.decode(source, in), status);
+		BitUtils.writeBits(out, r, length);
+	}
+	
+	/**
+	 * Rounds a posit to the target format, which must be no more than 64 bits
+	 * long
+	 * 
+	 * @param bits
+	 * the posit, in the low-order bits
+	 * 
+	 * @return the value in the target format, in the low-order bits
+	 */
+	public long toFormat(
+			IEEE754Format target, 
+			long bits, 
+			IEEE754Status status)
+	{
+		if (target.getLength() > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		if (isLongPrimitive(target))
+		{
+			return toPrimitive(target, bits, status);
+		}
+		LongBitSink out = new LongBitSink();
+		decode(bits).toBits(target, out, status);
+		return out.getBits();
+	}
+	
+	/**
+	 * Converts one posit from {@code in} to the target format, writing it to 
+	 * {@code out}
+	 */
+	public void toFormat(
+			IEEE754Format target, 
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		long bits = BitUtils.readBits(in, length);
+		if (isLongPrimitive(target))
+		{
+			BitUtils.writeBits(out, toPrimitive(target, bits, status), 
+					target.getLength());
+		}
+		else
+		{
+			decode(bits).toBits(target, out, status);
+		}
+	}
+	
+	/**
+	 * @return the tables, or {@link #NO_TABLES} if this format is too long, 
+	 * or has values that aren't exactly {@code double}s
+	 */
+	private Tables getTables()
+	{
+		Tables r = tables;
+		if (r == null)
+		{
+			r = NO_TABLES;
+			if (length <= MAX_TABLE_LENGTH)
+			{
+				IEEE754Status status = new IEEE754Status();
+				double[] values = new double[1 << length];
+				for (int i = 0; i < values.length; i++)
+				{
+					values[i] = toDouble(i, status);
+				}
+				PositFormat longer = new PositFormat(
+						length + 1, exponentLength);
+				double[] thresholds = new double[(int) maxPos - 1];
+				for (int i = 0; i < thresholds.length; i++)
+				{
+					thresholds[i] = longer.toDouble(
+							(long) (i + 1) << 1 | 1, status);
+				}
+				if (!status.test(IEEE754Status.INEXACT))
+				{
+					r = new Tables(values, thresholds);
+				}
+			}
+			tables = r;
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the nearest posit to a value, through the tables
+	 */
+	private long fromDouble(Tables tables, double value, IEEE754Status status)
+	{
+		if (value == 0)
+		{
+			raise(status, 0);
+			return 0;
+		}
+		if (Double.isNaN(value) || Double.isInfinite(value))
+		{
+			raise(status, IEEE754Status.NAN);
+			return nar;
+		}
+		double magnitude = Math.abs(value);
+		int i = Arrays.binarySearch(tables.thresholds, magnitude);
+		long r;
+		if (i >= 0)
+		{
+			/*
+			 * A tie between posits i + 1 and i + 2
+			 */
+			r = (i & 1) == 0 ? i + 2 : i + 1;
+			raise(status, IEEE754Status.INEXACT);
+		}
+		else
+		{
+			r = -i;
+			raise(status, tables.values[(int) r] == magnitude ? 
+					0 : IEEE754Status.INEXACT);
+		}
+		return value < 0 ? -r & mask : r;
+	}
+	
+	/**
+	 * Decodes {@code length} values from {@code src}, starting at its 
+	 * position, which is advanced past the bytes read, including the padding
+	 * of the final byte
+	 */
+	public void decode(ByteBuffer src, IEEE754[] dest, int offset, int length)
+	{
+		long base = (long) src.position() << 3;
+		for (int i = 0; i < length; i++)
+		{
+			dest[offset + i] = decode(BitUtils.readBits(
+					src, base + (long) i * this.length, this.length));
+		}
+		src.position((int) ((base + (long) length * this.length + 7) >>> 3));
+	}
+	
+	/**
+	 * Decodes values, rounded to the nearest {@code double}
+	 */
+	public void decode(ByteBuffer src, double[] dest, int offset, int length)
+	{
+		long base = (long) src.position() << 3;
+		double[] values = getTables().values;
+		for (int i = 0; i < length; i++)
+		{
+			long bits = BitUtils.readBits(
+					src, base + (long) i * this.length, this.length);
+			dest[offset + i] = values == null ? 
+					toDouble(bits, null) : values[(int) bits];
+		}
+		src.position((int) ((base + (long) length * this.length + 7) >>> 3));
+	}
+	
+	/**
+	 * Encodes {@code length} values into {@code dest}, starting at its 
+	 * position, which is advanced past the bytes written, including the 
+	 * padding of the final byte
+	 */
+	public void encode(
+			IEEE754[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		long base = (long) dest.position() << 3;
+		for (int i = 0; i < length; i++)
+		{
+			BitUtils.writeBits(dest, base + (long) i * this.length, 
+					encode(src[offset + i], status), this.length);
+		}
+		dest.position(
+				(int) ((base + (long) length * this.length + 7) >>> 3));
+	}
+	
+	/**
+	 * Encodes the nearest posits to {@code double}s
+	 */
+	public void encode(
+			double[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest, 
+			IEEE754Status status)
+	{
+		long base = (long) dest.position() << 3;
+		Tables tables = getTables();
+		for (int i = 0; i < length; i++)
+		{
+			BitUtils.writeBits(dest, base + (long) i * this.length, 
+					tables == NO_TABLES ? 
+							fromDouble(src[offset + i], status) 
+							: fromDouble(tables, src[offset + i], status), 
+					this.length);
+		}
+		dest.position(
+				(int) ((base + (long) length * this.length + 7) >>> 3));
+	}
+}
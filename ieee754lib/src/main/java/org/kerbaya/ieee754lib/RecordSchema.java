@@ -0,0 +1,638 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * The layout of a fixed-length binary record: a sequence of fields packed 
+ * back-to-back, with no alignment.  Fields may be floating-point values of 
+ * any {@link IEEE754Format}, signed or unsigned integers of 1 to 64 bits, 
+ * single bits, or padding.
+ * <p>
+ * The schema works out every field's bit offset once, on construction, and 
+ * reads and writes each field as a whole.  Values are held in a reusable 
+ * {@link Record} as their encoded bits, and only converted when accessed.  
+ * Whole columns can also be decoded straight into primitive arrays.
+ * <p>
+ * In buffers, records follow each other with no padding, and only the end of
+ * a sequence of records is padded to a byte, as written by the sinks from 
+ * {@link BitUtils}.
+ */
+public final class RecordSchema
+{
+	private static final int KIND_FLOAT = 0;
+	private static final int KIND_SIGNED = 1;
+	private static final int KIND_UNSIGNED = 2;
+	private static final int KIND_BIT = 3;
+	private static final int KIND_PADDING = 4;
+	
+	public static final class Field
+	{
+		private final int kind;
+		private final int length;
+		private final IEEE754Format format;
+		
+		private Field(int kind, int length, IEEE754Format format)
+		{
+			this.kind = kind;
+			this.length = length;
+			this.format = format;
+		}
+		
+		/**
+		 * @return the number of bits the field occupies
+		 */
+		public int getLength()
+		{
+			return length;
+		}
+		
+		/**
+		 * @return the format of a floating-point field, otherwise 
+		 * {@code null}
+		 */
+		public IEEE754Format getFormat()
+		{
+			return format;
+		}
+	}
+	
+	/**
+	 * The encoded bits of one record's fields
+	 */
+	public final class Record
+	{
+		private final long[] bits = new long[fields.length];
+		
+		/**
+		 * The bits of fields longer than 64 bits; otherwise {@code null}
+		 */
+		private final BigInteger[] bigBits = new BigInteger[fields.length];
+		
+		private Record()
+		{
+			for (int i = 0; i < fields.length; i++)
+			{
+				if (fields[i].length > 64)
+				{
+					bigBits[i] = BigInteger.ZERO;
+				}
+			}
+		}
+		
+		public RecordSchema getSchema()
+		{
+			return RecordSchema.this;
+		}
+		
+		/**
+		 * @return the value of a floating-point field
+		 */
+		public IEEE754 get(int field)
+		{
+			IEEE754Format format = getFormat(field, KIND_FLOAT);
+			return bigBits[field] == null ? 
+					new IEEE754.IEEE754Bits(format, bits[field]) 
+					: new IEEE754.IEEE754Bits(format, bigBits[field]);
+		}
+		
+		/**
+		 * @return the value of a floating-point field, rounded to the nearest
+		 * {@code double}
+		 */
+		public double getDouble(int field)
+		{
+			IEEE754Format format = getFormat(field, KIND_FLOAT);
+			if (toDoubleModes[field] == Transcoder.MODE_LONG)
+			{
+				return Double.longBitsToDouble(Transcoder.decode(
+						format, IEEE754Format.DOUBLE, bits[field], null));
+			}
+			return get(field).doubleValue();
+		}
+		
+		/**
+		 * @return the value of an integer field, sign-extended if the field 
+		 * is signed; or of a bit field, as 0 or 1
+		 */
+		public long getLong(int field)
+		{
+			switch (fields[field].kind)
+			{
+			case KIND_SIGNED:
+				int shift = 64 - fields[field].length;
+				return bits[field] << shift >> shift;
+			case KIND_UNSIGNED:
+			case KIND_BIT:
+				return bits[field];
+			default:
+				throw new IllegalArgumentException();
+			}
+		}
+		
+		public boolean getBoolean(int field)
+		{
+			getFormat(field, KIND_BIT);
+			return bits[field] != 0;
+		}
+		
+		/**
+		 * Sets a floating-point field, rounding the value to the field's 
+		 * format
+		 * 
+		 * @param status
+		 * if not {@code null}, accumulates the flags raised while rounding
+		 */
+		public void set(int field, IEEE754 value, IEEE754Status status)
+		{
+			IEEE754Format format = getFormat(field, KIND_FLOAT);
+			if (bigBits[field] == null)
+			{
+				LongBitSink sink = new LongBitSink();
+				value.toBits(format, sink, status);
+				bits[field] = sink.getBits();
+			}
+			else
+			{
+				bigBits[field] = value.toBigIntegerBits(format, status);
+			}
+		}
+		
+		public void set(int field, double value, IEEE754Status status)
+		{
+			IEEE754Format format = getFormat(field, KIND_FLOAT);
+			if (fromDoubleModes[field] == Transcoder.MODE_LONG)
+			{
+				bits[field] = Transcoder.encode(IEEE754Format.DOUBLE, 
+						format, Double.doubleToRawLongBits(value), status);
+			}
+			else
+			{
+				set(field, IEEE754.valueOf(value), status);
+			}
+		}
+		
+		public void set(int field, double value)
+		{
+			set(field, value, null);
+		}
+		
+		/**
+		 * Sets an integer field
+		 * 
+		 * @throws IllegalArgumentException
+		 * if the value doesn't fit in the field
+		 */
+		public void setLong(int field, long value)
+		{
+			final int length = fields[field].length;
+			switch (fields[field].kind)
+			{
+			case KIND_SIGNED:
+				if (length < 64 && value >> (length - 1) != value >> 63)
+				{
+					throw new IllegalArgumentException();
+				}
+				bits[field] = length == 64 ? 
+						value : value & ((1L << length) - 1);
+				break;
+			case KIND_UNSIGNED:
+				if (length < 64 && value >>> length != 0)
+				{
+					throw new IllegalArgumentException();
+				}
+				bits[field] = value;
+				break;
+			default:
+				throw new IllegalArgumentException();
+			}
+		}
+		
+		public void setBoolean(int field, boolean value)
+		{
+			getFormat(field, KIND_BIT);
+			bits[field] = value ? 1 : 0;
+		}
+		
+		/**
+		 * Copies every field from another record of the same schema
+		 */
+		public void set(Record other)
+		{
+			if (other.getSchema() != RecordSchema.this)
+			{
+				throw new IllegalArgumentException();
+			}
+			System.arraycopy(other.bits, 0, bits, 0, bits.length);
+			System.arraycopy(other.bigBits, 0, bigBits, 0, bigBits.length);
+		}
+		
+		private IEEE754Format getFormat(int field, int kind)
+		{
+			if (fields[field].kind != kind)
+			{
+				throw new IllegalArgumentException();
+			}
+			return fields[field].format;
+		}
+	}
+	
+	private final Field[] fields;
+	
+	/**
+	 * The bit offset of each field from the start of its record
+	 */
+	private final int[] offsets;
+	
+	private final int[] toDoubleModes;
+	private final int[] fromDoubleModes;
+	private final int length;
+	
+	public RecordSchema(Field... fields)
+	{
+		if (fields.length == 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.fields = fields.clone();
+		offsets = new int[fields.length];
+		toDoubleModes = new int[fields.length];
+		fromDoubleModes = new int[fields.length];
+		long offset = 0;
+		for (int i = 0; i < fields.length; i++)
+		{
+			Field field = this.fields[i];
+			if (field == null)
+			{
+				throw new NullPointerException();
+			}
+			offsets[i] = (int) offset;
+			offset += field.length;
+			if (offset > Integer.MAX_VALUE)
+			{
+				throw new IllegalArgumentException();
+			}
+			if (field.kind == KIND_FLOAT)
+			{
+				toDoubleModes[i] = Transcoder.getMode(
+						field.format, IEEE754Format.DOUBLE);
+				fromDoubleModes[i] = Transcoder.getMode(
+						IEEE754Format.DOUBLE, field.format);
+			}
+		}
+		length = (int) offset;
+	}
+	
+	/**
+	 * A floating-point field, of the given format
+	 */
+	public static Field floatField(IEEE754Format format)
+	{
+		if (format == null)
+		{
+			throw new NullPointerException();
+		}
+		return new Field(KIND_FLOAT, format.getLength(), format);
+	}
+	
+	/**
+	 * A two's-complement integer field
+	 */
+	public static Field signedField(int length)
+	{
+		if (length < 1 || length > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		return new Field(KIND_SIGNED, length, null);
+	}
+	
+	/**
+	 * An unsigned integer field.  A 64-bit field's values are held in the
+	 * bits of a {@code long}, as in {@link Long#toBinaryString(long)}.
+	 */
+	public static Field unsignedField(int length)
+	{
+		if (length < 1 || length > 64)
+		{
+			throw new IllegalArgumentException();
+		}
+		return new Field(KIND_UNSIGNED, length, null);
+	}
+	
+	/**
+	 * A single-bit boolean field
+	 */
+	public static Field bitField()
+	{
+		return new Field(KIND_BIT, 1, null);
+	}
+	
+	/**
+	 * Unused bits, which are skipped when reading, and written as zeros
+	 */
+	public static Field paddingField(int length)
+	{
+		if (length < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		return new Field(KIND_PADDING, length, null);
+	}
+	
+	public int getFieldCount()
+	{
+		return fields.length;
+	}
+	
+	public Field getField(int field)
+	{
+		return fields[field];
+	}
+	
+	/**
+	 * @return the bit offset of the field from the start of its record
+	 */
+	public int getOffset(int field)
+	{
+		return offsets[field];
+	}
+	
+	/**
+	 * @return the number of bits in a record
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * @return the number of bytes occupied by {@code count} records
+	 */
+	public int getPackedLength(int count)
+	{
+		return (int) (((long) count * length + 7) >>> 3);
+	}
+	
+	public Record newRecord()
+	{
+		return new Record();
+	}
+	
+	private Record check(Record record)
+	{
+		if (record.getSchema() != this)
+		{
+			throw new IllegalArgumentException();
+		}
+		return record;
+	}
+	
+	/**
+	 * Reads one record's fields into {@code dest}
+	 */
+	public void read(BitSource in, Record dest)
+	{
+		check(dest);
+		for (int i = 0; i < fields.length; i++)
+		{
+			final int fieldLength = fields[i].length;
+			if (fields[i].kind == KIND_PADDING)
+			{
+				BitUtils.skipBits(in, fieldLength);
+			}
+			else if (fieldLength > 64)
+			{
+				dest.bigBits[i] = BitUtils.readBigBits(in, fieldLength);
+			}
+			else
+			{
+				dest.bits[i] = BitUtils.readBits(in, fieldLength);
+			}
+		}
+	}
+	
+	/**
+	 * Passes over {@code count} records, without reading whole bytes where the
+	 * source allows
+	 * 
+	 * @see BitUtils#skipBits(BitSource, long)
+	 */
+	public void skip(BitSource in, long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		BitUtils.skipBits(in, count * length);
+	}
+	
+	public void write(Record src, BitSink out)
+	{
+		check(src);
+		for (int i = 0; i < fields.length; i++)
+		{
+			final int fieldLength = fields[i].length;
+			if (fields[i].kind == KIND_PADDING)
+			{
+				for (int j = 0; j < fieldLength; j++)
+				{
+					out.write(false);
+				}
+			}
+			else if (fieldLength > 64)
+			{
+				BitUtils.writeBits(out, src.bigBits[i], fieldLength);
+			}
+			else
+			{
+				BitUtils.writeBits(out, src.bits[i], fieldLength);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the record starting at the given bit offset from index zero of 
+	 * the buffer.  Only absolute indexing is used: the buffer's position is 
+	 * neither used nor modified.
+	 */
+	public void read(ByteBuffer src, long bitOffset, Record dest)
+	{
+		check(dest);
+		for (int i = 0; i < fields.length; i++)
+		{
+			final int fieldLength = fields[i].length;
+			final long fieldOffset = bitOffset + offsets[i];
+			if (fields[i].kind == KIND_PADDING)
+			{
+				continue;
+			}
+			if (fieldLength > 64)
+			{
+				dest.bigBits[i] = BitUtils.readBigBits(
+						new AbsoluteBitSource(src, fieldOffset), fieldLength);
+			}
+			else
+			{
+				dest.bits[i] = BitUtils.readBits(src, fieldOffset, fieldLength);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the record starting at the given bit offset from index zero of 
+	 * the buffer.  Only absolute indexing is used: the buffer's position is 
+	 * neither used nor modified, and bits outside of the record are 
+	 * preserved.
+	 */
+	public void write(Record src, ByteBuffer dest, long bitOffset)
+	{
+		check(src);
+		for (int i = 0; i < fields.length; i++)
+		{
+			final int fieldLength = fields[i].length;
+			final long fieldOffset = bitOffset + offsets[i];
+			if (fields[i].kind == KIND_PADDING)
+			{
+				for (int j = 0; j < fieldLength; j += 64)
+				{
+					BitUtils.writeBits(dest, fieldOffset + j, 0, 
+							Math.min(64, fieldLength - j));
+				}
+			}
+			else if (fieldLength > 64)
+			{
+				BitUtils.writeBits(new AbsoluteBitSink(dest, fieldOffset), 
+						src.bigBits[i], fieldLength);
+			}
+			else
+			{
+				BitUtils.writeBits(dest, fieldOffset, src.bits[i], fieldLength);
+			}
+		}
+	}
+	
+	/**
+	 * Decodes {@code length} records from {@code src}, starting at its 
+	 * position, which is advanced past the bytes read
+	 */
+	public void decode(ByteBuffer src, Record[] dest, int offset, int length)
+	{
+		final long base = (long) src.position() << 3;
+		for (int i = 0; i < length; i++)
+		{
+			read(src, base + (long) i * this.length, dest[offset + i]);
+		}
+		src.position(src.position() + getPackedLength(length));
+	}
+	
+	/**
+	 * Encodes {@code length} records into {@code dest}, starting at its 
+	 * position, which is advanced past the bytes written, including the 
+	 * padding of the final byte
+	 */
+	public void encode(Record[] src, int offset, int length, ByteBuffer dest)
+	{
+		final long base = (long) dest.position() << 3;
+		for (int i = 0; i < length; i++)
+		{
+			write(src[offset + i], dest, base + (long) i * this.length);
+		}
+		long end = base + (long) length * this.length;
+		if ((end & 0x7) != 0)
+		{
+			BitUtils.writeBits(dest, end, 0, 8 - (int) (end & 0x7));
+		}
+		dest.position(dest.position() + getPackedLength(length));
+	}
+	
+	/**
+	 * Decodes one floating-point field of {@code count} records, starting at
+	 * the given bit offset from index zero of the buffer, rounding each value
+	 * to the nearest {@code double}.  The buffer's position is neither used 
+	 * nor modified.
+	 */
+	public void decode(
+			ByteBuffer src, 
+			long bitOffset, 
+			int field, 
+			double[] dest, 
+			int offset, 
+			int count)
+	{
+		if (fields[field].kind != KIND_FLOAT)
+		{
+			throw new IllegalArgumentException();
+		}
+		final IEEE754Format format = fields[field].format;
+		final int fieldLength = fields[field].length;
+		final int mode = toDoubleModes[field];
+		long fieldOffset = bitOffset + offsets[field];
+		for (int i = 0; i < count; i++, fieldOffset += length)
+		{
+			if (mode == Transcoder.MODE_LONG)
+			{
+				dest[offset + i] = Double.longBitsToDouble(
+						Transcoder.decode(format, IEEE754Format.DOUBLE, 
+								BitUtils.readBits(src, fieldOffset, fieldLength),
+								null));
+			}
+			else
+			{
+				dest[offset + i] = IEEE754.decode(
+						format, src, fieldOffset).doubleValue();
+			}
+		}
+	}
+	
+	/**
+	 * Decodes one integer or bit field of {@code count} records, as 
+	 * {@link Record#getLong(int)} does.  The buffer's position is neither 
+	 * used nor modified.
+	 */
+	public void decode(
+			ByteBuffer src, 
+			long bitOffset, 
+			int field, 
+			long[] dest, 
+			int offset, 
+			int count)
+	{
+		final int kind = fields[field].kind;
+		if (kind != KIND_SIGNED && kind != KIND_UNSIGNED && kind != KIND_BIT)
+		{
+			throw new IllegalArgumentException();
+		}
+		final int fieldLength = fields[field].length;
+		final int shift = kind == KIND_SIGNED ? 64 - fieldLength : 0;
+		long fieldOffset = bitOffset + offsets[field];
+		for (int i = 0; i < count; i++, fieldOffset += length)
+		{
+			dest[offset + i] = BitUtils.readBits(
+					src, fieldOffset, fieldLength) << shift >> shift;
+		}
+	}
+}
@@ -0,0 +1,659 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+/**
+ * Converts encoded values directly between formats.
+ * <p>
+ * Finite non-zero values are unpacked into a sign, the exponent of their 
+ * leading bit, and a significand held in a {@code long} with its leading bit 
+ * at {@link #LEADING_BIT}, plus a sticky flag for any set bits that didn't 
+ * fit.  Packing rounds that significand once into the target format.
+ * <p>
+ * Which path is taken depends on the pair of formats:
+ * <dl>
+ * <dt>{@link #MODE_LONG}</dt>
+ * <dd>both formats fit in a {@code long}</dd>
+ * <dt>{@link #MODE_LONG_TO_WIDE}</dt>
+ * <dd>the source fits in a {@code long}, and the wider target holds all of 
+ * its values as normal numbers</dd>
+ * <dt>{@link #MODE_WIDE_TO_LONG}</dt>
+ * <dd>the source is wide, but the target fits in a {@code long}: only the 
+ * leading source bits are kept, the rest go to the sticky flag</dd>
+ * <dt>{@link #MODE_WIDE_COPY}</dt>
+ * <dd>both formats are wide, and the target holds all of the source's values
+ * as normal numbers: mantissa bits are copied as they are read</dd>
+ * <dt>{@link #MODE_GENERIC}</dt>
+ * <dd>anything else, which decodes to an {@link IEEE754} value and 
+ * re-encodes it</dd>
+ * </dl>
+ * The {@code subnormals} parameters take the bitwise-or of 
+ * {@link IEEE754Format#FLUSH_TO_ZERO} and 
+ * {@link IEEE754Format#DENORMALS_ARE_ZERO}.
+ */
+final class Transcoder
+{
+	static final int MODE_LONG = 0;
+	static final int MODE_LONG_TO_WIDE = 1;
+	static final int MODE_WIDE_TO_LONG = 2;
+	static final int MODE_WIDE_COPY = 3;
+	static final int MODE_GENERIC = 4;
+	
+	static final int LEADING_BIT = 62;
+	
+	/**
+	 * No primitive format has an exponent this small
+	 */
+	private static final int NONE = Integer.MIN_VALUE;
+	
+	private Transcoder() {}
+	
+	/**
+	 * @return {@code true} if every value of the source is a normal number in
+	 * the target, with no loss of precision
+	 */
+	private static boolean covers(IEEE754Format source, IEEE754Format target)
+	{
+		return target.getMantissaLength() >= source.getMantissaLength()
+				&& target.maxExponent >= source.maxExponent
+				&& (long) target.minExponent 
+						<= (long) source.minExponent 
+								- source.getMantissaLength();
+	}
+	
+	static int getMode(IEEE754Format source, IEEE754Format target)
+	{
+		if (!source.primitive || !target.primitive)
+		{
+			return MODE_GENERIC;
+		}
+		boolean longSource = source.getLength() <= 64;
+		boolean longTarget = target.getLength() <= 64;
+		if (longTarget)
+		{
+			return longSource ? MODE_LONG : MODE_WIDE_TO_LONG;
+		}
+		if (!covers(source, target))
+		{
+			return MODE_GENERIC;
+		}
+		return longSource ? MODE_LONG_TO_WIDE : MODE_WIDE_COPY;
+	}
+	
+	private static void raise(IEEE754Status status, int flags)
+	{
+		if (status != null)
+		{
+			status.raise(flags);
+		}
+	}
+	
+	static long infinity(IEEE754Format format, boolean negative)
+	{
+		long r = (long) format.maxExponentBits << format.getMantissaLength();
+		return negative ? r | 1L << (format.getLength() - 1) : r;
+	}
+	
+	static long nan(IEEE754Format format)
+	{
+		return (long) format.maxExponentBits << format.getMantissaLength()
+				| 1L << (format.getMantissaLength() - 1);
+	}
+	
+	/**
+	 * @return {@code true} if the bits are any NaN of a format no more than 
+	 * 64 bits long
+	 */
+	static boolean isNaN(IEEE754Format format, long bits)
+	{
+		long magnitude = bits & ((1L << (format.getLength() - 1)) - 1);
+		return format.primitive 
+				? magnitude > (long) format.maxExponentBits 
+						<< format.getMantissaLength()
+				: IEEE754.decode(format, bits) == IEEE754.NaN;
+	}
+	
+	static long zero(IEEE754Format format, boolean negative)
+	{
+		return negative ? 1L << (format.getLength() - 1) : 0;
+	}
+	
+	private static boolean flushToZero(int subnormals)
+	{
+		return (subnormals & IEEE754Format.FLUSH_TO_ZERO) != 0;
+	}
+	
+	private static boolean denormalsAreZero(int subnormals)
+	{
+		return (subnormals & IEEE754Format.DENORMALS_ARE_ZERO) != 0;
+	}
+	
+	/**
+	 * @return the zero that a result below the smallest normal number is 
+	 * flushed to
+	 */
+	private static long flush(
+			IEEE754Format format, 
+			boolean negative, 
+			IEEE754Status status)
+	{
+		raise(status, IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT);
+		return zero(format, negative);
+	}
+	
+	/**
+	 * Rounds a finite non-zero value into a format no more than 64 bits long
+	 * 
+	 * @param exponent
+	 * the exponent of the significand's leading bit
+	 * 
+	 * @param significand
+	 * the significand, with its leading bit at {@link #LEADING_BIT}
+	 * 
+	 * @param sticky
+	 * whether any set bits were dropped from the right of the significand
+	 */
+	static long pack(
+			IEEE754Format format,
+			boolean negative,
+			int exponent,
+			long significand,
+			boolean sticky,
+			IEEE754Status status)
+	{
+		final int mantissaLength = format.getMantissaLength();
+		final long sign = zero(format, negative);
+		final boolean subnormal = exponent < format.minExponent;
+		
+		/*
+		 * Sub-normals keep fewer significant bits: one fewer for every step 
+		 * their exponent is below the minimum
+		 */
+		long shift = LEADING_BIT - mantissaLength;
+		if (subnormal)
+		{
+			shift += (long) format.minExponent - exponent;
+		}
+		long quotient;
+		boolean inexact;
+		if (shift > LEADING_BIT + 1)
+		{
+			/*
+			 * Below half of the smallest sub-normal
+			 */
+			quotient = 0;
+			inexact = true;
+		}
+		else
+		{
+			int n = (int) shift;
+			quotient = significand >>> n;
+			long remainder = significand & ((1L << n) - 1);
+			long half = 1L << (n - 1);
+			inexact = sticky || remainder != 0;
+			if (remainder > half 
+					|| (remainder == half && (sticky || (quotient & 1) != 0)))
+			{
+				quotient++;
+			}
+		}
+		
+		if (subnormal)
+		{
+			/*
+			 * The quotient is the mantissa.  If rounding carried into the 
+			 * hidden bit, it's become the exponent bits of the smallest normal
+			 * number.
+			 */
+			int flags = inexact ? 
+					IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT : 0;
+			if (quotient != 0 && quotient >>> mantissaLength == 0)
+			{
+				flags |= IEEE754Status.SUBNORMAL;
+			}
+			raise(status, flags);
+			return sign | quotient;
+		}
+		
+		if (quotient >>> (mantissaLength + 1) != 0)
+		{
+			quotient >>>= 1;
+			exponent++;
+		}
+		if (exponent > format.maxExponent)
+		{
+			raise(status, IEEE754Status.OVERFLOW | IEEE754Status.INEXACT);
+			return infinity(format, negative);
+		}
+		raise(status, inexact ? IEEE754Status.INEXACT : 0);
+		return sign 
+				| (long) (exponent + format.bias) << mantissaLength
+				| quotient & ((1L << mantissaLength) - 1);
+	}
+	
+	static long transcode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			long bits, 
+			IEEE754Status status)
+	{
+		return transcode(source, target, bits, 0, status);
+	}
+	
+	/**
+	 * {@link #transcode(IEEE754Format, IEEE754Format, long, int, 
+	 * IEEE754Status) Transcodes} a value being encoded into the target 
+	 * format, counting it in {@link IEEE754Metrics}
+	 */
+	static long encode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			long bits, 
+			IEEE754Status status)
+	{
+		return encode(source, target, bits, 0, status);
+	}
+	
+	static long encode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			long bits, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		long r = transcode(source, target, bits, subnormals, status);
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.encoded(target, r);
+		}
+		return r;
+	}
+	
+	/**
+	 * {@link #transcode(IEEE754Format, IEEE754Format, long, IEEE754Status) 
+	 * Transcodes} a value being decoded from the source format, counting it 
+	 * in {@link IEEE754Metrics}
+	 */
+	static long decode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			long bits, 
+			IEEE754Status status)
+	{
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.decoded(source, bits);
+		}
+		return transcode(source, target, bits, status);
+	}
+	
+	static long transcode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			long bits, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		final int mantissaLength = source.getMantissaLength();
+		final boolean negative = (bits >>> (source.getLength() - 1) & 1) != 0;
+		final int exponentBits = (int) (bits >>> mantissaLength) 
+				& source.maxExponentBits;
+		long mantissa = bits & ((1L << mantissaLength) - 1);
+		if (exponentBits == source.maxExponentBits)
+		{
+			if (mantissa != 0)
+			{
+				raise(status, IEEE754Status.NAN);
+				return nan(target);
+			}
+			raise(status, 0);
+			return infinity(target, negative);
+		}
+		int exponent;
+		if (exponentBits == 0)
+		{
+			if (mantissa == 0 || denormalsAreZero(subnormals))
+			{
+				raise(status, 0);
+				return zero(target, negative);
+			}
+			int leadingBit = 63 - Long.numberOfLeadingZeros(mantissa);
+			exponent = source.minExponent - mantissaLength + leadingBit;
+			mantissa <<= LEADING_BIT - leadingBit;
+		}
+		else
+		{
+			exponent = exponentBits - source.bias;
+			mantissa = (mantissa | 1L << mantissaLength) 
+					<< (LEADING_BIT - mantissaLength);
+		}
+		if (exponent < target.minExponent && flushToZero(subnormals))
+		{
+			return flush(target, negative, status);
+		}
+		return pack(target, negative, exponent, mantissa, false, status);
+	}
+	
+	/**
+	 * Copies {@code count} bits from {@code in} to {@code out}
+	 */
+	private static void copy(BitSource in, BitSink out, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			out.write(in.next());
+		}
+	}
+	
+	/**
+	 * Reads the remaining mantissa bits of an infinity or NaN, and writes the
+	 * corresponding constant
+	 */
+	private static void writeSpecial(
+			boolean negative, 
+			IEEE754Format source,
+			IEEE754Format target, 
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		boolean nan = false;
+		for (int i = 0; i < source.getMantissaLength(); i++)
+		{
+			/*
+			 * No break here: we should consume all mantissa bits
+			 */
+			nan |= in.next();
+		}
+		(nan ? IEEE754.NaN : negative ? 
+				IEEE754.NEGATIVE_INFINITY : IEEE754.POSITIVE_INFINITY)
+						.toBits(target, out, status);
+	}
+	
+	static void transcode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int mode,
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		transcode(source, target, mode, 0, in, out, status);
+	}
+	
+	static void transcode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int mode,
+			int subnormals,
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		switch (mode)
+		{
+		case MODE_LONG:
+			BitUtils.writeBits(out, encode(source, target, 
+					BitUtils.readBits(in, source.getLength()), subnormals, 
+					status), target.getLength());
+			return;
+		case MODE_LONG_TO_WIDE:
+			transcodeLongToWide(source, target, 
+					BitUtils.readBits(in, source.getLength()), subnormals, 
+					out, status);
+			return;
+		case MODE_WIDE_TO_LONG:
+			transcodeWideToLong(
+					source, target, subnormals, in, out, status);
+			return;
+		case MODE_WIDE_COPY:
+			transcodeWideCopy(source, target, subnormals, in, out, status);
+			return;
+		default:
+			IEEE754.decode(source, in, subnormals)
+					.toBits(target, out, subnormals, status);
+		}
+	}
+	
+	/**
+	 * Converts a value from a source format no more than 64 bits long
+	 */
+	static void transcode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int mode,
+			long bits, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		transcode(source, target, mode, 0, bits, out, status);
+	}
+	
+	static void transcode(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int mode,
+			int subnormals,
+			long bits, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		switch (mode)
+		{
+		case MODE_LONG:
+			BitUtils.writeBits(out, 
+					encode(source, target, bits, subnormals, status), 
+					target.getLength());
+			return;
+		case MODE_LONG_TO_WIDE:
+			transcodeLongToWide(
+					source, target, bits, subnormals, out, status);
+			return;
+		default:
+			transcode(source, target, mode, subnormals, 
+					new LongBitSource(bits, source.getLength()), out, status);
+		}
+	}
+	
+	private static void transcodeLongToWide(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			long bits,
+			int subnormals,
+			BitSink out,
+			IEEE754Status status)
+	{
+		final int mantissaLength = source.getMantissaLength();
+		final boolean negative = (bits >>> (source.getLength() - 1) & 1) != 0;
+		final int exponentBits = (int) (bits >>> mantissaLength) 
+				& source.maxExponentBits;
+		long mantissa = bits & ((1L << mantissaLength) - 1);
+		if (exponentBits == source.maxExponentBits)
+		{
+			(mantissa != 0 ? IEEE754.NaN : negative ? 
+					IEEE754.NEGATIVE_INFINITY : IEEE754.POSITIVE_INFINITY)
+							.toBits(target, out, status);
+			return;
+		}
+		int exponent;
+		int fractionLength;
+		if (exponentBits == 0)
+		{
+			if (mantissa == 0 || denormalsAreZero(subnormals))
+			{
+				(negative ? IEEE754.NEGATIVE_ZERO : IEEE754.POSITIVE_ZERO)
+						.toBits(target, out, status);
+				return;
+			}
+			
+			/*
+			 * A sub-normal in the source is normal in the target: its leading
+			 * bit becomes the hidden bit
+			 */
+			fractionLength = 63 - Long.numberOfLeadingZeros(mantissa);
+			exponent = source.minExponent - mantissaLength + fractionLength;
+		}
+		else
+		{
+			fractionLength = mantissaLength;
+			exponent = exponentBits - source.bias;
+		}
+		out.write(negative);
+		BitUtils.writeBits(out, (long) exponent + target.bias, 
+				target.getExponentLength());
+		BitUtils.writeBits(out, mantissa, fractionLength);
+		for (int i = fractionLength; i < target.getMantissaLength(); i++)
+		{
+			out.write(false);
+		}
+		raise(status, 0);
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.encoded(target, IEEE754Metrics.NORMAL);
+		}
+	}
+	
+	/**
+	 * Reads the sign and exponent bits, and the mantissa bits up to and 
+	 * including the leading set bit of a sub-normal
+	 * 
+	 * @return the exponent of the leading bit, or {@link #NONE} if the value
+	 * was zero, infinity or NaN, and has already been written
+	 */
+	private static int readLeading(
+			boolean negative,
+			IEEE754Format source, 
+			IEEE754Format target,
+			int subnormals,
+			BitSource in, 
+			BitSink out, 
+			IEEE754Status status)
+	{
+		int exponentBits = (int) BitUtils.readBits(
+				in, source.getExponentLength());
+		if (exponentBits == source.maxExponentBits)
+		{
+			writeSpecial(negative, source, target, in, out, status);
+			return NONE;
+		}
+		if (exponentBits != 0)
+		{
+			return exponentBits - source.bias;
+		}
+		boolean denormalsAreZero = denormalsAreZero(subnormals);
+		for (int i = 0; i < source.getMantissaLength(); i++)
+		{
+			/*
+			 * With denormals-are-zero, no break here: all mantissa bits are
+			 * consumed
+			 */
+			if (in.next() && !denormalsAreZero)
+			{
+				return source.minExponent - 1 - i;
+			}
+		}
+		(negative ? IEEE754.NEGATIVE_ZERO : IEEE754.POSITIVE_ZERO)
+				.toBits(target, out, status);
+		return NONE;
+	}
+	
+	private static void transcodeWideToLong(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int subnormals,
+			BitSource in,
+			BitSink out,
+			IEEE754Status status)
+	{
+		boolean negative = in.next();
+		int exponent = readLeading(
+				negative, source, target, subnormals, in, out, status);
+		if (exponent == NONE)
+		{
+			return;
+		}
+		int fractionLength = exponent < source.minExponent ?
+				source.getMantissaLength() - source.minExponent + exponent 
+				: source.getMantissaLength();
+		
+		long significand = 1L << LEADING_BIT;
+		boolean sticky = false;
+		int i;
+		for (i = 0; i < fractionLength && i < LEADING_BIT; i++)
+		{
+			if (in.next())
+			{
+				significand |= 1L << (LEADING_BIT - 1 - i);
+			}
+		}
+		for (; i < fractionLength; i++)
+		{
+			/*
+			 * No break here: we should consume all mantissa bits
+			 */
+			sticky |= in.next();
+		}
+		long r = exponent < target.minExponent && flushToZero(subnormals) ? 
+				flush(target, negative, status) 
+				: pack(target, negative, exponent, significand, sticky, status);
+		BitUtils.writeBits(out, r, target.getLength());
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.encoded(target, r);
+		}
+	}
+	
+	private static void transcodeWideCopy(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			int subnormals,
+			BitSource in,
+			BitSink out,
+			IEEE754Status status)
+	{
+		boolean negative = in.next();
+		int exponent = readLeading(
+				negative, source, target, subnormals, in, out, status);
+		if (exponent == NONE)
+		{
+			return;
+		}
+		int fractionLength = exponent < source.minExponent ?
+				source.getMantissaLength() - source.minExponent + exponent 
+				: source.getMantissaLength();
+		out.write(negative);
+		BitUtils.writeBits(out, (long) exponent + target.bias, 
+				target.getExponentLength());
+		copy(in, out, fractionLength);
+		for (int i = fractionLength; i < target.getMantissaLength(); i++)
+		{
+			out.write(false);
+		}
+		raise(status, 0);
+		if (IEEE754Metrics.enabled)
+		{
+			IEEE754Metrics.encoded(target, IEEE754Metrics.NORMAL);
+		}
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Primitive conversions of the x87 80-bit extended format 
+ * ({@link IEEE754Format#EXTENDED}), held as a {@code short} of sign and 
+ * exponent bits, and a {@code long} significand that includes the integer 
+ * bit.
+ * <p>
+ * Every encoding is valued as {@link IEEE754#decode(IEEE754Format, BitSource)}
+ * values it: pseudo-denormals like denormals, unnormals by the bits they hold,
+ * and pseudo-infinities and pseudo-NaNs as NaN.
+ * <p>
+ * In buffers, each value takes 10 bytes.  In little-endian buffers they're 
+ * laid out as in x87 memory: the significand, then the sign and exponent.  In
+ * big-endian buffers the sign and exponent come first, which is how the sinks
+ * from {@link BitUtils} write {@link IEEE754Format#EXTENDED}.  Binary128 
+ * values follow the same rule: low-order {@code long} first if 
+ * little-endian, high-order first if big-endian.
+ */
+public final class X87Extended
+{
+	/**
+	 * The number of bytes in an encoded value
+	 */
+	public static final int BYTES = 10;
+	
+	private static final int EXPONENT_MASK = 0x7FFF;
+	private static final int BIAS = 16383;
+	private static final long INTEGER_BIT = Long.MIN_VALUE;
+	private static final long NAN_SIGNIFICAND = 0xC000000000000000L;
+	
+	private static final long QUADRUPLE_NAN_HIGH = 0x7FFF800000000000L;
+	private static final int QUADRUPLE_MANTISSA_HIGH_LENGTH = 48;
+	
+	private X87Extended() {}
+	
+	private static void raise(IEEE754Status status, int flags)
+	{
+		if (status != null)
+		{
+			status.raise(flags);
+		}
+	}
+	
+	/**
+	 * @return the binary64 value nearest to the value, ties to even
+	 * 
+	 * @param status
+	 * if not {@code null}, accumulates the flags raised while rounding
+	 */
+	public static double toDouble(
+			short signExponent, 
+			long significand, 
+			IEEE754Status status)
+	{
+		final boolean negative = signExponent < 0;
+		final int exponentBits = signExponent & EXPONENT_MASK;
+		if (exponentBits == EXPONENT_MASK)
+		{
+			if (significand == INTEGER_BIT)
+			{
+				raise(status, 0);
+				return negative ? 
+						Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+			}
+			raise(status, IEEE754Status.NAN);
+			return Double.NaN;
+		}
+		if (significand == 0)
+		{
+			raise(status, 0);
+			return negative ? -0D : 0D;
+		}
+		
+		/*
+		 * Normalize, leaving one spare bit at the top for the transcoder, 
+		 * and carrying the bit that falls off as sticky
+		 */
+		int shift = Long.numberOfLeadingZeros(significand);
+		long normalized = significand << shift;
+		return Double.longBitsToDouble(Transcoder.pack(
+				IEEE754Format.DOUBLE, 
+				negative, 
+				Math.max(exponentBits, 1) - BIAS - shift, 
+				normalized >>> 1, 
+				(normalized & 1) != 0, 
+				status));
+	}
+	
+	/**
+	 * Converts the value to binary128, which holds every value exactly, 
+	 * writing its high-order bits to {@code dest[offset]}, and its low-order 
+	 * bits to {@code dest[offset + 1]}
+	 */
+	public static void toQuadruple(
+			short signExponent, 
+			long significand, 
+			long[] dest, 
+			int offset, 
+			IEEE754Status status)
+	{
+		final long sign = signExponent < 0 ? Long.MIN_VALUE : 0;
+		final int exponentBits = signExponent & EXPONENT_MASK;
+		long high;
+		long low;
+		if (exponentBits == EXPONENT_MASK)
+		{
+			if (significand == INTEGER_BIT)
+			{
+				high = sign | (long) EXPONENT_MASK 
+						<< QUADRUPLE_MANTISSA_HIGH_LENGTH;
+				raise(status, 0);
+			}
+			else
+			{
+				high = QUADRUPLE_NAN_HIGH;
+				raise(status, IEEE754Status.NAN);
+			}
+			low = 0;
+		}
+		else if (significand == 0)
+		{
+			high = sign;
+			low = 0;
+			raise(status, 0);
+		}
+		else
+		{
+			/*
+			 * Both formats have the same exponent range, but binary128 has
+			 * more fraction bits, so every value is exact.  Values below the
+			 * smallest normal stay sub-normal.
+			 */
+			int exponent = Math.max(exponentBits, 1);
+			int shift = Long.numberOfLeadingZeros(significand);
+			int biased = exponent - shift;
+			long fraction;
+			if (biased < 1)
+			{
+				biased = 0;
+				fraction = significand << exponent;
+			}
+			else
+			{
+				fraction = significand << shift << 1;
+			}
+			high = sign 
+					| (long) biased << QUADRUPLE_MANTISSA_HIGH_LENGTH 
+					| fraction >>> (64 - QUADRUPLE_MANTISSA_HIGH_LENGTH);
+			low = fraction << QUADRUPLE_MANTISSA_HIGH_LENGTH;
+			raise(status, biased == 0 ? IEEE754Status.SUBNORMAL : 0);
+		}
+		dest[offset] = high;
+		dest[offset + 1] = low;
+	}
+	
+	/**
+	 * @return the sign and exponent bits of the value, which is exact
+	 */
+	public static short getSignExponent(double value)
+	{
+		long bits = Double.doubleToRawLongBits(value);
+		int exponentBits = (int) (bits >>> 52) & 0x7FF;
+		int sign = bits < 0 ? 0x8000 : 0;
+		if (exponentBits == 0x7FF)
+		{
+			return (short) ((value != value ? 0 : sign) | EXPONENT_MASK);
+		}
+		long fraction = bits & ((1L << 52) - 1);
+		if (exponentBits == 0)
+		{
+			if (fraction == 0)
+			{
+				return (short) sign;
+			}
+			
+			/*
+			 * Sub-normal doubles are normal here
+			 */
+			return (short) (sign | BIAS - 1011 
+					- Long.numberOfLeadingZeros(fraction));
+		}
+		return (short) (sign | exponentBits - 1023 + BIAS);
+	}
+	
+	/**
+	 * @return the significand of the value, including the integer bit
+	 */
+	public static long getSignificand(double value)
+	{
+		long bits = Double.doubleToRawLongBits(value);
+		int exponentBits = (int) (bits >>> 52) & 0x7FF;
+		long fraction = bits & ((1L << 52) - 1);
+		if (exponentBits == 0x7FF)
+		{
+			return fraction == 0 ? INTEGER_BIT : NAN_SIGNIFICAND;
+		}
+		if (exponentBits == 0)
+		{
+			return fraction << Long.numberOfLeadingZeros(fraction);
+		}
+		return INTEGER_BIT | fraction << 11;
+	}
+	
+	private static short getSignExponent(ByteBuffer buf, int index)
+	{
+		return buf.order() == ByteOrder.LITTLE_ENDIAN ? 
+				buf.getShort(index + 8) : buf.getShort(index);
+	}
+	
+	private static long getSignificand(ByteBuffer buf, int index)
+	{
+		return buf.order() == ByteOrder.LITTLE_ENDIAN ? 
+				buf.getLong(index) : buf.getLong(index + 2);
+	}
+	
+	/**
+	 * Converts {@code length} values from {@code src}, starting at its 
+	 * position, which is advanced past the bytes read
+	 */
+	public static void toDouble(
+			ByteBuffer src, 
+			double[] dest, 
+			int offset, 
+			int length, 
+			IEEE754Status status)
+	{
+		final int base = src.position();
+		for (int i = 0; i < length; i++)
+		{
+			int index = base + i * BYTES;
+			dest[offset + i] = toDouble(getSignExponent(src, index), 
+					getSignificand(src, index), status);
+		}
+		src.position(base + length * BYTES);
+	}
+	
+	/**
+	 * Converts {@code count} values from {@code src} to 16-byte binary128 
+	 * values in {@code dest}.  Both buffers' positions are advanced past the
+	 * bytes read and written.
+	 */
+	public static void toQuadruple(
+			ByteBuffer src, 
+			ByteBuffer dest, 
+			int count, 
+			IEEE754Status status)
+	{
+		final int srcBase = src.position();
+		final int destBase = dest.position();
+		final boolean littleEndian = dest.order() == ByteOrder.LITTLE_ENDIAN;
+		long[] bits = new long[2];
+		for (int i = 0; i < count; i++)
+		{
+			int index = srcBase + i * BYTES;
+			toQuadruple(getSignExponent(src, index), 
+					getSignificand(src, index), bits, 0, status);
+			int destIndex = destBase + i * 16;
+			dest.putLong(destIndex, bits[littleEndian ? 1 : 0]);
+			dest.putLong(destIndex + 8, bits[littleEndian ? 0 : 1]);
+		}
+		src.position(srcBase + count * BYTES);
+		dest.position(destBase + count * 16);
+	}
+	
+	/**
+	 * Writes {@code length} values to {@code dest}, starting at its position,
+	 * which is advanced past the bytes written
+	 */
+	public static void fromDouble(
+			double[] src, 
+			int offset, 
+			int length, 
+			ByteBuffer dest)
+	{
+		final int base = dest.position();
+		final boolean littleEndian = dest.order() == ByteOrder.LITTLE_ENDIAN;
+		for (int i = 0; i < length; i++)
+		{
+			double value = src[offset + i];
+			int index = base + i * BYTES;
+			if (littleEndian)
+			{
+				dest.putLong(index, getSignificand(value));
+				dest.putShort(index + 8, getSignExponent(value));
+			}
+			else
+			{
+				dest.putShort(index, getSignExponent(value));
+				dest.putLong(index + 2, getSignificand(value));
+			}
+		}
+		dest.position(base + length * BYTES);
+	}
+}
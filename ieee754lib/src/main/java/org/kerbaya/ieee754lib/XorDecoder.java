@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+
+/**
+ * Decodes a series written by {@link XorEncoder}.  The format and block size
+ * must match those of the encoder.
+ * <p>
+ * To start decoding at a block other than the first, use a source positioned
+ * at that block's offset from {@link XorEncoder#getBlockIndex()}, such as 
+ * one from {@link BitUtils#wrapSource(java.nio.ByteBuffer, long)}.
+ */
+public final class XorDecoder
+{
+	private final IEEE754Format format;
+	private final int blockSize;
+	private final BitSource in;
+	private final int length;
+	private final int countLength;
+	
+	private long valueCount;
+	
+	private long previous;
+	private BigInteger bigPrevious;
+	private int previousLeading;
+	private int previousTrailing;
+	
+	public XorDecoder(IEEE754Format format, int blockSize, BitSource in)
+	{
+		if (format == null || in == null)
+		{
+			throw new NullPointerException();
+		}
+		if (blockSize < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.format = format;
+		this.blockSize = blockSize;
+		this.in = in;
+		length = format.getLength();
+		countLength = XorEncoder.countLength(length);
+	}
+	
+	private boolean startValue()
+	{
+		return valueCount++ % blockSize == 0;
+	}
+	
+	/**
+	 * Reads the control bits for a non-zero XOR
+	 * 
+	 * @return the number of meaningful bits that follow, or zero if the value
+	 * is unchanged
+	 */
+	private int readControl()
+	{
+		if (!in.next())
+		{
+			return 0;
+		}
+		if (in.next())
+		{
+			previousLeading = (int) BitUtils.readBits(in, countLength);
+			int meaningful = (int) BitUtils.readBits(in, countLength) + 1;
+			previousTrailing = length - previousLeading - meaningful;
+		}
+		return length - previousLeading - previousTrailing;
+	}
+	
+	/**
+	 * @return the next value, in the low-order bits of the result.  The format
+	 * must be no more than 64 bits long.
+	 */
+	public long nextBits()
+	{
+		if (length > 64)
+		{
+			throw new IllegalStateException();
+		}
+		if (startValue())
+		{
+			previous = BitUtils.readBits(in, length);
+		}
+		else
+		{
+			int meaningful = readControl();
+			if (meaningful != 0)
+			{
+				previous ^= BitUtils.readBits(in, meaningful) 
+						<< previousTrailing;
+			}
+		}
+		return previous;
+	}
+	
+	public BigInteger nextBigBits()
+	{
+		if (length <= 64)
+		{
+			long bits = nextBits();
+			BigInteger r = BigInteger.valueOf(bits & Long.MAX_VALUE);
+			return bits < 0 ? r.setBit(63) : r;
+		}
+		if (startValue())
+		{
+			bigPrevious = BitUtils.readBigBits(in, length);
+		}
+		else
+		{
+			int meaningful = readControl();
+			if (meaningful != 0)
+			{
+				bigPrevious = bigPrevious.xor(BitUtils.readBigBits(
+						in, meaningful).shiftLeft(previousTrailing));
+			}
+		}
+		return bigPrevious;
+	}
+	
+	public IEEE754 next()
+	{
+		if (length <= 64)
+		{
+			return IEEE754.decode(format, nextBits());
+		}
+		return IEEE754.decode(format, nextBigBits());
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Compresses a series of values in the manner of Facebook's Gorilla time 
+ * series database.  Each value is XOR-ed with its predecessor: an identical 
+ * value costs a single bit, and a value whose differing bits fall within the 
+ * previous window of meaningful bits costs two control bits plus those bits.
+ * Otherwise, the number of leading zeros and meaningful bits are written 
+ * before the meaningful bits themselves.
+ * <p>
+ * Values are grouped into blocks.  The first value of each block is written
+ * in full, so decoding can start at any block: {@link #getBlockIndex()} 
+ * gives the bit offset of every block, relative to the first bit written by
+ * this encoder.
+ * <p>
+ * Any format may be used.  Formats no longer than 64 bits are handled with
+ * primitive arithmetic.
+ */
+public final class XorEncoder
+{
+	private final IEEE754Format format;
+	private final int blockSize;
+	private final BitSink out;
+	private final int length;
+	private final int countLength;
+	private final long mask;
+	private final BigInteger bigMask;
+	
+	private long bitCount;
+	private long valueCount;
+	private long[] blockIndex;
+	private int blockCount;
+	
+	private long previous;
+	private BigInteger bigPrevious;
+	private int previousLeading;
+	private int previousTrailing;
+	
+	public XorEncoder(IEEE754Format format, int blockSize, BitSink out)
+	{
+		if (format == null || out == null)
+		{
+			throw new NullPointerException();
+		}
+		if (blockSize < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.format = format;
+		this.blockSize = blockSize;
+		this.out = out;
+		length = format.getLength();
+		countLength = countLength(length);
+		mask = length >= 64 ? -1L : (1L << length) - 1;
+		bigMask = BigInteger.ONE.shiftLeft(length).subtract(BigInteger.ONE);
+		blockIndex = new long[16];
+	}
+	
+	static int countLength(int length)
+	{
+		return 32 - Integer.numberOfLeadingZeros(length - 1);
+	}
+	
+	private void writeBits(long bits, int count)
+	{
+		BitUtils.writeBits(out, bits, count);
+		bitCount += count;
+	}
+	
+	private void writeBits(BigInteger bits, int count)
+	{
+		BitUtils.writeBits(out, bits, count);
+		bitCount += count;
+	}
+	
+	/**
+	 * @return {@code true} if the value starts a new block, in which case the
+	 * caller must write it in full
+	 */
+	private boolean startValue()
+	{
+		if (valueCount++ % blockSize != 0)
+		{
+			return false;
+		}
+		if (blockCount == blockIndex.length)
+		{
+			blockIndex = Arrays.copyOf(blockIndex, blockCount << 1);
+		}
+		blockIndex[blockCount++] = bitCount;
+		previousLeading = -1;
+		return true;
+	}
+	
+	/**
+	 * Writes the control bits for a non-zero XOR
+	 * 
+	 * @return the number of meaningful bits that follow
+	 */
+	private int writeControl(int leading, int trailing)
+	{
+		if (previousLeading != -1
+				&& leading >= previousLeading 
+				&& trailing >= previousTrailing)
+		{
+			writeBits(0x2, 2);
+		}
+		else
+		{
+			writeBits(0x3, 2);
+			previousLeading = leading;
+			previousTrailing = trailing;
+			writeBits(leading, countLength);
+			writeBits(length - leading - trailing - 1, countLength);
+		}
+		return length - previousLeading - previousTrailing;
+	}
+	
+	/**
+	 * Writes the low-order {@link IEEE754Format#getLength()} bits of 
+	 * {@code bits}, which must be no more than 64
+	 */
+	public void writeBits(long bits)
+	{
+		if (length > 64)
+		{
+			throw new IllegalStateException();
+		}
+		bits &= mask;
+		if (startValue())
+		{
+			writeBits(bits, length);
+		}
+		else
+		{
+			long xor = bits ^ previous;
+			if (xor == 0)
+			{
+				writeBits(0, 1);
+			}
+			else
+			{
+				int meaningful = writeControl(
+						Long.numberOfLeadingZeros(xor) - (64 - length), 
+						Long.numberOfTrailingZeros(xor));
+				writeBits(xor >>> previousTrailing, meaningful);
+			}
+		}
+		previous = bits;
+	}
+	
+	/**
+	 * Writes the low-order {@link IEEE754Format#getLength()} bits of 
+	 * {@code bits}
+	 */
+	public void writeBits(BigInteger bits)
+	{
+		if (length <= 64)
+		{
+			writeBits(bits.longValue());
+			return;
+		}
+		bits = bits.and(bigMask);
+		if (startValue())
+		{
+			writeBits(bits, length);
+		}
+		else
+		{
+			BigInteger xor = bits.xor(bigPrevious);
+			if (xor.signum() == 0)
+			{
+				writeBits(0, 1);
+			}
+			else
+			{
+				int meaningful = writeControl(
+						length - xor.bitLength(), 
+						xor.getLowestSetBit());
+				writeBits(xor.shiftRight(previousTrailing), meaningful);
+			}
+		}
+		bigPrevious = bits;
+	}
+	
+	public void write(IEEE754 value)
+	{
+		if (length <= 64)
+		{
+			writeBits(value.toLongBits(format));
+		}
+		else
+		{
+			writeBits(value.toBigIntegerBits(format));
+		}
+	}
+	
+	/**
+	 * @return the number of bits written so far
+	 */
+	public long getBitCount()
+	{
+		return bitCount;
+	}
+	
+	public long getValueCount()
+	{
+		return valueCount;
+	}
+	
+	/**
+	 * @return the bit offset at which each block starts, relative to the 
+	 * first bit written by this encoder
+	 */
+	public long[] getBlockIndex()
+	{
+		return Arrays.copyOf(blockIndex, blockCount);
+	}
+}
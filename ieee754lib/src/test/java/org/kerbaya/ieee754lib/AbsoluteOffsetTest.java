@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AbsoluteOffsetTest
+{
+	@Test
+	public void unalignedRoundTrip()
+	{
+		IEEE754Format format = new IEEE754Format(4, 7, BigInteger.valueOf(7));
+		double[] values = {1D, -2.5D, 0D, Double.POSITIVE_INFINITY, 0.125D};
+		ByteBuffer buf = ByteBuffer.allocate(16);
+		buf.position(3);
+		for (int i = 0; i < values.length; i++)
+		{
+			IEEE754.encode(IEEE754.valueOf(values[i]), format, buf, 
+					5 + i * format.getLength());
+		}
+		Assert.assertEquals("position untouched", 3, buf.position());
+		
+		ByteBuffer shared = buf.asReadOnlyBuffer();
+		for (int i = values.length - 1; i >= 0; i--)
+		{
+			Assert.assertEquals(values[i], IEEE754.decode(format, shared, 
+					5 + i * format.getLength()).doubleValue(), 0D);
+		}
+		Assert.assertEquals("position untouched", 3, shared.position());
+	}
+	
+	@Test
+	public void neighbouringBitsPreserved()
+	{
+		byte[] expected = new byte[4];
+		ByteBuffer.wrap(expected).putShort(1, (short) 0x3C00);
+		expected[0] = (byte) 0xFF;
+		expected[3] = (byte) 0xFF;
+		
+		byte[] actual = new byte[4];
+		actual[0] = (byte) 0xFF;
+		actual[1] = (byte) 0xFF;
+		actual[3] = (byte) 0xFF;
+		IEEE754.encode(IEEE754.valueOf(1D), IEEE754Format.HALF, 
+				ByteBuffer.wrap(actual), 8);
+		Assert.assertArrayEquals(expected, actual);
+	}
+	
+	/**
+	 * 2^35 bits is 2^32 bytes, which would wrap to index zero as an int
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void decodeBeyondIntIndex()
+	{
+		IEEE754.decode(IEEE754Format.HALF, ByteBuffer.allocate(4), 1L << 35);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void encodeBeyondIntIndex()
+	{
+		IEEE754.encode(IEEE754.valueOf(1D), IEEE754Format.HALF, 
+				ByteBuffer.allocate(4), 1L << 35);
+	}
+}
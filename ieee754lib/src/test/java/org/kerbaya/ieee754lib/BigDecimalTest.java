@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BigDecimalTest
+{
+	private final Random random = new Random(42);
+	
+	private BigDecimal randomDecimal()
+	{
+		BigInteger unscaled = new BigInteger(random.nextInt(200) + 1, random);
+		return new BigDecimal(random.nextBoolean() ? 
+				unscaled.negate() : unscaled, random.nextInt(800) - 400);
+	}
+	
+	private static double toDouble(IEEE754 value)
+	{
+		return value.doubleValue();
+	}
+	
+	@Test
+	public void testNearest()
+	{
+		for (int i = 0; i < 5000; i++)
+		{
+			BigDecimal value = randomDecimal();
+			Assert.assertEquals(value.toString(), 
+					value.doubleValue(), 
+					toDouble(IEEE754.valueOf(value, IEEE754Format.DOUBLE, 
+							RoundingMode.HALF_EVEN)), 
+					0);
+			Assert.assertEquals(value.toString(), 
+					value.floatValue(), 
+					IEEE754.valueOf(value, IEEE754Format.SINGLE, 
+							RoundingMode.HALF_EVEN).floatValue(), 
+					0);
+		}
+	}
+	
+	@Test
+	public void testDirected()
+	{
+		for (int i = 0; i < 5000; i++)
+		{
+			BigDecimal value = randomDecimal();
+			double floor = toDouble(IEEE754.valueOf(
+					value, IEEE754Format.DOUBLE, RoundingMode.FLOOR));
+			double ceiling = toDouble(IEEE754.valueOf(
+					value, IEEE754Format.DOUBLE, RoundingMode.CEILING));
+			double down = toDouble(IEEE754.valueOf(
+					value, IEEE754Format.DOUBLE, RoundingMode.DOWN));
+			double up = toDouble(IEEE754.valueOf(
+					value, IEEE754Format.DOUBLE, RoundingMode.UP));
+			if (!Double.isInfinite(floor) && !Double.isInfinite(ceiling))
+			{
+				Assert.assertTrue(
+						new BigDecimal(floor).compareTo(value) <= 0);
+				Assert.assertTrue(
+						new BigDecimal(ceiling).compareTo(value) >= 0);
+			}
+			if (floor == ceiling)
+			{
+				Assert.assertEquals(0, 
+						new BigDecimal(floor).compareTo(value));
+			}
+			else
+			{
+				Assert.assertEquals(Math.nextUp(floor), ceiling, 0);
+			}
+			Assert.assertEquals(value.signum() < 0 ? ceiling : floor, down, 0);
+			Assert.assertEquals(value.signum() < 0 ? floor : ceiling, up, 0);
+		}
+	}
+	
+	@Test
+	public void testExact()
+	{
+		Assert.assertEquals(IEEE754.valueOf(12.5), IEEE754.valueOf(
+				new BigDecimal("12.50"), IEEE754Format.QUADRUPLE, 
+				RoundingMode.UNNECESSARY));
+		try
+		{
+			IEEE754.valueOf(new BigDecimal("0.1"), IEEE754Format.QUADRUPLE, 
+					RoundingMode.UNNECESSARY);
+			Assert.fail();
+		}
+		catch (ArithmeticException e) {}
+		
+		for (int i = 0; i < 1000; i++)
+		{
+			double d = Double.longBitsToDouble(random.nextLong());
+			if (Double.isNaN(d) || Double.isInfinite(d))
+			{
+				continue;
+			}
+			BigDecimal exact = new BigDecimal(d);
+			Assert.assertEquals(exact, IEEE754.valueOf(d).toBigDecimal());
+			Assert.assertEquals(IEEE754.valueOf(d), IEEE754.valueOf(exact, 
+					IEEE754Format.QUADRUPLE, RoundingMode.UNNECESSARY));
+		}
+	}
+	
+	@Test
+	public void testIntegers()
+	{
+		long[] values = {0, 1, -1, 12345678901234567L, 
+				Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40};
+		for (long value: values)
+		{
+			IEEE754 v = IEEE754.valueOf(value);
+			Assert.assertEquals(BigDecimal.valueOf(value), v.toBigDecimal());
+			Assert.assertEquals(v, IEEE754.valueOf(BigInteger.valueOf(value)));
+			Assert.assertEquals(
+					IEEE754.decode(IEEE754Format.QUADRUPLE, 
+							v.toBigIntegerBits(IEEE754Format.QUADRUPLE)), 
+					v);
+		}
+		Assert.assertEquals(IEEE754.valueOf(1L << 40), 
+				IEEE754.valueOf((double) (1L << 40)));
+	}
+	
+	@Test
+	public void testRange()
+	{
+		Assert.assertSame(IEEE754.POSITIVE_INFINITY, IEEE754.valueOf(
+				new BigDecimal("1E+5000"), IEEE754Format.QUADRUPLE, 
+				RoundingMode.HALF_EVEN));
+		Assert.assertEquals(Double.MAX_VALUE, toDouble(IEEE754.valueOf(
+				new BigDecimal("1E+400"), IEEE754Format.DOUBLE, 
+				RoundingMode.DOWN)), 0);
+		Assert.assertSame(IEEE754.NEGATIVE_ZERO, IEEE754.valueOf(
+				new BigDecimal("-1E-400"), IEEE754Format.DOUBLE, 
+				RoundingMode.HALF_EVEN));
+		Assert.assertEquals(Double.MIN_VALUE, toDouble(IEEE754.valueOf(
+				new BigDecimal("1E-400"), IEEE754Format.DOUBLE, 
+				RoundingMode.UP)), 0);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BitBufferTest
+{
+	@Test
+	public void matchesBufferSink()
+	{
+		Random r = new Random(7);
+		for (int round = 0; round < 50; round++)
+		{
+			BitBuffer bits = new BitBuffer(1);
+			byte[] expected = new byte[128];
+			BitSink sink = BitUtils.wrapSink(expected);
+			int[] lengths = new int[r.nextInt(15) + 1];
+			long[] values = new long[lengths.length];
+			for (int i = 0; i < lengths.length; i++)
+			{
+				lengths[i] = r.nextInt(65);
+				values[i] = r.nextLong();
+				if (r.nextBoolean())
+				{
+					bits.writeBits(values[i], lengths[i]);
+				}
+				else
+				{
+					BitUtils.writeBits(bits, values[i], lengths[i]);
+				}
+				BitUtils.writeBits(sink, values[i], lengths[i]);
+			}
+			
+			byte[] actual = bits.toByteArray();
+			Assert.assertEquals((bits.length() + 7) / 8, actual.length);
+			for (int i = 0; i < actual.length; i++)
+			{
+				Assert.assertEquals(expected[i], actual[i]);
+			}
+			
+			ByteBuffer buf = ByteBuffer.allocate(actual.length);
+			bits.writeTo(buf);
+			Assert.assertArrayEquals(actual, buf.array());
+			
+			for (int i = 0; i < lengths.length; i++)
+			{
+				long expectedValue = lengths[i] == 0 ? 0 : 
+						values[i] << (64 - lengths[i]) >>> (64 - lengths[i]);
+				Assert.assertEquals(expectedValue, r.nextBoolean() ? 
+						bits.readBits(lengths[i]) : 
+						BitUtils.readBits(bits, lengths[i]));
+			}
+			Assert.assertEquals(0, bits.remaining());
+		}
+	}
+	
+	@Test
+	public void reuse()
+	{
+		BitBuffer bits = new BitBuffer();
+		IEEE754.valueOf(1.5D).toBits(IEEE754Format.DOUBLE, bits);
+		Assert.assertEquals(64, bits.length());
+		Assert.assertEquals(1.5D, 
+				IEEE754.decode(IEEE754Format.DOUBLE, bits).doubleValue(), 0D);
+		
+		bits.clear();
+		Assert.assertEquals(0, bits.length());
+		IEEE754.valueOf(-2D).toBits(IEEE754Format.HALF, bits);
+		Assert.assertEquals(16, bits.length());
+		Assert.assertEquals(-2D, 
+				IEEE754.decode(IEEE754Format.HALF, bits).doubleValue(), 0D);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteStreamSplitTest
+{
+	private void testRoundTrip(IEEE754Format format, int count)
+	{
+		byte[] packed = new byte[ByteStreamSplit.getPackedLength(format, count)];
+		new Random(count).nextBytes(packed);
+		int padding = (packed.length << 3) - count * format.getLength();
+		packed[packed.length - 1] &= (byte) (0xFF << padding);
+		
+		ByteBuffer split = ByteBuffer.allocate(
+				ByteStreamSplit.getSplitLength(format, count));
+		ByteStreamSplit.split(format, count, ByteBuffer.wrap(packed), split);
+		Assert.assertFalse(split.hasRemaining());
+		split.flip();
+		
+		ByteBuffer joined = ByteBuffer.allocate(packed.length);
+		ByteStreamSplit.join(format, count, split, joined);
+		Assert.assertFalse(joined.hasRemaining());
+		Assert.assertArrayEquals(packed, joined.array());
+	}
+	
+	@Test
+	public void roundTrip()
+	{
+		IEEE754Format custom = new IEEE754Format(4, 7, BigInteger.valueOf(7));
+		for (int count = 1; count < 20; count++)
+		{
+			testRoundTrip(IEEE754Format.HALF, count);
+			testRoundTrip(IEEE754Format.DOUBLE, count);
+			testRoundTrip(custom, count);
+		}
+	}
+	
+	@Test
+	public void bytePlanes()
+	{
+		IEEE754[] values = {
+				IEEE754.valueOf(1D), 
+				IEEE754.valueOf(-2D), 
+				IEEE754.valueOf(0.5D)};
+		ByteBuffer split = ByteBuffer.allocate(6);
+		ByteStreamSplit.encode(
+				values, 0, values.length, IEEE754Format.HALF, split);
+		Assert.assertArrayEquals(new byte[] {
+				(byte) 0x3C, (byte) 0xC0, (byte) 0x38, 0, 0, 0}, 
+				split.array());
+		
+		split.flip();
+		IEEE754[] decoded = new IEEE754[values.length];
+		ByteStreamSplit.decode(
+				IEEE754Format.HALF, split, decoded, 0, decoded.length);
+		Assert.assertArrayEquals(values, decoded);
+	}
+}
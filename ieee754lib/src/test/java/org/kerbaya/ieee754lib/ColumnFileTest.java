@@ -0,0 +1,294 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnFileTest
+{
+	private static final IEEE754Format SMALL = 
+			new IEEE754Format(4, 7, BigInteger.valueOf(7));
+	
+	private static final IEEE754Format[] FORMATS = {
+			IEEE754Format.HALF, 
+			SMALL, 
+			IEEE754Format.DOUBLE, 
+			IEEE754Format.EXTENDED, 
+			IEEE754Format.QUADRUPLE};
+	
+	private static final int BLOCK_SIZE = 100;
+	
+	private File file;
+	private double[][] expected;
+	
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile("ieee754", ".col");
+		Random r = new Random(35);
+		expected = new double[FORMATS.length][];
+		ColumnFileWriter writer = new ColumnFileWriter(
+				new RandomAccessFile(file, "rw").getChannel(), 
+				BLOCK_SIZE, 
+				true, 
+				FORMATS);
+		try
+		{
+			for (int column = 0; column < FORMATS.length; column++)
+			{
+				expected[column] = new double[250 + column * 150];
+			}
+			for (int i = 0; i < expected[FORMATS.length - 1].length; i++)
+			{
+				/*
+				 * Interleave the columns, so their blocks are interleaved too
+				 */
+				for (int column = 0; column < FORMATS.length; column++)
+				{
+					if (i < expected[column].length)
+					{
+						double d = i % 97 == 5 ? 
+								Double.NaN : r.nextGaussian() * 10;
+						IEEE754 value = IEEE754.decode(FORMATS[column], 
+								IEEE754.valueOf(d).toBigIntegerBits(
+										FORMATS[column]));
+						expected[column][i] = value.doubleValue();
+						if ((i & 1) == 0)
+						{
+							writer.write(column, d);
+						}
+						else
+						{
+							writer.write(column, value);
+						}
+					}
+				}
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+	
+	@After
+	public void tearDown()
+	{
+		file.delete();
+	}
+	
+	private ColumnFileReader open() throws IOException
+	{
+		return new ColumnFileReader(
+				new RandomAccessFile(file, "r").getChannel());
+	}
+	
+	@Test
+	public void roundTrip() throws IOException
+	{
+		ColumnFileReader reader = open();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try
+		{
+			Assert.assertEquals(FORMATS.length, reader.getColumnCount());
+			Assert.assertTrue(reader.hasChecksums());
+			for (int column = 0; column < FORMATS.length; column++)
+			{
+				Assert.assertEquals(FORMATS[column], reader.getFormat(column));
+				Assert.assertEquals(
+						expected[column].length, reader.getValueCount(column));
+				Assert.assertArrayEquals(expected[column], 
+						reader.readDoubleColumn(column, executor, 3), 0D);
+				IEEE754[] values = reader.readColumn(column, executor, 2);
+				for (int i = 0; i < values.length; i++)
+				{
+					Assert.assertEquals(
+							expected[column][i], values[i].doubleValue(), 0D);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+			reader.close();
+		}
+	}
+	
+	@Test
+	public void randomAccess() throws IOException
+	{
+		ColumnFileReader reader = open();
+		try
+		{
+			for (int column = 0; column < FORMATS.length; column++)
+			{
+				for (int i = expected[column].length - 1; i >= 0; i -= 7)
+				{
+					Assert.assertEquals(expected[column][i], 
+							reader.get(column, i).doubleValue(), 0D);
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
+	@Test
+	public void blockIndex() throws IOException
+	{
+		ColumnFileReader reader = open();
+		try
+		{
+			for (int column = 0; column < FORMATS.length; column++)
+			{
+				int blockCount = reader.getBlockCount(column);
+				Assert.assertEquals(
+						(expected[column].length + BLOCK_SIZE - 1) / BLOCK_SIZE, 
+						blockCount);
+				for (int block = 0; block < blockCount; block++)
+				{
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					int count = reader.getBlockValueCount(column, block);
+					for (int i = 0; i < count; i++)
+					{
+						double d = expected[column][block * BLOCK_SIZE + i];
+						if (!Double.isNaN(d))
+						{
+							min = Math.min(min, d);
+							max = Math.max(max, d);
+						}
+					}
+					Assert.assertEquals(min, 
+							reader.getBlockMin(column, block).doubleValue(), 0D);
+					Assert.assertEquals(max, 
+							reader.getBlockMax(column, block).doubleValue(), 0D);
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
+	@Test(expected = StreamCorruptedException.class)
+	public void checksum() throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			ByteBuffer buf = ByteBuffer.allocate(1);
+			raf.getChannel().read(buf, 200);
+			buf.put(0, (byte) ~buf.get(0));
+			buf.rewind();
+			raf.getChannel().write(buf, 200);
+		}
+		finally
+		{
+			raf.close();
+		}
+		ColumnFileReader reader = open();
+		try
+		{
+			for (int column = 0; column < FORMATS.length; column++)
+			{
+				for (int block = 0; 
+						block < reader.getBlockCount(column); 
+						block++)
+				{
+					reader.readBlock(column, block, 
+							new double[BLOCK_SIZE], 0);
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
+	/**
+	 * An exponent too long for the primitive code paths, in a format short 
+	 * enough to be held in a long
+	 */
+	@Test
+	public void nonPrimitiveRange() throws IOException
+	{
+		IEEE754Format format = 
+				new IEEE754Format(31, 20, BigInteger.valueOf(1023));
+		File other = File.createTempFile("ieee754", ".col");
+		try
+		{
+			ColumnFileWriter writer = new ColumnFileWriter(
+					new RandomAccessFile(other, "rw").getChannel(), 
+					BLOCK_SIZE, 
+					false, 
+					format);
+			try
+			{
+				writer.write(0, 3);
+				writer.write(0, Double.NaN);
+				writer.write(0, -1.5);
+				writer.write(0, 0.25);
+			}
+			finally
+			{
+				writer.close();
+			}
+			ColumnFileReader reader = new ColumnFileReader(
+					new RandomAccessFile(other, "r").getChannel());
+			try
+			{
+				Assert.assertEquals(-1.5, 
+						reader.getBlockMin(0, 0).doubleValue(), 0D);
+				Assert.assertEquals(3, 
+						reader.getBlockMax(0, 0).doubleValue(), 0D);
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		finally
+		{
+			other.delete();
+		}
+	}
+}
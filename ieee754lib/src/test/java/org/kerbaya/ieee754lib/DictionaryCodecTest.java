@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DictionaryCodecTest
+{
+	private static final int BLOCK_SIZE = 64;
+	private static final int MAX_DICTIONARY_SIZE = 20;
+	
+	private final Random random = new Random(47);
+	
+	/**
+	 * @return values drawn from a few set-points, with a run of noise in the
+	 * middle
+	 */
+	private double[] setPoints(int count)
+	{
+		double[] points = {20, 20.5, 21, -0D, Double.NaN, 1E-310, 65504};
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = i >= 200 && i < 300 ? 
+					random.nextGaussian() : points[random.nextInt(7)];
+		}
+		return values;
+	}
+	
+	private void testRoundTrip(IEEE754Format format, double[] values)
+	{
+		BitBuffer buf = new BitBuffer();
+		DictionaryEncoder enc = new DictionaryEncoder(
+				format, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+		enc.write(values, 0, values.length);
+		enc.flush();
+		Assert.assertEquals(values.length, enc.getValueCount());
+		Assert.assertEquals(buf.length(), enc.getBitCount());
+		
+		IEEE754[] expected = new IEEE754[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			expected[i] = IEEE754.decode(format, 
+					IEEE754.valueOf(values[i]).toBigIntegerBits(format));
+		}
+		
+		DictionaryDecoder dec = new DictionaryDecoder(
+				format, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+		for (int i = 0; i < values.length; i++)
+		{
+			Assert.assertEquals("sequential", expected[i], dec.next());
+		}
+		
+		buf.rewind();
+		dec = new DictionaryDecoder(
+				format, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+		double[] doubles = new double[values.length];
+		dec.read(doubles, 0, values.length);
+		for (int i = 0; i < values.length; i++)
+		{
+			Assert.assertEquals(
+					expected[i].doubleValue(), doubles[i], 0);
+		}
+		
+		buf.rewind();
+		dec = new DictionaryDecoder(
+				format, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+		BitBuffer packed = new BitBuffer();
+		dec.read(packed, values.length);
+		for (int i = 0; i < values.length; i++)
+		{
+			Assert.assertEquals("packed", 
+					expected[i], IEEE754.decode(format, packed));
+		}
+		
+		long[] index = enc.getBlockIndex();
+		Assert.assertEquals((values.length + BLOCK_SIZE - 1) / BLOCK_SIZE, 
+				index.length);
+		for (int block = index.length - 1; block >= 0; block--)
+		{
+			buf.position(index[block]);
+			dec = new DictionaryDecoder(
+					format, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+			for (int i = block * BLOCK_SIZE; 
+					i < Math.min(values.length, (block + 1) * BLOCK_SIZE); 
+					i++)
+			{
+				Assert.assertEquals("random access", expected[i], dec.next());
+			}
+		}
+	}
+	
+	@Test
+	public void roundTrip()
+	{
+		testRoundTrip(IEEE754Format.HALF, setPoints(1000));
+		testRoundTrip(IEEE754Format.SINGLE, setPoints(999));
+		testRoundTrip(IEEE754Format.DOUBLE, setPoints(1));
+		testRoundTrip(IEEE754Format.QUADRUPLE, setPoints(500));
+		testRoundTrip(IEEE754Format.OCTUPLE, setPoints(300));
+	}
+	
+	@Test
+	public void sizes()
+	{
+		BitBuffer buf = new BitBuffer();
+		DictionaryEncoder enc = new DictionaryEncoder(
+				IEEE754Format.DOUBLE, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+		
+		// Three distinct values: two-bit indices
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			enc.write(IEEE754.valueOf(i % 3));
+		}
+		long expected = 6 + 1 + 5 + 3 * 64 + BLOCK_SIZE * 2;
+		Assert.assertEquals(expected, enc.getBitCount());
+		
+		// A single distinct value: no indices
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			enc.write(IEEE754.valueOf(1));
+		}
+		expected += 6 + 1 + 5 + 64;
+		Assert.assertEquals(expected, enc.getBitCount());
+		
+		// Too many distinct values: raw
+		long[] values = new long[BLOCK_SIZE];
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			values[i] = random.nextLong();
+			enc.writeBits(values[i]);
+		}
+		expected += 6 + 1 + BLOCK_SIZE * 64;
+		Assert.assertEquals(expected, enc.getBitCount());
+		
+		// Dictionary no smaller than the values: raw
+		enc.writeBits(1);
+		enc.writeBits(2);
+		enc.flush();
+		expected += 6 + 1 + 2 * 64;
+		Assert.assertEquals(expected, enc.getBitCount());
+		Assert.assertEquals(buf.length(), enc.getBitCount());
+		
+		DictionaryDecoder dec = new DictionaryDecoder(
+				IEEE754Format.DOUBLE, BLOCK_SIZE, MAX_DICTIONARY_SIZE, buf);
+		long[] decoded = new long[3 * BLOCK_SIZE + 2];
+		dec.read(decoded, 0, decoded.length);
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			Assert.assertEquals(
+					Double.doubleToLongBits(i % 3), decoded[i]);
+			Assert.assertEquals(
+					Double.doubleToLongBits(1), decoded[BLOCK_SIZE + i]);
+			Assert.assertEquals(values[i], decoded[2 * BLOCK_SIZE + i]);
+		}
+		Assert.assertEquals(1, decoded[3 * BLOCK_SIZE]);
+		Assert.assertEquals(2, decoded[3 * BLOCK_SIZE + 1]);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EncodedKernelsTest
+{
+	private static final IEEE754Format SMALL = 
+			new IEEE754Format(4, 7, BigInteger.valueOf(7));
+	
+	private final Random random = new Random(41);
+	
+	private float[] floats(int count)
+	{
+		float[] values = new float[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = (float) random.nextGaussian();
+		}
+		return values;
+	}
+	
+	private static ByteBuffer pack(IEEE754Format format, float[] values)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(
+				1 + ByteStreamSplit.getPackedLength(format, values.length));
+		buf.put((byte) 0x5A);
+		IEEE754.encode(values, 0, values.length, format, 
+				BitUtils.wrapSink(buf.slice()), null);
+		buf.position(1);
+		return buf;
+	}
+	
+	private void testKernels(IEEE754Format format)
+	{
+		final int count = 1001;
+		EncodedKernels kernels = new EncodedKernels(format);
+		ByteBuffer x = pack(format, floats(count));
+		ByteBuffer y = pack(format, floats(count));
+		float[] z = floats(count);
+		
+		float[] xs = new float[count];
+		kernels.decode(x, xs, 0, count);
+		float[] ys = new float[count];
+		kernels.decode(y, ys, 0, count);
+		short[] xShorts = new short[count];
+		double sum = 0;
+		double dot = 0;
+		double dotEncoded = 0;
+		for (int i = 0; i < count; i++)
+		{
+			Assert.assertEquals(IEEE754.decode(format, x, 8 + (long) i 
+					* format.getLength()).floatValue(), xs[i], 0);
+			xShorts[i] = (short) IEEE754.valueOf(xs[i]).toLongBits(format);
+			sum += xs[i];
+			dot += (double) xs[i] * z[i];
+			dotEncoded += (double) xs[i] * ys[i];
+		}
+		Assert.assertEquals(1, x.position());
+		Assert.assertEquals(sum, kernels.sum(x, count), 0);
+		Assert.assertEquals(sum, kernels.sum(xShorts, 0, count), 0);
+		Assert.assertEquals(dot, kernels.dot(x, z, 0, count), 0);
+		Assert.assertEquals(dot, kernels.dot(xShorts, 0, z, 0, count), 0);
+		Assert.assertEquals(dotEncoded, kernels.dot(x, y, count), 0);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			Assert.assertEquals(dot, 
+					kernels.dot(x, z, 0, count, executor, 4), 1e-9);
+			Assert.assertEquals(dot, 
+					kernels.dot(xShorts, 0, z, 0, count, executor, 3), 1e-9);
+			Assert.assertEquals(dotEncoded, 
+					kernels.dot(x, y, count, executor, 5), 1e-9);
+			
+			float[] expected = z.clone();
+			for (int i = 0; i < count; i++)
+			{
+				expected[i] = (float) (0.5 * xs[i] + expected[i]);
+			}
+			float[] actual = z.clone();
+			kernels.axpy(0.5F, x, actual, 0, count, executor, 4);
+			Assert.assertArrayEquals(expected, actual, 0);
+			actual = z.clone();
+			kernels.axpy(0.5F, xShorts, 0, actual, 0, count);
+			Assert.assertArrayEquals(expected, actual, 0);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testHalf()
+	{
+		testKernels(IEEE754Format.HALF);
+	}
+	
+	@Test
+	public void testBfloat16()
+	{
+		testKernels(IEEE754Format.BFLOAT16);
+	}
+	
+	@Test
+	public void testFp8()
+	{
+		testKernels(MXFormat.IEEE_E4M3);
+	}
+	
+	@Test
+	public void testUnaligned()
+	{
+		testKernels(SMALL);
+	}
+	
+	@Test
+	public void testLittleEndian()
+	{
+		// Packed values are big-endian, whatever the buffer's order
+		EncodedKernels kernels = new EncodedKernels(IEEE754Format.HALF);
+		ByteBuffer x = pack(IEEE754Format.HALF, 
+				new float[] {1, -2, 3.5F, 0.25F});
+		x.order(ByteOrder.LITTLE_ENDIAN);
+		Assert.assertEquals(3.5F, kernels.get(x, 2), 0);
+		Assert.assertEquals(2.75, kernels.sum(x, 4), 0);
+		float[] xs = new float[4];
+		kernels.decode(x, xs, 0, 4);
+		Assert.assertArrayEquals(new float[] {1, -2, 3.5F, 0.25F}, xs, 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInexactFormat()
+	{
+		// Its exponent range exceeds a float's
+		new EncodedKernels(new IEEE754Format(9, 6, BigInteger.valueOf(255)));
+	}
+}
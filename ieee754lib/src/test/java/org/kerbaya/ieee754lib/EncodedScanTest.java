@@ -0,0 +1,303 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EncodedScanTest
+{
+	private static final IEEE754Format SMALL = 
+			new IEEE754Format(4, 7, BigInteger.valueOf(7));
+	
+	private interface Reference
+	{
+		boolean test(IEEE754 value);
+	}
+	
+	private static int rank(IEEE754 value)
+	{
+		return value.equals(IEEE754.NEGATIVE_INFINITY) ? -1 
+				: value.equals(IEEE754.POSITIVE_INFINITY) ? 1 : 0;
+	}
+	
+	private static int compare(IEEE754 a, IEEE754 b)
+	{
+		int r = rank(a) - rank(b);
+		if (r != 0 || rank(a) != 0)
+		{
+			return r;
+		}
+		return a.toBigDecimal().compareTo(b.toBigDecimal());
+	}
+	
+	private static BigInteger[] values(IEEE754Format format, int count)
+	{
+		IEEE754Random random = new IEEE754Random(
+				format, IEEE754Random.ALL_BITS, 50);
+		IEEE754Random finite = new IEEE754Random(
+				format, IEEE754Random.FINITE, 50);
+		BigInteger[] values = new BigInteger[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = (i & 1) == 0 ? 
+					random.nextBigBits() : finite.nextBigBits();
+		}
+		IEEE754[] specials = {IEEE754.POSITIVE_ZERO, IEEE754.NEGATIVE_ZERO, 
+				IEEE754.POSITIVE_INFINITY, IEEE754.NEGATIVE_INFINITY, 
+				IEEE754.NaN, IEEE754.valueOf(1), IEEE754.valueOf(-1)};
+		for (int i = 0; i < specials.length; i++)
+		{
+			values[i * 7 + 3] = specials[i].toBigIntegerBits(format);
+		}
+		return values;
+	}
+	
+	private static ByteBuffer pack(IEEE754Format format, BigInteger[] values)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(
+				1 + ByteStreamSplit.getPackedLength(format, values.length));
+		buf.put((byte) 0x5A);
+		BitSink out = BitUtils.wrapSink(buf.slice());
+		for (BigInteger value: values)
+		{
+			BitUtils.writeBits(out, value, format.getLength());
+		}
+		buf.position(1);
+		return buf;
+	}
+	
+	private static void testPredicate(
+			EncodedScan scan, 
+			BigInteger[] values, 
+			EncodedScan.Predicate predicate, 
+			Reference reference)
+	{
+		IEEE754Format format = scan.getFormat();
+		int count = values.length;
+		IEEE754[] decoded = new IEEE754[count];
+		long[] expectedBitmap = new long[(count + 63) >>> 6];
+		int expectedCount = 0;
+		int min = -1;
+		int max = -1;
+		for (int i = 0; i < count; i++)
+		{
+			decoded[i] = IEEE754.decode(format, values[i]);
+			if (reference.test(decoded[i]))
+			{
+				expectedBitmap[i >>> 6] |= 1L << i;
+				expectedCount++;
+				if (decoded[i].equals(IEEE754.NaN))
+				{
+					continue;
+				}
+				if (min == -1 || compare(decoded[i], decoded[min]) < 0)
+				{
+					min = i;
+				}
+				if (max == -1 || compare(decoded[i], decoded[max]) > 0)
+				{
+					max = i;
+				}
+			}
+		}
+		
+		ByteBuffer buf = pack(format, values);
+		Assert.assertEquals(expectedCount, scan.count(buf, count, predicate));
+		long[] bitmap = new long[expectedBitmap.length];
+		Assert.assertEquals(expectedCount, 
+				scan.select(buf, count, predicate, bitmap));
+		Assert.assertArrayEquals(expectedBitmap, bitmap);
+		int[] indices = new int[count + 1];
+		Assert.assertEquals(expectedCount, 
+				scan.select(buf, count, predicate, indices, 1));
+		for (int i = 0; i < expectedCount; i++)
+		{
+			Assert.assertTrue((expectedBitmap[indices[i + 1] >>> 6] 
+					& 1L << indices[i + 1]) != 0);
+		}
+		if (!predicate.negate)
+		{
+			Assert.assertEquals(min, scan.min(buf, count, predicate));
+			Assert.assertEquals(max, scan.max(buf, count, predicate));
+		}
+		Assert.assertEquals(1, buf.position());
+		
+		if (format.getLength() <= 64)
+		{
+			long[] array = new long[count + 2];
+			for (int i = 0; i < count; i++)
+			{
+				array[i + 2] = values[i].longValue();
+			}
+			Assert.assertEquals(expectedCount, 
+					scan.count(array, 2, count, predicate));
+			Assert.assertEquals(expectedCount, 
+					scan.select(array, 2, count, predicate, bitmap));
+			Assert.assertArrayEquals(expectedBitmap, bitmap);
+			if (!predicate.negate)
+			{
+				Assert.assertEquals(min, 
+						scan.min(array, 2, count, predicate));
+				Assert.assertEquals(max, 
+						scan.max(array, 2, count, predicate));
+			}
+		}
+	}
+	
+	private static void testScan(IEEE754Format format, BigInteger[] values)
+	{
+		EncodedScan scan = new EncodedScan(format);
+		final IEEE754 lo = IEEE754.valueOf(-1.5);
+		final IEEE754 hi = IEEE754.valueOf(2);
+		testPredicate(scan, values, scan.range(
+				lo.toBigIntegerBits(format), hi.toBigIntegerBits(format)), 
+				new Reference() {
+					@Override
+					public boolean test(IEEE754 value)
+					{
+						return !value.equals(IEEE754.NaN) 
+								&& compare(value, lo) >= 0 
+								&& compare(value, hi) < 0;
+					}
+				});
+		testPredicate(scan, values, scan.range(
+				IEEE754.NEGATIVE_ZERO.toBigIntegerBits(format), 
+				IEEE754.POSITIVE_INFINITY.toBigIntegerBits(format)), 
+				new Reference() {
+					@Override
+					public boolean test(IEEE754 value)
+					{
+						return !value.equals(IEEE754.NaN) 
+								&& rank(value) == 0 
+								&& value.toBigDecimal().signum() >= 0;
+					}
+				});
+		testPredicate(scan, values, scan.range(
+				hi.toBigIntegerBits(format), lo.toBigIntegerBits(format)), 
+				new Reference() {
+					@Override
+					public boolean test(IEEE754 value)
+					{
+						return false;
+					}
+				});
+		testPredicate(scan, values, scan.isNaN(), new Reference() {
+			@Override
+			public boolean test(IEEE754 value)
+			{
+				return value.equals(IEEE754.NaN);
+			}
+		});
+		testPredicate(scan, values, scan.isOrdered(), new Reference() {
+			@Override
+			public boolean test(IEEE754 value)
+			{
+				return !value.equals(IEEE754.NaN);
+			}
+		});
+		testPredicate(scan, values, scan.isFinite(), new Reference() {
+			@Override
+			public boolean test(IEEE754 value)
+			{
+				return !value.equals(IEEE754.NaN) && rank(value) == 0;
+			}
+		});
+		testPredicate(scan, values, scan.isNegative(), new Reference() {
+			@Override
+			public boolean test(IEEE754 value)
+			{
+				return !value.equals(IEEE754.NaN) 
+						&& (rank(value) < 0 || rank(value) == 0 
+								&& value.toBigDecimal().signum() < 0);
+			}
+		});
+		testPredicate(scan, values, scan.isPositive(), new Reference() {
+			@Override
+			public boolean test(IEEE754 value)
+			{
+				return !value.equals(IEEE754.NaN) 
+						&& (rank(value) > 0 || rank(value) == 0 
+								&& value.toBigDecimal().signum() > 0);
+			}
+		});
+	}
+	
+	@Test
+	public void everyHalf()
+	{
+		BigInteger[] values = new BigInteger[1 << 16];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = BigInteger.valueOf(i);
+		}
+		testScan(IEEE754Format.HALF, values);
+	}
+	
+	@Test
+	public void formats()
+	{
+		testScan(SMALL, values(SMALL, 1000));
+		testScan(IEEE754Format.SINGLE, values(IEEE754Format.SINGLE, 1000));
+		testScan(IEEE754Format.DOUBLE, values(IEEE754Format.DOUBLE, 1000));
+		testScan(IEEE754Format.QUADRUPLE, 
+				values(IEEE754Format.QUADRUPLE, 500));
+		testScan(IEEE754Format.OCTUPLE, values(IEEE754Format.OCTUPLE, 300));
+	}
+	
+	@Test
+	public void littleEndian()
+	{
+		// Packed values are big-endian, whatever the buffer's order
+		IEEE754Format[] formats = {MXFormat.IEEE_E4M3, IEEE754Format.HALF, 
+				IEEE754Format.SINGLE, IEEE754Format.DOUBLE};
+		double[] doubles = {1, -2, 3.5, 0.25};
+		for (IEEE754Format format: formats)
+		{
+			BigInteger[] values = new BigInteger[doubles.length];
+			for (int i = 0; i < values.length; i++)
+			{
+				values[i] = IEEE754.valueOf(doubles[i]).toBigIntegerBits(format);
+			}
+			ByteBuffer buf = pack(format, values);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			EncodedScan scan = new EncodedScan(format);
+			Assert.assertEquals(1, scan.count(buf, 4, scan.isNegative()));
+			Assert.assertEquals(1, scan.min(buf, 4, scan.isOrdered()));
+			Assert.assertEquals(2, scan.max(buf, 4, scan.isOrdered()));
+			Assert.assertEquals(ByteOrder.LITTLE_ENDIAN, buf.order());
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void nanBound()
+	{
+		EncodedScan scan = new EncodedScan(IEEE754Format.SINGLE);
+		scan.range(0, Float.floatToRawIntBits(Float.NaN));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FormatAnalyzerTest
+{
+	@Test
+	public void exactFormat()
+	{
+		FormatAnalyzer analyzer = new FormatAnalyzer();
+		analyzer.add(new double[] {1.5D, -0.25D, 12D, 0D, Double.NaN}, 0, 5);
+		IEEE754Format format = analyzer.getExactFormat();
+		Assert.assertEquals(3, format.getExponentLength());
+		Assert.assertEquals(1, format.getMantissaLength());
+		Assert.assertEquals(3, format.getExponentBias().intValue());
+		
+		analyzer.add(Double.MIN_VALUE);
+		Assert.assertEquals(1, analyzer.getSubnormalCount());
+		format = analyzer.getExactFormat();
+		Assert.assertEquals(12, format.getExponentLength());
+		Assert.assertEquals(1, format.getMantissaLength());
+	}
+	
+	@Test
+	public void candidateErrors()
+	{
+		double[] values = new double[1000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = (i - 500) * 0.1D;
+		}
+		values[0] = 1e6D;
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		FormatAnalyzer analyzer;
+		try
+		{
+			analyzer = FormatAnalyzer.analyze(values, executor, 3, 
+					IEEE754Format.HALF, 
+					IEEE754Format.SINGLE, 
+					IEEE754Format.DOUBLE);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		Assert.assertEquals(1000, analyzer.getCount());
+		Assert.assertEquals(1, analyzer.getZeroCount());
+		
+		Assert.assertEquals(1, analyzer.getOverflowCount(0));
+		Assert.assertEquals(Double.POSITIVE_INFINITY, 
+				analyzer.getMaxRelativeError(0), 0D);
+		
+		double maxSingleError = 0D;
+		for (double value: values)
+		{
+			if (value != 0D)
+			{
+				maxSingleError = Math.max(maxSingleError, 
+						Math.abs((float) value - value) / Math.abs(value));
+			}
+		}
+		Assert.assertEquals(maxSingleError, 
+				analyzer.getMaxRelativeError(1), 0D);
+		Assert.assertTrue(analyzer.getMeanRelativeError(1) < maxSingleError);
+		Assert.assertEquals(0D, analyzer.getMaxRelativeError(2), 0D);
+		
+		Assert.assertSame(IEEE754Format.SINGLE, 
+				analyzer.getRecommendedFormat(1e-7D, 
+						Double.POSITIVE_INFINITY));
+		Assert.assertSame(IEEE754Format.DOUBLE, 
+				analyzer.getRecommendedFormat(1e-9D, 
+						Double.POSITIVE_INFINITY));
+	}
+}
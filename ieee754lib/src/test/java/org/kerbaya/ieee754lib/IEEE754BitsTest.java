@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kerbaya.ieee754lib.IEEE754.IEEE754Bits;
+
+public class IEEE754BitsTest
+{
+	private static final IEEE754Format[] FORMATS = {
+			IEEE754Format.HALF,
+			IEEE754Format.SINGLE,
+			IEEE754Format.DOUBLE,
+			IEEE754Format.QUADRUPLE};
+	
+	private final Random random = new Random(36);
+	
+	private BigInteger nextBits(IEEE754Format format)
+	{
+		return new BigInteger(format.getLength(), random);
+	}
+	
+	@Test
+	public void matchesDecode()
+	{
+		for (IEEE754Format format: FORMATS)
+		{
+			for (int i = 0; i < 2000; i++)
+			{
+				BigInteger bits = nextBits(format);
+				IEEE754 expected = IEEE754.decode(format, bits);
+				IEEE754Bits actual = new IEEE754Bits(format, bits);
+				Assert.assertEquals(bits, actual.getBits());
+				Assert.assertEquals(expected, actual);
+				Assert.assertEquals(actual, expected);
+				Assert.assertEquals(expected.hashCode(), actual.hashCode());
+				Assert.assertEquals(Double.doubleToLongBits(
+						expected.doubleValue()), 
+						Double.doubleToLongBits(actual.doubleValue()));
+				for (IEEE754Format target: FORMATS)
+				{
+					IEEE754Status expectedStatus = new IEEE754Status();
+					IEEE754Status actualStatus = new IEEE754Status();
+					Assert.assertEquals(
+							expected.toBigIntegerBits(target), 
+							actual.toBigIntegerBits(target));
+					expected.toBits(target, 
+							new BitBuffer(), expectedStatus);
+					actual.toBits(target, new BitBuffer(), actualStatus);
+					Assert.assertEquals(expectedStatus.getFlags(), 
+							actualStatus.getFlags());
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void sameFormatCopiesBits()
+	{
+		for (int i = 0; i < 1000; i++)
+		{
+			long bits = random.nextLong();
+			IEEE754Bits value = new IEEE754Bits(IEEE754Format.DOUBLE, bits);
+			if (!Double.isNaN(Double.longBitsToDouble(bits)))
+			{
+				Assert.assertEquals(bits, 
+						value.toLongBits(IEEE754Format.DOUBLE));
+			}
+		}
+		Assert.assertEquals(0x7E00L, new IEEE754Bits(
+				IEEE754Format.HALF, 0xFC01L).toLongBits(IEEE754Format.HALF));
+	}
+	
+	@Test
+	public void serialization() throws IOException, ClassNotFoundException
+	{
+		IEEE754[] values = new IEEE754[100];
+		for (int i = 0; i < values.length; i++)
+		{
+			IEEE754Format format = FORMATS[i % FORMATS.length];
+			values[i] = new IEEE754Bits(format, nextBits(format));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(values);
+		out.close();
+		
+		ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		Assert.assertArrayEquals(values, (IEEE754[]) in.readObject());
+	}
+}
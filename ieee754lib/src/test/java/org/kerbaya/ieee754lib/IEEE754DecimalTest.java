@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IEEE754DecimalTest
+{
+	private static final IEEE754DecimalFormat[] FORMATS = {
+			IEEE754DecimalFormat.DECIMAL32, 
+			IEEE754DecimalFormat.DECIMAL64, 
+			IEEE754DecimalFormat.DECIMAL128, 
+			IEEE754DecimalFormat.DECIMAL32_DPD, 
+			IEEE754DecimalFormat.DECIMAL64_DPD, 
+			IEEE754DecimalFormat.DECIMAL128_DPD};
+	
+	private final Random random = new Random(38);
+	
+	private BigDecimal randomDecimal(IEEE754DecimalFormat format)
+	{
+		BigInteger coefficient = new BigInteger(
+				random.nextInt(format.getPrecision() * 4) + 1, random);
+		int exponent = random.nextInt(2 * format.getMaxExponent()) 
+				- format.getMaxExponent() - format.getPrecision() / 2;
+		return new BigDecimal(random.nextBoolean() ? 
+				coefficient.negate() : coefficient, -exponent);
+	}
+	
+	private static long[] encode(
+			IEEE754DecimalFormat format, IEEE754Decimal value)
+	{
+		long[] bits = new long[2];
+		format.encode(value, bits, 0, null);
+		return bits;
+	}
+	
+	private static IEEE754Decimal decode(
+			IEEE754DecimalFormat format, long[] bits)
+	{
+		return format.decode(bits[0], bits[1]);
+	}
+	
+	@Test
+	public void testDeclets()
+	{
+		for (int i = 0; i < 1000; i++)
+		{
+			Assert.assertEquals(i, IEEE754DecimalFormat.fromDeclet(
+					IEEE754DecimalFormat.toDeclet(i)));
+		}
+	}
+	
+	@Test
+	public void testKnownEncodings()
+	{
+		IEEE754Decimal one = new IEEE754Decimal(false, 1, 0);
+		Assert.assertEquals(0x32800001L, 
+				IEEE754DecimalFormat.DECIMAL32.encode(one, null));
+		Assert.assertEquals(0x22500001L, 
+				IEEE754DecimalFormat.DECIMAL32_DPD.encode(one, null));
+		Assert.assertEquals(0x31C0000000000001L, 
+				IEEE754DecimalFormat.DECIMAL64.encode(one, null));
+		Assert.assertEquals(0x2238000000000001L, 
+				IEEE754DecimalFormat.DECIMAL64_DPD.encode(one, null));
+		Assert.assertArrayEquals(
+				new long[] {0x3040000000000000L, 1}, 
+				encode(IEEE754DecimalFormat.DECIMAL128, one));
+		Assert.assertArrayEquals(
+				new long[] {0x2208000000000000L, 1}, 
+				encode(IEEE754DecimalFormat.DECIMAL128_DPD, one));
+		
+		// 9999999 x 10^90: the largest decimal32
+		IEEE754Decimal max = new IEEE754Decimal(false, 9999999, 90);
+		Assert.assertEquals(0x77F8967FL, 
+				IEEE754DecimalFormat.DECIMAL32.encode(max, null));
+		Assert.assertEquals(0x77F3FCFFL, 
+				IEEE754DecimalFormat.DECIMAL32_DPD.encode(max, null));
+		
+		Assert.assertEquals(0x78000000L, IEEE754DecimalFormat.DECIMAL32.encode(
+				IEEE754Decimal.POSITIVE_INFINITY, null));
+		Assert.assertEquals(0x7C000000L, IEEE754DecimalFormat.DECIMAL32.encode(
+				IEEE754Decimal.NaN, null));
+	}
+	
+	@Test
+	public void testRoundTrip()
+	{
+		for (IEEE754DecimalFormat format: FORMATS)
+		{
+			MathContext mc = new MathContext(
+					format.getPrecision(), RoundingMode.HALF_EVEN);
+			for (int i = 0; i < 2000; i++)
+			{
+				BigDecimal value = randomDecimal(format);
+				IEEE754Decimal decimal = IEEE754Decimal.valueOf(
+						value, format, null);
+				if (decimal.isInfinite())
+				{
+					continue;
+				}
+				BigDecimal rounded = value.round(mc);
+				if (-rounded.scale() >= -format.getExponentBias())
+				{
+					Assert.assertEquals(0, 
+							rounded.compareTo(decimal.toBigDecimal()));
+				}
+				Assert.assertEquals(decimal, 
+						decode(format, encode(format, decimal)));
+			}
+		}
+	}
+	
+	@Test
+	public void testDensePackedMatchesBinary()
+	{
+		IEEE754DecimalFormat[][] pairs = {
+				{IEEE754DecimalFormat.DECIMAL32, 
+						IEEE754DecimalFormat.DECIMAL32_DPD}, 
+				{IEEE754DecimalFormat.DECIMAL64, 
+						IEEE754DecimalFormat.DECIMAL64_DPD}, 
+				{IEEE754DecimalFormat.DECIMAL128, 
+						IEEE754DecimalFormat.DECIMAL128_DPD}};
+		for (IEEE754DecimalFormat[] pair: pairs)
+		{
+			for (int i = 0; i < 2000; i++)
+			{
+				IEEE754Decimal value = IEEE754Decimal.valueOf(
+						randomDecimal(pair[0]), pair[0], null);
+				Assert.assertEquals(
+						decode(pair[0], encode(pair[0], value)), 
+						decode(pair[1], encode(pair[1], value)));
+			}
+		}
+	}
+	
+	@Test
+	public void testBinaryConversion()
+	{
+		for (IEEE754DecimalFormat format: FORMATS)
+		{
+			MathContext mc = new MathContext(
+					format.getPrecision(), RoundingMode.HALF_EVEN);
+			for (int i = 0; i < 2000; i++)
+			{
+				double d = Double.longBitsToDouble(random.nextLong());
+				if (Double.isNaN(d) || Double.isInfinite(d) || d == 0)
+				{
+					continue;
+				}
+				IEEE754Decimal decimal = IEEE754Decimal.valueOf(
+						d, format, null);
+				if (decimal.isInfinite() 
+						|| decimal.getCoefficient().signum() == 0)
+				{
+					continue;
+				}
+				BigDecimal exact = new BigDecimal(d);
+				BigDecimal rounded = exact.round(mc);
+				if (-rounded.scale() >= -format.getExponentBias())
+				{
+					Assert.assertEquals(0, 
+							rounded.compareTo(decimal.toBigDecimal()));
+				}
+				Assert.assertEquals(
+						decimal.toBigDecimal().doubleValue(), 
+						decimal.doubleValue(), 
+						0);
+			}
+		}
+	}
+	
+	@Test
+	public void testStatus()
+	{
+		IEEE754Status status = new IEEE754Status();
+		IEEE754Decimal.valueOf(
+				new BigDecimal("1.5E97"), IEEE754DecimalFormat.DECIMAL32, status);
+		Assert.assertTrue(status.test(IEEE754Status.OVERFLOW));
+		status.clear();
+		IEEE754Decimal value = IEEE754Decimal.valueOf(
+				0.1, IEEE754DecimalFormat.DECIMAL64, status);
+		Assert.assertEquals(IEEE754Status.INEXACT, status.getFlags());
+		Assert.assertEquals(new BigDecimal("0.1000000000000000"), 
+				value.toBigDecimal());
+		Assert.assertEquals(0.1, value.doubleValue(), 0);
+		status.clear();
+		IEEE754Decimal.valueOf(new BigDecimal("1.23E-101"), 
+				IEEE754DecimalFormat.DECIMAL32, status);
+		Assert.assertEquals(
+				IEEE754Status.SUBNORMAL 
+						| IEEE754Status.UNDERFLOW 
+						| IEEE754Status.INEXACT, 
+				status.getFlags());
+	}
+	
+	@Test
+	public void testBuffer()
+	{
+		for (IEEE754DecimalFormat format: FORMATS)
+		{
+			double[] values = new double[100];
+			for (int i = 0; i < values.length; i++)
+			{
+				values[i] = random.nextInt(2000000) / 1000D;
+			}
+			int size = format.getLength() / 8;
+			ByteBuffer buf = ByteBuffer.allocate(values.length * size + 1);
+			buf.put((byte) 0x5A);
+			format.encode(values, 0, values.length, buf, null);
+			Assert.assertEquals(buf.capacity(), buf.position());
+			buf.position(1);
+			double[] actual = new double[values.length];
+			format.decode(buf, actual, 0, actual.length);
+			Assert.assertArrayEquals(values, actual, 0);
+			
+			buf.position(1);
+			IEEE754Decimal[] decimals = new IEEE754Decimal[values.length];
+			format.decode(buf, decimals, 0, decimals.length);
+			for (int i = 0; i < values.length; i++)
+			{
+				Assert.assertEquals(
+						IEEE754Decimal.valueOf(values[i], format, null), 
+						decimals[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IEEE754MathTest
+{
+	private static final IEEE754Format QUAD = IEEE754Format.QUADRUPLE;
+	private static final IEEE754Format OCT = IEEE754Format.OCTUPLE;
+	
+	private static double evaluate(int function, double x)
+	{
+		return IEEE754.decode(IEEE754Format.DOUBLE, IEEE754Math.evaluate(
+				function, IEEE754Format.DOUBLE, 
+				BigInteger.valueOf(Double.doubleToRawLongBits(x)), null))
+				.doubleValue();
+	}
+	
+	private static double pow(double x, double y)
+	{
+		return IEEE754.decode(IEEE754Format.DOUBLE, IEEE754Math.pow(
+				IEEE754Format.DOUBLE, 
+				BigInteger.valueOf(Double.doubleToRawLongBits(x)), 
+				BigInteger.valueOf(Double.doubleToRawLongBits(y)), null))
+				.doubleValue();
+	}
+	
+	private static BigInteger quad(double x)
+	{
+		return IEEE754.valueOf(x).toBigIntegerBits(QUAD);
+	}
+	
+	@Test
+	public void knownDoubles()
+	{
+		Assert.assertEquals(Math.E, evaluate(IEEE754Math.EXP, 1), 0);
+		Assert.assertEquals(0.6931471805599453, 
+				evaluate(IEEE754Math.LOG, 2), 0);
+		Assert.assertEquals(1.2246467991473532E-16, 
+				evaluate(IEEE754Math.SIN, Math.PI), 0);
+		Assert.assertEquals(6.123233995736766E-17, 
+				evaluate(IEEE754Math.COS, Math.PI / 2), 0);
+		Assert.assertEquals(-0.8522008497671888, 
+				evaluate(IEEE754Math.SIN, 1E22), 0);
+		Assert.assertEquals(1E-300, evaluate(IEEE754Math.SIN, 1E-300), 0);
+		Assert.assertEquals(Math.sqrt(2), pow(2, 0.5), 0);
+	}
+	
+	@Test
+	public void nearStrictMath()
+	{
+		Random random = new Random(49);
+		for (int i = 0; i < 200; i++)
+		{
+			double x = (random.nextDouble() - 0.5) * 100;
+			Assert.assertEquals(StrictMath.exp(x), 
+					evaluate(IEEE754Math.EXP, x), Math.ulp(StrictMath.exp(x)));
+			Assert.assertEquals(StrictMath.sin(x), 
+					evaluate(IEEE754Math.SIN, x), Math.ulp(StrictMath.sin(x)));
+			Assert.assertEquals(StrictMath.cos(x), 
+					evaluate(IEEE754Math.COS, x), Math.ulp(StrictMath.cos(x)));
+			double y = Math.abs(x);
+			Assert.assertEquals(StrictMath.log(y), 
+					evaluate(IEEE754Math.LOG, y), Math.ulp(StrictMath.log(y)));
+			double z = random.nextDouble() * 4;
+			Assert.assertEquals(StrictMath.pow(z, x / 10), pow(z, x / 10), 
+					Math.ulp(StrictMath.pow(z, x / 10)));
+		}
+	}
+	
+	/**
+	 * Rounding a result from a format twice as precise almost never differs 
+	 * from rounding the exact result
+	 */
+	@Test
+	public void quadrupleMatchesOctuple()
+	{
+		Random random = new Random(49);
+		for (int i = 0; i < 50; i++)
+		{
+			BigInteger x = quad((random.nextDouble() - 0.5) * 20)
+					.xor(BigInteger.valueOf(random.nextLong() & 0xFFFFFF));
+			BigInteger xOct = IEEE754.decode(QUAD, x).toBigIntegerBits(OCT);
+			for (int function = IEEE754Math.EXP; 
+					function <= IEEE754Math.COS; 
+					function++)
+			{
+				BigInteger xf = function == IEEE754Math.LOG ? 
+						x.clearBit(127) : x;
+				BigInteger xfOct = function == IEEE754Math.LOG ? 
+						xOct.clearBit(255) : xOct;
+				Assert.assertEquals(
+						IEEE754.decode(OCT, IEEE754Math.evaluate(
+								function, OCT, xfOct, null))
+								.toBigIntegerBits(QUAD), 
+						IEEE754Math.evaluate(function, QUAD, xf, null));
+			}
+		}
+	}
+	
+	@Test
+	public void largeArguments()
+	{
+		IEEE754Status status = new IEEE754Status();
+		Assert.assertEquals(IEEE754.POSITIVE_INFINITY, IEEE754.decode(QUAD, 
+				IEEE754Math.exp(QUAD, quad(12000), status)));
+		Assert.assertTrue(status.test(IEEE754Status.OVERFLOW));
+		status.clear();
+		Assert.assertEquals(IEEE754.POSITIVE_ZERO, IEEE754.decode(QUAD, 
+				IEEE754Math.exp(QUAD, quad(-1E300), status)));
+		Assert.assertTrue(status.test(IEEE754Status.UNDERFLOW));
+		
+		/*
+		 * Reducing sin's argument needs pi to over a thousand bits
+		 */
+		BigInteger x = quad(Double.MAX_VALUE);
+		BigInteger xOct = IEEE754.decode(QUAD, x).toBigIntegerBits(OCT);
+		Assert.assertEquals(
+				IEEE754.decode(OCT, IEEE754Math.sin(OCT, xOct, null))
+						.toBigIntegerBits(QUAD), 
+				IEEE754Math.sin(QUAD, x, null));
+		Assert.assertEquals(
+				IEEE754.decode(OCT, IEEE754Math.log(OCT, xOct, null))
+						.toBigIntegerBits(QUAD), 
+				IEEE754Math.log(QUAD, x, null));
+	}
+	
+	@Test
+	public void special()
+	{
+		Assert.assertEquals(1, evaluate(IEEE754Math.EXP, -0D), 0);
+		Assert.assertEquals(0, evaluate(IEEE754Math.EXP, 
+				Double.NEGATIVE_INFINITY), 0);
+		Assert.assertTrue(Double.isNaN(evaluate(IEEE754Math.LOG, -1)));
+		Assert.assertEquals(Double.NEGATIVE_INFINITY, 
+				evaluate(IEEE754Math.LOG, 0), 0);
+		Assert.assertEquals(0, evaluate(IEEE754Math.LOG, 1), 0);
+		Assert.assertTrue(Double.isNaN(evaluate(
+				IEEE754Math.SIN, Double.POSITIVE_INFINITY)));
+		Assert.assertEquals(Double.doubleToRawLongBits(-0D), 
+				Double.doubleToRawLongBits(evaluate(IEEE754Math.SIN, -0D)));
+		Assert.assertEquals(1, evaluate(IEEE754Math.COS, 0), 0);
+		
+		Assert.assertEquals(1, pow(Double.NaN, 0), 0);
+		Assert.assertEquals(1, pow(1, Double.NaN), 0);
+		Assert.assertEquals(1, pow(-1, Double.POSITIVE_INFINITY), 0);
+		Assert.assertEquals(Double.NEGATIVE_INFINITY, pow(-0D, -3), 0);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, pow(-0D, -2), 0);
+		Assert.assertEquals(Double.doubleToRawLongBits(-0D), 
+				Double.doubleToRawLongBits(pow(-0D, 3)));
+		Assert.assertEquals(0, pow(0.5, Double.POSITIVE_INFINITY), 0);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, 
+				pow(0.5, Double.NEGATIVE_INFINITY), 0);
+		Assert.assertEquals(Double.NEGATIVE_INFINITY, 
+				pow(Double.NEGATIVE_INFINITY, 3), 0);
+		Assert.assertEquals(0, pow(Double.POSITIVE_INFINITY, -1), 0);
+		Assert.assertTrue(Double.isNaN(pow(-2, 0.5)));
+		Assert.assertEquals(1, pow(-1, 1E300), 0);
+		Assert.assertEquals(-1, pow(-1, 0x1p40 + 1), 0);
+	}
+	
+	@Test
+	public void exactPowers()
+	{
+		IEEE754Status status = new IEEE754Status();
+		BigInteger r = IEEE754Math.pow(QUAD, quad(3), quad(40), status);
+		Assert.assertEquals(IEEE754.valueOf(BigInteger.valueOf(3).pow(40)), 
+				IEEE754.decode(QUAD, r));
+		Assert.assertFalse(status.test(IEEE754Status.INEXACT));
+		Assert.assertEquals(-0.125, pow(-2, -3), 0);
+		Assert.assertEquals(1 / 9D, pow(3, -2), 0);
+		
+		/*
+		 * (1 + 2^-30)^2 needs 61 bits, and rounds as a tie to even
+		 */
+		double x = 1 + Math.scalb(1D, -30);
+		Assert.assertEquals(x * x, pow(x, 2), 0);
+	}
+	
+	private static boolean isExactPow(double x, double y, double expected)
+	{
+		IEEE754Status status = new IEEE754Status();
+		BigInteger r = IEEE754Math.pow(IEEE754Format.DOUBLE, 
+				BigInteger.valueOf(Double.doubleToRawLongBits(x)), 
+				BigInteger.valueOf(Double.doubleToRawLongBits(y)), status);
+		Assert.assertEquals(expected, IEEE754.decode(
+				IEEE754Format.DOUBLE, r).doubleValue(), 0);
+		return !status.test(IEEE754Status.INEXACT);
+	}
+	
+	@Test
+	public void exactRoots()
+	{
+		Assert.assertTrue(isExactPow(4, 0.5, 2));
+		Assert.assertTrue(isExactPow(4, -0.5, 0.5));
+		Assert.assertTrue(isExactPow(9, 1.5, 27));
+		Assert.assertTrue(isExactPow(0x1p-40, 0.25, 0x1p-10));
+		Assert.assertTrue(isExactPow(6561, 0.125, 3));
+		Assert.assertFalse(isExactPow(2, 0.5, Math.sqrt(2)));
+		Assert.assertFalse(isExactPow(8, 1.5, Math.sqrt(512)));
+	}
+	
+	@Test
+	public void bulk()
+	{
+		int count = 20;
+		ByteBuffer src = ByteBuffer.allocate(count * 16);
+		ByteBuffer y = ByteBuffer.allocate(count * 16);
+		BitSink srcOut = BitUtils.wrapSink(src, 0);
+		BitSink yOut = BitUtils.wrapSink(y, 0);
+		for (int i = 0; i < count; i++)
+		{
+			IEEE754.valueOf(i * 0.75).toBits(QUAD, srcOut);
+			IEEE754.valueOf(1.5 - i).toBits(QUAD, yOut);
+		}
+		src.rewind();
+		y.rewind();
+		ByteBuffer dest = ByteBuffer.allocate(count * 16);
+		IEEE754Math.evaluate(IEEE754Math.COS, QUAD, src, dest, count, null);
+		Assert.assertEquals(count * 16, src.position());
+		Assert.assertEquals(count * 16, dest.position());
+		BitSource in = BitUtils.wrapSource(dest, 0);
+		for (int i = 0; i < count; i++)
+		{
+			Assert.assertEquals(IEEE754.decode(QUAD, 
+					IEEE754Math.cos(QUAD, quad(i * 0.75), null)), 
+					IEEE754.decode(QUAD, in));
+		}
+		
+		src.rewind();
+		dest.clear();
+		IEEE754Math.pow(QUAD, src, y, dest, count, null);
+		Assert.assertEquals(count * 16, y.position());
+		in = BitUtils.wrapSource(dest, 0);
+		for (int i = 0; i < count; i++)
+		{
+			Assert.assertEquals(IEEE754.decode(QUAD, IEEE754Math.pow(
+					QUAD, quad(i * 0.75), quad(1.5 - i), null)), 
+					IEEE754.decode(QUAD, in));
+		}
+	}
+}
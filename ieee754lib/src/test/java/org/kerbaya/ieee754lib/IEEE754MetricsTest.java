@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IEEE754MetricsTest
+{
+	/**
+	 * A format no other test uses, so that its counters are ours alone
+	 */
+	private static final IEEE754Format FORMAT = 
+			new IEEE754Format(5, 6, BigInteger.valueOf(15));
+	
+	private static final double[] VALUES = {
+			1, -2.5, 0x1P-16, -0D, Double.POSITIVE_INFINITY, Double.NaN, 1E9};
+	
+	@Before
+	public void setUp()
+	{
+		IEEE754Metrics.reset();
+		IEEE754Metrics.setEnabled(true);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		IEEE754Metrics.setEnabled(false);
+		IEEE754Metrics.reset();
+	}
+	
+	private static void assertCounts(
+			long[] expected, boolean encoded, IEEE754Format format)
+	{
+		for (int i = 0; i < expected.length; i++)
+		{
+			Assert.assertEquals(expected[i], encoded ? 
+					IEEE754Metrics.getEncodedCount(format, i) : 
+					IEEE754Metrics.getDecodedCount(format, i));
+		}
+	}
+	
+	@Test
+	public void testClassification()
+	{
+		ByteBuffer buf = ByteBuffer.allocate(16);
+		BitSink out = BitUtils.wrapSink(buf);
+		IEEE754.encode(VALUES, 0, VALUES.length, FORMAT, out, null);
+		
+		// 1E9 overflows to infinity
+		long[] expected = {2, 1, 1, 2, 1};
+		assertCounts(expected, true, FORMAT);
+		
+		buf.rewind();
+		BitSource in = BitUtils.wrapSource(buf);
+		for (int i = 0; i < VALUES.length; i++)
+		{
+			IEEE754.decode(FORMAT, in);
+		}
+		assertCounts(expected, false, FORMAT);
+		
+		for (int i = 0; i < VALUES.length; i++)
+		{
+			IEEE754.valueOf(VALUES[i]).toBits(FORMAT, BitUtils.wrapSink(
+					ByteBuffer.allocate(2)), null);
+		}
+		assertCounts(new long[] {4, 2, 2, 4, 2}, true, FORMAT);
+	}
+	
+	@Test
+	public void testTranscodeCounts()
+	{
+		IEEE754Format.SINGLE.transcode(IEEE754Format.HALF, 
+				Float.floatToRawIntBits(0x1P-20F) & 0xFFFFFFFFL, null);
+		IEEE754Format.SINGLE.transcode(IEEE754Format.HALF, 
+				Float.floatToRawIntBits(1F) & 0xFFFFFFFFL, null);
+		Assert.assertEquals(1, IEEE754Metrics.getEncodedCount(
+				IEEE754Format.HALF, IEEE754Metrics.SUBNORMAL));
+		Assert.assertEquals(1, IEEE754Metrics.getEncodedCount(
+				IEEE754Format.HALF, IEEE754Metrics.NORMAL));
+	}
+	
+	@Test
+	public void testReadCounts()
+	{
+		// Reading as a double decodes the format: nothing is encoded
+		RecordSchema schema = new RecordSchema(RecordSchema.floatField(FORMAT));
+		RecordSchema.Record record = schema.newRecord();
+		for (double value: VALUES)
+		{
+			long bits = IEEE754.valueOf(value).toLongBits(FORMAT);
+			new IEEE754.IEEE754Bits(FORMAT, bits).doubleValue();
+			record.set(0, value);
+			record.getDouble(0);
+		}
+		assertCounts(new long[] {4, 2, 2, 4, 2}, false, FORMAT);
+		assertCounts(new long[5], true, IEEE754Format.DOUBLE);
+	}
+	
+	@Test
+	public void testDisabled()
+	{
+		IEEE754Metrics.setEnabled(false);
+		IEEE754.encode(VALUES, 0, VALUES.length, FORMAT, 
+				BitUtils.wrapSink(ByteBuffer.allocate(16)), null);
+		assertCounts(new long[5], true, FORMAT);
+	}
+	
+	@Test
+	public void testChannelBytes()
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		FlushableBitSink out = 
+				BitUtils.wrapSink(Channels.newChannel(bytes));
+		IEEE754.encode(VALUES, 0, VALUES.length, IEEE754Format.SINGLE, 
+				out, null);
+		out.flush();
+		Assert.assertEquals(VALUES.length * 4, 
+				IEEE754Metrics.getChannelBytesWritten());
+	}
+	
+	@Test
+	public void testListener()
+	{
+		final List<IEEE754Status> reports = new ArrayList<IEEE754Status>();
+		IEEE754Metrics.Listener listener = new IEEE754Metrics.Listener() {
+			@Override
+			public void converted(
+					IEEE754Format source, 
+					IEEE754Format target, 
+					int count, 
+					long bytes, 
+					IEEE754Status status, 
+					long nanos)
+			{
+				Assert.assertEquals(IEEE754Format.DOUBLE, source);
+				Assert.assertEquals(FORMAT, target);
+				Assert.assertEquals(VALUES.length, count);
+				Assert.assertEquals(
+						(VALUES.length * FORMAT.getLength() + 7) / 8, bytes);
+				Assert.assertTrue(nanos >= 0);
+				reports.add(status);
+			}
+		};
+		IEEE754Metrics.addListener(listener);
+		IEEE754Status status = new IEEE754Status();
+		try
+		{
+			IEEE754.encode(VALUES, 0, VALUES.length, FORMAT, 
+					BitUtils.wrapSink(ByteBuffer.allocate(16)), status);
+			
+			ByteBuffer src = ByteBuffer.allocate(VALUES.length * 8);
+			for (double value: VALUES)
+			{
+				src.putDouble(value);
+			}
+			src.flip();
+			IEEE754Format.DOUBLE.transcode(FORMAT, src, 
+					ByteBuffer.allocate(16), VALUES.length, status);
+		}
+		finally
+		{
+			IEEE754Metrics.removeListener(listener);
+		}
+		Assert.assertEquals(2, reports.size());
+		for (IEEE754Status report: reports)
+		{
+			Assert.assertEquals(VALUES.length, report.getValueCount());
+			Assert.assertEquals(1, report.getCount(IEEE754Status.OVERFLOW));
+			Assert.assertTrue(report.test(IEEE754Status.NAN));
+		}
+		Assert.assertEquals(VALUES.length * 2, status.getValueCount());
+		Assert.assertEquals(2, status.getCount(IEEE754Status.OVERFLOW));
+	}
+}
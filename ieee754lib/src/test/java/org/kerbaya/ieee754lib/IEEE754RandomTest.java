@@ -0,0 +1,234 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IEEE754RandomTest
+{
+	private static final int COUNT = 10000;
+	
+	private static BigInteger exponentBits(
+			IEEE754Format format, BigInteger bits)
+	{
+		int shift = format.getMantissaLength() 
+				+ (format.hasExplicitIntegerBit() ? 1 : 0);
+		return bits.shiftRight(shift).and(BigInteger.ONE.shiftLeft(
+				format.getExponentLength()).subtract(BigInteger.ONE));
+	}
+	
+	private void testFinite(IEEE754Format format)
+	{
+		IEEE754Random random = new IEEE754Random(
+				format, IEEE754Random.FINITE, 48);
+		int negative = 0;
+		int subnormal = 0;
+		for (int i = 0; i < COUNT; i++)
+		{
+			BigInteger bits = random.nextBigBits();
+			BigInteger exponent = exponentBits(format, bits);
+			Assert.assertTrue(
+					exponent.bitCount() < format.getExponentLength());
+			if (format.hasExplicitIntegerBit())
+			{
+				Assert.assertEquals(exponent.signum() != 0, 
+						bits.testBit(format.getMantissaLength()));
+			}
+			if (bits.testBit(format.getLength() - 1))
+			{
+				negative++;
+			}
+			if (exponent.signum() == 0)
+			{
+				subnormal++;
+			}
+		}
+		Assert.assertTrue(
+				negative > COUNT * 2 / 5 && negative < COUNT * 3 / 5);
+		if (format.getExponentLength() == 5)
+		{
+			Assert.assertTrue(subnormal > 0);
+		}
+	}
+	
+	@Test
+	public void finite()
+	{
+		testFinite(IEEE754Format.HALF);
+		testFinite(IEEE754Format.DOUBLE);
+		testFinite(IEEE754Format.EXTENDED);
+		testFinite(IEEE754Format.QUADRUPLE);
+		testFinite(IEEE754Format.OCTUPLE);
+		
+		IEEE754Random random = new IEEE754Random(
+				IEEE754Format.SINGLE, IEEE754Random.FINITE);
+		for (int i = 0; i < COUNT; i++)
+		{
+			float f = Float.intBitsToFloat((int) random.nextBits());
+			Assert.assertFalse(Float.isNaN(f) || Float.isInfinite(f));
+		}
+	}
+	
+	private void testUnitInterval(IEEE754Format format)
+	{
+		IEEE754Random random = new IEEE754Random(
+				format, IEEE754Random.UNIT_INTERVAL, 49);
+		BigInteger bias = format.getExponentBias();
+		int upper = 0;
+		for (int i = 0; i < COUNT; i++)
+		{
+			BigInteger bits = random.nextBigBits();
+			BigInteger exponent = exponentBits(format, bits);
+			Assert.assertFalse(bits.testBit(format.getLength() - 1));
+			Assert.assertTrue(exponent.compareTo(bias) < 0);
+			if (format.hasExplicitIntegerBit())
+			{
+				Assert.assertEquals(exponent.signum() != 0, 
+						bits.testBit(format.getMantissaLength()));
+			}
+			if (exponent.equals(bias.subtract(BigInteger.ONE)))
+			{
+				upper++;
+			}
+		}
+		Assert.assertTrue(upper > COUNT * 2 / 5 && upper < COUNT * 3 / 5);
+	}
+	
+	@Test
+	public void unitInterval()
+	{
+		testUnitInterval(IEEE754Format.HALF);
+		testUnitInterval(IEEE754Format.DOUBLE);
+		testUnitInterval(IEEE754Format.EXTENDED);
+		testUnitInterval(IEEE754Format.QUADRUPLE);
+		testUnitInterval(IEEE754Format.OCTUPLE);
+		
+		IEEE754Random random = new IEEE754Random(
+				IEEE754Format.DOUBLE, IEEE754Random.UNIT_INTERVAL, 50);
+		double sum = 0;
+		for (int i = 0; i < COUNT; i++)
+		{
+			double d = random.next().doubleValue();
+			Assert.assertTrue(d >= 0 && d < 1);
+			sum += d;
+		}
+		Assert.assertEquals(0.5, sum / COUNT, 0.02);
+		
+		/*
+		 * A format whose unit interval is all sub-normal is uniform too
+		 */
+		IEEE754Format tiny = new IEEE754Format(3, 4, BigInteger.ONE);
+		random = new IEEE754Random(tiny, IEEE754Random.UNIT_INTERVAL, 51);
+		int[] counts = new int[16];
+		for (int i = 0; i < COUNT * 16; i++)
+		{
+			long bits = random.nextBits();
+			Assert.assertTrue(bits < 16);
+			counts[(int) bits]++;
+		}
+		for (int count : counts)
+		{
+			Assert.assertTrue(
+					count > COUNT * 9 / 10 && count < COUNT * 11 / 10);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void unitIntervalUnrepresentable()
+	{
+		new IEEE754Random(new IEEE754Format(3, 4, BigInteger.ZERO), 
+				IEEE754Random.UNIT_INTERVAL);
+	}
+	
+	private void testBulk(IEEE754Format format, int distribution)
+	{
+		IEEE754Random single = new IEEE754Random(format, distribution, 52);
+		IEEE754Random packed = new IEEE754Random(format, distribution, 52);
+		IEEE754Random buffered = new IEEE754Random(format, distribution, 52);
+		BitBuffer buf = new BitBuffer();
+		packed.next(buf, 100);
+		ByteBuffer bb = ByteBuffer.allocate(100 * 64);
+		bb.put((byte) 0x5A);
+		buffered.next(bb, 100);
+		Assert.assertEquals(
+				1 + (100 * format.getLength() + 7) / 8, bb.position());
+		BitSource in = BitUtils.wrapSource(bb, 8);
+		for (int i = 0; i < 100; i++)
+		{
+			IEEE754 expected = single.next();
+			Assert.assertEquals(expected, IEEE754.decode(format, buf));
+			Assert.assertEquals(expected, IEEE754.decode(format, in));
+		}
+		
+		if (format.getLength() <= 64)
+		{
+			long[] bits = new long[100];
+			new IEEE754Random(format, distribution, 53).next(bits, 0, 100);
+			single = new IEEE754Random(format, distribution, 53);
+			for (int i = 0; i < 100; i++)
+			{
+				Assert.assertEquals(single.nextBits(), bits[i]);
+			}
+		}
+	}
+	
+	@Test
+	public void bulk()
+	{
+		for (int distribution = IEEE754Random.ALL_BITS; 
+				distribution <= IEEE754Random.UNIT_INTERVAL; 
+				distribution++)
+		{
+			testBulk(IEEE754Format.HALF, distribution);
+			testBulk(IEEE754Format.DOUBLE, distribution);
+			testBulk(IEEE754Format.EXTENDED, distribution);
+			testBulk(IEEE754Format.OCTUPLE, distribution);
+		}
+	}
+	
+	@Test
+	public void split()
+	{
+		IEEE754Random a = new IEEE754Random(
+				IEEE754Format.DOUBLE, IEEE754Random.ALL_BITS, 54);
+		IEEE754Random b = a.split();
+		IEEE754Random c = new IEEE754Random(
+				IEEE754Format.DOUBLE, IEEE754Random.ALL_BITS, 54).split();
+		int same = 0;
+		for (int i = 0; i < COUNT; i++)
+		{
+			long bits = b.nextBits();
+			Assert.assertEquals(bits, c.nextBits());
+			if (bits == a.nextBits())
+			{
+				same++;
+			}
+		}
+		Assert.assertEquals(0, same);
+	}
+}
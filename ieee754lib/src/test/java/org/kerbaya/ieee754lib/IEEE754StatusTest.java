@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IEEE754StatusTest
+{
+	private int encodeFlags(double value, IEEE754Format format)
+	{
+		IEEE754Status status = new IEEE754Status();
+		IEEE754.valueOf(value).toBits(
+				format, BitUtils.wrapSink(new byte[32]), status);
+		Assert.assertEquals("value count", 1, status.getValueCount());
+		return status.getFlags();
+	}
+	
+	@Test
+	public void singleValueFlags()
+	{
+		Assert.assertEquals(0, encodeFlags(1D, IEEE754Format.HALF));
+		Assert.assertEquals(0, encodeFlags(-0D, IEEE754Format.HALF));
+		Assert.assertEquals(0, encodeFlags(
+				Double.NEGATIVE_INFINITY, IEEE754Format.HALF));
+		Assert.assertEquals(IEEE754Status.INEXACT, 
+				encodeFlags(0.1D, IEEE754Format.SINGLE));
+		Assert.assertEquals(
+				IEEE754Status.OVERFLOW | IEEE754Status.INEXACT, 
+				encodeFlags(65536D, IEEE754Format.HALF));
+		Assert.assertEquals(IEEE754Status.SUBNORMAL, 
+				encodeFlags(Math.pow(2D, -24D), IEEE754Format.HALF));
+		Assert.assertEquals(
+				IEEE754Status.SUBNORMAL 
+						| IEEE754Status.UNDERFLOW 
+						| IEEE754Status.INEXACT, 
+				encodeFlags(Math.pow(2D, -23D) * 1.1D, IEEE754Format.HALF));
+		Assert.assertEquals(
+				IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT, 
+				encodeFlags(Double.MIN_VALUE, IEEE754Format.SINGLE));
+		Assert.assertEquals(IEEE754Status.NAN, 
+				encodeFlags(Double.NaN, IEEE754Format.DOUBLE));
+	}
+	
+	@Test
+	public void bulkCounts()
+	{
+		double[] values = {1D, 0.1D, 1e10D, 0.2D, Double.NaN, 0.5D};
+		IEEE754Status status = new IEEE754Status();
+		IEEE754.encode(values, 0, values.length, IEEE754Format.HALF, 
+				BitUtils.wrapSink(new byte[values.length * 2]), status);
+		Assert.assertEquals(6, status.getValueCount());
+		Assert.assertEquals(3, status.getCount(IEEE754Status.INEXACT));
+		Assert.assertEquals(1, status.getCount(IEEE754Status.OVERFLOW));
+		Assert.assertEquals(1, status.getCount(IEEE754Status.NAN));
+		Assert.assertEquals(0, status.getCount(IEEE754Status.UNDERFLOW));
+		
+		IEEE754Status total = new IEEE754Status();
+		total.add(status);
+		total.add(status);
+		Assert.assertEquals(6, total.getCount(IEEE754Status.INEXACT));
+		total.clear();
+		Assert.assertEquals(0, total.getFlags());
+		Assert.assertEquals(0, total.getValueCount());
+	}
+}
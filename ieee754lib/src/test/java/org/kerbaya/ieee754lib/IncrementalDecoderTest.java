@@ -0,0 +1,235 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.EOFException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IncrementalDecoderTest
+{
+	/**
+	 * 12 bits long, so values start on every other half-byte
+	 */
+	private static final IEEE754Format FORMAT = 
+			new IEEE754Format(4, 7, BigInteger.valueOf(7));
+	
+	private static final int COUNT = 21;
+	
+	private static class Recorder implements IncrementalDecoder.Listener
+	{
+		final List<IEEE754> values = new ArrayList<IEEE754>();
+		boolean completed;
+		Exception error;
+		
+		@Override
+		public void onValue(IEEE754 value)
+		{
+			values.add(value);
+		}
+		
+		@Override
+		public void onComplete()
+		{
+			completed = true;
+		}
+		
+		@Override
+		public void onError(Exception e)
+		{
+			error = e;
+		}
+	}
+	
+	private static class BatchRecorder extends Recorder 
+			implements IncrementalDecoder.BatchListener
+	{
+		int batches;
+		
+		@Override
+		public void onValue(IEEE754 value)
+		{
+			throw new AssertionError();
+		}
+		
+		@Override
+		public void onValues(IEEE754[] values, int offset, int length)
+		{
+			batches++;
+			for (int i = 0; i < length; i++)
+			{
+				this.values.add(values[offset + i]);
+			}
+		}
+	}
+	
+	private final Random random = new Random(28);
+	
+	private final List<IEEE754> expected = new ArrayList<IEEE754>();
+	
+	private final byte[] bytes;
+	
+	public IncrementalDecoderTest()
+	{
+		bytes = new byte[(COUNT * FORMAT.getLength() + 7) >>> 3];
+		BitSink out = BitUtils.wrapSink(bytes);
+		for (int i = 0; i < COUNT; i++)
+		{
+			long bits = random.nextInt(1 << FORMAT.getLength());
+			expected.add(IEEE754.decode(FORMAT, bits));
+			BitUtils.writeBits(out, bits, FORMAT.getLength());
+		}
+	}
+	
+	@Test
+	public void splitAtEveryOffset()
+	{
+		for (int split = 0; split <= bytes.length; split++)
+		{
+			Recorder listener = new Recorder();
+			IncrementalDecoder decoder = 
+					new IncrementalDecoder(FORMAT, listener);
+			decoder.request(Long.MAX_VALUE);
+			Assert.assertTrue(decoder.feed(ByteBuffer.wrap(bytes, 0, split)));
+			Assert.assertTrue(decoder.feed(
+					ByteBuffer.wrap(bytes, split, bytes.length - split)));
+			Assert.assertEquals(expected, listener.values);
+			
+			// The padding of the final byte
+			Assert.assertEquals(4, decoder.getBufferedBitCount());
+			decoder.complete();
+			Assert.assertTrue(listener.completed);
+			Assert.assertNull(listener.error);
+		}
+	}
+	
+	@Test
+	public void demand()
+	{
+		Recorder listener = new Recorder();
+		IncrementalDecoder decoder = new IncrementalDecoder(FORMAT, listener);
+		ByteBuffer chunk = ByteBuffer.wrap(bytes);
+		
+		Assert.assertFalse(decoder.feed(chunk));
+		Assert.assertEquals(0, chunk.position());
+		
+		// 3 values end half-way through the fifth byte
+		decoder.request(3);
+		Assert.assertFalse(decoder.feed(chunk));
+		Assert.assertEquals(5, chunk.position());
+		Assert.assertEquals(expected.subList(0, 3), listener.values);
+		Assert.assertEquals(0, decoder.getDemand());
+		Assert.assertEquals(4, decoder.getBufferedBitCount());
+		
+		decoder.request(COUNT - 3);
+		Assert.assertTrue(decoder.feed(chunk));
+		Assert.assertEquals(expected, listener.values);
+	}
+	
+	@Test
+	public void requestFromListener()
+	{
+		final IncrementalDecoder[] decoder = new IncrementalDecoder[1];
+		Recorder listener = new Recorder() {
+			@Override
+			public void onValue(IEEE754 value)
+			{
+				super.onValue(value);
+				decoder[0].request(1);
+			}
+		};
+		decoder[0] = new IncrementalDecoder(FORMAT, listener);
+		decoder[0].request(1);
+		Assert.assertTrue(decoder[0].feed(ByteBuffer.wrap(bytes)));
+		Assert.assertEquals(expected, listener.values);
+		Assert.assertEquals(1, decoder[0].getDemand());
+	}
+	
+	@Test
+	public void batches()
+	{
+		final IncrementalDecoder[] decoder = new IncrementalDecoder[1];
+		BatchRecorder listener = new BatchRecorder() {
+			@Override
+			public void onValues(IEEE754[] values, int offset, int length)
+			{
+				super.onValues(values, offset, length);
+				decoder[0].request(5);
+			}
+		};
+		decoder[0] = new IncrementalDecoder(FORMAT, listener);
+		decoder[0].request(5);
+		Assert.assertTrue(decoder[0].feed(ByteBuffer.wrap(bytes)));
+		Assert.assertEquals(expected, listener.values);
+		Assert.assertEquals((COUNT + 4) / 5, listener.batches);
+	}
+	
+	@Test
+	public void truncated()
+	{
+		Recorder listener = new Recorder();
+		IncrementalDecoder decoder = new IncrementalDecoder(FORMAT, listener);
+		decoder.request(Long.MAX_VALUE);
+		Assert.assertTrue(decoder.feed(
+				ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+		Assert.assertEquals(expected.subList(0, COUNT - 1), listener.values);
+		Assert.assertEquals(8, decoder.getBufferedBitCount());
+		decoder.complete();
+		Assert.assertFalse(listener.completed);
+		Assert.assertTrue(listener.error instanceof EOFException);
+	}
+	
+	@Test
+	public void cancel()
+	{
+		final IncrementalDecoder[] decoder = new IncrementalDecoder[1];
+		Recorder listener = new Recorder() {
+			@Override
+			public void onValue(IEEE754 value)
+			{
+				super.onValue(value);
+				decoder[0].cancel();
+			}
+		};
+		decoder[0] = new IncrementalDecoder(FORMAT, listener);
+		decoder[0].request(Long.MAX_VALUE);
+		ByteBuffer chunk = ByteBuffer.wrap(bytes);
+		Assert.assertFalse(decoder[0].feed(chunk));
+		Assert.assertEquals(expected.subList(0, 1), listener.values);
+		
+		// The rest of the stream is discarded
+		Assert.assertTrue(decoder[0].feed(chunk));
+		Assert.assertFalse(chunk.hasRemaining());
+		decoder[0].complete();
+		Assert.assertEquals(1, listener.values.size());
+		Assert.assertFalse(listener.completed);
+		Assert.assertNull(listener.error);
+	}
+}
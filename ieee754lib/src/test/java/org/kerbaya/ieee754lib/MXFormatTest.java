@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MXFormatTest
+{
+	private static final int BLOCK_SIZE = 32;
+	
+	private final Random random = new Random(37);
+	
+	private double[] weights(int count)
+	{
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++)
+		{
+			/*
+			 * Vary the magnitude from block to block
+			 */
+			values[i] = Math.scalb(
+					random.nextGaussian(), (i / BLOCK_SIZE) % 40 - 20);
+		}
+		return values;
+	}
+	
+	/**
+	 * @return the value rounded through the generic encoder, and saturated
+	 */
+	private static double expected(
+			IEEE754Format format, double value, int exponent)
+	{
+		IEEE754 element = IEEE754.valueOf(Math.scalb(value, -exponent));
+		double rounded = IEEE754.decode(
+				format, element.toLongBits(format)).doubleValue();
+		if (Double.isInfinite(rounded))
+		{
+			rounded = Math.copySign(Math.scalb(
+					2D - Math.scalb(1D, -format.getMantissaLength()), 
+					format.maxExponent), rounded);
+		}
+		return Math.scalb(rounded, exponent);
+	}
+	
+	private void testRoundTrip(IEEE754Format format)
+	{
+		MXFormat mx = new MXFormat(format, BLOCK_SIZE);
+		double[] values = weights(1000);
+		ByteBuffer buf = ByteBuffer.allocate(mx.getPackedLength(1000) + 1);
+		buf.put((byte) 0x5A);
+		mx.encode(values, 0, values.length, buf, null);
+		Assert.assertEquals(1 + mx.getPackedLength(1000), buf.position());
+		
+		buf.position(1);
+		double[] actual = new double[values.length];
+		mx.decode(buf, actual, 0, actual.length);
+		Assert.assertEquals(1 + mx.getPackedLength(1000), buf.position());
+		buf.position(1);
+		
+		for (int block = 0; block < values.length; block += BLOCK_SIZE)
+		{
+			double max = 0;
+			for (int i = block; 
+					i < Math.min(values.length, block + BLOCK_SIZE); 
+					i++)
+			{
+				max = Math.max(max, Math.abs(values[i]));
+			}
+			int exponent = Math.getExponent(max) - format.maxExponent;
+			for (int i = block; 
+					i < Math.min(values.length, block + BLOCK_SIZE); 
+					i++)
+			{
+				Assert.assertEquals(
+						expected(format, values[i], exponent), actual[i], 0D);
+				Assert.assertEquals(actual[i], mx.get(buf, i), 0D);
+			}
+		}
+	}
+	
+	@Test
+	public void roundTrip()
+	{
+		testRoundTrip(MXFormat.FP8_E5M2);
+		testRoundTrip(MXFormat.IEEE_E4M3);
+		testRoundTrip(MXFormat.IEEE_E3M2);
+		testRoundTrip(MXFormat.IEEE_E2M3);
+		testRoundTrip(IEEE754Format.HALF);
+	}
+	
+	@Test
+	public void saturates()
+	{
+		/*
+		 * 1.97 rounds above the largest E4M3 significand, 1.875
+		 */
+		MXFormat mx = new MXFormat(MXFormat.IEEE_E4M3, 4);
+		ByteBuffer buf = ByteBuffer.allocate(mx.getPackedLength(4));
+		IEEE754Status status = new IEEE754Status();
+		mx.encode(new float[] {1.97F, -1.97F, 1F, 0F}, 0, 4, buf, status);
+		Assert.assertEquals(0, status.getCount(IEEE754Status.OVERFLOW));
+		Assert.assertEquals(2, status.getCount(IEEE754Status.INEXACT));
+		
+		buf.flip();
+		float[] actual = new float[4];
+		mx.decode(buf, actual, 0, 4);
+		Assert.assertArrayEquals(
+				new float[] {1.875F, -1.875F, 1F, 0F}, actual, 0F);
+	}
+	
+	@Test
+	public void nanBlock()
+	{
+		MXFormat mx = new MXFormat(MXFormat.IEEE_E2M1, 2);
+		ByteBuffer buf = ByteBuffer.allocate(mx.getPackedLength(5));
+		mx.encode(new double[] {1D, 2D, 3D, Double.NaN, 0D}, 0, 5, buf, null);
+		buf.flip();
+		double[] actual = new double[5];
+		mx.decode(buf, actual, 0, 5);
+		Assert.assertArrayEquals(
+				new double[] {1D, 2D, Double.NaN, Double.NaN, 0D}, actual, 0D);
+	}
+}
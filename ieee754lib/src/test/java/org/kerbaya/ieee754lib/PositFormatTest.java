@@ -0,0 +1,221 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PositFormatTest
+{
+	private static final PositFormat[] TABLED = {
+			PositFormat.POSIT8, 
+			PositFormat.POSIT16, 
+			new PositFormat(8, 0), 
+			new PositFormat(12, 1)};
+	
+	private final Random random = new Random(45);
+	
+	@Test
+	public void testKnownValues()
+	{
+		PositFormat p8 = PositFormat.POSIT8;
+		Assert.assertEquals(0x40, p8.fromDouble(1, null));
+		Assert.assertEquals(0x38, p8.fromDouble(0.5, null));
+		Assert.assertEquals(0x44, p8.fromDouble(1.5, null));
+		Assert.assertEquals(0xC0, p8.fromDouble(-1, null));
+		Assert.assertEquals(0x80, p8.fromDouble(Double.NaN, null));
+		Assert.assertEquals(0, p8.fromDouble(-0D, null));
+		Assert.assertEquals(0x1P24, p8.toDouble(0x7F, null), 0);
+		Assert.assertEquals(0x1P-24, p8.toDouble(0x01, null), 0);
+		Assert.assertEquals(-0x1P24, p8.toDouble(0x81, null), 0);
+		Assert.assertTrue(Double.isNaN(p8.toDouble(0x80, null)));
+		Assert.assertSame(IEEE754.NaN, p8.decode(0x80));
+		Assert.assertSame(IEEE754.POSITIVE_ZERO, p8.decode(0));
+		
+		IEEE754Status status = new IEEE754Status();
+		Assert.assertEquals(0x7F, p8.fromDouble(0x1P30, status));
+		Assert.assertEquals(0x01, p8.fromDouble(0x1P-30, status));
+		Assert.assertEquals(0x80, p8.fromDouble(
+				Double.NEGATIVE_INFINITY, status));
+		Assert.assertEquals(2, status.getCount(IEEE754Status.INEXACT));
+		Assert.assertEquals(1, status.getCount(IEEE754Status.NAN));
+		
+		Assert.assertEquals(0x4000, 
+				PositFormat.POSIT16.fromDouble(1, null));
+		Assert.assertEquals(0x1P56, 
+				PositFormat.POSIT16.toDouble(0x7FFF, null), 0);
+		Assert.assertEquals(0x40000000L, 
+				PositFormat.POSIT32.fromDouble(1, null));
+		Assert.assertEquals(0x4000000000000000L, 
+				PositFormat.POSIT64.fromDouble(1, null));
+		Assert.assertEquals(0x1P-248, 
+				PositFormat.POSIT64.toDouble(1, null), 0);
+	}
+	
+	@Test
+	public void testEveryPosit16()
+	{
+		PositFormat format = PositFormat.POSIT16;
+		double previous = Double.NEGATIVE_INFINITY;
+		for (int i = 0x8001; i != 0x8000; i = (i + 1) & 0xFFFF)
+		{
+			double d = format.toDouble(i, null);
+			
+			// Posits are ordered as two's complement integers
+			Assert.assertTrue(d > previous);
+			previous = d;
+			
+			IEEE754 value = format.decode(i);
+			Assert.assertEquals(d, value.doubleValue(), 0);
+			Assert.assertEquals(i, format.fromDouble(d, null));
+			Assert.assertEquals(i, format.encode(value, null));
+			Assert.assertEquals(i, format.fromFormat(IEEE754Format.DOUBLE, 
+					Double.doubleToRawLongBits(d), null));
+			Assert.assertEquals(
+					value.toBigIntegerBits(IEEE754Format.HALF).longValue(), 
+					format.toFormat(IEEE754Format.HALF, i, null));
+		}
+	}
+	
+	@Test
+	public void testFromHalf()
+	{
+		for (int i = 0; i < 0x10000; i++)
+		{
+			IEEE754Status expectedStatus = new IEEE754Status();
+			IEEE754Status actualStatus = new IEEE754Status();
+			long expected = PositFormat.POSIT16.encode(
+					IEEE754.decode(IEEE754Format.HALF, i), expectedStatus);
+			Assert.assertEquals(expected, PositFormat.POSIT16.fromFormat(
+					IEEE754Format.HALF, i, actualStatus));
+			Assert.assertEquals(
+					expectedStatus.getFlags(), actualStatus.getFlags());
+		}
+	}
+	
+	private double nextDouble(PositFormat format)
+	{
+		switch (random.nextInt(4))
+		{
+		case 0:
+			// A tie, or close to one
+			long bits = random.nextInt(1 << format.getLength()) << 1 | 1;
+			double d = new PositFormat(format.getLength() + 1, 
+					format.getExponentLength()).toDouble(bits, null);
+			return random.nextBoolean() ? d : Math.nextUp(d);
+		case 1:
+			return Double.longBitsToDouble(random.nextLong());
+		default:
+			return Math.scalb(random.nextGaussian(), random.nextInt(160) - 80);
+		}
+	}
+	
+	@Test
+	public void testTablesMatchArithmetic()
+	{
+		for (PositFormat format: TABLED)
+		{
+			int count = 10000;
+			double[] values = new double[count];
+			for (int i = 0; i < count; i++)
+			{
+				values[i] = nextDouble(format);
+			}
+			ByteBuffer buf = ByteBuffer.allocate(count * 2 + 1);
+			buf.put((byte) 0x5A);
+			IEEE754Status tableStatus = new IEEE754Status();
+			format.encode(values, 0, count, buf, tableStatus);
+			Assert.assertEquals(
+					1 + (count * format.getLength() + 7) / 8, buf.position());
+			
+			IEEE754Status status = new IEEE754Status();
+			BitSource in = BitUtils.wrapSource(buf, 8);
+			for (int i = 0; i < count; i++)
+			{
+				Assert.assertEquals(format.fromDouble(values[i], status), 
+						BitUtils.readBits(in, format.getLength()));
+			}
+			Assert.assertEquals(status.toString(), tableStatus.toString());
+			
+			double[] decoded = new double[count];
+			buf.position(1);
+			format.decode(buf, decoded, 0, count);
+			in = BitUtils.wrapSource(buf, 8);
+			for (int i = 0; i < count; i++)
+			{
+				Assert.assertEquals(
+						format.toDouble(BitUtils.readBits(
+								in, format.getLength()), null), 
+						decoded[i], 0);
+			}
+		}
+	}
+	
+	@Test
+	public void testPosit64()
+	{
+		PositFormat format = PositFormat.POSIT64;
+		for (int i = 0; i < 10000; i++)
+		{
+			// Posit64 holds at least 53 significant bits near one
+			double d = Math.scalb(random.nextGaussian(), 
+					random.nextInt(40) - 20);
+			IEEE754Status status = new IEEE754Status();
+			long bits = format.fromDouble(d, status);
+			Assert.assertFalse(status.test(IEEE754Status.INEXACT));
+			Assert.assertEquals(d, format.toDouble(bits, status), 0);
+			Assert.assertEquals(IEEE754.valueOf(d), format.decode(bits));
+			Assert.assertEquals(bits, format.encode(IEEE754.valueOf(d), null));
+		}
+	}
+	
+	@Test
+	public void testWideFormats()
+	{
+		PositFormat format = PositFormat.POSIT32;
+		for (int i = 0; i < 1000; i++)
+		{
+			long bits = random.nextInt() & 0xFFFFFFFFL;
+			ByteBuffer buf = ByteBuffer.allocate(16);
+			format.toFormat(IEEE754Format.QUADRUPLE, 
+					new LongBitSource(bits, 32), BitUtils.wrapSink(buf), null);
+			buf.rewind();
+			IEEE754 value = IEEE754.decode(
+					IEEE754Format.QUADRUPLE, BitUtils.wrapSource(buf));
+			Assert.assertEquals(format.decode(bits), value);
+			
+			LongBitSink out = new LongBitSink();
+			buf.rewind();
+			format.fromFormat(IEEE754Format.QUADRUPLE, 
+					BitUtils.wrapSource(buf), out, null);
+			Assert.assertEquals(bits, out.getBits());
+		}
+		Assert.assertEquals(new IEEE754.IEEE754Number(
+				BigInteger.valueOf(-120), BigInteger.ONE), format.decode(1));
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecordSchemaTest
+{
+	private static final IEEE754Format SMALL = 
+			new IEEE754Format(4, 7, BigInteger.valueOf(7));
+	
+	private static final RecordSchema TELEMETRY = new RecordSchema(
+			RecordSchema.floatField(IEEE754Format.HALF), 
+			RecordSchema.floatField(SMALL), 
+			RecordSchema.unsignedField(3), 
+			RecordSchema.floatField(IEEE754Format.SINGLE), 
+			RecordSchema.bitField(), 
+			RecordSchema.paddingField(5), 
+			RecordSchema.signedField(13), 
+			RecordSchema.floatField(IEEE754Format.QUADRUPLE));
+	
+	private final Random random = new Random(40);
+	
+	private RecordSchema.Record[] records(int count)
+	{
+		RecordSchema.Record[] records = new RecordSchema.Record[count];
+		for (int i = 0; i < count; i++)
+		{
+			RecordSchema.Record record = TELEMETRY.newRecord();
+			record.set(0, random.nextGaussian());
+			record.set(1, random.nextGaussian());
+			record.setLong(2, random.nextInt(8));
+			record.set(3, random.nextGaussian() * 1000);
+			record.setBoolean(4, random.nextBoolean());
+			record.setLong(6, random.nextInt(8192) - 4096);
+			record.set(7, random.nextGaussian());
+			records[i] = record;
+		}
+		return records;
+	}
+	
+	@Test
+	public void testLayout()
+	{
+		Assert.assertEquals(16 + 12 + 3 + 32 + 1 + 5 + 13 + 128, 
+				TELEMETRY.getLength());
+		Assert.assertEquals(31, TELEMETRY.getOffset(3));
+		Assert.assertEquals(6, TELEMETRY.getPackedLength(1) * 8 
+				- TELEMETRY.getLength());
+	}
+	
+	@Test
+	public void testMatchesSequentialDecode()
+	{
+		final int count = 100;
+		RecordSchema.Record[] records = records(count);
+		ByteBuffer buf = ByteBuffer.allocate(TELEMETRY.getPackedLength(count));
+		TELEMETRY.encode(records, 0, count, buf);
+		Assert.assertEquals(buf.capacity(), buf.position());
+		
+		BitSource in = BitUtils.wrapSource((ByteBuffer) buf.duplicate().flip());
+		for (int i = 0; i < count; i++)
+		{
+			RecordSchema.Record record = records[i];
+			Assert.assertEquals(record.get(0), 
+					IEEE754.decode(IEEE754Format.HALF, in));
+			Assert.assertEquals(record.get(1), IEEE754.decode(SMALL, in));
+			Assert.assertEquals(record.getLong(2), BitUtils.readBits(in, 3));
+			Assert.assertEquals(record.getDouble(3), 
+					IEEE754.decode(IEEE754Format.SINGLE, in).doubleValue(), 0);
+			Assert.assertEquals(record.getBoolean(4), in.next());
+			Assert.assertEquals(0, BitUtils.readBits(in, 5));
+			Assert.assertEquals(record.getLong(6), 
+					BitUtils.readBits(in, 13) << 51 >> 51);
+			Assert.assertEquals(record.get(7), 
+					IEEE754.decode(IEEE754Format.QUADRUPLE, in));
+		}
+		
+		buf.flip();
+		RecordSchema.Record[] actual = new RecordSchema.Record[count];
+		for (int i = 0; i < count; i++)
+		{
+			actual[i] = TELEMETRY.newRecord();
+		}
+		TELEMETRY.decode(buf, actual, 0, count);
+		Assert.assertEquals(buf.limit(), buf.position());
+		RecordSchema.Record streamed = TELEMETRY.newRecord();
+		in = BitUtils.wrapSource((ByteBuffer) buf.duplicate().flip());
+		for (int i = 0; i < count; i++)
+		{
+			TELEMETRY.read(in, streamed);
+			for (int field = 0; field < TELEMETRY.getFieldCount(); field++)
+			{
+				if (TELEMETRY.getField(field).getFormat() != null)
+				{
+					Assert.assertEquals(records[i].get(field), 
+							actual[i].get(field));
+					Assert.assertEquals(records[i].get(field), 
+							streamed.get(field));
+				}
+			}
+			Assert.assertEquals(records[i].getLong(6), actual[i].getLong(6));
+		}
+	}
+	
+	@Test
+	public void testColumns()
+	{
+		final int count = 50;
+		RecordSchema.Record[] records = records(count);
+		ByteBuffer buf = ByteBuffer.allocate(
+				1 + TELEMETRY.getPackedLength(count));
+		buf.put((byte) 0x5A);
+		TELEMETRY.encode(records, 0, count, buf);
+		
+		double[] singles = new double[count];
+		TELEMETRY.decode(buf, 8, 3, singles, 0, count);
+		double[] quads = new double[count];
+		TELEMETRY.decode(buf, 8, 7, quads, 0, count);
+		long[] signed = new long[count];
+		TELEMETRY.decode(buf, 8, 6, signed, 0, count);
+		for (int i = 0; i < count; i++)
+		{
+			Assert.assertEquals(records[i].getDouble(3), singles[i], 0);
+			Assert.assertEquals(records[i].getDouble(7), quads[i], 0);
+			Assert.assertEquals(records[i].getLong(6), signed[i]);
+		}
+	}
+	
+	@Test
+	public void testWideFieldStatus()
+	{
+		// Field 7 is longer than 64 bits
+		RecordSchema.Record record = TELEMETRY.newRecord();
+		IEEE754Status status = new IEEE754Status();
+		record.set(7, IEEE754.valueOf(0.5), status);
+		Assert.assertFalse(status.test(IEEE754Status.INEXACT));
+		
+		IEEE754 tenth = IEEE754.valueOf(
+				new BigDecimal("0.1"), IEEE754Format.OCTUPLE, 
+				RoundingMode.HALF_EVEN);
+		record.set(7, tenth, status);
+		Assert.assertTrue(status.test(IEEE754Status.INEXACT));
+		Assert.assertEquals(0.1, record.getDouble(7), 0);
+	}
+	
+	@Test
+	public void testRange()
+	{
+		RecordSchema.Record record = TELEMETRY.newRecord();
+		record.setLong(6, -4096);
+		record.setLong(6, 4095);
+		try
+		{
+			record.setLong(6, 4096);
+			Assert.fail();
+		}
+		catch (IllegalArgumentException e) {}
+		try
+		{
+			record.setLong(2, 8);
+			Assert.fail();
+		}
+		catch (IllegalArgumentException e) {}
+		try
+		{
+			record.set(2, 1D);
+			Assert.fail();
+		}
+		catch (IllegalArgumentException e) {}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kerbaya.ieee754lib.IEEE754.IEEE754Number;
+
+public class SerializationTest
+{
+	private IEEE754[] sampleValues()
+	{
+		RandomFp r = new RandomFp();
+		IEEE754[] values = new IEEE754[1000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = IEEE754.valueOf(r.nextDouble());
+		}
+		values[0] = IEEE754.POSITIVE_ZERO;
+		values[1] = IEEE754.NEGATIVE_ZERO;
+		values[2] = IEEE754.POSITIVE_INFINITY;
+		values[3] = IEEE754.NEGATIVE_INFINITY;
+		values[4] = IEEE754.NaN;
+		values[5] = new IEEE754Number(
+				BigInteger.ONE.shiftLeft(100).negate(), 
+				BigInteger.ONE.shiftLeft(200).subtract(BigInteger.ONE));
+		values[6] = new IEEE754Number(
+				BigInteger.valueOf(Long.MIN_VALUE), 
+				BigInteger.valueOf(-3));
+		return values;
+	}
+	
+	@Test
+	public void objectStream() throws IOException, ClassNotFoundException
+	{
+		IEEE754[] values = sampleValues();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(values);
+		out.close();
+		
+		ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		IEEE754[] actual = (IEEE754[]) in.readObject();
+		Assert.assertArrayEquals(values, actual);
+		for (int i = 0; i < 5; i++)
+		{
+			Assert.assertSame(values[i], actual[i]);
+		}
+	}
+	
+	@Test
+	public void compactArray() throws IOException
+	{
+		IEEE754[] values = sampleValues();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		IEEE754.writeArray(values, 0, values.length, 
+				new DataOutputStream(bytes));
+		Assert.assertTrue("at most 11 bytes per double", 
+				bytes.size() < values.length * 11 + 100);
+		
+		IEEE754[] actual = IEEE754.readArray(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertArrayEquals(values, actual);
+	}
+}
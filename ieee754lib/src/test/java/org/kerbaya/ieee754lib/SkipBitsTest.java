@@ -0,0 +1,247 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SkipBitsTest
+{
+	private final Random random = new Random(46);
+	
+	private byte[] randomBytes(int count)
+	{
+		byte[] r = new byte[count];
+		random.nextBytes(r);
+		return r;
+	}
+	
+	/**
+	 * Skips and reads runs of bits, checking each read against the same bits
+	 * read by offset
+	 */
+	private void assertSkips(byte[] bytes, BitSource in)
+	{
+		BitSource expected = BitUtils.wrapSource(ByteBuffer.wrap(bytes), 0);
+		long offset = 0;
+		long end = (long) bytes.length << 3;
+		while (true)
+		{
+			long skip = random.nextInt(random.nextBoolean() ? 8 : 300);
+			int read = random.nextInt(13);
+			if (offset + skip + read > end)
+			{
+				break;
+			}
+			BitUtils.skipBits(in, skip);
+			offset += skip;
+			if (in instanceof SeekableBitSource)
+			{
+				Assert.assertEquals(
+						offset, ((SeekableBitSource) in).position());
+			}
+			((SeekableBitSource) expected).position(offset);
+			Assert.assertEquals(BitUtils.readBits(expected, read), 
+					BitUtils.readBits(in, read));
+			offset += read;
+		}
+	}
+	
+	@Test
+	public void testBuffer()
+	{
+		byte[] bytes = randomBytes(1000);
+		assertSkips(bytes, BitUtils.wrapSource(bytes));
+		assertSkips(bytes, BitUtils.wrapSource(ByteBuffer.wrap(bytes), 0));
+		
+		SeekableBitSource in = (SeekableBitSource) BitUtils.wrapSource(bytes);
+		for (int i = 0; i < 100; i++)
+		{
+			long offset = random.nextInt((bytes.length - 8) << 3);
+			in.position(offset);
+			Assert.assertEquals(offset, in.position());
+			Assert.assertEquals(BitUtils.readBits(BitUtils.wrapSource(
+					ByteBuffer.wrap(bytes), offset), 64), 
+					BitUtils.readBits(in, 64));
+		}
+	}
+	
+	@Test
+	public void testBitBuffer()
+	{
+		byte[] bytes = randomBytes(1000);
+		BitBuffer buffer = new BitBuffer();
+		for (byte b: bytes)
+		{
+			buffer.writeBits(b, 8);
+		}
+		assertSkips(bytes, buffer);
+		
+		buffer.rewind();
+		buffer.skipBits(buffer.length());
+		Assert.assertEquals(0, buffer.remaining());
+		try
+		{
+			buffer.skipBits(1);
+			Assert.fail();
+		}
+		catch (IllegalStateException e) {}
+	}
+	
+	@Test
+	public void testStream()
+	{
+		byte[] bytes = randomBytes(100000);
+		assertSkips(bytes, BitUtils.wrapSource(
+				Channels.newChannel(new ByteArrayInputStream(bytes))));
+		
+		// Sources that can't skip read the bits instead
+		final BitSource wrapped = BitUtils.wrapSource(bytes);
+		assertSkips(bytes, new BitSource() {
+			@Override
+			public boolean next()
+			{
+				return wrapped.next();
+			}
+		});
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testStalledChannel()
+	{
+		// A channel with no bytes ready fails the skip, as it does a read
+		BitSource in = BitUtils.wrapSource(new ReadableByteChannel() {
+			@Override
+			public boolean isOpen()
+			{
+				return true;
+			}
+			
+			@Override
+			public void close()
+			{
+			}
+			
+			@Override
+			public int read(ByteBuffer dst)
+			{
+				return 0;
+			}
+		});
+		BitUtils.skipBits(in, 64);
+	}
+	
+	@Test
+	public void testFile() throws IOException
+	{
+		byte[] bytes = randomBytes(100000);
+		File file = File.createTempFile("skip", ".bin");
+		try
+		{
+			FileOutputStream out = new FileOutputStream(file);
+			try
+			{
+				out.write(bytes);
+			}
+			finally
+			{
+				out.close();
+			}
+			FileInputStream in = new FileInputStream(file);
+			try
+			{
+				IEEE754Metrics.reset();
+				IEEE754Metrics.setEnabled(true);
+				try
+				{
+					SeekableBitSource source = 
+							BitUtils.wrapSource(in.getChannel());
+					source.position(((long) bytes.length << 3) - 12);
+					Assert.assertEquals(BitUtils.readBits(BitUtils.wrapSource(
+							ByteBuffer.wrap(bytes), 
+							((long) bytes.length << 3) - 12), 12), 
+							BitUtils.readBits(source, 12));
+					
+					// Only the bytes holding the bits were read
+					Assert.assertEquals(2, 
+							IEEE754Metrics.getChannelBytesRead());
+				}
+				finally
+				{
+					IEEE754Metrics.setEnabled(false);
+					IEEE754Metrics.reset();
+				}
+				
+				in.getChannel().position(0);
+				assertSkips(bytes, BitUtils.wrapSource(in));
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void testRecords()
+	{
+		RecordSchema schema = new RecordSchema(
+				RecordSchema.floatField(IEEE754Format.HALF), 
+				RecordSchema.unsignedField(6), 
+				RecordSchema.paddingField(2));
+		int count = 50;
+		RecordSchema.Record[] records = new RecordSchema.Record[count];
+		for (int i = 0; i < count; i++)
+		{
+			records[i] = schema.newRecord();
+			records[i].setLong(1, i);
+		}
+		ByteBuffer buf = ByteBuffer.allocate(schema.getPackedLength(count));
+		schema.encode(records, 0, count, buf);
+		buf.flip();
+		
+		BitSource in = BitUtils.wrapSource(buf);
+		RecordSchema.Record record = schema.newRecord();
+		schema.skip(in, 17);
+		schema.read(in, record);
+		Assert.assertEquals(17, record.getLong(1));
+		schema.skip(in, 30);
+		schema.read(in, record);
+		Assert.assertEquals(48, record.getLong(1));
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TranscodeTest
+{
+	private static final IEEE754Format SMALL = 
+			new IEEE754Format(4, 7, BigInteger.valueOf(7));
+	
+	private final Random random = new Random(754);
+	
+	private double nextDouble()
+	{
+		switch (random.nextInt(8))
+		{
+		case 0:
+			return Double.longBitsToDouble(random.nextLong());
+		case 1:
+			return Double.longBitsToDouble(random.nextLong() >>> 12);
+		case 2:
+			return Math.scalb(random.nextDouble(), random.nextInt(320) - 160);
+		default:
+			return Math.scalb(random.nextGaussian(), random.nextInt(60) - 30);
+		}
+	}
+	
+	/**
+	 * @return the value transcoded through the generic path
+	 */
+	private static BigInteger generic(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			BigInteger bits, 
+			IEEE754Status status)
+	{
+		return generic(source, target, bits, 0, status);
+	}
+	
+	private static BigInteger generic(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			BigInteger bits, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(target.getLength() / 8 + 1);
+		IEEE754.decode(source, bits).toBits(
+				target, BitUtils.wrapSink(buf, 0), subnormals, status);
+		return BitUtils.readBigBits(
+				BitUtils.wrapSource(buf, 0), target.getLength());
+	}
+	
+	private static BigInteger streamed(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			BigInteger bits, 
+			IEEE754Status status)
+	{
+		return streamed(source, target, bits, 0, status);
+	}
+	
+	private static BigInteger streamed(
+			IEEE754Format source, 
+			IEEE754Format target, 
+			BigInteger bits, 
+			int subnormals,
+			IEEE754Status status)
+	{
+		ByteBuffer in = ByteBuffer.allocate(source.getLength() / 8 + 1);
+		BitUtils.writeBits(
+				BitUtils.wrapSink(in, 0), bits, source.getLength());
+		ByteBuffer out = ByteBuffer.allocate(target.getLength() / 8 + 1);
+		source.transcode(target, BitUtils.wrapSource(in, 0), 
+				BitUtils.wrapSink(out, 0), subnormals, status);
+		return BitUtils.readBigBits(
+				BitUtils.wrapSource(out, 0), target.getLength());
+	}
+	
+	private void assertMatchesGeneric(
+			IEEE754Format source, IEEE754Format target, BigInteger bits)
+	{
+		IEEE754Status expectedStatus = new IEEE754Status();
+		IEEE754Status actualStatus = new IEEE754Status();
+		Assert.assertEquals(
+				generic(source, target, bits, expectedStatus), 
+				streamed(source, target, bits, actualStatus));
+		Assert.assertEquals(
+				expectedStatus.getFlags(), actualStatus.getFlags());
+	}
+	
+	@Test
+	public void doubleToSingle()
+	{
+		IEEE754Status status = new IEEE754Status();
+		for (int i = 0; i < 100000; i++)
+		{
+			double d = nextDouble();
+			float expected = (float) d;
+			long actual = IEEE754Format.DOUBLE.transcode(IEEE754Format.SINGLE, 
+					Double.doubleToRawLongBits(d), status);
+			if (Float.isNaN(expected))
+			{
+				Assert.assertTrue(Float.isNaN(Float.intBitsToFloat(
+						(int) actual)));
+			}
+			else
+			{
+				Assert.assertEquals(Float.floatToRawIntBits(expected), 
+						(int) actual);
+				Assert.assertEquals(expected == d, 
+						!status.test(IEEE754Status.INEXACT));
+			}
+			status.clear();
+		}
+	}
+	
+	@Test
+	public void singleToDouble()
+	{
+		for (int i = 0; i < 100000; i++)
+		{
+			float f = Float.intBitsToFloat(random.nextInt());
+			if (!Float.isNaN(f))
+			{
+				Assert.assertEquals(Double.doubleToRawLongBits(f), 
+						IEEE754Format.SINGLE.transcode(IEEE754Format.DOUBLE, 
+								Float.floatToRawIntBits(f) & 0xFFFFFFFFL));
+			}
+		}
+	}
+	
+	@Test
+	public void matchesGeneric()
+	{
+		IEEE754Format[] formats = {
+				SMALL,
+				IEEE754Format.HALF,
+				IEEE754Format.SINGLE, 
+				IEEE754Format.DOUBLE, 
+				IEEE754Format.QUADRUPLE, 
+				IEEE754Format.OCTUPLE};
+		for (int i = 0; i < 20000; i++)
+		{
+			IEEE754 value = IEEE754.valueOf(nextDouble());
+			for (IEEE754Format source: formats)
+			{
+				BigInteger bits = value.toBigIntegerBits(source);
+				for (IEEE754Format target: formats)
+				{
+					assertMatchesGeneric(source, target, bits);
+				}
+			}
+		}
+		
+		/*
+		 * Every sub-normal of the wide source
+		 */
+		for (int i = 0; i < 200; i++)
+		{
+			BigInteger bits = new BigInteger(
+					random.nextInt(IEEE754Format.QUADRUPLE.getMantissaLength()), 
+					random);
+			assertMatchesGeneric(
+					IEEE754Format.QUADRUPLE, IEEE754Format.SINGLE, bits);
+			assertMatchesGeneric(
+					IEEE754Format.QUADRUPLE, IEEE754Format.OCTUPLE, bits);
+		}
+	}
+	
+	@Test
+	public void flushToZero()
+	{
+		IEEE754Format[] formats = {
+				SMALL,
+				IEEE754Format.HALF,
+				IEEE754Format.SINGLE, 
+				IEEE754Format.DOUBLE, 
+				IEEE754Format.QUADRUPLE};
+		IEEE754Status expectedStatus = new IEEE754Status();
+		IEEE754Status actualStatus = new IEEE754Status();
+		for (int i = 0; i < 20000; i++)
+		{
+			IEEE754 value = IEEE754.valueOf(nextDouble());
+			for (IEEE754Format source: formats)
+			{
+				BigInteger bits = value.toBigIntegerBits(source);
+				IEEE754 sourceValue = IEEE754.decode(source, bits);
+				for (IEEE754Format target: formats)
+				{
+					BigInteger expected;
+					if (sourceValue instanceof IEEE754.IEEE754Number 
+							&& sourceValue.toBigDecimal().abs().compareTo(
+									new IEEE754.IEEE754Number(
+											BigInteger.ONE.subtract(
+													target.getExponentBias()), 
+											BigInteger.ONE)
+											.toBigDecimal()) < 0)
+					{
+						expected = (sourceValue.toBigDecimal().signum() < 0 ? 
+								IEEE754.NEGATIVE_ZERO : IEEE754.POSITIVE_ZERO)
+										.toBigIntegerBits(target);
+						expectedStatus.raise(
+								IEEE754Status.UNDERFLOW | IEEE754Status.INEXACT);
+					}
+					else
+					{
+						expected = generic(
+								source, target, bits, expectedStatus);
+					}
+					Assert.assertEquals(expected, 
+							streamed(source, target, bits, 
+									IEEE754Format.FLUSH_TO_ZERO, actualStatus));
+					Assert.assertEquals(
+							expectedStatus.getFlags(), actualStatus.getFlags());
+					Assert.assertEquals(expected, 
+							generic(source, target, bits, 
+									IEEE754Format.FLUSH_TO_ZERO, actualStatus));
+					Assert.assertEquals(
+							expectedStatus.getFlags(), actualStatus.getFlags());
+					expectedStatus.clear();
+					actualStatus.clear();
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void denormalsAreZero()
+	{
+		IEEE754Format[] targets = {
+				IEEE754Format.HALF,
+				IEEE754Format.DOUBLE, 
+				IEEE754Format.QUADRUPLE};
+		for (int i = 0; i < 1000; i++)
+		{
+			boolean negative = random.nextBoolean();
+			int mantissa = random.nextInt(0x3FF) + 1;
+			BigInteger bits = BigInteger.valueOf(
+					negative ? 0x8000 | mantissa : mantissa);
+			IEEE754 zero = negative ? 
+					IEEE754.NEGATIVE_ZERO : IEEE754.POSITIVE_ZERO;
+			Assert.assertSame(zero, IEEE754.decode(IEEE754Format.HALF, 
+					new LongBitSource(bits.longValue(), 16), 
+					IEEE754Format.DENORMALS_ARE_ZERO));
+			for (IEEE754Format target: targets)
+			{
+				Assert.assertEquals(zero.toBigIntegerBits(target), 
+						streamed(IEEE754Format.HALF, target, bits, 
+								IEEE754Format.DENORMALS_ARE_ZERO, null));
+			}
+			
+			// Normal in quadruple precision, and flushed on the way back
+			Assert.assertEquals(zero.toBigIntegerBits(IEEE754Format.HALF), 
+					streamed(IEEE754Format.QUADRUPLE, IEEE754Format.HALF, 
+							IEEE754.decode(IEEE754Format.HALF, bits)
+									.toBigIntegerBits(IEEE754Format.QUADRUPLE), 
+							IEEE754Format.FLUSH_TO_ZERO, null));
+		}
+	}
+	
+	@Test
+	public void packedBuffers()
+	{
+		int count = 37;
+		IEEE754[] values = randomValues(count);
+		ByteBuffer src = ByteBuffer.allocate(count * 2 + 1);
+		src.put((byte) 0x5A);
+		IEEE754.encode(values, 0, count, 
+				IEEE754Format.HALF, BitUtils.wrapSink(src, 8), null);
+		
+		ByteBuffer dest = ByteBuffer.allocate(count * 4 + 1);
+		dest.put((byte) 0xA5);
+		src.position(1);
+		IEEE754Format.HALF.transcode(
+				IEEE754Format.SINGLE, src, dest, count, null);
+		Assert.assertEquals(1 + (count * 16 + 7) / 8, src.position());
+		Assert.assertEquals(1 + (count * 32 + 7) / 8, dest.position());
+		Assert.assertEquals((byte) 0xA5, dest.get(0));
+		
+		BitSource in = BitUtils.wrapSource(dest, 8);
+		for (int i = 0; i < count; i++)
+		{
+			Assert.assertEquals(values[i], 
+					IEEE754.decode(IEEE754Format.SINGLE, in));
+		}
+	}
+	
+	/**
+	 * 2^35 bits is 2^32 bytes, which would wrap to index zero as an int
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void readBeyondIntIndex()
+	{
+		BitUtils.readBits(ByteBuffer.allocate(4), 1L << 35, 8);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void writeBeyondIntIndex()
+	{
+		BitUtils.writeBits(ByteBuffer.allocate(4), 1L << 35, 0xFF, 8);
+	}
+	
+	private IEEE754[] randomValues(int count)
+	{
+		IEEE754[] values = new IEEE754[count];
+		for (int i = 0; i < count; i++)
+		{
+			values[i] = IEEE754.decode(IEEE754Format.HALF, 
+					BigInteger.valueOf(random.nextInt(0x10000)));
+		}
+		return values;
+	}
+}
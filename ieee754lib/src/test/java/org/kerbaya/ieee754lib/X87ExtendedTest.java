@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class X87ExtendedTest
+{
+	private final Random random = new Random(39);
+	
+	private static IEEE754 decode(short signExponent, long significand)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(X87Extended.BYTES);
+		buf.putShort(signExponent).putLong(significand).flip();
+		return IEEE754.decode(
+				IEEE754Format.EXTENDED, BitUtils.wrapSource(buf));
+	}
+	
+	private double nextDouble()
+	{
+		switch (random.nextInt(4))
+		{
+		case 0:
+			return Double.longBitsToDouble(random.nextLong());
+		case 1:
+			return Double.longBitsToDouble(random.nextLong() >>> 12 
+					| (random.nextBoolean() ? Long.MIN_VALUE : 0));
+		default:
+			return random.nextGaussian();
+		}
+	}
+	
+	@Test
+	public void testSpecialEncodings()
+	{
+		Assert.assertEquals(1D, 
+				decode((short) 0x3FFF, Long.MIN_VALUE).doubleValue(), 0);
+		
+		// Unnormal: integer bit clear, exponent of 1.0
+		Assert.assertEquals(0.5, 
+				decode((short) 0x3FFF, 0x4000000000000000L).doubleValue(), 0);
+		Assert.assertEquals(0.5, X87Extended.toDouble(
+				(short) 0x3FFF, 0x4000000000000000L, null), 0);
+		
+		// Pseudo-denormal: the same value as the smallest normal
+		Assert.assertEquals(
+				decode((short) 1, Long.MIN_VALUE), 
+				decode((short) 0, Long.MIN_VALUE));
+		
+		// Pseudo-infinity
+		Assert.assertSame(IEEE754.NaN, decode((short) 0x7FFF, 0));
+		Assert.assertTrue(
+				Double.isNaN(X87Extended.toDouble((short) 0x7FFF, 0, null)));
+		Assert.assertEquals(Double.NEGATIVE_INFINITY, 
+				decode((short) 0xFFFF, Long.MIN_VALUE).doubleValue(), 0);
+		
+		Assert.assertEquals(80, IEEE754Format.EXTENDED.getLength());
+		Assert.assertEquals("3fff8000000000000000", IEEE754.valueOf(1D)
+				.toBigIntegerBits(IEEE754Format.EXTENDED).toString(16));
+	}
+	
+	@Test
+	public void testFromDouble()
+	{
+		double[] values = new double[1000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = nextDouble();
+		}
+		ByteBuffer buf = ByteBuffer.allocate(values.length * X87Extended.BYTES);
+		X87Extended.fromDouble(values, 0, values.length, buf);
+		Assert.assertEquals(buf.capacity(), buf.position());
+		
+		ByteBuffer generic = ByteBuffer.allocate(buf.capacity());
+		IEEE754.encode(values, 0, values.length, IEEE754Format.EXTENDED, 
+				BitUtils.wrapSink(generic), null);
+		Assert.assertEquals(generic.flip(), buf.flip());
+		
+		double[] actual = new double[values.length];
+		X87Extended.toDouble(buf, actual, 0, actual.length, null);
+		Assert.assertArrayEquals(values, actual, 0);
+		
+		ByteBuffer little = ByteBuffer.allocate(buf.capacity())
+				.order(ByteOrder.LITTLE_ENDIAN);
+		X87Extended.fromDouble(values, 0, values.length, little);
+		little.flip();
+		X87Extended.toDouble(little, actual, 0, actual.length, null);
+		Assert.assertArrayEquals(values, actual, 0);
+	}
+	
+	@Test
+	public void testToDouble()
+	{
+		IEEE754Status fast = new IEEE754Status();
+		IEEE754Status slow = new IEEE754Status();
+		for (int i = 0; i < 20000; i++)
+		{
+			short signExponent = (short) random.nextInt();
+			if ((i & 1) == 0)
+			{
+				// Mostly within range of a double
+				signExponent = (short) (signExponent & 0x8000 
+						| 16383 + random.nextInt(2200) - 1100);
+			}
+			long significand = random.nextLong() >>> random.nextInt(64);
+			LongBitSink expected = new LongBitSink();
+			decode(signExponent, significand).toBits(
+					IEEE754Format.DOUBLE, expected, slow);
+			Assert.assertEquals(
+					Double.doubleToLongBits(
+							Double.longBitsToDouble(expected.getBits())), 
+					Double.doubleToLongBits(X87Extended.toDouble(
+							signExponent, significand, fast)));
+		}
+		Assert.assertEquals(slow.toString(), fast.toString());
+	}
+	
+	@Test
+	public void testToQuadruple()
+	{
+		final int count = 2000;
+		ByteBuffer src = ByteBuffer.allocate(count * X87Extended.BYTES);
+		ByteBuffer expected = ByteBuffer.allocate(count * 16);
+		BitSink out = BitUtils.wrapSink(expected);
+		for (int i = 0; i < count; i++)
+		{
+			short signExponent = (short) random.nextInt();
+			if ((i & 1) == 0)
+			{
+				signExponent &= (short) 0x8000;
+			}
+			long significand = random.nextLong() >>> random.nextInt(64);
+			src.putShort(signExponent).putLong(significand);
+			decode(signExponent, significand).toBits(
+					IEEE754Format.QUADRUPLE, out);
+		}
+		src.flip();
+		ByteBuffer actual = ByteBuffer.allocate(expected.capacity());
+		X87Extended.toQuadruple(src, actual, count, null);
+		Assert.assertEquals(src.limit(), src.position());
+		Assert.assertEquals(expected.flip(), actual.flip());
+	}
+}
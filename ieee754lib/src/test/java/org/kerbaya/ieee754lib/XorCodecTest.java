@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Glenn Lane
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kerbaya.ieee754lib;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XorCodecTest
+{
+	private static final int BLOCK_SIZE = 10;
+	
+	private void testRoundTrip(IEEE754Format format, double[] values)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(
+				values.length * (format.getLength() + 32) / 8 + 1);
+		XorEncoder enc = new XorEncoder(
+				format, BLOCK_SIZE, BitUtils.wrapSink(buf, 0));
+		IEEE754[] expected = new IEEE754[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			IEEE754 value = IEEE754.valueOf(values[i]);
+			expected[i] = IEEE754.decode(
+					format, value.toBigIntegerBits(format));
+			enc.write(value);
+		}
+		
+		XorDecoder dec = new XorDecoder(
+				format, BLOCK_SIZE, BitUtils.wrapSource(buf, 0));
+		for (int i = 0; i < values.length; i++)
+		{
+			Assert.assertEquals("sequential", expected[i], dec.next());
+		}
+		
+		long[] index = enc.getBlockIndex();
+		Assert.assertEquals((values.length + BLOCK_SIZE - 1) / BLOCK_SIZE, 
+				index.length);
+		for (int block = index.length - 1; block >= 0; block--)
+		{
+			dec = new XorDecoder(format, BLOCK_SIZE, 
+					BitUtils.wrapSource(buf, index[block]));
+			for (int i = block * BLOCK_SIZE; 
+					i < Math.min(values.length, (block + 1) * BLOCK_SIZE); 
+					i++)
+			{
+				Assert.assertEquals("random access", expected[i], dec.next());
+			}
+		}
+	}
+	
+	private double[] randomWalk(long seed)
+	{
+		Random r = new Random(seed);
+		double[] values = new double[95];
+		double v = 20D;
+		for (int i = 0; i < values.length; i++)
+		{
+			if (r.nextInt(4) != 0)
+			{
+				v += r.nextGaussian() * 0.01D;
+			}
+			values[i] = v;
+		}
+		values[40] = Double.NaN;
+		values[41] = -0D;
+		return values;
+	}
+	
+	@Test
+	public void roundTrip()
+	{
+		testRoundTrip(IEEE754Format.HALF, randomWalk(1));
+		testRoundTrip(IEEE754Format.SINGLE, randomWalk(2));
+		testRoundTrip(IEEE754Format.DOUBLE, randomWalk(3));
+		testRoundTrip(IEEE754Format.QUADRUPLE, randomWalk(4));
+	}
+	
+	@Test
+	public void overWideBits()
+	{
+		// Bits above the format's length are ignored
+		IEEE754Format format = IEEE754Format.QUADRUPLE;
+		double[] values = {1.5, 2.5, 3.5};
+		ByteBuffer buf = ByteBuffer.allocate(64);
+		XorEncoder enc = new XorEncoder(
+				format, BLOCK_SIZE, BitUtils.wrapSink(buf, 0));
+		enc.writeBits(IEEE754.valueOf(values[0]).toBigIntegerBits(format));
+		enc.writeBits(IEEE754.valueOf(values[1]).toBigIntegerBits(format)
+				.setBit(130));
+		enc.writeBits(IEEE754.valueOf(values[2]).toBigIntegerBits(format));
+		
+		XorDecoder dec = new XorDecoder(
+				format, BLOCK_SIZE, BitUtils.wrapSource(buf, 0));
+		for (double value: values)
+		{
+			Assert.assertEquals(IEEE754.valueOf(value), dec.next());
+		}
+	}
+	
+	@Test
+	public void repeatedValuesCompress()
+	{
+		XorEncoder enc = new XorEncoder(IEEE754Format.DOUBLE, 1000, 
+				BitUtils.wrapSink(ByteBuffer.allocate(1024), 0));
+		for (int i = 0; i < 100; i++)
+		{
+			enc.write(IEEE754.valueOf(42.5D));
+		}
+		Assert.assertEquals(64 + 99, enc.getBitCount());
+	}
+}